@@ -73,6 +73,17 @@ public class BaseVisitor extends ELBaseVisitor<Object> {
 
     Map<String, Object> alias;
 
+    public BaseVisitor() {}
+
+    /**
+     * Visitor reading variables from the given context directly, the context is not
+     * modified.
+     */
+    BaseVisitor(Map<String, Object> context) {
+        this.context = context;
+        this.alias = new HashMap<>(8);
+    }
+
     public synchronized void addAttribute(String name, Object object) {
         if (context == null) {
             context = new HashMap<>(8);
@@ -278,7 +289,7 @@ public class BaseVisitor extends ELBaseVisitor<Object> {
     }
 
     private Object getField(Object object, String fieldName) {
-        Map<String, Object> objectMap = ObjectUtils.getFieldMap(object);
+        Map<String, Object> objectMap = ObjectUtils.getFieldView(object);
         if (objectMap.containsKey(fieldName)) {
             return objectMap.get(fieldName);
         }
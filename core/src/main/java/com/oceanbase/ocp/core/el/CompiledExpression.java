@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.core.el;
+
+import java.util.Map;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.core.el.meta.ELLexer;
+import com.oceanbase.ocp.core.el.meta.ELParser;
+import com.oceanbase.ocp.core.el.util.ObjectUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Expression parsed once and evaluated many times.
+ * <p>
+ * The parse tree is never modified after parsing, and each evaluation uses its
+ * own visitor, so one instance can be shared between threads.
+ */
+@Slf4j
+public class CompiledExpression {
+
+    private final String expression;
+
+    private final ParseTree parseTree;
+
+    private CompiledExpression(String expression, ParseTree parseTree) {
+        this.expression = expression;
+        this.parseTree = parseTree;
+    }
+
+    /**
+     * Parse the expression.
+     *
+     * @throws com.oceanbase.ocp.core.el.exception.SyntaxErrorException if the
+     *         expression is illegal
+     */
+    public static CompiledExpression compile(String expression) {
+        Validate.notNull(expression, "expression is null");
+        ELLexer lexer = new ELLexer(new ANTLRInputStream(expression));
+        ELParser parser = new ELParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(new SyntaxErrorListener());
+        return new CompiledExpression(expression, parser.expr());
+    }
+
+    public Object eval(Map<String, Object> contextVariable) {
+        return new BaseVisitor(contextVariable).visit(parseTree);
+    }
+
+    public Object evalWithObject(Object obj) {
+        return eval(ObjectUtils.getFieldView(obj));
+    }
+
+    public Boolean evalToBoolean(Object obj, Boolean defaultValue) {
+        Object value = null;
+        try {
+            value = evalWithObject(obj);
+        } catch (Exception e) {
+            log.info("Error in evaluating expr:{} with object: {}", expression, obj, e);
+        }
+        return value == null ? defaultValue : Boolean.parseBoolean(value.toString());
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+}
@@ -12,39 +12,45 @@
 
 package com.oceanbase.ocp.core.el;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.tree.ParseTree;
-
-import com.oceanbase.ocp.core.el.meta.ELLexer;
-import com.oceanbase.ocp.core.el.meta.ELParser;
-import com.oceanbase.ocp.core.el.util.ObjectUtils;
-
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class SimpleExpressionCalculator {
 
+    static final int COMPILED_CACHE_SIZE = 256;
+
+    private static final Map<String, CompiledExpression> COMPILED_CACHE =
+            Collections.synchronizedMap(new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                    return size() > COMPILED_CACHE_SIZE;
+                }
+            });
+
+    /**
+     * Compiled expression, recently used expressions are cached.
+     */
+    public static CompiledExpression compile(String expression) {
+        CompiledExpression compiled = COMPILED_CACHE.get(expression);
+        if (compiled == null) {
+            compiled = CompiledExpression.compile(expression);
+            COMPILED_CACHE.put(expression, compiled);
+        }
+        return compiled;
+    }
+
     public static Object nullSafeEval(String expression, Map<String, Object> contextVariable) throws IOException {
-        ANTLRInputStream inputStream = new ANTLRInputStream(
-                new ByteArrayInputStream(expression.getBytes()));
-        ELLexer lexer = new ELLexer(inputStream);
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        ELParser parser = new ELParser(tokenStream);
-        parser.removeErrorListeners();
-        parser.addErrorListener(new SyntaxErrorListener());
-        ParseTree parseTree = parser.expr();
-        final BaseVisitor visitor = new BaseVisitor();
-        contextVariable.forEach(visitor::addAttribute);
-        return visitor.visit(parseTree);
+        return compile(expression).eval(contextVariable);
     }
 
     public static Object evalWithObject(String expression, Object obj) throws IOException {
-        return nullSafeEval(expression, ObjectUtils.getFieldMap(obj));
+        return compile(expression).evalWithObject(obj);
     }
 
     public static Double evalToDouble(Object obj, String expression) {
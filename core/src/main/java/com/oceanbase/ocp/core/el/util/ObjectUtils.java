@@ -12,30 +12,102 @@
 
 package com.oceanbase.ocp.core.el.util;
 
-import java.util.Arrays;
+import java.lang.reflect.Field;
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class ObjectUtils {
 
+    /**
+     * Accessible fields of each class, fields of super class take precedence over
+     * fields of sub class with the same name.
+     */
+    private static final ClassValue<Map<String, Field>> FIELDS = new ClassValue<Map<String, Field>>() {
+
+        @Override
+        protected Map<String, Field> computeValue(Class<?> type) {
+            Map<String, Field> fields = new LinkedHashMap<>();
+            Class<?> clz = type;
+            while (clz != null && !clz.equals(Object.class)) {
+                for (Field field : clz.getDeclaredFields()) {
+                    try {
+                        field.setAccessible(true);
+                        fields.put(field.getName(), field);
+                    } catch (RuntimeException e) {
+                        log.error("Error in getting access to field:{}", field);
+                    }
+                }
+                clz = clz.getSuperclass();
+            }
+            return Collections.unmodifiableMap(fields);
+        }
+    };
+
     public static Map<String, Object> getFieldMap(Object obj) {
-        Map<String, Object> map = new HashMap<>();
-        Class<?> clz = obj.getClass();
-        while (!clz.equals(Object.class)) {
-            Arrays.stream(clz.getDeclaredFields())
-                    .forEach(field -> {
-                        try {
-                            field.setAccessible(true);
-                            map.put(field.getName(), field.get(obj));
-                        } catch (IllegalAccessException e) {
-                            log.error("Error in getting access to field:{}", field);
-                        }
-                    });
-            clz = clz.getSuperclass();
+        Map<String, Field> fields = FIELDS.get(obj.getClass());
+        Map<String, Object> map = new HashMap<>(fields.size() * 2);
+        for (Field field : fields.values()) {
+            try {
+                map.put(field.getName(), field.get(obj));
+            } catch (IllegalAccessException e) {
+                log.error("Error in getting access to field:{}", field);
+            }
         }
         return map;
     }
+
+    /**
+     * Read-only view of fields of the object, field values are read on access
+     * instead of copied.
+     */
+    public static Map<String, Object> getFieldView(Object obj) {
+        return new FieldView(obj, FIELDS.get(obj.getClass()));
+    }
+
+    private static class FieldView extends AbstractMap<String, Object> {
+
+        private final Object obj;
+        private final Map<String, Field> fields;
+
+        FieldView(Object obj, Map<String, Field> fields) {
+            this.obj = obj;
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return fields.containsKey(key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            Field field = fields.get(key);
+            if (field == null) {
+                return null;
+            }
+            try {
+                return field.get(obj);
+            } catch (IllegalAccessException e) {
+                log.error("Error in getting access to field:{}", field);
+                return null;
+            }
+        }
+
+        @Override
+        public int size() {
+            return fields.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return Collections.unmodifiableMap(getFieldMap(obj)).entrySet();
+        }
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.core.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Published after a database of a tenant is created or dropped, listeners
+ * holding databases of the tenant should drop them.
+ */
+public class DatabaseChangedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 4528136601738914937L;
+
+    /**
+     * OB tenant id of the tenant whose databases changed.
+     */
+    @Getter
+    private final Long obTenantId;
+
+    public DatabaseChangedEvent(Object source, Long obTenantId) {
+        super(source);
+        this.obTenantId = obTenantId;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+
+package com.oceanbase.ocp.core.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Published after tenant info in metadb is synchronized from OB, listeners
+ * holding tenant info should drop it.
+ */
+public class TenantChangedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = -3185620449117853092L;
+
+    /**
+     * OB tenant id of the changed tenant, null if any tenant may have changed.
+     */
+    @Getter
+    private final Long obTenantId;
+
+    public TenantChangedEvent(Object source, Long obTenantId) {
+        super(source);
+        this.obTenantId = obTenantId;
+    }
+
+    public boolean isAllTenants() {
+        return obTenantId == null;
+    }
+}
@@ -12,6 +12,7 @@
 
 package com.oceanbase.ocp.core.ob.tenant;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -60,6 +61,16 @@ public interface TenantDaoManager {
      */
     ObTenantEntity saveTenant(ObTenantEntity entity);
 
+    /**
+     * Update synchronized fields of tenants in one transaction, including name,
+     * lock status, readonly status, primary zone, zone list, locality and status.
+     * Only changed fields of changed tenants are written.
+     *
+     * @param entities tenants with new field values
+     * @return updated tenant count
+     */
+    int updateTenants(Collection<ObTenantEntity> entities);
+
     /**
      * Delete OB tenant entity.
      *
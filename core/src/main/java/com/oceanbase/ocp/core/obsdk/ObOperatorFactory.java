@@ -12,15 +12,26 @@
 
 package com.oceanbase.ocp.core.obsdk;
 
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
 import com.oceanbase.ocp.core.exception.ConnectFailedException;
 import com.oceanbase.ocp.core.exception.TenantInfoTarget;
 import com.oceanbase.ocp.core.i18n.ErrorCodes;
 import com.oceanbase.ocp.core.obsdk.ConnectPropertiesBuilder.ConnectTarget;
 import com.oceanbase.ocp.obsdk.ObSdkContext;
 import com.oceanbase.ocp.obsdk.connector.ConnectProperties;
+import com.oceanbase.ocp.obsdk.connector.JdbcSocksProxy;
+import com.oceanbase.ocp.obsdk.connector.ObServerAddr;
 import com.oceanbase.ocp.obsdk.exception.ConnectorInitFailedException;
 import com.oceanbase.ocp.obsdk.operator.CompactionOperator;
 import com.oceanbase.ocp.obsdk.operator.ObOperator;
@@ -40,11 +51,34 @@ public class ObOperatorFactory {
 
     private static final String DB_USER = "root";
 
+    /**
+     * ObOperator is thread-safe, so instances are shared by connect properties.
+     * Properties contain credential and server addresses, a change of them leads to
+     * a new instance. Instances expire 10 minutes after creation, so that the OB
+     * version kept by the connect template is read again after an upgrade.
+     */
+    private final Cache<ConnectProperties, ObOperator> operatorCache;
+
+    private final Function<ConnectProperties, ObOperator> operatorCreator;
+
     @Autowired
     private ConnectPropertiesBuilder connectPropertiesBuilder;
 
+    public ObOperatorFactory() {
+        this(ObOperators::newObOperator, Ticker.systemTicker());
+    }
+
+    ObOperatorFactory(Function<ConnectProperties, ObOperator> operatorCreator, Ticker ticker) {
+        this.operatorCreator = operatorCreator;
+        this.operatorCache = Caffeine.newBuilder()
+                .maximumSize(16)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .ticker(ticker)
+                .build();
+    }
+
     /**
-     * Create ObOperator instance.
+     * Get ObOperator instance, cached by connect properties.
      *
      * @return ObOperator
      */
@@ -73,14 +107,32 @@ public class ObOperatorFactory {
         return connectPropertiesBuilder.buildConnectProperties(ConnectTarget.sys(DB_USER));
     }
 
-    private ObOperator getObOperator(ConnectProperties connectProperties) {
+    /**
+     * Server address list and proxy of properties are mutable, they are copied so
+     * that the cache key never changes.
+     */
+    static ConnectProperties immutableCopy(ConnectProperties connectProperties) {
+        ConnectProperties copy = connectProperties;
+        if (connectProperties.getObsAddrList() != null) {
+            copy = copy.withObsAddrList(Collections.unmodifiableList(connectProperties.getObsAddrList().stream()
+                    .map(addr -> ObServerAddr.builder().address(addr.getAddress()).port(addr.getPort()).build())
+                    .collect(Collectors.toList())));
+        }
+        JdbcSocksProxy proxy = connectProperties.getProxy();
+        if (proxy != null) {
+            copy = copy.withProxy(new JdbcSocksProxy(proxy.getProxyAddress(), proxy.getProxyPort()));
+        }
+        return copy;
+    }
+
+    ObOperator getObOperator(ConnectProperties connectProperties) {
         if (ObSdkContext.connectFailed(connectProperties)) {
             log.info("get connect state from obsdk context, state: false, connectProperties:{}", connectProperties);
             throw new ConnectFailedException(ErrorCodes.OB_TENANT_CONNECT_FAILED,
                     new TenantInfoTarget(connectProperties.getTenantName()), connectProperties.getTenantName());
         }
         try {
-            return ObOperators.newObOperator(connectProperties);
+            return operatorCache.get(immutableCopy(connectProperties), operatorCreator);
         } catch (ConnectorInitFailedException e) {
             ObSdkContext.setConnectState(connectProperties, Boolean.FALSE);
             log.error("[ObOperatorFactory] create operator failed, error message:{}", e.getMessage());
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.core.el;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.Test;
+
+import com.oceanbase.ocp.core.el.meta.ELLexer;
+import com.oceanbase.ocp.core.el.meta.ELParser;
+
+public class CompiledExpressionTest {
+
+    private static final String[] EXPRESSIONS = {
+            "$a + $b * 2",
+            "($a - $b) / 2",
+            "$a ^ 2 % 5",
+            "$a > $b or $name == 'obs'",
+            "not ($a <= $b)",
+            "$name in $names",
+            "sum($values) + max($values) - min($values)",
+            "avg($values)",
+            "count($values)",
+            "$name.length()",
+            "$a + 1 as c",
+    };
+
+    @Test
+    public void eval_sameAsInterpreted() throws IOException {
+        Map<String, Object> context = context(3, 4.5, "obs");
+        for (String expression : EXPRESSIONS) {
+            assertEquals(expression, interpret(expression, context),
+                    CompiledExpression.compile(expression).eval(context));
+        }
+    }
+
+    @Test
+    public void eval_reusedWithDifferentContexts() throws IOException {
+        for (String expression : EXPRESSIONS) {
+            CompiledExpression compiled = CompiledExpression.compile(expression);
+            Map<String, Object> first = context(3, 4.5, "obs");
+            Map<String, Object> second = context(7, 1.5, "ocp");
+            assertEquals(expression, interpret(expression, first), compiled.eval(first));
+            assertEquals(expression, interpret(expression, second), compiled.eval(second));
+            assertEquals(expression, interpret(expression, first), compiled.eval(first));
+        }
+    }
+
+    @Test
+    public void eval_contextNotModified() {
+        Map<String, Object> context = context(3, 4.5, "obs");
+        CompiledExpression.compile("$a + 1 as c").eval(context);
+        assertFalse(context.containsKey("c"));
+    }
+
+    @Test
+    public void evalWithObject_sameAsInterpreted() throws IOException {
+        Item item = new Item();
+        String expression = "$weight * $amount > 10 and $label == 'item'";
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("weight", item.weight);
+        fields.put("amount", item.amount);
+        fields.put("label", item.label);
+        assertEquals(interpret(expression, fields), CompiledExpression.compile(expression).evalWithObject(item));
+        assertEquals(interpret(expression, fields), SimpleExpressionCalculator.evalWithObject(expression, item));
+    }
+
+    /**
+     * Evaluation as done before expressions were compiled: parse on every call and
+     * copy the context into a fresh visitor.
+     */
+    private static Object interpret(String expression, Map<String, Object> contextVariable) throws IOException {
+        ANTLRInputStream input = new ANTLRInputStream(new ByteArrayInputStream(expression.getBytes()));
+        ELLexer lexer = new ELLexer(input);
+        ELParser parser = new ELParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(new SyntaxErrorListener());
+        ParseTree parseTree = parser.expr();
+        BaseVisitor visitor = new BaseVisitor();
+        contextVariable.forEach(visitor::addAttribute);
+        return visitor.visit(parseTree);
+    }
+
+    private static Map<String, Object> context(double a, double b, String name) {
+        Map<String, Object> context = new HashMap<>();
+        context.put("a", a);
+        context.put("b", b);
+        context.put("name", name);
+        context.put("names", Arrays.asList("obs", "ocp"));
+        context.put("values", Arrays.asList(1D, 2D, 3D, a));
+        return context;
+    }
+
+    private static class Item {
+
+        private final double weight = 2.5;
+
+        private final double amount = 5;
+
+        private final String label = "item";
+    }
+}
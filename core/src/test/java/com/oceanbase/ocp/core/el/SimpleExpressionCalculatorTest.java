@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.core.el;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class SimpleExpressionCalculatorTest {
+
+    @Test
+    public void compile_cached() {
+        CompiledExpression compiled = SimpleExpressionCalculator.compile("1 + 2");
+        assertSame(compiled, SimpleExpressionCalculator.compile("1 + 2"));
+    }
+
+    @Test
+    public void compile_leastRecentlyUsedEvicted() {
+        int size = SimpleExpressionCalculator.COMPILED_CACHE_SIZE;
+        // replace whatever other tests left in the cache
+        for (int i = 0; i < size; i++) {
+            SimpleExpressionCalculator.compile("1000 + " + i);
+        }
+        CompiledExpression eldest = SimpleExpressionCalculator.compile("1 - 1");
+        CompiledExpression recent = SimpleExpressionCalculator.compile("1 - 2");
+        for (int i = 0; i < size - 2; i++) {
+            SimpleExpressionCalculator.compile("2000 + " + i);
+        }
+        // full now, touching makes "1 - 2" the most recently used one
+        assertSame(recent, SimpleExpressionCalculator.compile("1 - 2"));
+
+        SimpleExpressionCalculator.compile("3000");
+
+        assertSame(recent, SimpleExpressionCalculator.compile("1 - 2"));
+        assertNotSame(eldest, SimpleExpressionCalculator.compile("1 - 1"));
+    }
+
+    @Test
+    public void nullSafeEval_evictedExpressionStillEvaluated() throws IOException {
+        String expression = "4 * 2";
+        Object expected = SimpleExpressionCalculator.nullSafeEval(expression, Collections.emptyMap());
+        for (int i = 0; i <= SimpleExpressionCalculator.COMPILED_CACHE_SIZE; i++) {
+            SimpleExpressionCalculator.compile("4000 + " + i);
+        }
+        assertEquals(expected, SimpleExpressionCalculator.nullSafeEval(expression, Collections.emptyMap()));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.core.el.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ObjectUtilsTest {
+
+    @Test
+    public void getFieldView_sameAsReflection() throws Exception {
+        Child child = new Child();
+        Map<String, Object> expected = reflectFieldMap(child);
+        Map<String, Object> view = ObjectUtils.getFieldView(child);
+
+        assertEquals(expected.size(), view.size());
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            assertTrue(entry.getKey(), view.containsKey(entry.getKey()));
+            assertEquals(entry.getKey(), entry.getValue(), view.get(entry.getKey()));
+        }
+        assertEquals(expected, view);
+        assertEquals(expected, new HashMap<>(view));
+        assertEquals(expected, ObjectUtils.getFieldMap(child));
+    }
+
+    @Test
+    public void getFieldView_inheritedAndPrivateFields() {
+        Map<String, Object> view = ObjectUtils.getFieldView(new Child());
+        assertEquals("parent-secret", view.get("parentSecret"));
+        assertEquals(7, view.get("parentCount"));
+        assertEquals("child-secret", view.get("childSecret"));
+        // field of super class takes precedence, same as the reflection map
+        assertEquals("parent-shadowed", view.get("shadowed"));
+    }
+
+    @Test
+    public void getFieldView_readsCurrentValue() {
+        Child child = new Child();
+        Map<String, Object> view = ObjectUtils.getFieldView(child);
+        child.childSecret = "changed";
+        assertEquals("changed", view.get("childSecret"));
+    }
+
+    @Test
+    public void getFieldView_unknownField() {
+        Map<String, Object> view = ObjectUtils.getFieldView(new Child());
+        assertFalse(view.containsKey("unknown"));
+        assertNull(view.get("unknown"));
+    }
+
+    /**
+     * Field map as built before field views, by walking declared fields of each
+     * class.
+     */
+    private static Map<String, Object> reflectFieldMap(Object obj) throws IllegalAccessException {
+        Map<String, Object> map = new HashMap<>();
+        Class<?> clz = obj.getClass();
+        while (!clz.equals(Object.class)) {
+            for (Field field : clz.getDeclaredFields()) {
+                field.setAccessible(true);
+                map.put(field.getName(), field.get(obj));
+            }
+            clz = clz.getSuperclass();
+        }
+        return map;
+    }
+
+    private static class Parent {
+
+        private final String parentSecret = "parent-secret";
+
+        protected int parentCount = 7;
+
+        private final String shadowed = "parent-shadowed";
+    }
+
+    private static class Child extends Parent {
+
+        private String childSecret = "child-secret";
+
+        private final String shadowed = "child-shadowed";
+    }
+}
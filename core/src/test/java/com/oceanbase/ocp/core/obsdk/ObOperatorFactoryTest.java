@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.core.obsdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.obsdk.connector.ConnectProperties;
+import com.oceanbase.ocp.obsdk.connector.ConnectionMode;
+import com.oceanbase.ocp.obsdk.connector.ObServerAddr;
+import com.oceanbase.ocp.obsdk.operator.ObOperator;
+
+public class ObOperatorFactoryTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final ObOperatorFactory factory = new ObOperatorFactory(properties -> {
+        created.incrementAndGet();
+        return ObOperator.builder().build();
+    }, nanos::get);
+
+    @Test
+    public void getObOperator_reusedForEqualProperties() {
+        ObOperator operator1 = factory.getObOperator(buildProperties("pass1"));
+        ObOperator operator2 = factory.getObOperator(buildProperties("pass1"));
+
+        assertSame(operator1, operator2);
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void getObOperator_newInstanceWhenPropertiesChanged() {
+        ObOperator operator1 = factory.getObOperator(buildProperties("pass1"));
+        ObOperator operator2 = factory.getObOperator(buildProperties("pass2"));
+
+        assertNotSame(operator1, operator2);
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void getObOperator_keyNotChangedByCaller() {
+        ConnectProperties properties = buildProperties("pass1");
+        ObOperator operator1 = factory.getObOperator(properties);
+        properties.getObsAddrList().get(0).setPort(2882);
+        properties.getObsAddrList().add(ObServerAddr.builder().address("127.0.0.2").port(2881).build());
+
+        ObOperator operator2 = factory.getObOperator(buildProperties("pass1"));
+
+        assertSame(operator1, operator2);
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void getObOperator_expiredAfterWriteEvenIfAccessed() {
+        ObOperator operator1 = factory.getObOperator(buildProperties("pass1"));
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        assertSame(operator1, factory.getObOperator(buildProperties("pass1")));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        ObOperator operator2 = factory.getObOperator(buildProperties("pass1"));
+
+        assertNotSame(operator1, operator2);
+        assertEquals(2, created.get());
+    }
+
+    private ConnectProperties buildProperties(String password) {
+        List<ObServerAddr> addrList = new ArrayList<>();
+        addrList.add(ObServerAddr.builder().address("127.0.0.1").port(2881).build());
+        return ConnectProperties.builder()
+                .connectionMode(ConnectionMode.DIRECT)
+                .obsAddrList(addrList)
+                .username("root")
+                .password(password)
+                .tenantName("sys")
+                .clusterName("test_cluster")
+                .build();
+    }
+}
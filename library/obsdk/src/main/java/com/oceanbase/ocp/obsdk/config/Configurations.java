@@ -21,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 public class Configurations {
 
     private static long cleanPeriod = 300;
+    private static long validationPeriod = 30;
     private static boolean sqlLogEnabled = true;
     private static long slowQueryThresholdMillis = 1000L;
     private static long operationGlobalTimeoutMillis = 300_000L;
@@ -37,6 +38,15 @@ public class Configurations {
         return cleanPeriod;
     }
 
+    public static void setValidationPeriod(long seconds) {
+        validationPeriod = ObSdkUtils.restrictValue(10, 600, seconds);
+        log.info("[obsdk] set validationPeriod={}", validationPeriod);
+    }
+
+    public static long getValidationPeriod() {
+        return validationPeriod;
+    }
+
     public static void setSqlLogEnabled(boolean enabled) {
         sqlLogEnabled = enabled;
         log.info("[obsdk] set sqlLogEnabled={}", sqlLogEnabled);
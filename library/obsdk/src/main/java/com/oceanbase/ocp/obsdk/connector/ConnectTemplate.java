@@ -17,6 +17,9 @@ import static com.oceanbase.ocp.common.util.LogContentUtils.maskSqlArgs;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -32,6 +35,8 @@ import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 
+import com.alibaba.druid.pool.GetConnectionTimeoutException;
+
 import com.oceanbase.ocp.obsdk.ObSdkContext;
 import com.oceanbase.ocp.obsdk.config.Configurations;
 import com.oceanbase.ocp.obsdk.enums.CompatibilityMode;
@@ -49,16 +54,17 @@ public class ConnectTemplate {
 
     protected ConnectProperties connectProperties;
 
-    private JdbcTemplate jdbcTemplate;
-    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private volatile ObConnector obConnector;
+
+    private volatile Templates templates;
 
     public ConnectTemplate(ConnectProperties connectProperties) {
         this.connectProperties = connectProperties;
-        initJdbcTemplate();
+        this.templates = new Templates(getDataSource());
     }
 
     public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql);
@@ -72,7 +78,7 @@ public class ConnectTemplate {
     }
 
     public <T> List<T> query(String sql, Object[] args, RowMapper<T> rowMapper) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql, args);
@@ -86,7 +92,7 @@ public class ConnectTemplate {
     }
 
     public <T> List<T> namedQuery(String sql, SqlParameterSource parameters, RowMapper<T> rowMapper) {
-        prepare();
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate = prepare().namedParameterJdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql, toArgs(parameters));
@@ -111,7 +117,7 @@ public class ConnectTemplate {
     }
 
     public <T> T queryForObject(String sql, RowMapper<T> rowMapper) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql);
@@ -125,7 +131,7 @@ public class ConnectTemplate {
     }
 
     public <T> T queryForObject(String sql, Object[] args, RowMapper<T> rowMapper) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql, args);
@@ -139,7 +145,7 @@ public class ConnectTemplate {
     }
 
     public <T> T queryForObject(String sql, Class<T> clazz) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql);
@@ -153,7 +159,7 @@ public class ConnectTemplate {
     }
 
     public <T> T queryForObject(String sql, Object[] args, Class<T> clazz) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql);
@@ -167,7 +173,7 @@ public class ConnectTemplate {
     }
 
     public SqlRowSet queryForRowSet(String sql, Object[] args) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql);
@@ -181,23 +187,23 @@ public class ConnectTemplate {
     }
 
     public int update(String sql, Object... args) {
-        prepare();
-        return updateInner(sql, args);
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
+        return updateInner(jdbcTemplate, sql, args);
     }
 
     public int update(Long timeout, String sql, Object... args) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         try {
             long globalTimeout = Configurations.getOperationGlobalTimeoutMillis() * 1000; // change to us
             long maxTimeout = Math.max(globalTimeout, timeout * 1000 * 1000); // change to us
-            updateInner(SET_OB_QUERY_TIMEOUT, maxTimeout);
-            return updateInner(sql, args);
+            updateInner(jdbcTemplate, SET_OB_QUERY_TIMEOUT, maxTimeout);
+            return updateInner(jdbcTemplate, sql, args);
         } finally {
-            updateInner(SET_OB_QUERY_TIMEOUT, DEFAULT_OB_QUERY_TIME_OUT);
+            updateInner(jdbcTemplate, SET_OB_QUERY_TIMEOUT, DEFAULT_OB_QUERY_TIME_OUT);
         }
     }
 
-    private int updateInner(String sql, Object... args) {
+    private int updateInner(JdbcTemplate jdbcTemplate, String sql, Object... args) {
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql, args);
@@ -211,7 +217,7 @@ public class ConnectTemplate {
     }
 
     public void execute(String sql) {
-        prepare();
+        JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
         long startMillis = System.currentTimeMillis();
         try {
             printSql(sql);
@@ -232,7 +238,7 @@ public class ConnectTemplate {
                 && ObTenantMode.ORACLE.getSuperUser().equalsIgnoreCase(schema)) {
             execute(sql);
         } else {
-            prepare();
+            JdbcTemplate jdbcTemplate = prepare().jdbcTemplate;
             long startMillis = System.currentTimeMillis();
             Connection connection = null;
             try {
@@ -261,43 +267,47 @@ public class ConnectTemplate {
         }
     }
 
-    private void initJdbcTemplate() {
+    /**
+     * Templates of the current data source. Each call works on the templates it
+     * got, so one connect template can be shared between threads.
+     */
+    private Templates templates() {
         DataSource dataSource = getDataSource();
-        this.jdbcTemplate = new JdbcTemplate(dataSource);
-        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
-    }
-
-    private void refreshJdbcTemplate() {
-        DataSource dataSource = getDataSource();
-        this.jdbcTemplate.setDataSource(dataSource);
-        this.namedParameterJdbcTemplate.getJdbcTemplate().setDataSource(dataSource);
+        Templates current = this.templates;
+        if (current == null || current.dataSource != dataSource) {
+            current = new Templates(dataSource);
+            this.templates = current;
+        }
+        return current;
     }
 
     private DataSource getDataSource() {
         ObConnector obConnector = ObConnectors.getObConnector(this.connectProperties);
+        this.obConnector = obConnector;
         return obConnector.dataSource();
     }
 
-    private void prepare() {
-        refreshJdbcTemplate();
-        resetQueryTimeout();
+    private Templates prepare() {
+        Templates current = templates();
+        resetQueryTimeout(current.jdbcTemplate);
+        return current;
     }
 
-    private void resetQueryTimeout() {
+    private void resetQueryTimeout(JdbcTemplate jdbcTemplate) {
         Long queryTimeoutMs = ObSdkContext.getQueryTimeout();
         if (queryTimeoutMs == null) {
-            setQueryTimeout(DEFAULT_OB_QUERY_TIME_OUT);
+            setQueryTimeout(jdbcTemplate, DEFAULT_OB_QUERY_TIME_OUT);
         } else {
-            setQueryTimeout(queryTimeoutMs * 1000L);
+            setQueryTimeout(jdbcTemplate, queryTimeoutMs * 1000L);
         }
     }
 
-    private void setQueryTimeout(long queryTimeoutUs) {
+    private void setQueryTimeout(JdbcTemplate jdbcTemplate, long queryTimeoutUs) {
         long globalTimeout = Configurations.getOperationGlobalTimeoutMillis() * 1000; // change to us
         if (queryTimeoutUs > globalTimeout) {
             queryTimeoutUs = globalTimeout;
         }
-        updateInner(SET_OB_QUERY_TIMEOUT, queryTimeoutUs);
+        updateInner(jdbcTemplate, SET_OB_QUERY_TIMEOUT, queryTimeoutUs);
     }
 
     private void printSlowQuery(long startMillis, String sql) {
@@ -337,11 +347,23 @@ public class ConnectTemplate {
     }
 
     private RuntimeException customizeException(SQLException ex, String sql) {
+        if (isConnectionFailure(ex)) {
+            ObConnectors.markUnhealthy(obConnector);
+        }
         String debugMessage = String.format("SQL [%s]; SQL state [%s]; error code [%s]; message [%s]", maskSql(sql),
                 ex.getSQLState(), ex.getErrorCode(), ex.getMessage());
         return new OceanBaseException(ex.getMessage(), ex, ex.getErrorCode(), ex.getSQLState(), debugMessage);
     }
 
+    private static boolean isConnectionFailure(SQLException ex) {
+        if (ex instanceof SQLNonTransientConnectionException || ex instanceof SQLTransientConnectionException
+                || ex instanceof SQLRecoverableException || ex instanceof GetConnectionTimeoutException) {
+            return true;
+        }
+        // SQL state class 08 is connection exception
+        return StringUtils.startsWith(ex.getSQLState(), "08");
+    }
+
     private void close(Connection x) {
         if (x == null) {
             return;
@@ -356,4 +378,16 @@ public class ConnectTemplate {
         }
     }
 
+    private static class Templates {
+
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+        Templates(DataSource dataSource) {
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        }
+    }
 }
@@ -29,7 +29,7 @@ public class ObConnectTemplate extends ConnectTemplate {
             "SELECT MIN(VALUE) FROM GV$OB_PARAMETERS WHERE NAME = 'min_observer_version'";
 
 
-    private String obVersion;
+    private volatile String obVersion;
 
     public ObConnectTemplate(ConnectProperties connectProperties) {
         super(connectProperties);
@@ -45,6 +45,19 @@ public interface ObConnector {
      */
     boolean isAlive();
 
+    /**
+     * Indicates whether the ob connector is healthy according to the last
+     * validation, without accessing the database
+     *
+     * @return <tt>true</tt> if the ob connector is healthy, <tt>false</tt> if not
+     */
+    boolean isHealthy();
+
+    /**
+     * Mark the ob connector unhealthy, it will be validated before next use
+     */
+    void markUnhealthy();
+
     /**
      * Indicates whether the ob connector is active
      *
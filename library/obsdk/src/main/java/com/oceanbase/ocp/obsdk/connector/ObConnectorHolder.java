@@ -12,11 +12,14 @@
 
 package com.oceanbase.ocp.obsdk.connector;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Predicate;
@@ -44,6 +47,12 @@ class ObConnectorHolder {
 
     private List<ObConnector> delayedCloseList;
 
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder validationCount = new LongAdder();
+    private final LongAdder validationFailedCount = new LongAdder();
+    private final LongAdder validationNanos = new LongAdder();
+
     ObConnectorHolder() {
         cache = Caffeine.newBuilder()
                 .expireAfterAccess(maxIdleSeconds, TimeUnit.SECONDS)
@@ -89,43 +98,86 @@ class ObConnectorHolder {
     }
 
 
+    /**
+     * Connector which is marked healthy, without validating, counting misses or
+     * logging, for the lock free lookup path.
+     */
+    ObConnector peekObConnector(ConnectProperties connectProperties) {
+        for (ObConnectorKey key : keysOf(connectProperties)) {
+            ObConnector obConnector = cache.getIfPresent(key);
+            if (obConnector != null && obConnector.isHealthy()) {
+                hitCount.increment();
+                return obConnector;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Connectors marked healthy are returned without accessing the database, only
+     * unhealthy ones are validated. Counted as one hit or one miss.
+     */
     ObConnector getObConnector(ConnectProperties connectProperties) {
-        ObConnector obConnector = null;
+        List<ObConnectorKey> keys = keysOf(connectProperties);
+        for (ObConnectorKey key : keys) {
+            ObConnector obConnector = getObConnector(key);
+            if (obConnector != null) {
+                hitCount.increment();
+                return obConnector;
+            }
+        }
+        log.info("[obsdk] no alive ob connector found in holder, keys={}", keys);
+        missCount.increment();
+        return null;
+    }
 
+    private List<ObConnectorKey> keysOf(ConnectProperties connectProperties) {
         if (ConnectionMode.DIRECT.equals(connectProperties.getConnectionMode())
                 && CollectionUtils.isNotEmpty(connectProperties.getObsAddrList())) {
+            List<ObConnectorKey> keys = new ArrayList<>(connectProperties.getObsAddrList().size());
             for (ObServerAddr addr : connectProperties.getObsAddrList()) {
-                ConnectProperties newConnectProperties =
-                        connectProperties.withAddress(addr.getAddress()).withPort(addr.getPort());
-                ObConnectorKey key = ObConnectorKey.of(newConnectProperties);
-                obConnector = getObConnector(key);
-                if (obConnector != null) {
-                    break;
-                }
+                keys.add(ObConnectorKey.of(connectProperties.withAddress(addr.getAddress()).withPort(addr.getPort())));
             }
-        } else {
-
-            ObConnectorKey key = ObConnectorKey.of(connectProperties);
-            obConnector = getObConnector(key);
+            return keys;
         }
-        return obConnector;
+        return Collections.singletonList(ObConnectorKey.of(connectProperties));
     }
 
     private ObConnector getObConnector(ObConnectorKey key) {
         ObConnector obConnector = cache.getIfPresent(key);
-        if (obConnector != null) {
-            if (obConnector.isAlive()) {
-                log.debug("[obsdk] alive ob connector found in holder, key={}", key);
-            } else {
+        if (obConnector == null) {
+            return null;
+        }
+        if (obConnector.isHealthy() || validate(obConnector)) {
+            log.debug("[obsdk] alive ob connector found in holder, key={}", key);
+            return obConnector;
+        }
+        log.info("[obsdk] the ob connector found in holder is not alive, key={}", key);
+        cache.invalidate(key);
+        return null;
+    }
 
-                log.info("[obsdk] the ob connector found in holder is not alive, key={}", key);
+    /**
+     * Validate all connectors in holder, dead ones are invalidated.
+     */
+    void validateAll() {
+        cache.asMap().forEach((key, obConnector) -> {
+            if (!validate(obConnector)) {
+                log.info("[obsdk] the ob connector in holder is not alive, key={}", key);
                 cache.invalidate(key);
-                obConnector = null;
             }
-        } else {
-            log.info("[obsdk] no ob connector found in holder, key={}", key);
+        });
+    }
+
+    private boolean validate(ObConnector obConnector) {
+        long start = System.nanoTime();
+        boolean alive = obConnector.isAlive();
+        validationNanos.add(System.nanoTime() - start);
+        validationCount.increment();
+        if (!alive) {
+            validationFailedCount.increment();
         }
-        return obConnector;
+        return alive;
     }
 
     void invalidate(String clusterName) {
@@ -174,6 +226,26 @@ class ObConnectorHolder {
         }
     }
 
+    long getHitCount() {
+        return hitCount.sum();
+    }
+
+    long getMissCount() {
+        return missCount.sum();
+    }
+
+    long getValidationCount() {
+        return validationCount.sum();
+    }
+
+    long getValidationFailedCount() {
+        return validationFailedCount.sum();
+    }
+
+    long getValidationNanos() {
+        return validationNanos.sum();
+    }
+
     void setCapacity(long size) {
         cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(size));
     }
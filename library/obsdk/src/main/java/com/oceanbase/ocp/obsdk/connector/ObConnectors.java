@@ -78,6 +78,11 @@ public final class ObConnectors {
     public static ObConnector getObConnector(ConnectProperties connectProperties) {
         validate(connectProperties);
 
+        ObConnector cached = holder.peekObConnector(connectProperties);
+        if (cached != null) {
+            printServerInfo(cached.key());
+            return cached;
+        }
         synchronized (Mutex.get(connectProperties)) {
             ObConnector obConnector = holder.getObConnector(connectProperties);
             if (obConnector != null) {
@@ -108,6 +113,45 @@ public final class ObConnectors {
         holder.cleanUp();
     }
 
+    /**
+     * Validate connectors in holder in background, so that lookups only check the
+     * health flag.
+     */
+    public static void validateConnectors() {
+        holder.validateAll();
+    }
+
+    /**
+     * Mark the connector unhealthy after a connection failure, it is validated
+     * before next use.
+     */
+    public static void markUnhealthy(ObConnector obConnector) {
+        if (obConnector != null) {
+            log.info("[obsdk] mark ob connector unhealthy, key={}", obConnector.key());
+            obConnector.markUnhealthy();
+        }
+    }
+
+    public static long getHolderHitCount() {
+        return holder.getHitCount();
+    }
+
+    public static long getHolderMissCount() {
+        return holder.getMissCount();
+    }
+
+    public static long getValidationCount() {
+        return holder.getValidationCount();
+    }
+
+    public static long getValidationFailedCount() {
+        return holder.getValidationFailedCount();
+    }
+
+    public static long getValidationNanos() {
+        return holder.getValidationNanos();
+    }
+
     public static synchronized void setHolderCapacity(long capacity) {
         long restrictValue = ObSdkUtils.restrictValue(10, 200, capacity);
         holder.setCapacity(restrictValue);
@@ -45,6 +45,8 @@ abstract class AbstractConnector implements ObConnector {
 
     private DruidDataSource dataSource;
 
+    private volatile boolean healthy = true;
+
     AbstractConnector(ConnectProperties connectProperties) {
         this.connectProperties = connectProperties;
         this.key = ObConnectorKey.of(connectProperties);
@@ -130,16 +132,28 @@ abstract class AbstractConnector implements ObConnector {
         Connection conn = null; // NOPMD
         try {
             conn = this.dataSource.getConnection();
-            return ObSdkUtils.checkConnection(conn, VALID_QUERY_SQL, VALID_QUERT_TIMEOUT_SECONDS);
+            healthy = ObSdkUtils.checkConnection(conn, VALID_QUERY_SQL, VALID_QUERT_TIMEOUT_SECONDS);
+            return healthy;
         } catch (Exception e) {
             log.warn("[obsdk] ob connector is not alive, get connection failed, connectProperties={}, error:{}",
                     connectProperties, e.getMessage());
+            healthy = false;
             return false;
         } finally {
             JdbcUtils.close(conn);
         }
     }
 
+    @Override
+    public boolean isHealthy() {
+        return healthy && this.dataSource != null && !this.dataSource.isClosed();
+    }
+
+    @Override
+    public void markUnhealthy() {
+        healthy = false;
+    }
+
     @Override
     public boolean isActive() {
         if (this.dataSource == null) {
@@ -32,5 +32,8 @@ public class CacheTimer implements SchedulingConfigurer {
         taskRegistrar.addTriggerTask(ObConnectors::cleanUp,
                 triggerContext -> new PeriodicTrigger(Configurations.getCleanPeriod(), TimeUnit.SECONDS)
                         .nextExecutionTime(triggerContext));
+        taskRegistrar.addTriggerTask(ObConnectors::validateConnectors,
+                triggerContext -> new PeriodicTrigger(Configurations.getValidationPeriod(), TimeUnit.SECONDS)
+                        .nextExecutionTime(triggerContext));
     }
 }
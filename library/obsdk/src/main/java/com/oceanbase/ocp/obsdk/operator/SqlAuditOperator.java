@@ -14,10 +14,12 @@ package com.oceanbase.ocp.obsdk.operator;
 
 import java.util.List;
 
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditBucketStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditRawStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlTextEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.TenantSlowSqlCounter;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySlowSqlRankParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlAuditBucketParam;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlTextAny;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryTopSqlRawStatParam;
 
@@ -27,6 +29,12 @@ public interface SqlAuditOperator {
 
     List<SqlAuditRawStatEntity> querySlowSqlRawStat(QueryTopSqlRawStatParam query);
 
+    /**
+     * Sql audit statistics of all tenants grouped by sql, server and time bucket of
+     * end time.
+     */
+    List<SqlAuditBucketStatEntity> querySqlAuditByBucket(QuerySqlAuditBucketParam query);
+
     SqlTextEntity querySqlTextAny(QuerySqlTextAny querySqlTextAny);
 
     SqlTextEntity querySqlTextAnyWithoutDbId(QuerySqlTextAny querySqlTextAny);
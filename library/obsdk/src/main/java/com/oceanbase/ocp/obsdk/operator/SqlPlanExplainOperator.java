@@ -16,8 +16,14 @@ import java.util.List;
 
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlan;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlans;
 
 public interface SqlPlanExplainOperator {
 
     List<PlanExplainEntity> queryByPlan(QueryExplainByPlan query);
+
+    /**
+     * Query explain of plans in one round trip.
+     */
+    List<PlanExplainEntity> queryByPlans(QueryExplainByPlans query);
 }
@@ -121,4 +121,13 @@ public interface TenantOperator {
      * @return {@link TenantJobProgress}
      */
     TenantJobProgress getJobProgress(Long obTenantId, RootServiceJobType type);
+
+    /**
+     * Obtain the latest job progress of each tenant and job type in one query
+     *
+     * @param types job types
+     * @return list of {@link TenantJobProgress}, tenants without job of the type
+     *         are absent
+     */
+    List<TenantJobProgress> listLatestJobProgress(List<RootServiceJobType> types);
 }
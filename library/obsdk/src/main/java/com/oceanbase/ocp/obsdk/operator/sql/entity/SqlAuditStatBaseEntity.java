@@ -146,4 +146,86 @@ public abstract class SqlAuditStatBaseEntity {
 
     public Long missPlans;
 
+    /**
+     * Fold statistics of other into this entity, max values are kept as max and
+     * others are summed.
+     */
+    public void merge(SqlAuditStatBaseEntity other) {
+        exec = sum(exec, other.exec);
+        affectedRows = sum(affectedRows, other.affectedRows);
+        maxAffectedRows = max(maxAffectedRows, other.maxAffectedRows);
+        returnRows = sum(returnRows, other.returnRows);
+        maxReturnRows = max(maxReturnRows, other.maxReturnRows);
+        partitionCount = sum(partitionCount, other.partitionCount);
+        failCount = sum(failCount, other.failCount);
+        retCode4012Count = sum(retCode4012Count, other.retCode4012Count);
+        retCode4013Count = sum(retCode4013Count, other.retCode4013Count);
+        retCode5001Count = sum(retCode5001Count, other.retCode5001Count);
+        retCode5024Count = sum(retCode5024Count, other.retCode5024Count);
+        retCode5167Count = sum(retCode5167Count, other.retCode5167Count);
+        retCode5217Count = sum(retCode5217Count, other.retCode5217Count);
+        retCode6002Count = sum(retCode6002Count, other.retCode6002Count);
+        event0WaitTimeUs = sum(event0WaitTimeUs, other.event0WaitTimeUs);
+        event1WaitTimeUs = sum(event1WaitTimeUs, other.event1WaitTimeUs);
+        event2WaitTimeUs = sum(event2WaitTimeUs, other.event2WaitTimeUs);
+        event3WaitTimeUs = sum(event3WaitTimeUs, other.event3WaitTimeUs);
+        totalWaitTimeUs = sum(totalWaitTimeUs, other.totalWaitTimeUs);
+        maxTotalWaitTimeUs = max(maxTotalWaitTimeUs, other.maxTotalWaitTimeUs);
+        totalWaits = sum(totalWaits, other.totalWaits);
+        rpcCount = sum(rpcCount, other.rpcCount);
+        localPlanCount = sum(localPlanCount, other.localPlanCount);
+        remotePlanCount = sum(remotePlanCount, other.remotePlanCount);
+        distPlanCount = sum(distPlanCount, other.distPlanCount);
+        innerSqlCount = sum(innerSqlCount, other.innerSqlCount);
+        executorRpcCount = sum(executorRpcCount, other.executorRpcCount);
+        missPlanCount = sum(missPlanCount, other.missPlanCount);
+        elapsedTimeUs = sum(elapsedTimeUs, other.elapsedTimeUs);
+        maxElapsedTimeUs = max(maxElapsedTimeUs, other.maxElapsedTimeUs);
+        netTimeUs = sum(netTimeUs, other.netTimeUs);
+        netWaitTimeUs = sum(netWaitTimeUs, other.netWaitTimeUs);
+        queueTimeUs = sum(queueTimeUs, other.queueTimeUs);
+        decodeTimeUs = sum(decodeTimeUs, other.decodeTimeUs);
+        getPlanTimeUs = sum(getPlanTimeUs, other.getPlanTimeUs);
+        executeTimeUs = sum(executeTimeUs, other.executeTimeUs);
+        cpuTimeUs = sum(cpuTimeUs, other.cpuTimeUs);
+        maxCpuTimeUs = max(maxCpuTimeUs, other.maxCpuTimeUs);
+        applicationWaitTimeUs = sum(applicationWaitTimeUs, other.applicationWaitTimeUs);
+        maxApplicationWaitTimeUs = max(maxApplicationWaitTimeUs, other.maxApplicationWaitTimeUs);
+        concurrencyWaitTimeUs = sum(concurrencyWaitTimeUs, other.concurrencyWaitTimeUs);
+        maxConcurrencyWaitTimeUs = max(maxConcurrencyWaitTimeUs, other.maxConcurrencyWaitTimeUs);
+        userIoWaitTimeUs = sum(userIoWaitTimeUs, other.userIoWaitTimeUs);
+        maxUserIoWaitTimeUs = max(maxUserIoWaitTimeUs, other.maxUserIoWaitTimeUs);
+        scheduleTimeUs = sum(scheduleTimeUs, other.scheduleTimeUs);
+        rowCacheHit = sum(rowCacheHit, other.rowCacheHit);
+        bloomFilterCacheHit = sum(bloomFilterCacheHit, other.bloomFilterCacheHit);
+        blockCacheHit = sum(blockCacheHit, other.blockCacheHit);
+        blockIndexCacheHit = sum(blockIndexCacheHit, other.blockIndexCacheHit);
+        diskReads = sum(diskReads, other.diskReads);
+        maxDiskReads = max(maxDiskReads, other.maxDiskReads);
+        retryCount = sum(retryCount, other.retryCount);
+        tableScans = sum(tableScans, other.tableScans);
+        strongConsistencyCount = sum(strongConsistencyCount, other.strongConsistencyCount);
+        weakConsistencyCount = sum(weakConsistencyCount, other.weakConsistencyCount);
+        memstoreReadRows = sum(memstoreReadRows, other.memstoreReadRows);
+        ssstoreReadRows = sum(ssstoreReadRows, other.ssstoreReadRows);
+        expectedWorkerCount = sum(expectedWorkerCount, other.expectedWorkerCount);
+        usedWorkerCount = sum(usedWorkerCount, other.usedWorkerCount);
+        batchTime = sum(batchTime, other.batchTime);
+    }
+
+    private static Long sum(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(a + b);
+    }
+
+    private static Long max(Long a, Long b) {
+        return a == null ? b : b == null ? a : Long.valueOf(Math.max(a, b));
+    }
+
+    private static BigInteger sum(BigInteger a, BigInteger b) {
+        return a == null ? b : b == null ? a : a.add(b);
+    }
+
+    private static BigInteger max(BigInteger a, BigInteger b) {
+        return a == null ? b : b == null ? a : a.max(b);
+    }
 }
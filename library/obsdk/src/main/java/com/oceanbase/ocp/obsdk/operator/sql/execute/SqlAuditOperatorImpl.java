@@ -21,10 +21,12 @@ import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import com.oceanbase.ocp.common.util.time.TimeUtils;
 import com.oceanbase.ocp.obsdk.connector.ObConnectTemplate;
 import com.oceanbase.ocp.obsdk.operator.SqlAuditOperator;
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditBucketStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditRawStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlTextEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.TenantSlowSqlCounter;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySlowSqlRankParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlAuditBucketParam;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlTextAny;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryTopSqlRawStatParam;
 
@@ -56,8 +58,8 @@ public class SqlAuditOperatorImpl implements SqlAuditOperator {
     public static String SQL_AUDIT_WITH_TEXT_STATEMENT =
             "( select S.*, T.statement , T.query_sql from " + SQL_AUDIT_BASE_STATEMENT;
 
-    public static String SELECT_SQL_AUDIT_STATEMENT =
-            " select tenant_id as obTenantId, db_id as obDbId, db_name as dbName, statement as statement, "
+    public static String SQL_AUDIT_STAT_COLUMNS =
+            " tenant_id as obTenantId, db_id as obDbId, db_name as dbName, statement as statement, "
                     + " query_sql as sqlText, user_id as obUserId, user_name as userName, "
                     + " svr_ip as serverIp, svr_port as serverPort, sql_id as sqlId, "
                     + " sum(affected_rows) as affectedRows, max(affected_rows) as maxAffectedRows, "
@@ -87,9 +89,21 @@ public class SqlAuditOperatorImpl implements SqlAuditOperator {
                     + " max(disk_reads) as maxDiskReads, sum(retry_cnt) as retryCount, "
                     + " sum(table_scan) as tableScans, sum(consistency_level_strong) as strongConsistencyCount, "
                     + " sum(consistency_level_weak) as weakConsistencyCount, sum(memstore_read_row_count) as memstoreReadRows, "
-                    + " sum(ssstore_read_row_count) as ssstoreReadRows, count(*) as exec "
-                    + " from "
-                    + SQL_AUDIT_WITH_TEXT_STATEMENT;
+                    + " sum(ssstore_read_row_count) as ssstoreReadRows, count(*) as exec ";
+
+    public static String SELECT_SQL_AUDIT_STATEMENT =
+            " select " + SQL_AUDIT_STAT_COLUMNS + " from " + SQL_AUDIT_WITH_TEXT_STATEMENT;
+
+    public static String SELECT_SQL_AUDIT_BUCKET_STATEMENT =
+            " select floor((request_time + elapsed_time) / ?) * ? as bucketStartUs, " + SQL_AUDIT_STAT_COLUMNS
+                    + " from " + SQL_AUDIT_WITH_TEXT_STATEMENT;
+
+    public static String BUCKET_WHERE_CONDITION_STATEMENT =
+            " where char_length(tenant_name) != 0 and (request_time + elapsed_time) > ? and "
+                    + "(request_time + elapsed_time) <= ? ";
+
+    public static String BUCKET_GROUP_BY_CONDITION_STATEMENT =
+            " group by tenant_id, db_id, sql_id, svr_ip, svr_port, bucketStartUs";
 
     public static String WHERE_CONDITION_STATEMENT =
             " where tenant_id = ? and char_length(tenant_name) != 0 and (request_time + elapsed_time) >= ? and "
@@ -99,6 +113,8 @@ public class SqlAuditOperatorImpl implements SqlAuditOperator {
 
     public static String SQL_SERVER_IP_CONDITION_STATEMENT = " and svr_ip = ? ";
 
+    public static String SQL_ID_CONDITION_STATEMENT = " and sql_id = ? ";
+
     public static String HAVING_STATEMENT = " having 1 = 1 ";
 
     public static String SQL_INNER_CONDITION_STATEMENT = " and innerSqlCount = 0 ";
@@ -162,6 +178,15 @@ public class SqlAuditOperatorImpl implements SqlAuditOperator {
         return connectTemplate.query(sql, array, new BeanPropertyRowMapper<>(SqlAuditRawStatEntity.class));
     }
 
+    @Override
+    public List<SqlAuditBucketStatEntity> querySqlAuditByBucket(QuerySqlAuditBucketParam query) {
+        String sql = SELECT_SQL_AUDIT_BUCKET_STATEMENT + BUCKET_WHERE_CONDITION_STATEMENT + JOIN_PLAN_STAT_STATEMENT
+                + BUCKET_GROUP_BY_CONDITION_STATEMENT;
+        Object[] array = new Object[] {query.getBucketUs(), query.getBucketUs(), query.getStartTimeUs(),
+                query.getEndTimeUs()};
+        return connectTemplate.query(sql, array, new BeanPropertyRowMapper<>(SqlAuditBucketStatEntity.class));
+    }
+
     public String buildQuerySqlAuditRawStatement(List<Object> params, QueryTopSqlRawStatParam query) {
         StringBuilder sqlBuilder = new StringBuilder();
         sqlBuilder.append(SELECT_SQL_AUDIT_STATEMENT).append(WHERE_CONDITION_STATEMENT);
@@ -174,6 +199,10 @@ public class SqlAuditOperatorImpl implements SqlAuditOperator {
             sqlBuilder.append(SQL_SERVER_PORT_CONDITION_STATEMENT);
             params.add(query.getServerPort());
         }
+        if (StringUtils.isNotEmpty(query.getSqlId())) {
+            sqlBuilder.append(SQL_ID_CONDITION_STATEMENT);
+            params.add(query.getSqlId());
+        }
         sqlBuilder.append(JOIN_PLAN_STAT_STATEMENT).append(GROUP_BY_CONDITION_STATEMENT).append(HAVING_STATEMENT);
         if (!query.includeInner) {
             sqlBuilder.append(SQL_INNER_CONDITION_STATEMENT);
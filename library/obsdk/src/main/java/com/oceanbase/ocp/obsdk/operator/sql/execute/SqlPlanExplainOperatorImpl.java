@@ -12,14 +12,21 @@
 
 package com.oceanbase.ocp.obsdk.operator.sql.execute;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.lang3.Validate;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 
 import com.oceanbase.ocp.obsdk.connector.ObConnectTemplate;
 import com.oceanbase.ocp.obsdk.operator.SqlPlanExplainOperator;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.model.PlanUid;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlan;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlans;
 
 public class SqlPlanExplainOperatorImpl implements SqlPlanExplainOperator {
 
@@ -31,6 +38,15 @@ public class SqlPlanExplainOperatorImpl implements SqlPlanExplainOperator {
                     + " join DBA_OB_SERVERS T "
                     + " on S.svr_ip = T.svr_ip and S.svr_port = T.svr_port ";
 
+    private static final String SELECT_SQL_PLANS_EXPLAIN_AFTER_V4 =
+            " select S.tenant_id as obTenantId, S.plan_id as planId, S.operator, S.name, "
+                    + " S.rows, S.cost, S.property, T.id as obServerId from "
+                    + " (select tenant_id, svr_ip, svr_port, plan_id, operator, name, rows, cost, property "
+                    + " from GV$OB_PLAN_CACHE_PLAN_EXPLAIN  where tenant_id = ? and plan_id in (%s)) S"
+                    + " join DBA_OB_SERVERS T "
+                    + " on S.svr_ip = T.svr_ip and S.svr_port = T.svr_port "
+                    + " where (T.id, S.plan_id) in (%s) ";
+
     private final ObConnectTemplate connectTemplate;
 
     public SqlPlanExplainOperatorImpl(ObConnectTemplate connectTemplate) {
@@ -43,4 +59,24 @@ public class SqlPlanExplainOperatorImpl implements SqlPlanExplainOperator {
         Object[] array = new Object[] {query.getObTenantId(), query.getPlanId()};
         return connectTemplate.query(sql, array, new BeanPropertyRowMapper<>(PlanExplainEntity.class));
     }
+
+    @Override
+    public List<PlanExplainEntity> queryByPlans(QueryExplainByPlans query) {
+        Validate.notEmpty(query.getPlans(), "plans is empty");
+        Set<Long> planIds = new LinkedHashSet<>();
+        for (PlanUid plan : query.getPlans()) {
+            planIds.add(plan.planId);
+        }
+        String sql = String.format(SELECT_SQL_PLANS_EXPLAIN_AFTER_V4,
+                String.join(", ", Collections.nCopies(planIds.size(), "?")),
+                String.join(", ", Collections.nCopies(query.getPlans().size(), "(?, ?)")));
+        List<Object> args = new ArrayList<>(1 + planIds.size() + query.getPlans().size() * 2);
+        args.add(query.getObTenantId());
+        args.addAll(planIds);
+        for (PlanUid plan : query.getPlans()) {
+            args.add(plan.obServerId);
+            args.add(plan.planId);
+        }
+        return connectTemplate.query(sql, args.toArray(), new BeanPropertyRowMapper<>(PlanExplainEntity.class));
+    }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.obsdk.operator.sql.param;
+
+import java.util.List;
+
+import com.oceanbase.ocp.obsdk.operator.sql.model.PlanUid;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+@Data
+@Builder
+public class QueryExplainByPlans {
+
+    @NonNull
+    @Builder.Default
+    public Integer timeout = 30_000_000;
+
+    @NonNull
+    public Long obTenantId;
+
+    /**
+     * Plans to query, explains are matched by server and plan id, as plan ids are
+     * local to each server.
+     */
+    @NonNull
+    public List<PlanUid> plans;
+}
@@ -10,23 +10,26 @@
  * See the Mulan PSL v2 for more details.
  */
 
-package com.oceanbase.ocp.monitor.helper;
+package com.oceanbase.ocp.obsdk.operator.sql.param;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
 
-public class String2IntMap {
-
-    private final Map<String, Integer> str2IntMap = new ConcurrentHashMap<>();
-    private final AtomicInteger currentValue = new AtomicInteger(1);
+/**
+ * Query of sql audit statistics grouped by time bucket, rows are selected by
+ * end time in (startTimeUs, endTimeUs].
+ */
+@Data
+@Builder(builderClassName = "Builder")
+public class QuerySqlAuditBucketParam {
 
-    public int getInt(String str) {
-        return str2IntMap.computeIfAbsent(str, t -> currentValue.getAndIncrement());
-    }
+    @NonNull
+    public Long startTimeUs;
 
-    public int size() {
-        return str2IntMap.size();
-    }
+    @NonNull
+    public Long endTimeUs;
 
+    @NonNull
+    public Long bucketUs;
 }
@@ -13,7 +13,9 @@
 package com.oceanbase.ocp.obsdk.operator.tenant;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -60,10 +62,17 @@ public class MysqlTenantOperator implements TenantOperator {
     private static final String ALTER_TENANT_WHITELIST = "ALTER TENANT `%s` SET VARIABLES ob_tcp_invited_nodes = ?";
     private static final String SELECT_CDB_OB_SYS_VARIABLES =
             "SELECT TENANT_ID, NAME, VALUE FROM oceanbase.CDB_OB_SYS_VARIABLES WHERE TENANT_ID = ?";
+    private static final String SELECT_CDB_OB_SYS_VARIABLES_BY_NAME =
+            "SELECT TENANT_ID, NAME, VALUE FROM oceanbase.CDB_OB_SYS_VARIABLES WHERE NAME IN (?, ?)";
     private static final String SELECT_LATEST_OB_TENANT_JOB = "SELECT"
             + " TENANT_ID, JOB_ID, JOB_TYPE, JOB_STATUS, PROGRESS FROM oceanbase.DBA_OB_TENANT_JOBS"
             + " WHERE TENANT_ID = ? AND JOB_TYPE = ? ORDER BY JOB_ID DESC LIMIT 1";
 
+    private static final String SELECT_LATEST_OB_TENANT_JOBS = "SELECT"
+            + " TENANT_ID, JOB_ID, JOB_TYPE, JOB_STATUS, PROGRESS FROM oceanbase.DBA_OB_TENANT_JOBS"
+            + " WHERE JOB_ID IN (SELECT MAX(JOB_ID) FROM oceanbase.DBA_OB_TENANT_JOBS"
+            + " WHERE JOB_TYPE IN (%s) GROUP BY TENANT_ID, JOB_TYPE)";
+
     private ObConnectTemplate connectTemplate;
 
     public MysqlTenantOperator(ObConnectTemplate connectTemplate) {
@@ -123,7 +132,13 @@ public class MysqlTenantOperator implements TenantOperator {
     @Override
     public List<ObTenant> listTenant() {
         List<ObTenant> tenants = connectTemplate.query(SELECT_OB_TENANTS, new BeanPropertyRowMapper<>(ObTenant.class));
-        return tenants.stream().peek(this::appendObTenant).collect(Collectors.toList());
+        Map<Long, List<SysVariable>> variables = listAppendedSysVariable();
+        if (variables == null) {
+            return tenants;
+        }
+        return tenants.stream()
+                .peek(t -> appendObTenant(t, variables.getOrDefault(t.getTenantId(), Collections.emptyList())))
+                .collect(Collectors.toList());
     }
 
     @Override
@@ -231,17 +246,52 @@ public class MysqlTenantOperator implements TenantOperator {
         return DataAccessUtils.singleResult(rootServiceJobList);
     }
 
+    @Override
+    public List<TenantJobProgress> listLatestJobProgress(List<RootServiceJobType> types) {
+        Validate.notEmpty(types, "input root service job types is empty");
+        Validate.isTrue(types.stream().allMatch(type -> type.getGroup() == RootServiceJobTypeGroup.TENANT),
+                "only tenant job type group supported");
+        String sql = String.format(SELECT_LATEST_OB_TENANT_JOBS,
+                types.stream().map(type -> "?").collect(Collectors.joining(", ")));
+        return connectTemplate.query(sql, types.stream().map(RootServiceJobType::toString).toArray(),
+                new BeanPropertyRowMapper<>(TenantJobProgress.class));
+    }
+
     private void appendObTenant(ObTenant obTenant) {
         try {
-            appendReadOnly(obTenant);
-            appendCollationType(obTenant);
+            List<SysVariable> variableList = listSysVariable(obTenant.getTenantId());
+            appendReadOnly(obTenant, variableList);
+            appendCollationType(obTenant, variableList);
         } catch (OceanBaseException e) {
             log.info("exception when append ob tenant, message={}", e.getMessage());
         }
     }
 
-    private void appendReadOnly(ObTenant obTenant) {
-        List<SysVariable> variableList = listSysVariable(obTenant.getTenantId());
+    private void appendObTenant(ObTenant obTenant, List<SysVariable> variableList) {
+        appendReadOnly(obTenant, variableList);
+        appendCollationType(obTenant, variableList);
+    }
+
+    /**
+     * Sys variables appended to {@link ObTenant} of all tenants in one query,
+     * grouped by tenant id.
+     *
+     * @return null if the query failed, then nothing should be appended
+     */
+    private Map<Long, List<SysVariable>> listAppendedSysVariable() {
+        Object[] names = {SysVariableName.READ_ONLY.toString(), SysVariableName.CHARACTER_SET_SERVER.toString()};
+        try {
+            return connectTemplate.query(SELECT_CDB_OB_SYS_VARIABLES_BY_NAME, names,
+                    new BeanPropertyRowMapper<>(SysVariable.class))
+                    .stream()
+                    .collect(Collectors.groupingBy(SysVariable::getTenantId));
+        } catch (OceanBaseException e) {
+            log.info("exception when list sys variables of tenants, message={}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void appendReadOnly(ObTenant obTenant, List<SysVariable> variableList) {
         Boolean readOnly = variableList.stream()
                 .filter(t -> StringUtils.equals(t.getName(), SysVariableName.READ_ONLY.toString()))
                 .findFirst()
@@ -251,8 +301,7 @@ public class MysqlTenantOperator implements TenantOperator {
         obTenant.setReadOnly(readOnly);
     }
 
-    private void appendCollationType(ObTenant obTenant) {
-        List<SysVariable> variableList = listSysVariable(obTenant.getTenantId());
+    private void appendCollationType(ObTenant obTenant, List<SysVariable> variableList) {
         variableList.stream()
                 .filter(t -> StringUtils.equals(t.getName(), SysVariableName.CHARACTER_SET_SERVER.toString()))
                 .findFirst()
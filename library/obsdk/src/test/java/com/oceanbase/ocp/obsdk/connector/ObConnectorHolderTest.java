@@ -0,0 +1,99 @@
+package com.oceanbase.ocp.obsdk.connector;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ObConnectorHolderTest {
+
+    private ObConnectorHolder holder;
+
+    private ConnectProperties connectProperties;
+
+    @Before
+    public void setUp() {
+        holder = new ObConnectorHolder();
+        connectProperties = ConnectProperties.builder()
+                .connectionMode(ConnectionMode.PROXY)
+                .address("127.0.0.1")
+                .port(2883).username("root")
+                .tenantName("sys")
+                .clusterName("test_cluster")
+                .obClusterId(12312L)
+                .password("*******")
+                .database("oceanbase")
+                .build();
+    }
+
+    @Test
+    public void peekObConnector_missNotCounted() {
+        Assert.assertNull(holder.peekObConnector(connectProperties));
+        Assert.assertEquals(0L, holder.getMissCount());
+
+        Assert.assertNull(holder.getObConnector(connectProperties));
+        Assert.assertEquals(1L, holder.getMissCount());
+        Assert.assertEquals(0L, holder.getHitCount());
+    }
+
+    @Test
+    public void peekObConnector_unhealthyNotValidated() {
+        ObConnector connector = mockConnector(connectProperties, false, true);
+        holder.put(connector);
+
+        Assert.assertNull(holder.peekObConnector(connectProperties));
+        verify(connector, never()).isAlive();
+
+        Assert.assertSame(connector, holder.getObConnector(connectProperties));
+        verify(connector, times(1)).isAlive();
+        Assert.assertEquals(1L, holder.getHitCount());
+        Assert.assertEquals(0L, holder.getMissCount());
+    }
+
+    @Test
+    public void peekObConnector_healthyCountedAsHit() {
+        ObConnector connector = mockConnector(connectProperties, true, true);
+        holder.put(connector);
+
+        Assert.assertSame(connector, holder.peekObConnector(connectProperties));
+        Assert.assertEquals(1L, holder.getHitCount());
+        verify(connector, never()).isAlive();
+    }
+
+    @Test
+    public void getObConnector_directModeMissCountedOnce() {
+        ConnectProperties direct = connectProperties.withConnectionMode(ConnectionMode.DIRECT)
+                .withObsAddrList(Arrays.asList(ObServerAddr.builder().address("127.0.0.1").port(2881).build(),
+                        ObServerAddr.builder().address("127.0.0.2").port(2881).build()));
+
+        Assert.assertNull(holder.getObConnector(direct));
+        Assert.assertEquals(1L, holder.getMissCount());
+    }
+
+    @Test
+    public void getObConnector_deadConnectorInvalidated() {
+        ObConnector connector = mockConnector(connectProperties, false, false);
+        holder.put(connector);
+
+        Assert.assertNull(holder.getObConnector(connectProperties));
+        Assert.assertEquals(1L, holder.getMissCount());
+        Assert.assertEquals(1L, holder.getValidationFailedCount());
+        Assert.assertNull(holder.getObConnector(connectProperties));
+        Assert.assertEquals(1L, holder.getValidationCount());
+    }
+
+    private ObConnector mockConnector(ConnectProperties properties, boolean healthy, boolean alive) {
+        ObConnector connector = mock(ObConnector.class);
+        when(connector.key()).thenReturn(ObConnectorKey.of(properties));
+        when(connector.isHealthy()).thenReturn(healthy);
+        when(connector.isAlive()).thenReturn(alive);
+        return connector;
+    }
+}
@@ -3,6 +3,8 @@ package com.oceanbase.ocp.obsdk.connector;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.After;
@@ -207,4 +209,56 @@ public class ObConnectorsTest {
 
         assertThat(c2, is(mockConnector2));
     }
+
+    @Test
+    public void getObConnector_shouldNotValidateHealthyConnector() throws Exception {
+        DefaultConnector mockConnector1 = mock(DefaultConnector.class);
+        PowerMockito.whenNew(DefaultConnector.class).withAnyArguments().thenReturn(mockConnector1);
+        when(mockConnector1.key()).thenReturn(ObConnectorKey.of(connectProperties));
+        when(mockConnector1.isHealthy()).thenReturn(true);
+        ObConnector c1 = ObConnectors.getObConnector(connectProperties);
+        ObConnector c2 = ObConnectors.getObConnector(connectProperties);
+
+        assertThat(c2, is(c1));
+        verify(mockConnector1, never()).isAlive();
+    }
+
+    @Test
+    public void getObConnector_shouldReturnNewConnectorWhenUnhealthyConnectorIsDead() throws Exception {
+        DefaultConnector mockConnector1 = mock(DefaultConnector.class);
+        PowerMockito.whenNew(DefaultConnector.class).withAnyArguments().thenReturn(mockConnector1);
+        when(mockConnector1.key()).thenReturn(ObConnectorKey.of(connectProperties));
+        when(mockConnector1.isHealthy()).thenReturn(false);
+        when(mockConnector1.isAlive()).thenReturn(false);
+        ObConnector c1 = ObConnectors.getObConnector(connectProperties);
+        assertThat(c1, is(mockConnector1));
+
+        DefaultConnector mockConnector2 = mock(DefaultConnector.class);
+        PowerMockito.whenNew(DefaultConnector.class).withAnyArguments().thenReturn(mockConnector2);
+        when(mockConnector2.key()).thenReturn(ObConnectorKey.of(connectProperties));
+        when(mockConnector2.isHealthy()).thenReturn(true);
+        ObConnector c2 = ObConnectors.getObConnector(connectProperties);
+
+        assertThat(c2, is(mockConnector2));
+    }
+
+    @Test
+    public void validateConnectors_shouldInvalidateDeadConnector() throws Exception {
+        DefaultConnector mockConnector1 = mock(DefaultConnector.class);
+        PowerMockito.whenNew(DefaultConnector.class).withAnyArguments().thenReturn(mockConnector1);
+        when(mockConnector1.key()).thenReturn(ObConnectorKey.of(connectProperties));
+        when(mockConnector1.isHealthy()).thenReturn(true);
+        ObConnectors.getObConnector(connectProperties);
+
+        when(mockConnector1.isAlive()).thenReturn(false);
+        ObConnectors.validateConnectors();
+
+        DefaultConnector mockConnector2 = mock(DefaultConnector.class);
+        PowerMockito.whenNew(DefaultConnector.class).withAnyArguments().thenReturn(mockConnector2);
+        when(mockConnector2.key()).thenReturn(ObConnectorKey.of(connectProperties));
+        when(mockConnector2.isHealthy()).thenReturn(true);
+        ObConnector c2 = ObConnectors.getObConnector(connectProperties);
+
+        assertThat(c2, is(mockConnector2));
+    }
 }
@@ -22,7 +22,7 @@ public class CacheTimerTest {
         ScheduledTaskRegistrar taskRegistrar = new ScheduledTaskRegistrar();
         CacheTimer cacheTimer = new CacheTimer();
         cacheTimer.configureTasks(taskRegistrar);
-        assertEquals(1, taskRegistrar.getTriggerTaskList().size());
+        assertEquals(2, taskRegistrar.getTriggerTaskList().size());
 
         Trigger trigger = taskRegistrar.getTriggerTaskList().get(0).getTrigger();
         Date now = new Date();
@@ -30,6 +30,10 @@ public class CacheTimerTest {
         assertTrue(next.after(now));
         long period = (next.getTime() - now.getTime()) / 1000;
         assertTrue(period >= 30 && period <= 1800);
+
+        Trigger validationTrigger = taskRegistrar.getTriggerTaskList().get(1).getTrigger();
+        long validationPeriod = (getNextDate(validationTrigger, now).getTime() - now.getTime()) / 1000;
+        assertTrue(validationPeriod >= 10 && validationPeriod <= 600);
     }
 
     private Date getNextDate(Trigger trigger, Date now) {
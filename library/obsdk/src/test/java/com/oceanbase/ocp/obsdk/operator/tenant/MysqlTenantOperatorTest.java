@@ -3,6 +3,7 @@ package com.oceanbase.ocp.obsdk.operator.tenant;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -21,6 +22,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.jdbc.core.RowMapper;
 
 import com.oceanbase.ocp.obsdk.connector.ObConnectTemplate;
+import com.oceanbase.ocp.obsdk.enums.RootServiceJobType;
 import com.oceanbase.ocp.obsdk.exception.OceanBaseException;
 import com.oceanbase.ocp.obsdk.operator.tenant.model.CreateTenantInput;
 import com.oceanbase.ocp.obsdk.operator.tenant.model.ObTenant;
@@ -328,6 +330,70 @@ public class MysqlTenantOperatorTest {
     @Test
     public void getJobProgress() {}
 
+    @Test
+    public void listTenant_appendSysVariablesInOneQuery() {
+        List<ObTenant> obTenants = Arrays.asList(buildObTenant(1001L, "tenant1"), buildObTenant(1002L, "tenant2"));
+        when(template.query(anyString(), any(RowMapper.class))).thenReturn(obTenants);
+        when(template.query(anyString(), any(Object[].class), any(RowMapper.class))).thenReturn(Arrays.asList(
+                buildSysVariable(1001L, "read_only", "ON"), buildSysVariable(1001L, "character_set_server", "45"),
+                buildSysVariable(1002L, "read_only", "OFF")));
+
+        MysqlTenantOperator operator = new MysqlTenantOperator(template);
+        List<ObTenant> tenants = operator.listTenant();
+
+        verify(template, times(1)).query(anyString(), any(Object[].class), any(RowMapper.class));
+        Assert.assertTrue(tenants.get(0).getReadOnly());
+        Assert.assertEquals(Long.valueOf(45L), tenants.get(0).getCollationType());
+        Assert.assertFalse(tenants.get(1).getReadOnly());
+        Assert.assertNull(tenants.get(1).getCollationType());
+    }
+
+    @Test
+    public void listTenant_sysVariablesQueryFailed() {
+        List<ObTenant> obTenants = Arrays.asList(buildObTenant(1001L, "tenant1"), buildObTenant(1002L, "tenant2"));
+        when(template.query(anyString(), any(RowMapper.class))).thenReturn(obTenants);
+        when(template.query(anyString(), any(Object[].class), any(RowMapper.class)))
+                .thenThrow(new OceanBaseException("error"));
+
+        MysqlTenantOperator operator = new MysqlTenantOperator(template);
+        List<ObTenant> tenants = operator.listTenant();
+
+        Assert.assertEquals(2, tenants.size());
+        for (ObTenant tenant : tenants) {
+            Assert.assertNull(tenant.getReadOnly());
+            Assert.assertNull(tenant.getCollationType());
+        }
+    }
+
+    @Test
+    public void listLatestJobProgress_sqlShouldCorrect() {
+        MysqlTenantOperator operator = new MysqlTenantOperator(template);
+        operator.listLatestJobProgress(Arrays.asList(RootServiceJobType.ALTER_TENANT_LOCALITY,
+                RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM));
+
+        ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> argsCaptor = ArgumentCaptor.forClass(Object[].class);
+        verify(template).query(sqlCaptor.capture(), argsCaptor.capture(), any(RowMapper.class));
+
+        Assert.assertTrue(sqlCaptor.getValue().contains("WHERE JOB_TYPE IN (?, ?) GROUP BY TENANT_ID, JOB_TYPE"));
+        Assert.assertArrayEquals(new Object[] {"ALTER_TENANT_LOCALITY", "SHRINK_RESOURCE_POOL_UNIT_NUM"},
+                argsCaptor.getValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void listLatestJobProgress_shouldThrowExceptionWhenInputTypesEmpty() {
+        MysqlTenantOperator operator = new MysqlTenantOperator(template);
+        operator.listLatestJobProgress(Collections.emptyList());
+    }
+
+    private SysVariable buildSysVariable(Long tenantId, String name, String value) {
+        SysVariable variable = new SysVariable();
+        variable.setTenantId(tenantId);
+        variable.setName(name);
+        variable.setValue(value);
+        return variable;
+    }
+
     private ObTenant buildObTenant(String tenantName) {
         ObTenant tenant = new ObTenant();
         tenant.setTenantId(1001L);
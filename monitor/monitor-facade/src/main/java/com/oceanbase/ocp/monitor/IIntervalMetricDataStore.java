@@ -13,6 +13,7 @@ package com.oceanbase.ocp.monitor;
 
 import java.util.LinkedList;
 
+import com.oceanbase.ocp.monitor.model.metric.Metric;
 import com.oceanbase.ocp.monitor.model.metric.MetricLine;
 
 public interface IIntervalMetricDataStore extends IMetricDataRead {
@@ -25,4 +26,34 @@ public interface IIntervalMetricDataStore extends IMetricDataRead {
         return store(lines);
     }
 
+    /**
+     * Store single sample without building metric line.
+     */
+    default boolean store(Metric metric, double value, long timestamp) {
+        return store(new MetricLine(metric, value, timestamp)) > 0;
+    }
+
+    /**
+     * Batch for samples of one scrape, which is flushed after the last sample.
+     */
+    default SampleBatch newSampleBatch() {
+        return new SampleBatch() {
+
+            @Override
+            public void add(Metric metric, double value, long timestamp) {
+                store(metric, value, timestamp);
+            }
+
+            @Override
+            public void flush() {}
+        };
+    }
+
+    interface SampleBatch {
+
+        void add(Metric metric, double value, long timestamp);
+
+        void flush();
+    }
+
 }
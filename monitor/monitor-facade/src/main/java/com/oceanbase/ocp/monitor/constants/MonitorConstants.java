@@ -27,10 +27,17 @@ public class MonitorConstants {
      */
     public static final String TABLE_NAME_MINUTE_DATA = "metric_data_minute";
 
+    /**
+     * Hour-level data storage table
+     */
+    public static final String TABLE_NAME_HOUR_DATA = "metric_data_hour";
+
     public static final int SECOND_READ_CACHE_SIZE = 4;
 
     public static final long MINUTE_SECONDS = 60L;
 
+    public static final long HOUR_SECONDS = 3600L;
+
     /**
      * 32472144000 means 2999-1-1, if second greater than, <br>
      * means may transfer milliseconds, not seconds
@@ -49,6 +56,17 @@ public class MonitorConstants {
      */
     public static final int ARCHIVE_MAX_BATCH_SIZE = 1000;
 
+    public static final int ARCHIVE_MIN_BATCH_SIZE = 100;
+
+    public static final int ARCHIVE_BATCH_SIZE_LIMIT = 5000;
+
+    public static final long ARCHIVE_TARGET_BATCH_MILLIS = 1000L;
+
+    /**
+     * Count of hash subpartitions by series_id of metric_data_second.
+     */
+    public static final int SECOND_DATA_SUBPARTITION_COUNT = 30;
+
     public static final long INITIAL_LOAD_QUERY_TIMEOUT_US = 100 * 1000 * 1000L;
 
     public static final long SCAN_SERIES_ID_CACHE_SIZE = 1000L;
@@ -23,6 +23,7 @@ public class ValueNodePersistentRow {
     private Long seriesId;
     private Long timestamp;
     private byte[] data;
+    private byte[] aggData;
     private int interval;
 
 }
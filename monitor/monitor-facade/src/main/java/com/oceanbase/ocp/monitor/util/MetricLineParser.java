@@ -15,7 +15,9 @@ import java.io.BufferedReader;
 import java.io.StringReader;
 import java.util.LinkedList;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import com.oceanbase.ocp.common.lang.Pair;
 import com.oceanbase.ocp.monitor.model.metric.Metric;
@@ -27,7 +29,14 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class MetricLineParser {
 
-    private static final ConcurrentHashMap<String, Metric> METRIC_CACHE = new ConcurrentHashMap<>(10240);
+    /**
+     * Cache is bounded and rarely used entries are evicted once full, so that
+     * series gone from exporters are not kept forever.
+     */
+    private static final int METRIC_CACHE_CAPACITY = 1 << 16;
+
+    private static final Cache<String, Metric> METRIC_CACHE =
+            Caffeine.newBuilder().maximumSize(METRIC_CACHE_CAPACITY).build();
 
     /**
      * Parse prometheus query result.
@@ -108,12 +117,17 @@ public class MetricLineParser {
 
     private static Metric parseMetric(String line, int labelStart, int labelEnd) {
         String metricNameWithLabel = line.substring(0, labelEnd);
-        return METRIC_CACHE.computeIfAbsent(metricNameWithLabel, s -> {
-            String name = parseName(line, labelStart);
-            MetricLabels labels = parseLabels(line, labelStart, labelEnd);
-            String seriesKey = name + "|" + labels.getSeriesKeyPostfix();
-            return new Metric(name, labels, seriesKey);
-        });
+        return METRIC_CACHE.get(metricNameWithLabel, s -> newMetric(line, labelStart, labelEnd));
+    }
+
+    /**
+     * Build metric from name and labels part of a line, without caching.
+     */
+    public static Metric newMetric(String line, int labelStart, int labelEnd) {
+        String name = parseName(line, labelStart);
+        MetricLabels labels = parseLabels(line, labelStart, labelEnd);
+        String seriesKey = name + "|" + labels.getSeriesKeyPostfix();
+        return new Metric(name, labels, seriesKey);
     }
 
     private static String parseName(String line, int labelStart) {
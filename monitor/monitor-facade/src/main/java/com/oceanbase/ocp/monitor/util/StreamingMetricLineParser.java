@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package com.oceanbase.ocp.monitor.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.monitor.model.metric.Metric;
+import com.oceanbase.ocp.monitor.model.metric.MetricLabels;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parse prometheus exposition text directly from response bytes, and push each
+ * sample to a consumer instead of building metric lines.
+ * <p>
+ * Metrics are interned by the raw bytes of name and labels through a bounded
+ * set-associative cache, a cache hit allocates nothing. Lines are parsed with
+ * the same rules as {@link MetricLineParser}.
+ * <p>
+ * Thread safe, one instance could be shared by all collect threads.
+ */
+@Slf4j
+public class StreamingMetricLineParser {
+
+    private static final byte SPACE = ' ';
+    private static final byte TAB = '\t';
+    private static final byte NEW_LINE = '\n';
+    private static final byte COMMENT = '#';
+    private static final byte LEFT_BRACE = '{';
+    private static final byte RIGHT_BRACE = '}';
+
+    private static final int WAYS = 4;
+
+    /**
+     * Max mantissa and exponent which could be converted to double exactly.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_EXACT_EXPONENT = 22;
+    private static final double[] POWERS_OF_TEN = new double[MAX_EXACT_EXPONENT + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1D;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10D;
+        }
+    }
+
+    private final Entry[] entries;
+    private final int setMask;
+
+    public StreamingMetricLineParser(int cacheCapacity) {
+        Validate.isTrue(cacheCapacity >= WAYS, "cacheCapacity should not less than " + WAYS);
+        int sets = Integer.highestOneBit(cacheCapacity / WAYS);
+        this.entries = new Entry[sets * WAYS];
+        this.setMask = sets - 1;
+    }
+
+    @FunctionalInterface
+    public interface SampleConsumer {
+
+        void accept(Metric metric, double value, long timestamp);
+    }
+
+    /**
+     * Parse prometheus query result and push samples to consumer.
+     *
+     * @return count of samples parsed
+     */
+    public int parse(ByteBuffer body, long collectAt, SampleConsumer consumer) {
+        byte[] bytes;
+        int offset;
+        int end;
+        if (body.hasArray()) {
+            bytes = body.array();
+            offset = body.arrayOffset() + body.position();
+            end = offset + body.remaining();
+        } else {
+            bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            offset = 0;
+            end = bytes.length;
+        }
+        return parse(bytes, offset, end, collectAt, consumer);
+    }
+
+    int parse(byte[] bytes, int offset, int end, long collectAt, SampleConsumer consumer) {
+        int count = 0;
+        int lineStart = offset;
+        while (lineStart < end) {
+            int lineEnd = indexOf(bytes, lineStart, end, NEW_LINE);
+            if (lineEnd < 0) {
+                lineEnd = end;
+            }
+            int st = firstVisibleIdx(bytes, lineStart, lineEnd);
+            if (st < lineEnd && bytes[st] != COMMENT && parseLine(bytes, lineStart, lineEnd, collectAt, consumer)) {
+                count++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Count of metrics currently cached.
+     */
+    public int cacheSize() {
+        int size = 0;
+        for (Entry entry : entries) {
+            if (entry != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private boolean parseLine(byte[] bytes, int start, int end, long collectAt, SampleConsumer consumer) {
+        try {
+            int labelStart = indexOf(bytes, start, end, LEFT_BRACE);
+            int labelEnd = lastIndexOf(bytes, start, end, RIGHT_BRACE);
+            Metric metric;
+            int valueFrom;
+            if (labelStart < 0 && labelEnd < 0) {
+                int nameStart = firstVisibleIdx(bytes, start, end);
+                int separatorIdx = indexOf(bytes, nameStart, end, SPACE);
+                if (separatorIdx < 0) {
+                    separatorIdx = indexOf(bytes, nameStart, end, TAB);
+                }
+                if (separatorIdx < 0) {
+                    throw new IllegalArgumentException("Invalid line format");
+                }
+                metric = intern(bytes, nameStart, separatorIdx, -1);
+                valueFrom = separatorIdx;
+            } else {
+                if (labelStart < 0 || labelEnd < 0 || labelEnd < labelStart) {
+                    throw new IllegalArgumentException("Wrong label format");
+                }
+                metric = intern(bytes, start, labelEnd + 1, labelStart);
+                valueFrom = labelEnd;
+            }
+
+            int valueStart = firstVisibleIdx(bytes, valueFrom + 1, end);
+            int valueEnd = valueStart;
+            while (valueEnd < end && bytes[valueEnd] > SPACE) {
+                valueEnd++;
+            }
+            if (valueStart == valueEnd) {
+                throw new IllegalArgumentException("Metric has no value.");
+            }
+            double value = parseDouble(bytes, valueStart, valueEnd);
+
+            int tsStart = firstVisibleIdx(bytes, valueEnd + 1, end);
+            int tsEnd = lastVisibleIdx(bytes, valueEnd, end);
+            long ts = tsEnd > tsStart ? parseLong(bytes, tsStart, tsEnd + 1) : collectAt;
+
+            consumer.accept(metric, value, ts);
+            return true;
+        } catch (Exception e) {
+            log.warn("Parse metric line failed, line={}, errMsg={}",
+                    new String(bytes, start, end - start, StandardCharsets.UTF_8), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Get cached metric of key bytes [start, end), or build and cache it.
+     * labelStart is -1 for metric without labels.
+     */
+    private Metric intern(byte[] bytes, int start, int end, int labelStart) {
+        int hash = hash(bytes, start, end);
+        int base = (hash & setMask) * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            Entry entry = entries[base + i];
+            if (entry != null && entry.hash == hash && entry.matches(bytes, start, end)) {
+                return entry.metric;
+            }
+        }
+
+        Metric metric;
+        if (labelStart < 0) {
+            String name = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            metric = new Metric(name, new MetricLabels());
+        } else {
+            String key = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            metric = MetricLineParser.newMetric(key, key.indexOf(LEFT_BRACE), key.length() - 1);
+        }
+        byte[] keyBytes = new byte[end - start];
+        System.arraycopy(bytes, start, keyBytes, 0, keyBytes.length);
+        Entry entry = new Entry(keyBytes, hash, metric);
+
+        int victim = -1;
+        for (int i = 0; i < WAYS; i++) {
+            if (entries[base + i] == null) {
+                victim = i;
+                break;
+            }
+        }
+        if (victim < 0) {
+            // all ways are taken, evict one picked by higher hash bits
+            victim = (hash >>> 28) & (WAYS - 1);
+        }
+        entries[base + victim] = entry;
+        return metric;
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int h = 1;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Plain decimals are converted exactly by one multiplication or division,
+     * others fall back to {@link Double#parseDouble(String)}.
+     */
+    static double parseDouble(byte[] bytes, int start, int end) {
+        int idx = start;
+        boolean negative = false;
+        if (bytes[idx] == '-' || bytes[idx] == '+') {
+            negative = bytes[idx] == '-';
+            idx++;
+        }
+        long mantissa = 0L;
+        int fractionDigits = -1;
+        boolean hasDigit = false;
+        for (; idx < end; idx++) {
+            byte b = bytes[idx];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                hasDigit = true;
+                if (mantissa > MAX_EXACT_MANTISSA) {
+                    break;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (idx == end && hasDigit && fractionDigits <= MAX_EXACT_EXPONENT) {
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : (double) mantissa;
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    private static long parseLong(byte[] bytes, int start, int end) {
+        int idx = start;
+        boolean negative = bytes[idx] == '-';
+        if (negative || bytes[idx] == '+') {
+            idx++;
+        }
+        if (idx == end || end - idx > 18) {
+            try {
+                return Long.parseLong(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+            } catch (Exception e) {
+                return 0;
+            }
+        }
+        long value = 0L;
+        for (; idx < end; idx++) {
+            byte b = bytes[idx];
+            if (b < '0' || b > '9') {
+                return 0;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte aByte) {
+        for (int idx = start; idx < end; idx++) {
+            if (bytes[idx] == aByte) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int start, int end, byte aByte) {
+        for (int idx = end - 1; idx >= start; idx--) {
+            if (bytes[idx] == aByte) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private static int firstVisibleIdx(byte[] bytes, int start, int end) {
+        int idx = start;
+        while (idx < end && bytes[idx] >= 0 && bytes[idx] <= SPACE) {
+            idx++;
+        }
+        return idx;
+    }
+
+    private static int lastVisibleIdx(byte[] bytes, int start, int end) {
+        int idx = end - 1;
+        while (idx >= start && bytes[idx] >= 0 && bytes[idx] <= SPACE) {
+            idx--;
+        }
+        return idx;
+    }
+
+    private static final class Entry {
+
+        private final byte[] key;
+        private final int hash;
+        private final Metric metric;
+
+        Entry(byte[] key, int hash, Metric metric) {
+            this.key = key;
+            this.hash = hash;
+            this.metric = metric;
+        }
+
+        boolean matches(byte[] bytes, int start, int end) {
+            if (key.length != end - start) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != bytes[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
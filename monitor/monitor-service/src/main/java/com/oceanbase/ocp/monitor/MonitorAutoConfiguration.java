@@ -12,11 +12,13 @@
 
 package com.oceanbase.ocp.monitor;
 
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -35,14 +37,18 @@ import com.oceanbase.ocp.monitor.constants.MonitorConstants;
 import com.oceanbase.ocp.monitor.helper.MonitorMetaMapContainer;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
 import com.oceanbase.ocp.monitor.query.MetricQueryServiceImpl;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryExecutor;
 import com.oceanbase.ocp.monitor.service.SeriesIdKeyService;
 import com.oceanbase.ocp.monitor.storage.IRollupMetricDataDao;
 import com.oceanbase.ocp.monitor.storage.MetricDataDao;
 import com.oceanbase.ocp.monitor.storage.MetricDataWriteQueue;
 import com.oceanbase.ocp.monitor.storage.RollupMetricDataDao;
+import com.oceanbase.ocp.monitor.store.AbstractIntervalMetricDataCache;
 import com.oceanbase.ocp.monitor.store.IntervalMetricDataCache;
 import com.oceanbase.ocp.monitor.store.MetricDataStore;
+import com.oceanbase.ocp.monitor.store.PrimitiveIntervalMetricDataCache;
 import com.oceanbase.ocp.monitor.store.RollupMetricDataStore;
+import com.oceanbase.ocp.monitor.store.WriteCacheCheckpoint;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
@@ -60,8 +66,11 @@ public class MonitorAutoConfiguration {
     }
 
     @Bean("metricQueryService")
-    public MetricQueryService metricQueryService(MonitorMetaMapContainer monitorMetaMapContainer) {
-        return new MetricQueryServiceImpl(monitorMetaMapContainer);
+    public MetricQueryService metricQueryService(MonitorMetaMapContainer monitorMetaMapContainer,
+            MetricQueryExecutor metricQueryExecutor, MonitorProperties monitorProperties,
+            MeterRegistry meterRegistry) {
+        return new MetricQueryServiceImpl(monitorMetaMapContainer, metricQueryExecutor, meterRegistry,
+                monitorProperties.isVectorizedEvalEnabled());
     }
 
     @Bean("scanSeriesIdsCache")
@@ -76,13 +85,16 @@ public class MonitorAutoConfiguration {
         @Bean
         @Profile("!test")
         public IRollupMetricDataDao secondPersistent(@Qualifier("jdbcTemplate") JdbcTemplate monitorJdbcTemplate,
-                @Qualifier("namedJdbcTemplate") NamedParameterJdbcTemplate monitorNamedJdbcTemplate) {
-            return new RollupMetricDataDao(MonitorConstants.TABLE_NAME_SECOND_DATA, monitorJdbcTemplate,
-                    monitorNamedJdbcTemplate);
+                @Qualifier("namedJdbcTemplate") NamedParameterJdbcTemplate monitorNamedJdbcTemplate,
+                MonitorProperties monitorProperties, MeterRegistry meterRegistry) {
+            RollupMetricDataDao dao = new RollupMetricDataDao(MonitorConstants.TABLE_NAME_SECOND_DATA,
+                    monitorJdbcTemplate, monitorNamedJdbcTemplate, monitorProperties.isNodeEncodingEnabled());
+            dao.startMeter(meterRegistry);
+            return dao;
         }
 
         @Bean("secondStore")
-        public IIntervalMetricDataStore secondStore(IntervalMetricDataCache secondWriteCache,
+        public IIntervalMetricDataStore secondStore(AbstractIntervalMetricDataCache secondWriteCache,
                 IRollupMetricDataDao secondPersistent, SeriesIdKeyService seriesIdKeyService,
                 MeterRegistry meterRegistry) {
             return new RollupMetricDataStore(secondWriteCache, secondPersistent, seriesIdKeyService, meterRegistry);
@@ -90,17 +102,32 @@ public class MonitorAutoConfiguration {
 
         @Bean
         @Profile("!test")
-        public IntervalMetricDataCache secondWriteCache(MetricDataWriteQueue secondWriteQueue,
-                MeterRegistry meterRegistry) {
-            IntervalMetricDataCache cache = new IntervalMetricDataCache(MonitorConstants.SECOND_READ_CACHE_SIZE,
-                    MonitorConstants.MINUTE_SECONDS, secondWriteQueue, 10);
+        public AbstractIntervalMetricDataCache secondWriteCache(MetricDataWriteQueue secondWriteQueue,
+                MonitorProperties monitorProperties, MeterRegistry meterRegistry) {
+            AbstractIntervalMetricDataCache cache;
+            if (monitorProperties.isPrimitiveWriteCacheEnabled()) {
+                cache = new PrimitiveIntervalMetricDataCache(MonitorConstants.SECOND_READ_CACHE_SIZE,
+                        MonitorConstants.MINUTE_SECONDS, secondWriteQueue, 10);
+            } else {
+                cache = new IntervalMetricDataCache(MonitorConstants.SECOND_READ_CACHE_SIZE,
+                        MonitorConstants.MINUTE_SECONDS, secondWriteQueue, 10);
+            }
+            log.info("Second write cache type={}", cache.getClass().getSimpleName());
             cache.startMeter(meterRegistry);
+            if (StringUtils.isNotBlank(monitorProperties.getWriteCacheCheckpointDir())) {
+                cache.enableCheckpoint(new WriteCacheCheckpoint(
+                        Paths.get(monitorProperties.getWriteCacheCheckpointDir(), "second_write_cache.checkpoint"),
+                        MonitorConstants.MINUTE_SECONDS));
+            }
             return cache;
         }
 
         @Bean
         public MetricDataWriteQueue secondWriteQueue(MeterRegistry meterRegistry) {
-            MetricDataWriteQueue writeQueue = new MetricDataWriteQueue(MonitorConstants.SECOND_WRITE_QUEUE_CAPACITY);
+            int shardCount = Math.min(Runtime.getRuntime().availableProcessors(),
+                    MonitorConstants.SECOND_DATA_SUBPARTITION_COUNT);
+            MetricDataWriteQueue writeQueue =
+                    new MetricDataWriteQueue(MonitorConstants.SECOND_WRITE_QUEUE_CAPACITY, shardCount);
             writeQueue.startMeter(meterRegistry);
             return writeQueue;
         }
@@ -112,17 +139,35 @@ public class MonitorAutoConfiguration {
 
         @Bean
         @Profile("!test")
-        public IRollupMetricDataDao minutePersistent(@Qualifier("jdbcTemplate") JdbcTemplate monitorJdbcTemplate,
+        public MetricDataDao minutePersistent(@Qualifier("jdbcTemplate") JdbcTemplate monitorJdbcTemplate,
                 @Qualifier("namedJdbcTemplate") NamedParameterJdbcTemplate monitorNamedJdbcTemplate) {
             return new MetricDataDao(MonitorConstants.TABLE_NAME_MINUTE_DATA, monitorJdbcTemplate,
                     monitorNamedJdbcTemplate);
         }
 
         @Bean("minuteStore")
-        public IIntervalMetricDataStore minuteStore(IRollupMetricDataDao minutePersistent) {
+        public IIntervalMetricDataStore minuteStore(@Qualifier("minutePersistent") MetricDataDao minutePersistent) {
             return new MetricDataStore(minutePersistent);
         }
 
     }
 
+    @Configuration
+    static class HourConfiguration {
+
+        @Bean
+        @Profile("!test")
+        public MetricDataDao hourPersistent(@Qualifier("jdbcTemplate") JdbcTemplate monitorJdbcTemplate,
+                @Qualifier("namedJdbcTemplate") NamedParameterJdbcTemplate monitorNamedJdbcTemplate) {
+            return new MetricDataDao(MonitorConstants.TABLE_NAME_HOUR_DATA, (int) MonitorConstants.HOUR_SECONDS,
+                    monitorJdbcTemplate, monitorNamedJdbcTemplate);
+        }
+
+        @Bean("hourStore")
+        public IIntervalMetricDataStore hourStore(@Qualifier("hourPersistent") MetricDataDao hourPersistent) {
+            return new MetricDataStore(hourPersistent);
+        }
+
+    }
+
 }
@@ -26,4 +26,78 @@ public class MonitorProperties {
     @Value("${exporter.max-continuous-inactive-count:3}")
     private int maxContinuousInactiveCount;
 
+    /**
+     * Whether to write value nodes with the compressed encoding, raw rows are
+     * always readable.
+     */
+    @Value("${ocp.monitor.node-encoding-enabled:true}")
+    private boolean nodeEncodingEnabled;
+
+    /**
+     * Whether to use primitive array slabs instead of value node maps as the
+     * second-level write cache.
+     */
+    @Value("${ocp.monitor.primitive-write-cache-enabled:false}")
+    private boolean primitiveWriteCacheEnabled;
+
+    /**
+     * Whether to parse exporter response bytes and store samples directly, without
+     * building metric lines.
+     */
+    @Value("${ocp.monitor.streaming-parse-enabled:true}")
+    private boolean streamingParseEnabled;
+
+    /**
+     * Whether to roll up minute-level data into hour-level data, and serve long
+     * range queries with whole hour steps from it.
+     */
+    @Value("${ocp.monitor.hour-rollup-enabled:true}")
+    private boolean hourRollupEnabled;
+
+    /**
+     * Thread count of the shared metric query executor.
+     */
+    @Value("${ocp.monitor.query-executor-size:16}")
+    private int queryExecutorSize;
+
+    /**
+     * Thread count of the shared metric scan executor.
+     */
+    @Value("${ocp.monitor.scan-executor-size:16}")
+    private int scanExecutorSize;
+
+    /**
+     * Queue capacity of query and scan executors, tasks run in caller thread once
+     * the queue is full.
+     */
+    @Value("${ocp.monitor.query-executor-queue-capacity:256}")
+    private int queryExecutorQueueCapacity;
+
+    /**
+     * Deadline of one metric query request.
+     */
+    @Value("${ocp.monitor.query-timeout-seconds:120}")
+    private long queryTimeoutSeconds;
+
+    /**
+     * Evaluate supported expressions by columnar evaluator, other expressions are
+     * always evaluated step by step.
+     */
+    @Value("${ocp.monitor.vectorized-eval-enabled:true}")
+    private boolean vectorizedEvalEnabled;
+
+    /**
+     * Series not written for the seconds are evicted from memory and reloaded from
+     * metadb on demand, 0 means never evict.
+     */
+    @Value("${ocp.monitor.series-idle-seconds:86400}")
+    private long seriesIdleSeconds;
+
+    /**
+     * Directory of write cache checkpoint files, which are restored when starting,
+     * empty means no checkpoint.
+     */
+    @Value("${ocp.monitor.write-cache-checkpoint-dir:${user.home}/ocp-express/data/monitor}")
+    private String writeCacheCheckpointDir;
+
 }
@@ -132,6 +132,15 @@ public class OcpMonitorManager {
         }
     }
 
+    @Scheduled(fixedDelay = 600_000)
+    private void evictIdleSeries() {
+        try {
+            seriesIdKeyService.evictIdleSeries();
+        } catch (Throwable throwable) {
+            log.error("Evict idle series failed.", throwable);
+        }
+    }
+
     class CollectSecondTask implements Runnable {
 
         private long nextLogTimeMillis = System.currentTimeMillis();
@@ -20,6 +20,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -36,6 +37,7 @@ import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryResult;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusScanResp;
 import com.oceanbase.ocp.monitor.model.metric.OcpPrometheusMeasurement;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryExecutor;
 import com.oceanbase.ocp.monitor.query.util.MetricQueryScanner;
 
 import lombok.Data;
@@ -57,17 +59,17 @@ public class OcpPrometheusAstNode {
 
     public OcpPrometheusAstNode() {}
 
-    private void prepare(long startTime, long endTime, long step) {
+    void prepare(long startTime, long endTime, long step, OcpPrometheusEvalContext context) {
         switch (this.nodeType) {
             case COMPARE:
             case MATHOP: {
-                this.leftNode.prepare(startTime, endTime, step);
-                this.rightNode.prepare(startTime, endTime, step);
+                this.leftNode.prepare(startTime, endTime, step, context);
+                this.rightNode.prepare(startTime, endTime, step, context);
                 break;
             }
             case FUNCTION:
             case AGG_FUNCTION: {
-                this.leftNode.prepare(startTime, endTime, step);
+                this.leftNode.prepare(startTime, endTime, step, context);
                 break;
             }
             case SCALAR: {
@@ -77,7 +79,7 @@ public class OcpPrometheusAstNode {
             }
             case ITEM: {
                 this.tmpResultList = new LinkedList<>();
-                this.resultFuture = this.scanData(startTime, endTime, step);
+                this.resultFuture = this.scanData(startTime, endTime, step, context);
                 break;
             }
             default: {
@@ -86,7 +88,7 @@ public class OcpPrometheusAstNode {
         }
     }
 
-    private void afterPrepare() {
+    void afterPrepare() {
         switch (this.nodeType) {
             case COMPARE:
             case MATHOP: {
@@ -124,8 +126,9 @@ public class OcpPrometheusAstNode {
         }
         List<OcpPrometheusScanResp> resultList;
         try {
-            resultList = resultFuture.get();
+            resultList = resultFuture.get(MetricQueryExecutor.remainingMillis(), TimeUnit.MILLISECONDS);
         } catch (Exception e) {
+            resultFuture.cancel(true);
             log.warn("Scan metrics failed, message={}", e.getMessage());
             throw new OcpException(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.COMMON_UNEXPECTED, e);
         }
@@ -138,7 +141,8 @@ public class OcpPrometheusAstNode {
         return resultList;
     }
 
-    private Future<List<OcpPrometheusScanResp>> scanData(long startTime, long endTime, long step) {
+    private Future<List<OcpPrometheusScanResp>> scanData(long startTime, long endTime, long step,
+            OcpPrometheusEvalContext context) {
         long qStartTime = startTime - step;
         OcpPrometheusQueryParam param = new OcpPrometheusQueryParam();
         param.setMetric(this.queryMeta.getMetric());
@@ -147,11 +151,22 @@ public class OcpPrometheusAstNode {
         param.setEndTime(endTime);
         param.setStep(step);
         log.debug("scan data with param {}", param);
+        if (context != null) {
+            return context.scan(param);
+        }
         return BeanUtils.getBean(MetricQueryScanner.class).scan(param);
     }
 
     public List<OcpPrometheusQueryResult> eval(long startTime, long endTime, long step) throws Exception {
-        this.prepare(startTime, endTime, step);
+        return eval(startTime, endTime, step, null);
+    }
+
+    /**
+     * Evaluate with scans shared by the context, scan directly if context is null.
+     */
+    public List<OcpPrometheusQueryResult> eval(long startTime, long endTime, long step,
+            OcpPrometheusEvalContext context) throws Exception {
+        this.prepare(startTime, endTime, step, context);
         this.afterPrepare();
         Map<String, OcpPrometheusQueryResult> resultMap = new HashMap<>();
         long alignStartTime = startTime % step == 0 ? startTime : startTime + step - startTime % step;
@@ -209,7 +224,7 @@ public class OcpPrometheusAstNode {
         }
     }
 
-    private double doOp(double l, double r) {
+    double doOp(double l, double r) {
         switch (this.nodeFunction) {
             case ADD:
             case ADD_L_FILL_0_IF_ABSENT:
@@ -413,7 +428,7 @@ public class OcpPrometheusAstNode {
         return aDataList;
     }
 
-    private boolean doCompare(double l, double r) {
+    boolean doCompare(double l, double r) {
         double epsilon = 0.000001;
         switch (this.nodeFunction) {
             case LT: {
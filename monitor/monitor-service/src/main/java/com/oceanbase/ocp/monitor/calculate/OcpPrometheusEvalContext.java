@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+
+package com.oceanbase.ocp.monitor.calculate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpStatus;
+
+import com.oceanbase.ocp.core.exception.OcpException;
+import com.oceanbase.ocp.core.i18n.ErrorCodes;
+import com.oceanbase.ocp.core.util.BeanUtils;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusData;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusDataContainer;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusScanResp;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryExecutor;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryScanner;
+
+/**
+ * Shared state of evaluating a batch of expressions.
+ * <p>
+ * Identical scans are submitted once, each consumer gets a copy of scanned data
+ * since evaluation consumes it, except the only remaining consumer, which takes
+ * the scanned data itself. A scan is cancelled once all its consumers gave up
+ * waiting. Identical sub-trees evaluated by
+ * {@link OcpPrometheusVectorEvaluator} are computed once.
+ */
+public class OcpPrometheusEvalContext {
+
+    private final Function<OcpPrometheusQueryParam, Future<List<OcpPrometheusScanResp>>> scanner;
+
+    private final Map<OcpPrometheusQueryParam, SharedScan> scans = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> subtrees = new ConcurrentHashMap<>();
+
+    private final AtomicLong scanCount = new AtomicLong();
+    private final AtomicLong savedScanCount = new AtomicLong();
+    private final AtomicLong savedSubtreeCount = new AtomicLong();
+
+    public OcpPrometheusEvalContext() {
+        this(param -> BeanUtils.getBean(MetricQueryScanner.class).scan(param));
+    }
+
+    OcpPrometheusEvalContext(Function<OcpPrometheusQueryParam, Future<List<OcpPrometheusScanResp>>> scanner) {
+        this.scanner = scanner;
+    }
+
+    Future<List<OcpPrometheusScanResp>> scan(OcpPrometheusQueryParam param) {
+        scanCount.incrementAndGet();
+        SharedScan shared = scans.compute(param, (p, existing) -> {
+            if (existing != null && existing.acquire()) {
+                savedScanCount.incrementAndGet();
+                return existing;
+            }
+            SharedScan created = new SharedScan(scanner.apply(p));
+            created.acquire();
+            return created;
+        });
+        return new CopyingFuture(shared);
+    }
+
+    /**
+     * Value of the sub-tree, computed by the first caller and waited by others.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T share(String key, Supplier<T> supplier) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = subtrees.putIfAbsent(key, future);
+        if (existing == null) {
+            try {
+                T value = supplier.get();
+                future.complete(value);
+                return value;
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            }
+        }
+        savedSubtreeCount.incrementAndGet();
+        try {
+            return (T) existing.get(MetricQueryExecutor.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new OcpException(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.COMMON_UNEXPECTED, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OcpException(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.COMMON_UNEXPECTED, e);
+        } catch (TimeoutException e) {
+            throw new OcpException(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.COMMON_UNEXPECTED, e);
+        }
+    }
+
+    /**
+     * Count of scans requested by expressions.
+     */
+    public long getScanCount() {
+        return scanCount.get();
+    }
+
+    /**
+     * Count of scans served by an identical scan of the batch.
+     */
+    public long getSavedScanCount() {
+        return savedScanCount.get();
+    }
+
+    /**
+     * Count of sub-trees served by an identical sub-tree of the batch.
+     */
+    public long getSavedSubtreeCount() {
+        return savedSubtreeCount.get();
+    }
+
+    private static List<OcpPrometheusScanResp> copy(List<OcpPrometheusScanResp> source) {
+        List<OcpPrometheusScanResp> result = new ArrayList<>(source.size());
+        for (OcpPrometheusScanResp resp : source) {
+            OcpPrometheusDataContainer data = null;
+            if (resp.getData() != null) {
+                data = new OcpPrometheusDataContainer();
+                for (OcpPrometheusData d : resp.getData()) {
+                    data.add(new OcpPrometheusData(d.getTimestamp(), d.getValue(), d.getFormat()));
+                }
+            }
+            result.add(new OcpPrometheusScanResp(resp.getMeasurement(), resp.getMeasurementParse(), data));
+        }
+        return result;
+    }
+
+    /**
+     * Scan with count of consumers which have not taken data or given up yet.
+     */
+    private static class SharedScan {
+
+        private final Future<List<OcpPrometheusScanResp>> future;
+
+        private int consumers = 0;
+
+        /**
+         * Scanned data is taken by the last consumer, no more consumers can share it.
+         */
+        private boolean closed = false;
+
+        SharedScan(Future<List<OcpPrometheusScanResp>> future) {
+            this.future = future;
+        }
+
+        synchronized boolean acquire() {
+            if (closed) {
+                return false;
+            }
+            consumers++;
+            return true;
+        }
+
+        /**
+         * Take scanned data if the caller is the only consumer, so it needs no copy.
+         */
+        synchronized boolean takeIfLast() {
+            if (consumers == 1) {
+                consumers = 0;
+                closed = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void release() {
+            consumers--;
+        }
+
+        /**
+         * Give up waiting, the scan is cancelled if nobody else waits for it.
+         */
+        synchronized boolean cancel(boolean mayInterruptIfRunning) {
+            consumers--;
+            if (consumers > 0) {
+                return false;
+            }
+            closed = true;
+            return future.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private static class CopyingFuture implements Future<List<OcpPrometheusScanResp>> {
+
+        private final SharedScan shared;
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        CopyingFuture(SharedScan shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            return shared.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return shared.future.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return shared.future.isDone();
+        }
+
+        @Override
+        public List<OcpPrometheusScanResp> get() throws InterruptedException, ExecutionException {
+            return take(shared.future.get());
+        }
+
+        @Override
+        public List<OcpPrometheusScanResp> get(long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return take(shared.future.get(timeout, unit));
+        }
+
+        /**
+         * Copy is made before releasing the scan, so the last consumer never modifies
+         * data being copied by others.
+         */
+        private List<OcpPrometheusScanResp> take(List<OcpPrometheusScanResp> source) {
+            if (!done.compareAndSet(false, true)) {
+                return copy(source);
+            }
+            if (shared.takeIfLast()) {
+                return source;
+            }
+            try {
+                return copy(source);
+            } finally {
+                shared.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.calculate;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.collections4.CollectionUtils;
+
+import com.oceanbase.ocp.monitor.calculate.model.OcpPrometheusQueryMeta;
+import com.oceanbase.ocp.monitor.calculate.parser.OcpPrometheusQlParser;
+import com.oceanbase.ocp.monitor.param.OcpPrometheusLabel;
+
+/**
+ * Parsed metric expression template with slots of @LABELS, @GBLABELS
+ * and @INTERVAL.
+ * <p>
+ * The template is parsed once with placeholders in the slots, the parsed tree
+ * is never evaluated, each query binds its parameters into a new tree.
+ */
+public final class OcpPrometheusQueryPlan {
+
+    static final String LABELS_SLOT_KEY = "ocp_labels_slot";
+    static final String GB_LABELS_SLOT = "ocp_gblabels_slot";
+    static final int INTERVAL_SLOT = 1999999999;
+
+    private static final String LABELS_PLACEHOLDER = LABELS_SLOT_KEY + "=\"slot\"";
+
+    private final String template;
+    private final OcpPrometheusAstNode root;
+    private final boolean hasGbLabelsSlot;
+
+    private OcpPrometheusQueryPlan(String template, OcpPrometheusAstNode root) {
+        this.template = template;
+        this.root = root;
+        this.hasGbLabelsSlot = template.contains("@GBLABELS");
+    }
+
+    /**
+     * Parse expression template.
+     *
+     * @throws Exception if the template with placeholders can not be parsed
+     */
+    public static OcpPrometheusQueryPlan compile(String template) throws Exception {
+        String expression = template.replace("@LABELS", LABELS_PLACEHOLDER)
+                .replace("@GBLABELS", GB_LABELS_SLOT)
+                .replace("@INTERVAL", Integer.toString(INTERVAL_SLOT));
+        OcpPrometheusAstNode root = new OcpPrometheusQlParser(new StringReader(expression)).parse();
+        return new OcpPrometheusQueryPlan(template, root);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Bind parameters into a new tree.
+     *
+     * @param labels labels to fill @LABELS, in order
+     * @param gbLabels labels to fill @GBLABELS
+     * @param interval value of @INTERVAL
+     * @return tree to evaluate, or null if the template does not accept the
+     *         parameters, e.g. empty group by labels
+     */
+    public OcpPrometheusAstNode bind(List<OcpPrometheusLabel> labels, List<String> gbLabels, long interval) {
+        if (hasGbLabelsSlot && CollectionUtils.isEmpty(gbLabels)) {
+            return null;
+        }
+        if (interval > Integer.MAX_VALUE) {
+            return null;
+        }
+        return bind(root, labels, gbLabels, (int) interval);
+    }
+
+    private static OcpPrometheusAstNode bind(OcpPrometheusAstNode node, List<OcpPrometheusLabel> labels,
+            List<String> gbLabels, int interval) {
+        if (node == null) {
+            return null;
+        }
+        OcpPrometheusAstNode copy = new OcpPrometheusAstNode();
+        copy.setNodeType(node.getNodeType());
+        copy.setNodeFunction(node.getNodeFunction());
+        copy.setValue(node.getValue() == INTERVAL_SLOT ? interval : node.getValue());
+        copy.setGbLabels(bindGbLabels(node.getGbLabels(), gbLabels));
+        copy.setQueryMeta(bindQueryMeta(node.getQueryMeta(), labels, interval));
+        copy.setLeftNode(bind(node.getLeftNode(), labels, gbLabels, interval));
+        copy.setRightNode(bind(node.getRightNode(), labels, gbLabels, interval));
+        return copy;
+    }
+
+    private static List<String> bindGbLabels(List<String> slotted, List<String> gbLabels) {
+        if (slotted == null) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(slotted.size());
+        for (String label : slotted) {
+            if (GB_LABELS_SLOT.equals(label)) {
+                result.addAll(gbLabels);
+            } else {
+                result.add(label);
+            }
+        }
+        return result;
+    }
+
+    private static OcpPrometheusQueryMeta bindQueryMeta(OcpPrometheusQueryMeta slotted,
+            List<OcpPrometheusLabel> labels, int interval) {
+        if (slotted == null) {
+            return null;
+        }
+        OcpPrometheusQueryMeta meta = new OcpPrometheusQueryMeta();
+        meta.setMetric(slotted.getMetric());
+        meta.setInterval(slotted.getInterval() == INTERVAL_SLOT ? interval : slotted.getInterval());
+        if (slotted.getLabels() == null) {
+            return meta;
+        }
+        List<OcpPrometheusLabel> result = new ArrayList<>();
+        boolean slotOnly = true;
+        for (OcpPrometheusLabel label : slotted.getLabels()) {
+            if (LABELS_SLOT_KEY.equals(label.getLabelKey())) {
+                if (labels != null) {
+                    labels.forEach(l -> result.add(new OcpPrometheusLabel(l.getLabelKey(), l.getLabelValue(),
+                            l.getLabelMatch())));
+                }
+            } else {
+                slotOnly = false;
+                result.add(new OcpPrometheusLabel(label.getLabelKey(), label.getLabelValue(), label.getLabelMatch()));
+            }
+        }
+        // "{@LABELS}" is removed from the expression if no label given
+        meta.setLabels(result.isEmpty() && slotOnly ? null : result);
+        return meta;
+    }
+
+}
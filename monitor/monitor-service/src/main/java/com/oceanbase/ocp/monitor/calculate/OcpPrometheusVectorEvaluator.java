@@ -0,0 +1,633 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+
+package com.oceanbase.ocp.monitor.calculate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.monitor.model.OcpPrometheusData;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryResult;
+import com.oceanbase.ocp.monitor.model.metric.OcpPrometheusMeasurement;
+
+/**
+ * Columnar evaluator of {@link OcpPrometheusAstNode}.
+ * <p>
+ * Each operator runs once over whole series instead of once per step. Values of
+ * a series are kept in a double array indexed by step, together with a bitmap
+ * of steps having a value.
+ * <p>
+ * Gives the same result as {@link OcpPrometheusAstNode#eval(long, long, long)}
+ * for trees accepted by {@link #supports(OcpPrometheusAstNode)}, in which range
+ * selectors are only used by interval functions, so each value belongs to one
+ * step timestamp.
+ * <p>
+ * With an {@link OcpPrometheusEvalContext}, identical sub-trees of expressions
+ * in the same context are evaluated once.
+ */
+public final class OcpPrometheusVectorEvaluator {
+
+    private final long startTime;
+    private final long endTime;
+    private final long step;
+    private final long[] timestamps;
+    private final OcpPrometheusEvalContext context;
+
+    public OcpPrometheusVectorEvaluator(long startTime, long endTime, long step) {
+        this(startTime, endTime, step, null);
+    }
+
+    public OcpPrometheusVectorEvaluator(long startTime, long endTime, long step, OcpPrometheusEvalContext context) {
+        Validate.isTrue(step > 0, "step must > 0");
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.step = step;
+        this.context = context;
+        long alignStartTime = startTime % step == 0 ? startTime : startTime + step - startTime % step;
+        int count = alignStartTime > endTime ? 0 : (int) ((endTime - alignStartTime) / step + 1);
+        this.timestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = alignStartTime + i * step;
+        }
+    }
+
+    /**
+     * Whether the tree can be evaluated by this evaluator.
+     */
+    public static boolean supports(OcpPrometheusAstNode root) {
+        return supports(root, null);
+    }
+
+    private static boolean supports(OcpPrometheusAstNode node, OcpPrometheusAstNode parent) {
+        if (node == null || node.getNodeType() == null) {
+            return false;
+        }
+        switch (node.getNodeType()) {
+            case SCALAR:
+                return true;
+            case ITEM:
+                if (node.getQueryMeta() == null) {
+                    return false;
+                }
+                if (node.getQueryMeta().getInterval() <= 0) {
+                    return true;
+                }
+                return parent != null && parent.getNodeType() == OcpPrometheusAstNodeTypeEnum.FUNCTION
+                        && isIntervalFunction(parent.getNodeFunction());
+            case FUNCTION:
+                if (!supports(node.getLeftNode(), node)) {
+                    return false;
+                }
+                return isRangeItem(node.getLeftNode())
+                        || node.getNodeFunction() == OcpPrometheusAstFunctionEnum.ABS
+                        || node.getNodeFunction() == OcpPrometheusAstFunctionEnum.ROUND;
+            case AGG_FUNCTION:
+                return node.getGbLabels() != null && isAggFunction(node.getNodeFunction())
+                        && supports(node.getLeftNode(), node);
+            case MATHOP:
+            case COMPARE:
+                return node.getNodeFunction() != null && supports(node.getLeftNode(), node)
+                        && supports(node.getRightNode(), node);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isRangeItem(OcpPrometheusAstNode node) {
+        return node.getNodeType() == OcpPrometheusAstNodeTypeEnum.ITEM && node.getQueryMeta().getInterval() > 0;
+    }
+
+    private static boolean isAggFunction(OcpPrometheusAstFunctionEnum function) {
+        if (function == null) {
+            return false;
+        }
+        switch (function) {
+            case SUM:
+            case COUNT:
+            case MAX:
+            case MIN:
+            case AVG:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isIntervalFunction(OcpPrometheusAstFunctionEnum function) {
+        return isAggFunction(function) || function == OcpPrometheusAstFunctionEnum.RATE
+                || function == OcpPrometheusAstFunctionEnum.DELTA;
+    }
+
+    public List<OcpPrometheusQueryResult> eval(OcpPrometheusAstNode root) {
+        Validate.isTrue(supports(root), "unsupported expression tree");
+        root.prepare(startTime, endTime, step, context);
+        root.afterPrepare();
+        return toResults(evaluate(root));
+    }
+
+    private Value evaluate(OcpPrometheusAstNode node) {
+        if (context == null || node.getNodeType() == OcpPrometheusAstNodeTypeEnum.SCALAR) {
+            return doEvaluate(node);
+        }
+        String key = startTime + "," + endTime + "," + step + "|" + key(node);
+        return context.share(key, () -> doEvaluate(node));
+    }
+
+    /**
+     * Structural key of the sub-tree, same for sub-trees giving the same value.
+     */
+    private static String key(OcpPrometheusAstNode node) {
+        switch (node.getNodeType()) {
+            case SCALAR:
+                return Double.toString(node.getValue());
+            case ITEM:
+                return node.getQueryMeta().getMetric() + node.getQueryMeta().getLabels() + "["
+                        + node.getQueryMeta().getInterval() + "]";
+            case FUNCTION:
+            case AGG_FUNCTION:
+                return node.getNodeType() + ":" + node.getNodeFunction() + "(" + key(node.getLeftNode()) + ")"
+                        + (node.getGbLabels() == null ? "" : " by " + node.getGbLabels());
+            default:
+                return node.getNodeType() + ":" + node.getNodeFunction() + "(" + key(node.getLeftNode()) + ","
+                        + key(node.getRightNode()) + ")";
+        }
+    }
+
+    private Value doEvaluate(OcpPrometheusAstNode node) {
+        switch (node.getNodeType()) {
+            case SCALAR:
+                return Value.scalar(node.getValue());
+            case ITEM:
+                return evalItem(node);
+            case FUNCTION:
+                return evalFunction(node);
+            case AGG_FUNCTION:
+                return evalLabelAgg(node);
+            case MATHOP:
+                return evalMathOp(node);
+            case COMPARE:
+                return evalCompare(node);
+            default:
+                throw new RuntimeException("Get Unexpected NodeType");
+        }
+    }
+
+    private Value evalItem(OcpPrometheusAstNode node) {
+        List<Series> seriesList = new ArrayList<>();
+        for (OcpPrometheusQueryResult item : node.getTmpResultList()) {
+            Points points = Points.of(item.getScanDataIter());
+            Series series = new Series(item.getMeasurement(), item.getInterval(), timestamps.length);
+            int j = 0;
+            for (int i = 0; i < timestamps.length; i++) {
+                while (j < points.size && points.timestamps[j] < timestamps[i]) {
+                    j++;
+                }
+                if (j < points.size && points.timestamps[j] == timestamps[i]) {
+                    series.set(i, points.values[j]);
+                }
+            }
+            seriesList.add(series);
+        }
+        return Value.vector(seriesList);
+    }
+
+    private Value evalFunction(OcpPrometheusAstNode node) {
+        OcpPrometheusAstNode child = node.getLeftNode();
+        if (isRangeItem(child)) {
+            return evalIntervalAgg(node.getNodeFunction(), child.getTmpResultList());
+        }
+        Value value = evaluate(child);
+        if (value.isEmpty() || value.scalar) {
+            return Value.EMPTY;
+        }
+        boolean abs = node.getNodeFunction() == OcpPrometheusAstFunctionEnum.ABS;
+        List<Series> seriesList = new ArrayList<>(value.series.size());
+        for (Series source : value.series) {
+            Series series = new Series(source.measurement, 0, timestamps.length);
+            for (int i = source.present.nextSetBit(0); i >= 0; i = source.present.nextSetBit(i + 1)) {
+                double v = source.values[i];
+                series.set(i, abs ? Math.abs(v) : (double) Math.round(v));
+            }
+            seriesList.add(series);
+        }
+        return Value.vector(seriesList);
+    }
+
+    private Value evalIntervalAgg(OcpPrometheusAstFunctionEnum function, List<OcpPrometheusQueryResult> items) {
+        List<Series> seriesList = new ArrayList<>(items.size());
+        for (OcpPrometheusQueryResult item : items) {
+            Points points = Points.of(item.getScanDataIter());
+            long interval = item.getInterval();
+            Series series = new Series(item.getMeasurement(), 0, timestamps.length);
+            int lo = 0;
+            int hi = 0;
+            for (int i = 0; i < timestamps.length; i++) {
+                long ts = timestamps[i];
+                while (hi < points.size && points.timestamps[hi] <= ts) {
+                    hi++;
+                }
+                while (lo < hi && points.timestamps[lo] < ts - interval) {
+                    lo++;
+                }
+                if (lo == hi) {
+                    continue;
+                }
+                if (function == OcpPrometheusAstFunctionEnum.RATE || function == OcpPrometheusAstFunctionEnum.DELTA) {
+                    long firstTs = points.timestamps[lo];
+                    long lastTs = points.timestamps[hi - 1];
+                    if (lastTs > firstTs) {
+                        double rate = (points.values[hi - 1] - points.values[lo]) / (lastTs - firstTs);
+                        series.set(i, function == OcpPrometheusAstFunctionEnum.RATE ? rate : rate * interval);
+                    }
+                    continue;
+                }
+                Agg agg = new Agg();
+                for (int k = lo; k < hi; k++) {
+                    agg.add(points.values[k]);
+                }
+                series.set(i, agg.get(function));
+            }
+            seriesList.add(series);
+        }
+        return Value.vector(seriesList);
+    }
+
+    private Value evalLabelAgg(OcpPrometheusAstNode node) {
+        Value value = evaluate(node.getLeftNode());
+        if (value.isEmpty() || value.scalar) {
+            return Value.EMPTY;
+        }
+        List<String> labels = new ArrayList<>(node.getGbLabels());
+        Collections.sort(labels);
+        if (labels.isEmpty()) {
+            return Value.EMPTY;
+        }
+        Map<String, Group> aggMap = new HashMap<>();
+        for (Series series : value.series) {
+            Map<String, String> labelMap = series.measurement.getLabels();
+            Map<String, String> newLabelMap = new HashMap<>();
+            List<String> labelList = new ArrayList<>(labels.size());
+            for (String label : labels) {
+                String labelValue = labelMap.containsKey(label) ? labelMap.get(label) : "";
+                labelValue = StringUtils.isEmpty(labelValue) ? "" : labelValue;
+                labelList.add(label + "=" + labelValue);
+                newLabelMap.put(label, labelValue);
+            }
+            String labelStr = String.join("|", labelList);
+            // get and put but not computeIfAbsent, to keep the same iteration order
+            Group group = aggMap.get(labelStr);
+            if (group == null) {
+                group = new Group(new OcpPrometheusMeasurement(labelStr, newLabelMap));
+                aggMap.put(labelStr, group);
+            }
+            group.members.add(series);
+        }
+        List<Series> seriesList = new ArrayList<>(aggMap.size());
+        for (Group group : aggMap.values()) {
+            Series series = new Series(group.measurement, 0, timestamps.length);
+            for (int i = 0; i < timestamps.length; i++) {
+                Agg agg = null;
+                for (Series member : group.members) {
+                    if (member.present.get(i)) {
+                        agg = agg == null ? new Agg() : agg;
+                        agg.add(member.values[i]);
+                    }
+                }
+                if (agg != null) {
+                    series.set(i, agg.get(node.getNodeFunction()));
+                }
+            }
+            seriesList.add(series);
+        }
+        return Value.vector(seriesList);
+    }
+
+    private Value evalMathOp(OcpPrometheusAstNode node) {
+        Value left = fillIfEmpty(node, evaluate(node.getLeftNode()));
+        Value right = fillIfEmpty(node, evaluate(node.getRightNode()));
+        if (left.isEmpty() || right.isEmpty()) {
+            return Value.EMPTY;
+        }
+        if (left.scalar && right.scalar) {
+            return Value.scalar(node.doOp(left.scalarValue, right.scalarValue));
+        }
+        List<Series> seriesList = new ArrayList<>();
+        if (!left.scalar && right.scalar) {
+            for (Series l : left.series) {
+                Series series = new Series(l.measurement, l.interval, timestamps.length);
+                for (int i = l.present.nextSetBit(0); i >= 0; i = l.present.nextSetBit(i + 1)) {
+                    series.set(i, node.doOp(l.values[i], right.scalarValue));
+                }
+                seriesList.add(series);
+            }
+        } else if (left.scalar) {
+            for (Series r : right.series) {
+                Series series = new Series(r.measurement, r.interval, timestamps.length);
+                for (int i = r.present.nextSetBit(0); i >= 0; i = r.present.nextSetBit(i + 1)) {
+                    series.set(i, node.doOp(left.scalarValue, r.values[i]));
+                }
+                seriesList.add(series);
+            }
+        } else {
+            Map<String, Series> leftMap = byLabelStr(left.series);
+            OcpPrometheusAstFunctionEnum function = node.getNodeFunction();
+            for (Series r : right.series) {
+                Series l = leftMap.get(r.measurement.getLabelStr());
+                if (l == null) {
+                    continue;
+                }
+                Series series = new Series(r.measurement, r.interval, timestamps.length);
+                for (int i = 0; i < timestamps.length; i++) {
+                    boolean lp = l.present.get(i);
+                    boolean rp = r.present.get(i);
+                    boolean present;
+                    switch (function) {
+                        case ADD_L_FILL_0_IF_ABSENT:
+                            present = rp;
+                            break;
+                        case ADD_R_FILL_0_IF_ABSENT:
+                            present = lp;
+                            break;
+                        case ADD_FILL_0_IF_ABSENT:
+                            present = lp || rp;
+                            break;
+                        default:
+                            present = lp && rp;
+                    }
+                    if (present) {
+                        series.set(i, node.doOp(lp ? l.values[i] : 0.0D, rp ? r.values[i] : 0.0D));
+                    }
+                }
+                seriesList.add(series);
+            }
+        }
+        return Value.vector(seriesList);
+    }
+
+    /**
+     * Same as handleEmptyResult of the node.
+     */
+    private static Value fillIfEmpty(OcpPrometheusAstNode node, Value value) {
+        if (!value.isEmpty()) {
+            return value;
+        }
+        switch (node.getNodeFunction()) {
+            case ADD_L_FILL_0_IF_ABSENT:
+            case ADD_R_FILL_0_IF_ABSENT:
+            case ADD_FILL_0_IF_ABSENT:
+                return Value.scalar(0.0D);
+            default:
+                return value;
+        }
+    }
+
+    private Value evalCompare(OcpPrometheusAstNode node) {
+        Value left = evaluate(node.getLeftNode());
+        Value right = evaluate(node.getRightNode());
+        if (left.isEmpty() || right.isEmpty()) {
+            return Value.EMPTY;
+        }
+        if (left.scalar && right.scalar) {
+            return node.doCompare(left.scalarValue, right.scalarValue) ? left : Value.EMPTY;
+        }
+        List<Series> seriesList = new ArrayList<>();
+        if (!left.scalar && right.scalar) {
+            for (Series l : left.series) {
+                Series series = new Series(l.measurement, l.interval, timestamps.length);
+                for (int i = l.present.nextSetBit(0); i >= 0; i = l.present.nextSetBit(i + 1)) {
+                    if (node.doCompare(l.values[i], right.scalarValue)) {
+                        series.set(i, l.values[i]);
+                    }
+                }
+                seriesList.add(series);
+            }
+        } else if (left.scalar) {
+            for (Series r : right.series) {
+                Series series = new Series(r.measurement, r.interval, timestamps.length);
+                for (int i = r.present.nextSetBit(0); i >= 0; i = r.present.nextSetBit(i + 1)) {
+                    if (node.doCompare(left.scalarValue, r.values[i])) {
+                        series.set(i, r.values[i]);
+                    }
+                }
+                seriesList.add(series);
+            }
+        } else {
+            Map<String, Series> leftMap = byLabelStr(left.series);
+            for (Series r : right.series) {
+                Series l = leftMap.get(r.measurement.getLabelStr());
+                if (l == null) {
+                    continue;
+                }
+                Series series = new Series(r.measurement, r.interval, timestamps.length);
+                for (int i = l.present.nextSetBit(0); i >= 0; i = l.present.nextSetBit(i + 1)) {
+                    if (r.present.get(i) && node.doCompare(l.values[i], r.values[i])) {
+                        series.set(i, l.values[i]);
+                    }
+                }
+                seriesList.add(series);
+            }
+        }
+        return Value.vector(seriesList);
+    }
+
+    private static Map<String, Series> byLabelStr(List<Series> seriesList) {
+        Map<String, Series> map = new HashMap<>();
+        for (Series series : seriesList) {
+            map.put(series.measurement.getLabelStr(), series);
+        }
+        return map;
+    }
+
+    /**
+     * Same as merging results of each step in
+     * {@link OcpPrometheusAstNode#eval(long, long, long)}, for each key and step
+     * the first series having a value wins.
+     */
+    private List<OcpPrometheusQueryResult> toResults(Value value) {
+        if (timestamps.length == 0 || value.isEmpty()) {
+            return new LinkedList<>();
+        }
+        if (value.scalar) {
+            LinkedList<OcpPrometheusQueryResult> results = new LinkedList<>();
+            results.add(new OcpPrometheusQueryResult(value.scalarValue));
+            return results;
+        }
+        Map<String, OcpPrometheusQueryResult> resultMap = new HashMap<>();
+        Map<String, List<Series>> key2Series = new HashMap<>();
+        for (Series series : value.series) {
+            String k = series.measurement.getLabelStr();
+            if (!resultMap.containsKey(k)) {
+                resultMap.put(k, new OcpPrometheusQueryResult(series.measurement, series.interval,
+                        new LinkedList<>()));
+                key2Series.put(k, new ArrayList<>(1));
+            }
+            key2Series.get(k).add(series);
+        }
+        for (Map.Entry<String, OcpPrometheusQueryResult> entry : resultMap.entrySet()) {
+            List<Series> seriesList = key2Series.get(entry.getKey());
+            LinkedList<OcpPrometheusData> dataList = entry.getValue().getData();
+            for (int i = 0; i < timestamps.length; i++) {
+                for (Series series : seriesList) {
+                    if (series.present.get(i)) {
+                        double v = series.values[i];
+                        dataList.add(new OcpPrometheusData(timestamps[i], (double) (long) (v * 1000) / 1000));
+                        break;
+                    }
+                }
+            }
+        }
+        return new LinkedList<>(resultMap.values());
+    }
+
+    private static final class Value {
+
+        static final Value EMPTY = new Value(false, 0D, Collections.emptyList());
+
+        final boolean scalar;
+        final double scalarValue;
+        final List<Series> series;
+
+        private Value(boolean scalar, double scalarValue, List<Series> series) {
+            this.scalar = scalar;
+            this.scalarValue = scalarValue;
+            this.series = series;
+        }
+
+        static Value scalar(double value) {
+            return new Value(true, value, Collections.emptyList());
+        }
+
+        static Value vector(List<Series> series) {
+            return series.isEmpty() ? EMPTY : new Value(false, 0D, series);
+        }
+
+        boolean isEmpty() {
+            return !scalar && series.isEmpty();
+        }
+    }
+
+    private static final class Series {
+
+        final OcpPrometheusMeasurement measurement;
+        final int interval;
+        final BitSet present;
+        final double[] values;
+
+        Series(OcpPrometheusMeasurement measurement, int interval, int length) {
+            this.measurement = measurement;
+            this.interval = interval;
+            this.present = new BitSet(length);
+            this.values = new double[length];
+        }
+
+        void set(int index, double value) {
+            present.set(index);
+            values[index] = value;
+        }
+    }
+
+    private static final class Group {
+
+        final OcpPrometheusMeasurement measurement;
+        final List<Series> members = new ArrayList<>();
+
+        Group(OcpPrometheusMeasurement measurement) {
+            this.measurement = measurement;
+        }
+    }
+
+    /**
+     * Same as OcpPrometheusAggData.
+     */
+    private static final class Agg {
+
+        double sum = 0;
+        double count = 0;
+        double max = 0;
+        double min = Double.MAX_VALUE;
+
+        void add(double v) {
+            sum += Double.isNaN(v) ? 0 : v;
+            count += 1;
+            max = Double.isNaN(v) ? max : Math.max(v, max);
+            min = Double.isNaN(v) ? min : Math.min(v, min);
+        }
+
+        double get(OcpPrometheusAstFunctionEnum function) {
+            switch (function) {
+                case SUM:
+                    return sum;
+                case COUNT:
+                    return count;
+                case MAX:
+                    return max;
+                case MIN:
+                    return min;
+                case AVG:
+                    return count > 0 ? sum / count : 0;
+                default:
+                    throw new RuntimeException("Get Unexpected Agg Function");
+            }
+        }
+    }
+
+    /**
+     * Scanned points of one series, sorted by timestamp.
+     */
+    private static final class Points {
+
+        final long[] timestamps;
+        final double[] values;
+        final int size;
+
+        private Points(long[] timestamps, double[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+            this.size = timestamps.length;
+        }
+
+        static Points of(List<OcpPrometheusData> dataList) {
+            if (dataList == null || dataList.isEmpty()) {
+                return new Points(new long[0], new double[0]);
+            }
+            List<OcpPrometheusData> sorted = dataList;
+            long prev = Long.MIN_VALUE;
+            for (OcpPrometheusData data : dataList) {
+                if (data.getTimestamp() < prev) {
+                    sorted = new ArrayList<>(dataList);
+                    sorted.sort(Comparator.comparing(OcpPrometheusData::getTimestamp));
+                    break;
+                }
+                prev = data.getTimestamp();
+            }
+            long[] timestamps = new long[sorted.size()];
+            double[] values = new double[sorted.size()];
+            int i = 0;
+            for (OcpPrometheusData data : sorted) {
+                timestamps[i] = data.getTimestamp();
+                values[i] = data.getValue();
+                i++;
+            }
+            return new Points(timestamps, values);
+        }
+    }
+}
@@ -42,4 +42,8 @@ public class MonitorDataRolloverProperties {
         return retentionDaysConf.getOrDefault(MonitorConstants.TABLE_NAME_MINUTE_DATA, 31);
     }
 
+    public int getHourDataRetentionDays() {
+        return retentionDaysConf.getOrDefault(MonitorConstants.TABLE_NAME_HOUR_DATA, 93);
+    }
+
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.helper;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Batch size adapted to observed latency of batches. It grows additively while
+ * full batches finish well within the target latency, and halves once a batch
+ * is slower than the target.
+ * <p>
+ * Not thread safe, each worker keeps its own.
+ */
+public class AdaptiveBatchSize {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetMillis;
+
+    private int size;
+
+    public AdaptiveBatchSize(int initialSize, int minSize, int maxSize, long targetMillis) {
+        Validate.isTrue(minSize > 0 && minSize <= initialSize && initialSize <= maxSize, "invalid batch size");
+        Validate.isTrue(targetMillis > 0, "targetMillis must be positive");
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetMillis = targetMillis;
+        this.size = initialSize;
+    }
+
+    public int get() {
+        return size;
+    }
+
+    /**
+     * Record a finished batch of the size, which took elapsed milliseconds.
+     */
+    public void record(int batchSize, long elapsedMillis) {
+        if (elapsedMillis > targetMillis) {
+            size = Math.max(minSize, size / 2);
+        } else if (batchSize >= size && elapsedMillis * 2 < targetMillis) {
+            size = Math.min(maxSize, size + minSize);
+        }
+    }
+
+}
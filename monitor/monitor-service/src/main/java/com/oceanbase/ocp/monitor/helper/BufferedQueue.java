@@ -14,9 +14,6 @@ package com.oceanbase.ocp.monitor.helper;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import lombok.extern.slf4j.Slf4j;
-
-@Slf4j
 public class BufferedQueue<E> extends ConcurrentLinkedQueue<E> {
 
     private static final long serialVersionUID = -4687564300116973018L;
@@ -33,10 +30,12 @@ public class BufferedQueue<E> extends ConcurrentLinkedQueue<E> {
         return offer(e);
     }
 
+    /**
+     * @return false if the queue is full, callers count dropped elements
+     */
     @Override
     public boolean offer(E e) {
         if (buffSize.get() > maxBuffSize) {
-            log.warn("Queue is full, maxSize={}, currentSize={}", maxBuffSize, buffSize.get());
             return false;
         }
         boolean added = super.offer(e);
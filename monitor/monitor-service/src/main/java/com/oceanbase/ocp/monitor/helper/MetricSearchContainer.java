@@ -9,18 +9,21 @@
  * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
  * See the Mulan PSL v2 for more details.
  */
-
 package com.oceanbase.ocp.monitor.helper;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 
 import org.apache.commons.lang3.Validate;
 import org.springframework.util.CollectionUtils;
@@ -32,19 +35,37 @@ import com.oceanbase.ocp.monitor.model.metric.Metric;
 import com.oceanbase.ocp.monitor.model.metric.MetricLabels;
 import com.oceanbase.ocp.monitor.param.OcpPrometheusLabel;
 
-import lombok.Data;
-import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Inverted index of series of one metric.
+ * <p>
+ * Each series gets a dense ordinal, and each label key=value keeps a bitmap of
+ * ordinals of series having it. A matcher is the union of postings of matched
+ * values, and selection is the intersection of all matchers. A series must own
+ * the label key to match NEQ or NOT_REGEX matchers.
+ * <p>
+ * Removing series rebuilds the index with remaining series, so that ordinals
+ * stay dense.
  **/
 @Slf4j
 public class MetricSearchContainer {
 
+    private static final int MAX_CACHED_MATCHERS_PER_KEY = 64;
+
     private final String metricName;
-    private final String2IntMap string2IntMap = new String2IntMap();
-    private final Map<String, Set<String>> labelKey2ValueSet = new ConcurrentHashMap<>();
-    private final Map<MetricIndex, Set<Long>> metricIndex2SeriesIds = new ConcurrentHashMap<>();
+    private final Map<String, LabelPostings> labelKey2Postings = new HashMap<>();
+    private LongIntHashMap seriesId2Ordinal = new LongIntHashMap(16);
+    private long[] ordinal2SeriesId = new long[16];
+    /**
+     * Chars of series key, for estimating memory footprint.
+     */
+    private int[] ordinal2KeyChars = new int[16];
+    private long keyChars = 0;
+    private int seriesCount = 0;
+    private int keyValueCount = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public MetricSearchContainer(String metricName) {
         Validate.notEmpty(metricName, "metricName is null or empty");
@@ -55,159 +76,275 @@ public class MetricSearchContainer {
      * Find matched series by labels.
      */
     public List<Long> select(List<OcpPrometheusLabel> prometheusLabels) {
-        List<Long> seriesIds = new LinkedList<>();
-        if (CollectionUtils.isEmpty(prometheusLabels)) {
-            metricIndex2SeriesIds.values().forEach(seriesIds::addAll);
-            log.warn("Label is null, return all seriesIds, metricName = {}, seriesId size = {}", metricName,
-                    seriesIds.size());
-            return seriesIds;
-        }
-        List<Set<Integer>> keyValues4MatchList = calcKeyValues4Match(prometheusLabels);
-
-        if (!CollectionUtils.isEmpty(keyValues4MatchList)) {
-            for (Map.Entry<MetricIndex, Set<Long>> entry : metricIndex2SeriesIds.entrySet()) {
-                int[] prepare = prepare(keyValues4MatchList, entry.getKey().getKeyValues());
-                if (prepare.length == 0) {
-                    continue;
-                }
-                if (containsAll(entry.getKey().getKeyValues(), prepare)) {
-                    seriesIds.addAll(entry.getValue());
+        lock.readLock().lock();
+        try {
+            if (CollectionUtils.isEmpty(prometheusLabels)) {
+                List<Long> seriesIds = new ArrayList<>(seriesCount);
+                for (int i = 0; i < seriesCount; i++) {
+                    seriesIds.add(ordinal2SeriesId[i]);
                 }
+                log.warn("Label is null, return all seriesIds, metricName = {}, seriesId size = {}", metricName,
+                        seriesIds.size());
+                return seriesIds;
             }
-        }
 
-        return seriesIds;
-    }
+            List<BitSet> matched = new ArrayList<>(prometheusLabels.size());
+            for (OcpPrometheusLabel label : prometheusLabels) {
+                BitSet bitmap = match(label);
+                if (bitmap.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                matched.add(bitmap);
+            }
+            matched.sort(Comparator.comparingInt(BitSet::cardinality));
 
-    private List<Set<Integer>> calcKeyValues4Match(List<OcpPrometheusLabel> labels) {
-        List<Set<Integer>> resList = new ArrayList<>();
-        for (OcpPrometheusLabel label : labels) {
-            VectorSelectorType labelMatch = label.getLabelMatch();
-            String labelKey = label.getLabelKey().toLowerCase();
-            String labelValue = label.getLabelValue().toLowerCase();
-            Set<Integer> set = new HashSet<>();
-            switch (labelMatch) {
-                case MATCH_EQ:
-                    set.add(string2IntMap.getInt(labelKey + "=" + labelValue));
-                    break;
-                case MATCH_NEQ:
-                    set = labelKey2ValueSet.get(labelKey).stream().filter(v -> !v.equals(labelValue))
-                            .map(v -> string2IntMap.getInt(labelKey + "=" + v)).collect(
-                                    Collectors.toSet());
-                    break;
-                case MATCH_REGEX:
-                    set = labelKey2ValueSet.get(labelKey).stream()
-                            .filter(v -> OcpPrometheusRegexMatcher.matchString(v, labelValue))
-                            .map(v -> string2IntMap.getInt(labelKey + "=" + v)).collect(
-                                    Collectors.toSet());
-                    break;
-                case MATCH_NOT_REGEX:
-                    set = labelKey2ValueSet.get(labelKey).stream()
-                            .filter(v -> !OcpPrometheusRegexMatcher.matchString(v, labelValue))
-                            .map(v -> string2IntMap.getInt(labelKey + "=" + v)).collect(
-                                    Collectors.toSet());
-                    break;
-                default:
-                    throw new IllegalArgumentException(ErrorCodes.COMMON_ILLEGAL_ARGUMENT, labelMatch);
+            BitSet result = (BitSet) matched.get(0).clone();
+            for (int i = 1; i < matched.size() && !result.isEmpty(); i++) {
+                result.and(matched.get(i));
             }
-            if (CollectionUtils.isEmpty(set)) {
-                return new ArrayList<>();
+            List<Long> seriesIds = new ArrayList<>(result.cardinality());
+            for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+                seriesIds.add(ordinal2SeriesId[i]);
             }
-            resList.add(set);
+            return seriesIds;
+        } finally {
+            lock.readLock().unlock();
         }
-        return resList;
     }
 
-
-    private int[] prepare(List<Set<Integer>> keyValues4MatchList, int[] keyValues) {
-        int[] res = new int[keyValues4MatchList.size()];
-        outer: for (int i = 0; i < keyValues4MatchList.size(); i++) {
-            Set<Integer> set = keyValues4MatchList.get(i);
-            if (!CollectionUtils.isEmpty(set)) {
-                if (set.size() > 1) {
-                    for (int value : keyValues) {
-                        if (set.contains(value)) {
-                            res[i] = value;
-                            continue outer;
-                        }
-                    }
-                    return new int[] {};
-                } else {
-                    res[i] = set.iterator().next();
-                }
-            }
+    /**
+     * Union of postings of values matched by the label matcher, should not be
+     * modified by caller.
+     */
+    private BitSet match(OcpPrometheusLabel label) {
+        VectorSelectorType labelMatch = label.getLabelMatch();
+        String labelKey = label.getLabelKey().toLowerCase();
+        String labelValue = label.getLabelValue().toLowerCase();
+        LabelPostings postings = labelKey2Postings.get(labelKey);
+        if (postings == null) {
+            return new BitSet();
         }
-        if (res.length > 0) {
-            Arrays.sort(res);
+        switch (labelMatch) {
+            case MATCH_EQ:
+                BitSet bitmap = postings.value2Postings.get(labelValue);
+                return bitmap == null ? new BitSet() : bitmap;
+            case MATCH_NEQ:
+                return postings.union(labelMatch, labelValue, v -> !v.equals(labelValue));
+            case MATCH_REGEX:
+                return postings.union(labelMatch, labelValue,
+                        v -> OcpPrometheusRegexMatcher.matchString(v, labelValue));
+            case MATCH_NOT_REGEX:
+                return postings.union(labelMatch, labelValue,
+                        v -> !OcpPrometheusRegexMatcher.matchString(v, labelValue));
+            default:
+                throw new IllegalArgumentException(ErrorCodes.COMMON_ILLEGAL_ARGUMENT, labelMatch);
         }
-        return res;
     }
 
     public void addIfAbsent(Long seriesId, Metric metric) {
+        validate(metric);
+        lock.writeLock().lock();
+        try {
+            doAdd(seriesId, metric);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add series under one write lock.
+     */
+    public void addAllIfAbsent(Map<Long, Metric> seriesId2Metric) {
+        seriesId2Metric.values().forEach(this::validate);
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Metric> entry : seriesId2Metric.entrySet()) {
+                doAdd(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void validate(Metric metric) {
         Validate.notNull(metric, "metric is null");
         Validate.isTrue(metricName.equalsIgnoreCase(metric.getName()));
+        Validate.notEmpty(metric.getLabels(), "labels is empty");
+    }
+
+    private void doAdd(Long seriesId, Metric metric) {
+        if (seriesId2Ordinal.get(seriesId) != LongIntHashMap.NO_VALUE) {
+            return;
+        }
         MetricLabels labels = metric.getLabels();
-        Validate.notEmpty(labels, "labels is empty");
+        int ordinal = seriesCount++;
+        if (ordinal == ordinal2SeriesId.length) {
+            ordinal2SeriesId = Arrays.copyOf(ordinal2SeriesId, ordinal << 1);
+            ordinal2KeyChars = Arrays.copyOf(ordinal2KeyChars, ordinal << 1);
+        }
+        ordinal2SeriesId[ordinal] = seriesId;
+        ordinal2KeyChars[ordinal] = metric.getSeriesKey().length();
+        keyChars += ordinal2KeyChars[ordinal];
+        seriesId2Ordinal.put(seriesId, ordinal);
 
-        MetricIndex metricIndex = new MetricIndex(calcKeyValues(labels));
-        Set<Long> set = metricIndex2SeriesIds.computeIfAbsent(metricIndex, k -> new HashSet<>());
-        set.add(seriesId);
-        log.debug("Add metric, seriesId={}, metricName={}, labels={}",
-                seriesId, metric.getName(), this.labelKey2ValueSet);
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            String key = entry.getKey().toLowerCase();
+            String value = entry.getValue().toLowerCase();
+            LabelPostings postings = labelKey2Postings.computeIfAbsent(key, k -> new LabelPostings());
+            BitSet bitmap = postings.value2Postings.get(value);
+            if (bitmap == null) {
+                bitmap = new BitSet();
+                postings.value2Postings.put(value, bitmap);
+                keyValueCount++;
+            }
+            bitmap.set(ordinal);
+            postings.matcherCache.clear();
+        }
+        log.debug("Add metric, seriesId={}, metricName={}, labels={}", seriesId, metric.getName(), labels);
     }
 
-    public int keyValueCount() {
-        return string2IntMap.size();
+    /**
+     * Remove series and rebuild the index with remaining series.
+     *
+     * @return count of removed series
+     */
+    public int removeAll(Collection<Long> seriesIds) {
+        lock.writeLock().lock();
+        try {
+            BitSet removed = new BitSet(seriesCount);
+            for (Long seriesId : seriesIds) {
+                int ordinal = seriesId2Ordinal.get(seriesId);
+                if (ordinal != LongIntHashMap.NO_VALUE) {
+                    removed.set(ordinal);
+                }
+            }
+            if (removed.isEmpty()) {
+                return 0;
+            }
+            int remaining = seriesCount - removed.cardinality();
+            int capacity = Math.max(16, remaining);
+            int[] newOrdinals = new int[seriesCount];
+            long[] newOrdinal2SeriesId = new long[capacity];
+            int[] newOrdinal2KeyChars = new int[capacity];
+            LongIntHashMap newSeriesId2Ordinal = new LongIntHashMap(capacity);
+            int next = 0;
+            keyChars = 0;
+            for (int i = 0; i < seriesCount; i++) {
+                if (removed.get(i)) {
+                    newOrdinals[i] = LongIntHashMap.NO_VALUE;
+                    continue;
+                }
+                newOrdinals[i] = next;
+                newOrdinal2SeriesId[next] = ordinal2SeriesId[i];
+                newOrdinal2KeyChars[next] = ordinal2KeyChars[i];
+                newSeriesId2Ordinal.put(ordinal2SeriesId[i], next);
+                keyChars += ordinal2KeyChars[i];
+                next++;
+            }
+
+            keyValueCount = 0;
+            Iterator<LabelPostings> postingsIterator = labelKey2Postings.values().iterator();
+            while (postingsIterator.hasNext()) {
+                LabelPostings postings = postingsIterator.next();
+                Iterator<Map.Entry<String, BitSet>> valueIterator = postings.value2Postings.entrySet().iterator();
+                while (valueIterator.hasNext()) {
+                    Map.Entry<String, BitSet> entry = valueIterator.next();
+                    BitSet bitmap = new BitSet(remaining);
+                    BitSet old = entry.getValue();
+                    for (int i = old.nextSetBit(0); i >= 0; i = old.nextSetBit(i + 1)) {
+                        if (newOrdinals[i] != LongIntHashMap.NO_VALUE) {
+                            bitmap.set(newOrdinals[i]);
+                        }
+                    }
+                    if (bitmap.isEmpty()) {
+                        valueIterator.remove();
+                    } else {
+                        entry.setValue(bitmap);
+                        keyValueCount++;
+                    }
+                }
+                postings.matcherCache.clear();
+                if (postings.value2Postings.isEmpty()) {
+                    postingsIterator.remove();
+                }
+            }
+            seriesId2Ordinal = newSeriesId2Ordinal;
+            ordinal2SeriesId = newOrdinal2SeriesId;
+            ordinal2KeyChars = newOrdinal2KeyChars;
+            seriesCount = remaining;
+            return removed.cardinality();
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
-    boolean containsAll(int[] keyValues, int[] keyValues4Match) {
-        if (keyValues4Match.length == 0) {
-            return true;
+    public int seriesCount() {
+        lock.readLock().lock();
+        try {
+            return seriesCount;
+        } finally {
+            lock.readLock().unlock();
         }
-        int currentPos = 0;
-        int currentMatchPos = 0;
+    }
 
-        while (currentPos < keyValues.length) {
-            if (keyValues[currentPos] > keyValues4Match[currentMatchPos]) {
-                break;
-            }
-            if (keyValues[currentPos] == keyValues4Match[currentMatchPos]) {
-                currentMatchPos++;
-                if (currentMatchPos >= keyValues4Match.length) {
-                    break;
+    /**
+     * Estimated memory footprint in bytes of series of the metric, including series
+     * keys cached by the dictionary.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = ordinal2SeriesId.length * (long) (Long.BYTES + Integer.BYTES)
+                    + seriesId2Ordinal.capacity() * (long) (Long.BYTES + Integer.BYTES);
+            // two map entries and a string per series key
+            bytes += keyChars * 2 + seriesCount * 128L;
+            for (LabelPostings postings : labelKey2Postings.values()) {
+                for (Map.Entry<String, BitSet> entry : postings.value2Postings.entrySet()) {
+                    bytes += entry.getKey().length() * 2L + 64L + entry.getValue().size() / Byte.SIZE;
                 }
             }
-            currentPos++;
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
         }
-        return currentMatchPos >= keyValues4Match.length;
     }
 
-    int[] calcKeyValues(MetricLabels labels) {
-        if (CollectionUtils.isEmpty(labels)) {
-            return new int[0];
-        }
-        int pos = 0;
-        int[] keyValues = new int[labels.size()];
-        for (Map.Entry<String, String> entry : labels.entrySet()) {
-            String key = entry.getKey().toLowerCase();
-            String value = entry.getValue().toLowerCase();
-            keyValues[pos++] =
-                    string2IntMap.getInt(key + "=" + value);
-            Set<String> valueSet = labelKey2ValueSet.computeIfAbsent(key, k -> new HashSet<>());
-            valueSet.add(value);
+    public int keyValueCount() {
+        lock.readLock().lock();
+        try {
+            return keyValueCount;
+        } finally {
+            lock.readLock().unlock();
         }
-        Arrays.sort(keyValues);
-        return keyValues;
     }
 
-    @Data
-    @EqualsAndHashCode
-    private static class MetricIndex {
+    private static class LabelPostings {
+
+        private final Map<String, BitSet> value2Postings = new HashMap<>();
 
-        private int[] keyValues;
+        /**
+         * Union results of NEQ and regex matchers, cleared once postings of the key
+         * change.
+         */
+        private final Map<String, BitSet> matcherCache = new ConcurrentHashMap<>();
 
-        MetricIndex(int[] keyValues) {
-            this.keyValues = keyValues;
+        BitSet union(VectorSelectorType labelMatch, String labelValue, Predicate<String> filter) {
+            String cacheKey = labelMatch.name() + ":" + labelValue;
+            BitSet cached = matcherCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+            BitSet result = new BitSet();
+            for (Map.Entry<String, BitSet> entry : value2Postings.entrySet()) {
+                if (filter.test(entry.getKey())) {
+                    result.or(entry.getValue());
+                }
+            }
+            if (matcherCache.size() >= MAX_CACHED_MATCHERS_PER_KEY) {
+                matcherCache.clear();
+            }
+            matcherCache.put(cacheKey, result);
+            return result;
         }
     }
 }
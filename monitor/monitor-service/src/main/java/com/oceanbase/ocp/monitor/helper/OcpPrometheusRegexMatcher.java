@@ -12,17 +12,16 @@
 
 package com.oceanbase.ocp.monitor.helper;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.re2j.Pattern;
 
 public class OcpPrometheusRegexMatcher {
 
-    private static final Map<String, Pattern> PATTERN_CACHE = new ConcurrentHashMap<>();
+    private static final Cache<String, Pattern> PATTERN_CACHE = Caffeine.newBuilder().maximumSize(1024).build();
 
     public static boolean matchString(String str, String patternStr) {
-        Pattern pattern = PATTERN_CACHE.computeIfAbsent(patternStr, t -> Pattern.compile(patternStr));
+        Pattern pattern = PATTERN_CACHE.get(patternStr, Pattern::compile);
         return pattern.matches(str);
     }
 
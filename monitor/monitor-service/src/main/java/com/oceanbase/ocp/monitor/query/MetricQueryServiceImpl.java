@@ -16,73 +16,118 @@ import java.io.StringReader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.cache.CacheLoader;
 
-import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
-import com.oceanbase.ocp.common.util.ExecutorUtils;
-import com.oceanbase.ocp.common.util.trace.TraceDecorator;
 import com.oceanbase.ocp.monitor.MetricQueryService;
 import com.oceanbase.ocp.monitor.calculate.OcpPrometheusAstNode;
+import com.oceanbase.ocp.monitor.calculate.OcpPrometheusEvalContext;
+import com.oceanbase.ocp.monitor.calculate.OcpPrometheusQueryPlan;
+import com.oceanbase.ocp.monitor.calculate.OcpPrometheusVectorEvaluator;
 import com.oceanbase.ocp.monitor.calculate.parser.OcpPrometheusQlParser;
 import com.oceanbase.ocp.monitor.helper.MonitorMetaMapContainer;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryResult;
 import com.oceanbase.ocp.monitor.param.MetricQueryParams;
 import com.oceanbase.ocp.monitor.param.OcpPrometheusLabel;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryExecutor;
 import com.oceanbase.ocp.monitor.query.util.QueryParamAdapter;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class MetricQueryServiceImpl implements MetricQueryService {
 
+    private static final int PLAN_CACHE_SIZE = 2048;
+
     private final MonitorMetaMapContainer monitorMetaMapContainer;
+    private final MetricQueryExecutor queryExecutor;
+    private final boolean vectorizedEvalEnabled;
+
+    /**
+     * Parsed plans by expression template, empty if the template can not be parsed
+     * with placeholders.
+     */
+    private final Cache<String, Optional<OcpPrometheusQueryPlan>> planCache =
+            Caffeine.newBuilder().maximumSize(PLAN_CACHE_SIZE).build();
+    private final Counter planQueries;
+    private final Counter planHits;
+    private final Counter batchScans;
+    private final Counter batchSavedScans;
+    private final Counter batchSavedSubtrees;
 
-    public MetricQueryServiceImpl(MonitorMetaMapContainer monitorMetaMapContainer) {
+    public MetricQueryServiceImpl(MonitorMetaMapContainer monitorMetaMapContainer,
+            MetricQueryExecutor queryExecutor, MeterRegistry meterRegistry, boolean vectorizedEvalEnabled) {
         this.monitorMetaMapContainer = monitorMetaMapContainer;
+        this.queryExecutor = queryExecutor;
+        this.vectorizedEvalEnabled = vectorizedEvalEnabled;
+        this.planQueries = Counter.builder("ocp_monitor_query_plan_queries_total")
+                .description("Metric query plan cache queries count")
+                .register(meterRegistry);
+        this.planHits = Counter.builder("ocp_monitor_query_plan_hits_total")
+                .description("Metric query plan cache hits count")
+                .register(meterRegistry);
+        this.batchScans = Counter.builder("ocp_monitor_query_batch_scans_total")
+                .description("Metric scans requested by batch queries")
+                .register(meterRegistry);
+        this.batchSavedScans = Counter.builder("ocp_monitor_query_batch_saved_scans_total")
+                .description("Metric scans shared with an identical scan of the same batch query")
+                .register(meterRegistry);
+        this.batchSavedSubtrees = Counter.builder("ocp_monitor_query_batch_saved_subtrees_total")
+                .description("Expression sub-trees shared with an identical sub-tree of the same batch query")
+                .register(meterRegistry);
     }
 
     @Override
     public Map<String, List<OcpPrometheusQueryResult>> queryMetricBatch(MetricQueryParams params) {
         Map<String, Future<List<OcpPrometheusQueryResult>>> futureMap = new HashMap<>();
         Map<String, List<OcpPrometheusQueryResult>> resultMap = new HashMap<>();
-        ThreadPoolExecutor executor = null;
-        try {
-            executor = getExecutor(params.getMetrics().size());
-            for (String metric : params.getMetrics()) {
-                try {
-                    QueryParamAdapter.AdaptedParams adaptedParams =
-                            getAdaptedParams(metric, params.getLabels(), params.getPrometheusLabels(),
-                                    params.getInterval(), params.getGroupBy(), params.getStartTimestamp(),
-                                    params.getEndTimestamp(), params.getMinStep(), params.getMaxPoints());
-                    Future<List<OcpPrometheusQueryResult>> future = executor.submit(new TraceDecorator()
-                            .decorate(() -> doQuery(adaptedParams.getExpression(), adaptedParams.getStartTime(),
-                                    adaptedParams.getEndTime(), adaptedParams.getStep())));
-                    futureMap.put(metric, future);
-                } catch (CacheLoader.InvalidCacheLoadException e) {
-                    log.error("query metric failed, metric key may not exists, message={}", e.getMessage());
-                } catch (Exception e) {
-                    log.error("query metric async :{}, labelMap:{}, prometheusLabels:{}, gbLabels:{}. ex: {}",
-                            metric, params.getLabels(), params.getPrometheusLabels(), params.getGroupBy(), e);
-                }
-            }
-            for (String k : futureMap.keySet()) {
-                try {
-                    resultMap.put(k, futureMap.get(k).get(2, TimeUnit.MINUTES));
-                } catch (Exception e) {
-                    log.error("get metric data metric:{}, labelMap:{}, prometheusLabels:{}, gbLabels:{}. ex: {}",
-                            k, params.getLabels(), params.getPrometheusLabels(), params.getGroupBy(), e);
-                }
+        long deadline = queryExecutor.newDeadline();
+        // identical scans and sub-trees of metrics in the batch are evaluated once
+        OcpPrometheusEvalContext context = params.getMetrics().size() > 1 ? new OcpPrometheusEvalContext() : null;
+        for (String metric : params.getMetrics()) {
+            try {
+                QueryParamAdapter.AdaptedParams adaptedParams =
+                        getAdaptedParams(metric, params.getLabels(), params.getPrometheusLabels(),
+                                params.getInterval(), params.getGroupBy(), params.getStartTimestamp(),
+                                params.getEndTimestamp(), params.getMinStep(), params.getMaxPoints());
+                Future<List<OcpPrometheusQueryResult>> future = queryExecutor.submitQuery(
+                        () -> doQuery(adaptedParams, context), deadline);
+                futureMap.put(metric, future);
+            } catch (CacheLoader.InvalidCacheLoadException e) {
+                log.error("query metric failed, metric key may not exists, message={}", e.getMessage());
+            } catch (Exception e) {
+                log.error("query metric async :{}, labelMap:{}, prometheusLabels:{}, gbLabels:{}. ex: {}",
+                        metric, params.getLabels(), params.getPrometheusLabels(), params.getGroupBy(), e);
             }
-        } finally {
-            if (executor != null) {
-                ExecutorUtils.shutdown(executor, 1);
+        }
+        for (String k : futureMap.keySet()) {
+            Future<List<OcpPrometheusQueryResult>> future = futureMap.get(k);
+            try {
+                long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+                resultMap.put(k, future.get(remaining, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                queryExecutor.recordTimeout("query");
+                log.error("get metric data timeout, metric:{}, labelMap:{}, prometheusLabels:{}, gbLabels:{}",
+                        k, params.getLabels(), params.getPrometheusLabels(), params.getGroupBy());
+            } catch (Exception e) {
+                log.error("get metric data metric:{}, labelMap:{}, prometheusLabels:{}, gbLabels:{}. ex: {}",
+                        k, params.getLabels(), params.getPrometheusLabels(), params.getGroupBy(), e);
             }
         }
+        if (context != null) {
+            batchScans.increment(context.getScanCount());
+            batchSavedScans.increment(context.getSavedScanCount());
+            batchSavedSubtrees.increment(context.getSavedSubtreeCount());
+        }
         return resultMap;
     }
 
@@ -94,16 +139,45 @@ public class MetricQueryServiceImpl implements MetricQueryService {
                 maxPoints).adapt();
     }
 
-    private ThreadPoolExecutor getExecutor(int coreSize) {
-        return new ThreadPoolExecutor(coreSize, coreSize, 1, TimeUnit.SECONDS, new SynchronousQueue<>(),
-                new OcpThreadFactory("metric-query"));
+    private List<OcpPrometheusQueryResult> doQuery(QueryParamAdapter.AdaptedParams params,
+            OcpPrometheusEvalContext context) throws Exception {
+        OcpPrometheusAstNode parseTree = null;
+        OcpPrometheusQueryPlan plan = getPlan(params.getTemplate());
+        if (plan != null) {
+            parseTree = plan.bind(params.getLabels(), params.getGbLabels(), params.getInterval());
+        }
+        if (parseTree == null) {
+            OcpPrometheusQlParser ocpPrometheusQlParser =
+                    new OcpPrometheusQlParser(new StringReader(params.getExpression()));
+            parseTree = ocpPrometheusQlParser.parse();
+        }
+        if (vectorizedEvalEnabled && OcpPrometheusVectorEvaluator.supports(parseTree)) {
+            return new OcpPrometheusVectorEvaluator(params.getStartTime(), params.getEndTime(), params.getStep(),
+                    context).eval(parseTree);
+        }
+        return parseTree.eval(params.getStartTime(), params.getEndTime(), params.getStep(), context);
     }
 
-    private List<OcpPrometheusQueryResult> doQuery(String expr, long startTime, long endTime, long step)
-            throws Exception {
-        OcpPrometheusQlParser ocpPrometheusQlParser = new OcpPrometheusQlParser(new StringReader(expr));
-        OcpPrometheusAstNode parseTree = ocpPrometheusQlParser.parse();
-        return parseTree.eval(startTime, endTime, step);
+    private OcpPrometheusQueryPlan getPlan(String template) {
+        if (template == null) {
+            return null;
+        }
+        planQueries.increment();
+        Optional<OcpPrometheusQueryPlan> plan = planCache.getIfPresent(template);
+        if (plan != null) {
+            planHits.increment();
+            return plan.orElse(null);
+        }
+        plan = planCache.get(template, t -> {
+            try {
+                return Optional.of(OcpPrometheusQueryPlan.compile(t));
+            } catch (Throwable e) {
+                log.warn("Compile query plan failed, parse expression per query, template={}, message={}", t,
+                        e.getMessage());
+                return Optional.empty();
+            }
+        });
+        return plan.orElse(null);
     }
 
 }
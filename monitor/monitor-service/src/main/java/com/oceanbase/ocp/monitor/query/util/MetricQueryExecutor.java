@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.query.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
+import com.oceanbase.ocp.common.util.trace.TraceDecorator;
+import com.oceanbase.ocp.monitor.MonitorProperties;
+import com.oceanbase.ocp.monitor.meter.CounterGroup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shared executors of metric queries.
+ * <p>
+ * Expressions are evaluated in the query pool and item nodes are scanned in the
+ * scan pool, scans never wait for queries so the pools cannot deadlock. Both
+ * pools are bounded, once the queue is full the task runs in the caller thread
+ * instead of spawning threads. Once shut down, submitting throws
+ * {@link RejectedExecutionException} and tasks still queued are cancelled, so
+ * that no caller waits on a future which never completes.
+ * <p>
+ * Each query carries a deadline, which is visible to scans submitted by the
+ * query through {@link #checkDeadline()} and {@link #remainingMillis()}.
+ */
+@Slf4j
+@Component
+public class MetricQueryExecutor {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    @Autowired
+    private MonitorProperties monitorProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor queryExec;
+    private ThreadPoolExecutor scanExec;
+
+    private CounterGroup callerRuns;
+    private CounterGroup timeouts;
+
+    public MetricQueryExecutor() {}
+
+    MetricQueryExecutor(MonitorProperties monitorProperties, MeterRegistry meterRegistry) {
+        this.monitorProperties = monitorProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        callerRuns = CounterGroup.builder("ocp_monitor_query_caller_runs")
+                .description("Metric query tasks run in caller thread as the pool is saturated")
+                .labelNames("pool")
+                .build(meterRegistry);
+        timeouts = CounterGroup.builder("ocp_monitor_query_timeouts")
+                .description("Metric query tasks exceeded deadline")
+                .labelNames("pool")
+                .build(meterRegistry);
+        int queueCapacity = monitorProperties.getQueryExecutorQueueCapacity();
+        queryExec = newExecutor("query", monitorProperties.getQueryExecutorSize(), queueCapacity);
+        scanExec = newExecutor("scan", monitorProperties.getScanExecutorSize(), queueCapacity);
+        log.info("Metric query executor initialized, querySize={}, scanSize={}, queueCapacity={}",
+                queryExec.getMaximumPoolSize(), scanExec.getMaximumPoolSize(), queueCapacity);
+    }
+
+    private ThreadPoolExecutor newExecutor(String pool, int size, int queueCapacity) {
+        RejectedExecutionHandler callerRunsHandler = (r, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("metric " + pool + " executor is shut down");
+            }
+            callerRuns.incrementOne(pool);
+            r.run();
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new OcpThreadFactory("metric-" + pool + "-"),
+                callerRunsHandler);
+        executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("ocp_monitor_query_executor_active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Active threads of metric query executor")
+                .tag("pool", pool)
+                .register(meterRegistry);
+        Gauge.builder("ocp_monitor_query_executor_queued", executor, e -> e.getQueue().size())
+                .description("Queued tasks of metric query executor")
+                .tag("pool", pool)
+                .register(meterRegistry);
+        return executor;
+    }
+
+    /**
+     * Deadline of queries submitted now.
+     */
+    public long newDeadline() {
+        return System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(monitorProperties.getQueryTimeoutSeconds());
+    }
+
+    public <T> Future<T> submitQuery(Callable<T> task, long deadline) {
+        return queryExec.submit(new TraceDecorator().decorate(withDeadline(task, deadline)));
+    }
+
+    /**
+     * Submit scan of one item node, inherits deadline of the current query.
+     */
+    public <T> Future<T> submitScan(Callable<T> task) {
+        Long deadline = DEADLINE.get();
+        return scanExec.submit(deadline == null ? task : withDeadline(task, deadline));
+    }
+
+    public void recordTimeout(String pool) {
+        timeouts.incrementOne(pool);
+    }
+
+    private static <T> Callable<T> withDeadline(Callable<T> task, long deadline) {
+        return () -> {
+            Long previous = DEADLINE.get();
+            DEADLINE.set(deadline);
+            try {
+                checkDeadline();
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    DEADLINE.remove();
+                } else {
+                    DEADLINE.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Remaining millis of the current query, Long.MAX_VALUE if no deadline.
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : Math.max(0L, deadline - System.currentTimeMillis());
+    }
+
+    /**
+     * Throw if the current query is cancelled or exceeds its deadline.
+     */
+    public static void checkDeadline() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("metric query cancelled");
+        }
+        if (deadlineExceeded()) {
+            throw new CancellationException("metric query deadline exceeded");
+        }
+    }
+
+    /**
+     * Same as {@link #checkDeadline()}, and records a timeout of the pool if the
+     * deadline is exceeded.
+     */
+    public void checkDeadline(String pool) {
+        if (!Thread.currentThread().isInterrupted() && deadlineExceeded()) {
+            recordTimeout(pool);
+        }
+        checkDeadline();
+    }
+
+    private static boolean deadlineExceeded() {
+        Long deadline = DEADLINE.get();
+        return deadline != null && System.currentTimeMillis() > deadline;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        shutdown(queryExec);
+        shutdown(scanExec);
+    }
+
+    private static void shutdown(ThreadPoolExecutor executor) {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("Metric query executor terminate timeout, cancel queued tasks");
+        for (Runnable task : executor.shutdownNow()) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+    }
+
+}
@@ -13,15 +13,10 @@ package com.oceanbase.ocp.monitor.query.util;
 
 import java.util.List;
 import java.util.concurrent.Future;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusScanResp;
 import com.oceanbase.ocp.monitor.service.OcpPrometheusScanBusinessImpl;
@@ -35,16 +30,11 @@ public class MetricQueryScanner {
     @Autowired
     private OcpPrometheusScanBusinessImpl scanBusiness;
 
-    private static final AtomicLong POOL_ID = new AtomicLong();
+    @Autowired
+    private MetricQueryExecutor queryExecutor;
 
     public Future<List<OcpPrometheusScanResp>> scan(OcpPrometheusQueryParam param) {
-        ThreadPoolExecutor scanPool = getScanPool();
-        return scanPool.submit(() -> scanBusiness.scan(param));
-    }
-
-    private ThreadPoolExecutor getScanPool() {
-        return new ThreadPoolExecutor(0, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
-                new OcpThreadFactory("scanner-" + POOL_ID.getAndIncrement() + "-"));
+        return queryExecutor.submitScan(() -> scanBusiness.scan(param));
     }
 
 }
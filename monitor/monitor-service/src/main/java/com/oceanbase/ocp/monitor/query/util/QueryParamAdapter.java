@@ -11,6 +11,7 @@
  */
 package com.oceanbase.ocp.monitor.query.util;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -64,7 +65,8 @@ public class QueryParamAdapter {
         }
         String expression = getFilledExpression(adaptedInterval);
         long startTime = getStartTime(adaptedStep);
-        return new AdaptedParams(expression, startTime, endTime, adaptedStep);
+        return new AdaptedParams(expression, startTime, endTime, adaptedStep, this.expression, getLabels(), gbLabels,
+                adaptedInterval);
     }
 
     private long getAdaptedStep() {
@@ -110,6 +112,24 @@ public class QueryParamAdapter {
         return String.join(",", labels);
     }
 
+    /**
+     * Labels to bind into @LABELS, same as labels of the filled expression.
+     */
+    private List<OcpPrometheusLabel> getLabels() {
+        List<OcpPrometheusLabel> labels = new ArrayList<>();
+        if (CollectionUtils.isNotEmpty(prometheusLabels)) {
+            for (OcpPrometheusLabel pLabel : prometheusLabels) {
+                labels.add(new OcpPrometheusLabel(pLabel.getLabelKey(), pLabel.getLabelValue(),
+                        pLabel.getLabelMatch()));
+            }
+        } else if (labelMap != null) {
+            for (String k : labelMap.keySet()) {
+                labels.add(new OcpPrometheusLabel(k, labelMap.get(k)));
+            }
+        }
+        return labels;
+    }
+
     private String getFilledExpression(long adaptedInterval) {
         String labelStr = getLabelStr();
         String filledExpression;
@@ -136,11 +156,24 @@ public class QueryParamAdapter {
 
         private final long step;
 
-        public AdaptedParams(String expression, long startTime, long endTime, long step) {
+        private final String template;
+
+        private final List<OcpPrometheusLabel> labels;
+
+        private final List<String> gbLabels;
+
+        private final long interval;
+
+        public AdaptedParams(String expression, long startTime, long endTime, long step, String template,
+                List<OcpPrometheusLabel> labels, List<String> gbLabels, long interval) {
             this.expression = expression;
             this.startTime = startTime;
             this.endTime = endTime;
             this.step = step;
+            this.template = template;
+            this.labels = labels;
+            this.gbLabels = gbLabels;
+            this.interval = interval;
         }
 
     }
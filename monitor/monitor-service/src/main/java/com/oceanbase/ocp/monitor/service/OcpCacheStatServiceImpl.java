@@ -21,7 +21,7 @@ import org.springframework.stereotype.Service;
 import com.oceanbase.ocp.common.util.json.JsonUtils;
 import com.oceanbase.ocp.monitor.OcpCacheStatService;
 import com.oceanbase.ocp.monitor.storage.MetricDataWriteQueue;
-import com.oceanbase.ocp.monitor.store.IntervalMetricDataCache;
+import com.oceanbase.ocp.monitor.store.AbstractIntervalMetricDataCache;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,10 +33,10 @@ public class OcpCacheStatServiceImpl implements OcpCacheStatService {
     private SeriesIdKeyService seriesIdKeyService;
 
     @Autowired
-    private IntervalMetricDataCache secondWriteCache;
+    private AbstractIntervalMetricDataCache secondWriteCache;
 
     @Autowired
-    private IntervalMetricDataCache minuteWriteCache;
+    private AbstractIntervalMetricDataCache minuteWriteCache;
 
     @Autowired
     private MetricDataWriteQueue secondWriteQueue;
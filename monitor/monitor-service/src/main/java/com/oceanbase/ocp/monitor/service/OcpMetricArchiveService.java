@@ -12,13 +12,19 @@
 
 package com.oceanbase.ocp.monitor.service;
 
-import static com.oceanbase.ocp.monitor.constants.MonitorConstants.VALUE_NOT_EXIST;
-
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.IntStream;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -29,14 +35,21 @@ import org.springframework.stereotype.Service;
 
 import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
 import com.oceanbase.ocp.common.util.ExecutorUtils;
+import com.oceanbase.ocp.monitor.MonitorProperties;
 import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+import com.oceanbase.ocp.monitor.helper.AdaptiveBatchSize;
 import com.oceanbase.ocp.monitor.meter.CounterGroup;
 import com.oceanbase.ocp.monitor.meter.DistributionSummaryGroup;
-import com.oceanbase.ocp.monitor.model.metric.MetricData;
 import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+import com.oceanbase.ocp.monitor.model.storage.ValueNodeKey;
+import com.oceanbase.ocp.monitor.storage.HourRollupMarks;
 import com.oceanbase.ocp.monitor.storage.IRollupMetricDataDao;
+import com.oceanbase.ocp.monitor.storage.MetricDataDao;
 import com.oceanbase.ocp.monitor.storage.MetricDataWriteQueue;
+import com.oceanbase.ocp.monitor.storage.RollupNode;
+import com.oceanbase.ocp.monitor.util.TimestampUtils;
 
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.BaseUnits;
 import lombok.extern.slf4j.Slf4j;
@@ -47,17 +60,45 @@ public class OcpMetricArchiveService {
 
     private static final int MAX_BATCH_SIZE = MonitorConstants.ARCHIVE_MAX_BATCH_SIZE;
 
+    /**
+     * Wait for late second nodes of the hour to be archived before rolling up.
+     */
+    private static final long HOUR_ROLLUP_DELAY_SECONDS = 300L;
+
     @Autowired
     @Qualifier("secondPersistent")
     private IRollupMetricDataDao secondPersistent;
     @Autowired
     @Qualifier("minutePersistent")
-    private IRollupMetricDataDao minutePersistent;
+    private MetricDataDao minutePersistent;
+    @Autowired
+    @Qualifier("hourPersistent")
+    private MetricDataDao hourPersistent;
+
+    @Autowired
+    private MonitorProperties monitorProperties;
 
     @Autowired
     private MetricDataWriteQueue secondWriteQueue;
 
     private ScheduledExecutorService secondExecutor;
+    private ExecutorService rollupExecutor;
+    private ScheduledExecutorService hourExecutor;
+
+    /**
+     * Archive threads merge into shared minute nodes, serialize rollup to avoid
+     * lost updates.
+     */
+    private final Lock minuteRollupLock = new ReentrantLock();
+
+    /**
+     * Hour-level data is complete in [hourRollupStart, hourRollupEnd), -1 until the
+     * first rollup round finishes.
+     */
+    private volatile long hourRollupStart = -1L;
+    private volatile long hourRollupEnd = -1L;
+
+    private HourRollupMarks hourRollupMarks;
 
     @Autowired
     private MeterRegistry meterRegistry;
@@ -65,8 +106,10 @@ public class OcpMetricArchiveService {
     private DistributionSummaryGroup metricArchiveDuration;
     private CounterGroup archiveCounterGroup;
     private CounterGroup metricRollupGroup;
+    private DistributionSummary archiveBatchSize;
 
     private static final String SECOND_METER_LABEL = "second";
+    private static final String MINUTE_METER_LABEL = "minute";
 
     @PostConstruct
     public void init() {
@@ -84,33 +127,56 @@ public class OcpMetricArchiveService {
                 .labelNames("type")
                 .build(meterRegistry);
 
-        int coreSize = Runtime.getRuntime().availableProcessors();
+        this.archiveBatchSize = DistributionSummary.builder("ocp_monitor_archive_batch_size")
+                .description("Value node count of one archive batch")
+                .register(meterRegistry);
+
+        // one worker per queue shard, so workers never write the same subpartition
+        int shardCount = secondWriteQueue.shardCount();
         this.secondExecutor =
-                new ScheduledThreadPoolExecutor(coreSize, new OcpThreadFactory("metric-archive-second-"));
+                new ScheduledThreadPoolExecutor(shardCount, new OcpThreadFactory("metric-archive-second-"));
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            AdaptiveBatchSize batchSize = new AdaptiveBatchSize(MAX_BATCH_SIZE,
+                    MonitorConstants.ARCHIVE_MIN_BATCH_SIZE, MonitorConstants.ARCHIVE_BATCH_SIZE_LIMIT,
+                    MonitorConstants.ARCHIVE_TARGET_BATCH_MILLIS);
+            this.secondExecutor.scheduleWithFixedDelay(() -> archiveSecond(current, batchSize), 60, 3,
+                    TimeUnit.SECONDS);
+        }
+        // rolling up is serialized, archive workers go on writing while it runs
+        this.rollupExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(shardCount * 2), new OcpThreadFactory("metric-rollup-minute-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
 
-        IntStream.rangeClosed(1, coreSize)
-                .forEach(value -> {
-                    this.secondExecutor.scheduleWithFixedDelay(this::archiveSecond, 60, 3, TimeUnit.SECONDS);
-                });
+        if (monitorProperties.isHourRollupEnabled()) {
+            this.hourRollupMarks = new HourRollupMarks(hourPersistent);
+            this.hourExecutor =
+                    new ScheduledThreadPoolExecutor(1, new OcpThreadFactory("metric-rollup-hour-"));
+            this.hourExecutor.scheduleWithFixedDelay(this::rollupMinute2Hour, 120, 300, TimeUnit.SECONDS);
+        }
     }
 
-    public void archiveSecond() {
+    /**
+     * Archive nodes of the queue shard, batch size adapts to write latency.
+     */
+    public void archiveSecond(int shard, AdaptiveBatchSize batchSize) {
         metricArchiveDuration.time(SECOND_METER_LABEL, () -> {
-            LinkedList<ValueNode> nodeList = secondWriteQueue.poll(OcpMetricArchiveService.MAX_BATCH_SIZE);
-            if (nodeList.isEmpty()) {
-                return;
-            }
+            LinkedList<ValueNode> nodeList = secondWriteQueue.poll(shard, batchSize.get());
             while (!nodeList.isEmpty()) {
                 try {
                     archiveCounterGroup.increment(SECOND_METER_LABEL, nodeList.size());
+                    archiveBatchSize.record(nodeList.size());
+                    long start = System.currentTimeMillis();
                     int affectRows = secondPersistent.write(nodeList);
-                    log.info("Second type metric archive, timestamp={}, nodeCount={}, affectRows={}",
-                            nodeList.get(0).getEpochSecondStart(), nodeList.size(), affectRows);
-                    rollupSecond2Minute(nodeList);
+                    batchSize.record(nodeList.size(), System.currentTimeMillis() - start);
+                    log.info("Second type metric archive, shard={}, timestamp={}, nodeCount={}, affectRows={}",
+                            shard, nodeList.get(0).getEpochSecondStart(), nodeList.size(), affectRows);
+                    LinkedList<ValueNode> archived = nodeList;
+                    rollupExecutor.execute(() -> rollupSecond2Minute(archived));
                 } catch (Throwable throwable) {
                     log.error("Archive second nodes failed.", throwable);
                 } finally {
-                    nodeList = secondWriteQueue.poll(OcpMetricArchiveService.MAX_BATCH_SIZE);
+                    nodeList = secondWriteQueue.poll(shard, batchSize.get());
                 }
             }
         });
@@ -121,29 +187,113 @@ public class OcpMetricArchiveService {
             return;
         }
         long timestamp = valueNodes.get(0).getEpochSecondStart();
-        LinkedList<MetricData> dataList = new LinkedList<>();
+        Map<ValueNodeKey, RollupNode> minuteNodes = new HashMap<>();
         while (!valueNodes.isEmpty()) {
             try {
                 ValueNode node = valueNodes.poll();
-                double value = node.getFirstValidValue();
-                if (value != VALUE_NOT_EXIST) {
-                    dataList.add(new MetricData(node.getSeriesId(), node.getEpochSecondStart(), value));
-                }
+                long secondStart = node.getEpochSecondStart();
+                long minuteNodeStart = minutePersistent.nodeStartFromPos(secondStart);
+                RollupNode minuteNode = minuteNodes.computeIfAbsent(
+                        new ValueNodeKey(node.getSeriesId(), minuteNodeStart),
+                        k -> new RollupNode(node.getSeriesId(), minuteNodeStart, minutePersistent.getStepSeconds()));
+                minuteNode.aggregate(minutePersistent.offsetInNode(secondStart), node.getValues());
             } catch (Throwable throwable) {
                 log.warn("Convert valueNode failed.", throwable);
             }
         }
-        metricRollupGroup.increment(SECOND_METER_LABEL, dataList.size());
-        int dataSize = dataList.size();
-        int affectedRows = minutePersistent.write(dataList);
-        log.info("Rollup second to minute, timestamp={}, nodeCount={}, validCount={}",
-                timestamp, dataSize, affectedRows);
+        metricRollupGroup.increment(SECOND_METER_LABEL, minuteNodes.size());
+        int affectedRows;
+        minuteRollupLock.lock();
+        try {
+            affectedRows = minutePersistent.writeSlots(minuteNodes.values());
+        } catch (Throwable throwable) {
+            log.error("Rollup second to minute failed, timestamp={}", timestamp, throwable);
+            return;
+        } finally {
+            minuteRollupLock.unlock();
+        }
+        log.info("Rollup second to minute, timestamp={}, nodeCount={}, affectedRows={}",
+                timestamp, minuteNodes.size(), affectedRows);
     }
 
+    /**
+     * Roll up completed hours. Every rolled-up hour is marked, the first round
+     * after a restart resumes from the last marked hour so that no hour is skipped,
+     * later rounds roll up new hours only.
+     */
+    public void rollupMinute2Hour() {
+        try {
+            long completedEnd = TimestampUtils.calcStartByInterval(
+                    TimestampUtils.currentTimeSecond() - HOUR_ROLLUP_DELAY_SECONDS, MonitorConstants.HOUR_SECONDS);
+            long hour = hourRollupEnd;
+            long start = hourRollupStart;
+            if (hour < 0) {
+                hour = hourRollupMarks.resumeHour(completedEnd);
+                Long firstMarked = hourRollupMarks.firstMarkedHour();
+                start = firstMarked == null ? hour : Math.min(firstMarked, hour);
+            }
+            while (hour < completedEnd) {
+                metricArchiveDuration.time(MINUTE_METER_LABEL, rollupHour(hour));
+                hourRollupMarks.mark(hour);
+                hour += MonitorConstants.HOUR_SECONDS;
+                if (hourRollupStart >= 0) {
+                    hourRollupEnd = hour;
+                }
+            }
+            hourRollupEnd = hour;
+            hourRollupStart = start;
+        } catch (Throwable throwable) {
+            log.error("Rollup minute to hour failed.", throwable);
+        }
+    }
+
+    private Runnable rollupHour(long hour) {
+        return () -> {
+            int offset = hourPersistent.offsetInNode(hour);
+            long hourNodeStart = hourPersistent.nodeStartFromPos(hour);
+            long afterSeriesId = 0L;
+            int rollupCount = 0;
+            List<Long> seriesIds = minutePersistent.scanSeriesIds(hour, afterSeriesId, MAX_BATCH_SIZE);
+            while (!seriesIds.isEmpty()) {
+                List<RollupNode> hourNodes = new ArrayList<>(seriesIds.size());
+                for (RollupNode minuteNode : minutePersistent.getRollupNodes(seriesIds, hour)) {
+                    RollupNode hourNode = new RollupNode(minuteNode.getSeriesId(), hourNodeStart,
+                            hourPersistent.getStepSeconds());
+                    if (hourNode.aggregate(offset, minuteNode)) {
+                        hourNodes.add(hourNode);
+                    }
+                }
+                hourPersistent.writeSlots(hourNodes);
+                rollupCount += hourNodes.size();
+                afterSeriesId = seriesIds.get(seriesIds.size() - 1);
+                seriesIds = minutePersistent.scanSeriesIds(hour, afterSeriesId, MAX_BATCH_SIZE);
+            }
+            metricRollupGroup.increment(MINUTE_METER_LABEL, rollupCount);
+            log.info("Rollup minute to hour, timestamp={}, nodeCount={}", hour, rollupCount);
+        };
+    }
+
+    /**
+     * Start of hour-level data which is complete, or -1 if not ready.
+     */
+    public long getHourRollupStart() {
+        return hourRollupStart;
+    }
+
+    /**
+     * End (exclusive) of hour-level data which is complete, or -1 if not ready.
+     */
+    public long getHourRollupEnd() {
+        return hourRollupStart < 0 ? -1L : hourRollupEnd;
+    }
 
     @PreDestroy
     public void destroy() {
         ExecutorUtils.shutdown(secondExecutor, 1);
+        ExecutorUtils.shutdown(rollupExecutor, 1);
+        if (hourExecutor != null) {
+            ExecutorUtils.shutdown(hourExecutor, 1);
+        }
     }
 
 }
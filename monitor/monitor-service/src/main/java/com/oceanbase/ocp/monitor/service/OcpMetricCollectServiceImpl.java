@@ -12,6 +12,7 @@
 
 package com.oceanbase.ocp.monitor.service;
 
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -31,6 +32,7 @@ import com.oceanbase.ocp.common.util.ExecutorUtils;
 import com.oceanbase.ocp.common.util.trace.TraceUtils;
 import com.oceanbase.ocp.monitor.ExporterService;
 import com.oceanbase.ocp.monitor.IIntervalMetricDataStore;
+import com.oceanbase.ocp.monitor.MonitorProperties;
 import com.oceanbase.ocp.monitor.OcpMetricCollectService;
 import com.oceanbase.ocp.monitor.helper.ExporterRequestHelper;
 import com.oceanbase.ocp.monitor.meter.CounterGroup;
@@ -38,6 +40,7 @@ import com.oceanbase.ocp.monitor.meter.DistributionSummaryGroup;
 import com.oceanbase.ocp.monitor.model.exporter.ExporterAddress;
 import com.oceanbase.ocp.monitor.model.metric.MetricLine;
 import com.oceanbase.ocp.monitor.util.MetricLineParser;
+import com.oceanbase.ocp.monitor.util.StreamingMetricLineParser;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.BaseUnits;
@@ -49,6 +52,8 @@ public class OcpMetricCollectServiceImpl implements OcpMetricCollectService {
 
     private static final long SLOW_PULL_THRESHOLD_MILLIS_SECOND_METRIC = 200L;
 
+    private static final int METRIC_CACHE_CAPACITY = 1 << 16;
+
     @Autowired
     private IIntervalMetricDataStore secondStore;
 
@@ -58,8 +63,13 @@ public class OcpMetricCollectServiceImpl implements OcpMetricCollectService {
     @Autowired
     private ExporterRequestHelper exporterRequestHelper;
 
+    @Autowired
+    private MonitorProperties monitorProperties;
+
     private final ThreadPoolExecutor parseExec;
 
+    private final StreamingMetricLineParser streamingParser = new StreamingMetricLineParser(METRIC_CACHE_CAPACITY);
+
     private DistributionSummaryGroup collectRequestDuration;
     private CounterGroup parseMetricLines;
     private DistributionSummaryGroup metricParseDuration;
@@ -139,11 +149,16 @@ public class OcpMetricCollectServiceImpl implements OcpMetricCollectService {
             }
             long collectDoneAt = System.currentTimeMillis();
             exporterService.activeExporter(exporterAddr.getExporterUrl());
-            String result;
             try {
-                result = response.getResponseBody();
-                collectMetricBytes.increment(exporterAddr.getPath(), result.length());
-                parseAndStore(exporterAddr, collectAt, result);
+                if (monitorProperties.isStreamingParseEnabled()) {
+                    ByteBuffer body = response.getResponseBodyAsByteBuffer();
+                    collectMetricBytes.increment(exporterAddr.getPath(), body.remaining());
+                    streamingParseAndStore(exporterAddr, collectAt, body);
+                } else {
+                    String result = response.getResponseBody();
+                    collectMetricBytes.increment(exporterAddr.getPath(), result.length());
+                    parseAndStore(exporterAddr, collectAt, result);
+                }
             } catch (Exception e) {
                 log.warn("store Raw Metric Failed", e);
             } finally {
@@ -175,6 +190,23 @@ public class OcpMetricCollectServiceImpl implements OcpMetricCollectService {
         metricStoreDuration.time(addr.getPath(), () -> secondStore.store(lines));
     }
 
+    /**
+     * Samples are stored while parsing, so parse duration includes store time.
+     * Samples of new series are stored after parsing, their series are resolved in
+     * one batch per scrape.
+     */
+    private void streamingParseAndStore(ExporterAddress addr, long collectAt, ByteBuffer body) {
+        int count = metricParseDuration.time(addr.getPath(), () -> {
+            IIntervalMetricDataStore.SampleBatch batch = secondStore.newSampleBatch();
+            try {
+                return streamingParser.parse(body, collectAt, batch::add);
+            } finally {
+                batch.flush();
+            }
+        });
+        parseMetricLines.increment(addr.getPath(), count);
+    }
+
     @PreDestroy
     public void destroy() {
         ExecutorUtils.shutdown(parseExec, 1);
@@ -30,6 +30,7 @@ import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusScanResp;
 import com.oceanbase.ocp.monitor.model.metric.MetricData;
 import com.oceanbase.ocp.monitor.model.metric.MetricDataRange;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryExecutor;
 import com.oceanbase.ocp.monitor.store.MetricDataStoreFactory;
 
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +49,9 @@ public class OcpPrometheusScanBusinessImpl implements InitializingBean, OcpProme
     @Autowired
     private SeriesIdKeyService seriesIdKeyService;
 
+    @Autowired
+    private MetricQueryExecutor queryExecutor;
+
     @Override
     public void afterPropertiesSet() {
         instance = this;
@@ -74,6 +78,7 @@ public class OcpPrometheusScanBusinessImpl implements InitializingBean, OcpProme
             log.debug("no seriesIds found, param={}", param);
             return scanRespList;
         }
+        queryExecutor.checkDeadline("scan");
 
         Map<Long, MetricDataRange> seriesId2DataList;
         if (param.isOnlyCache()) {
@@ -82,6 +87,7 @@ public class OcpPrometheusScanBusinessImpl implements InitializingBean, OcpProme
             seriesId2DataList = metricDataStoreFactory.ranges(seriesIds, startTime, endTime, param.getStep());
         }
         long step2At = System.currentTimeMillis();
+        queryExecutor.checkDeadline("scan");
 
         Map<Long, String> seriesId2Key = seriesIdKeyService.getSeriesId2KeyMap(seriesIds);
         long step3At = System.currentTimeMillis();
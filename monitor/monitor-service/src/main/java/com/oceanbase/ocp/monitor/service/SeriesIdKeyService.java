@@ -12,11 +12,17 @@
 
 package com.oceanbase.ocp.monitor.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 import javax.annotation.PostConstruct;
 
@@ -29,6 +35,8 @@ import org.springframework.util.CollectionUtils;
 import com.github.benmanes.caffeine.cache.Cache;
 
 import com.oceanbase.ocp.common.util.IdGenerator;
+import com.oceanbase.ocp.monitor.MonitorProperties;
+import com.oceanbase.ocp.monitor.constants.VectorSelectorType;
 import com.oceanbase.ocp.monitor.entity.SeriesKeyId;
 import com.oceanbase.ocp.monitor.helper.MetricSearchContainer;
 import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
@@ -43,15 +51,37 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.BaseUnits;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Dictionary of series key and series id, with search index of series by
+ * labels.
+ * <p>
+ * Cached series are read without lock. Series missing in cache are resolved in
+ * batch, ids of existing series are queried from metadb at once and new series
+ * are inserted at once, resolving is serialized so that one series key never
+ * gets two ids.
+ * <p>
+ * Series not written for {@code ocp.monitor.series-idle-seconds} are evicted
+ * from the dictionary and search index. Only their series keys are kept, series
+ * are reloaded from metadb when written again, or from the kept keys when
+ * queried again.
+ */
 @Slf4j
 @Service
 public class SeriesIdKeyService {
 
-    private final ConcurrentHashMap<String, Long> seriesKey2SeriesId = new ConcurrentHashMap<>(10240);
+    private final ConcurrentHashMap<String, SeriesEntry> seriesKey2SeriesId = new ConcurrentHashMap<>(10240);
     private final ConcurrentHashMap<Long, String> seriesId2SeriesKey = new ConcurrentHashMap<>(10240);
 
     private final Map<String, MetricSearchContainer> metricName2SearchContainer = new ConcurrentHashMap<>(256);
 
+    private final Lock resolveLock = new ReentrantLock();
+
+    /**
+     * Series keys of evicted series by metric name, series matching a query are
+     * reloaded before searching.
+     */
+    private final Map<String, Map<Long, String>> evictedSeries = new ConcurrentHashMap<>();
+
     private volatile long maxSyncedSeriesId = 0;
 
     private static final int PAGE_SIZE = 20000;
@@ -66,9 +96,35 @@ public class SeriesIdKeyService {
     @Autowired
     private MeterRegistry meterRegistry;
 
+    @Autowired
+    private MonitorProperties monitorProperties;
+
     private DistributionSummary seriesStoreDuration;
     private Counter seriesQueries;
     private Counter seriesHits;
+    private DistributionSummary seriesSelectDuration;
+    private DistributionSummary seriesSelectMatched;
+    private Counter seriesCreated;
+    private Counter seriesLoaded;
+    private DistributionSummary seriesResolveBatchSize;
+    private Counter seriesEvicted;
+    private Counter seriesReloaded;
+
+    private final LongSupplier clock;
+
+    public SeriesIdKeyService() {
+        this.clock = () -> System.currentTimeMillis() / 1000;
+    }
+
+    SeriesIdKeyService(SeriesKeyIdPersistent seriesKeyIdPersistent,
+            Cache<OcpPrometheusQueryParam, List<Long>> scanSeriesIdsCache, MeterRegistry meterRegistry,
+            MonitorProperties monitorProperties, LongSupplier clock) {
+        this.seriesKeyIdPersistent = seriesKeyIdPersistent;
+        this.scanSeriesIdsCache = scanSeriesIdsCache;
+        this.meterRegistry = meterRegistry;
+        this.monitorProperties = monitorProperties;
+        this.clock = clock;
+    }
 
     @PostConstruct
     public void initialLoad() {
@@ -85,6 +141,28 @@ public class SeriesIdKeyService {
         seriesHits = Counter.builder("ocp_monitor_series_hits_total")
                 .description("Series id hits count")
                 .register(meterRegistry);
+        seriesSelectDuration = DistributionSummary.builder("ocp_monitor_series_select_duration")
+                .description("Series id select by labels duration")
+                .baseUnit("microseconds")
+                .register(meterRegistry);
+        seriesSelectMatched = DistributionSummary.builder("ocp_monitor_series_select_matched")
+                .description("Series id count matched by labels")
+                .register(meterRegistry);
+        seriesCreated = Counter.builder("ocp_monitor_series_created_total")
+                .description("New series count which are assigned series id")
+                .register(meterRegistry);
+        seriesLoaded = Counter.builder("ocp_monitor_series_loaded_total")
+                .description("Series count missed in cache and loaded from metadb")
+                .register(meterRegistry);
+        seriesResolveBatchSize = DistributionSummary.builder("ocp_monitor_series_resolve_batch_size")
+                .description("Series count missed in cache and resolved in one batch")
+                .register(meterRegistry);
+        seriesEvicted = Counter.builder("ocp_monitor_series_evicted_total")
+                .description("Idle series count evicted from cache")
+                .register(meterRegistry);
+        seriesReloaded = Counter.builder("ocp_monitor_series_reloaded_total")
+                .description("Evicted series count reloaded from metadb for query")
+                .register(meterRegistry);
     }
 
     public int cacheSize() {
@@ -103,56 +181,322 @@ public class SeriesIdKeyService {
     }
 
     public Long getSeriesId(Metric metric) {
-        String seriesKey = metric.getSeriesKey();
-        Long seriesId = seriesKey2SeriesId.get(seriesKey);
+        SeriesEntry entry = seriesKey2SeriesId.get(metric.getSeriesKey());
         seriesQueries.increment();
-        if (seriesId != null) {
+        if (entry != null) {
             seriesHits.increment();
-            return seriesId;
-        } else {
-            seriesId = seriesKeyIdPersistent.querySeriesId(seriesKey);
-            if (seriesId == null) {
-                seriesId = IdGenerator.getInstance().getNextId();
+            return entry.touch(nowSecond());
+        }
+        return resolve(Collections.singletonMap(metric.getSeriesKey(), metric)).get(metric.getSeriesKey());
+    }
+
+    /**
+     * Series id of metric if it is cached, misses are not counted as queries and
+     * are expected to be resolved by {@link #getSeriesIds(Collection)} later.
+     */
+    public Long getCachedSeriesId(Metric metric) {
+        SeriesEntry entry = seriesKey2SeriesId.get(metric.getSeriesKey());
+        if (entry == null) {
+            return null;
+        }
+        seriesQueries.increment();
+        seriesHits.increment();
+        return entry.touch(nowSecond());
+    }
+
+    /**
+     * Series ids of metrics, such as all metrics of one scrape.
+     *
+     * @return series key to series id
+     */
+    public Map<String, Long> getSeriesIds(Collection<Metric> metrics) {
+        Map<String, Long> seriesKey2Id = new HashMap<>(metrics.size());
+        Map<String, Metric> missed = new LinkedHashMap<>();
+        int hits = 0;
+        long now = nowSecond();
+        for (Metric metric : metrics) {
+            String seriesKey = metric.getSeriesKey();
+            SeriesEntry entry = seriesKey2SeriesId.get(seriesKey);
+            if (entry != null) {
+                seriesKey2Id.put(seriesKey, entry.touch(now));
+                hits++;
+            } else {
+                missed.putIfAbsent(seriesKey, metric);
             }
-            long start = System.currentTimeMillis();
-            try {
-                seriesKeyIdPersistent.replaceSeriesKeyId(seriesKey, seriesId);
-                cacheAndBuildSearchContainer(metric, seriesId);
-            } finally {
-                seriesStoreDuration.record(System.currentTimeMillis() - start);
+        }
+        seriesQueries.increment(metrics.size());
+        seriesHits.increment(hits);
+        if (!missed.isEmpty()) {
+            seriesKey2Id.putAll(resolve(missed));
+        }
+        return seriesKey2Id;
+    }
+
+    private Map<String, Long> resolve(Map<String, Metric> missed) {
+        resolveLock.lock();
+        long start = System.currentTimeMillis();
+        try {
+            Map<String, Long> resolved = new HashMap<>(missed.size());
+            Map<String, Metric> toResolve = new LinkedHashMap<>();
+            for (Map.Entry<String, Metric> entry : missed.entrySet()) {
+                SeriesEntry seriesEntry = seriesKey2SeriesId.get(entry.getKey());
+                if (seriesEntry != null) {
+                    resolved.put(entry.getKey(), seriesEntry.seriesId);
+                } else {
+                    toResolve.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (toResolve.isEmpty()) {
+                return resolved;
+            }
+            Map<String, Long> loaded = seriesKeyIdPersistent.querySeriesIds(toResolve.keySet());
+            Map<String, Long> created = new LinkedHashMap<>();
+            for (String seriesKey : toResolve.keySet()) {
+                if (!loaded.containsKey(seriesKey)) {
+                    created.put(seriesKey, IdGenerator.getInstance().getNextId());
+                }
+            }
+            seriesKeyIdPersistent.replaceSeriesKeyIds(created);
+
+            Map<Long, Metric> seriesId2Metric = new HashMap<>(toResolve.size());
+            for (Map.Entry<String, Metric> entry : toResolve.entrySet()) {
+                Long seriesId = loaded.containsKey(entry.getKey()) ? loaded.get(entry.getKey())
+                        : created.get(entry.getKey());
+                seriesId2Metric.put(seriesId, entry.getValue());
+                resolved.put(entry.getKey(), seriesId);
             }
+            cacheAndBuildSearchContainer(seriesId2Metric);
+            seriesLoaded.increment(loaded.size());
+            seriesCreated.increment(created.size());
+            seriesResolveBatchSize.record(toResolve.size());
+            log.info("Resolve series, loadedCount={}, createdCount={}", loaded.size(), created.size());
+            return resolved;
+        } finally {
+            seriesStoreDuration.record(System.currentTimeMillis() - start);
+            resolveLock.unlock();
         }
-        return seriesId;
     }
 
     public void syncKeyId() {
         log.info("Sync series key and id, currentMaxSeriesId={}", this.maxSyncedSeriesId);
         List<SeriesKeyId> newSeriesKeyIds = seriesKeyIdPersistent.fetchAfterId(this.maxSyncedSeriesId, PAGE_SIZE);
         while (newSeriesKeyIds != null && !newSeriesKeyIds.isEmpty()) {
+            Map<Long, Metric> seriesId2Metric = new HashMap<>(newSeriesKeyIds.size());
             for (SeriesKeyId seriesKeyId : newSeriesKeyIds) {
                 try {
-                    Metric metric = Metric.parse(seriesKeyId.getSeriesKey());
-                    Long seriesId = seriesKeyId.getSeriesId();
-                    cacheAndBuildSearchContainer(metric, seriesId);
-                    if (seriesId > this.maxSyncedSeriesId) {
-                        this.maxSyncedSeriesId = seriesId;
-                    }
+                    seriesId2Metric.put(seriesKeyId.getSeriesId(), Metric.parse(seriesKeyId.getSeriesKey()));
                 } catch (Throwable throwable) {
-                    log.warn("Cache series info failed.", throwable);
+                    log.warn("Parse series key failed, seriesKey={}", seriesKeyId.getSeriesKey(), throwable);
+                }
+                if (seriesKeyId.getSeriesId() > this.maxSyncedSeriesId) {
+                    this.maxSyncedSeriesId = seriesKeyId.getSeriesId();
                 }
             }
+            cacheAndBuildSearchContainer(seriesId2Metric);
             log.info("Sync series key and id, newSeriesIdsCount={}, maxSyncedSeriesId={}",
                     newSeriesKeyIds.size(), this.maxSyncedSeriesId);
             newSeriesKeyIds = seriesKeyIdPersistent.fetchAfterId(this.maxSyncedSeriesId, PAGE_SIZE);
         }
     }
 
-    private synchronized void cacheAndBuildSearchContainer(Metric metric, Long seriesId) {
-        seriesKey2SeriesId.put(metric.getSeriesKey(), seriesId);
-        seriesId2SeriesKey.put(seriesId, metric.getSeriesKey());
-        MetricSearchContainer searchContainer =
-                metricName2SearchContainer.computeIfAbsent(metric.getName().toLowerCase(), MetricSearchContainer::new);
-        searchContainer.addIfAbsent(seriesId, metric);
+    /**
+     * Evict series not written for idle seconds from cache and search index.
+     */
+    public void evictIdleSeries() {
+        long idleSeconds = monitorProperties.getSeriesIdleSeconds();
+        if (idleSeconds <= 0) {
+            return;
+        }
+        long expireBefore = nowSecond() - idleSeconds;
+        resolveLock.lock();
+        try {
+            Map<String, Map<Long, String>> metricName2Series = new HashMap<>();
+            for (Map.Entry<String, SeriesEntry> entry : seriesKey2SeriesId.entrySet()) {
+                SeriesEntry seriesEntry = entry.getValue();
+                if (seriesEntry.lastSeenSecond >= expireBefore
+                        || !seriesKey2SeriesId.remove(entry.getKey(), seriesEntry)) {
+                    continue;
+                }
+                seriesId2SeriesKey.remove(seriesEntry.seriesId);
+                metricName2Series.computeIfAbsent(metricNameOf(entry.getKey()), k -> new HashMap<>())
+                        .put(seriesEntry.seriesId, entry.getKey());
+            }
+            if (metricName2Series.isEmpty()) {
+                return;
+            }
+            int evicted = 0;
+            for (Map.Entry<String, Map<Long, String>> entry : metricName2Series.entrySet()) {
+                MetricSearchContainer container = metricName2SearchContainer.get(entry.getKey());
+                if (container != null) {
+                    container.removeAll(new ArrayList<>(entry.getValue().keySet()));
+                }
+                evictedSeries.compute(entry.getKey(), (k, series) -> {
+                    Map<Long, String> merged = series == null ? new ConcurrentHashMap<>() : series;
+                    merged.putAll(entry.getValue());
+                    return merged;
+                });
+                evicted += entry.getValue().size();
+            }
+            scanSeriesIdsCache.invalidateAll();
+            seriesEvicted.increment(evicted);
+            log.info("Evict idle series, evictedCount={}, metricCount={}, idleSeconds={}",
+                    evicted, metricName2Series.size(), idleSeconds);
+        } finally {
+            resolveLock.unlock();
+        }
+    }
+
+    /**
+     * Reload evicted series of the metric which match the labels, other evicted
+     * series stay out of the search index until they are written or queried again.
+     * Matching is done out of the resolve lock.
+     */
+    private void reloadSeries(String metricName, List<OcpPrometheusLabel> labels) {
+        Map<Long, String> evicted = evictedSeries.get(metricName);
+        if (evicted == null) {
+            return;
+        }
+        Map<Long, Metric> candidates = new HashMap<>();
+        List<Long> unparsable = new ArrayList<>();
+        for (Map.Entry<Long, String> entry : evicted.entrySet()) {
+            if (!mayMatch(entry.getValue(), labels)) {
+                continue;
+            }
+            try {
+                candidates.put(entry.getKey(), Metric.parse(entry.getValue()));
+            } catch (Throwable throwable) {
+                log.warn("Parse series key failed, seriesKey={}", entry.getValue(), throwable);
+                unparsable.add(entry.getKey());
+            }
+        }
+        Map<Long, Metric> matched = new HashMap<>();
+        if (!candidates.isEmpty()) {
+            MetricSearchContainer container = new MetricSearchContainer(metricName);
+            container.addAllIfAbsent(candidates);
+            for (Long seriesId : container.select(labels)) {
+                matched.put(seriesId, candidates.get(seriesId));
+            }
+        }
+        if (matched.isEmpty() && unparsable.isEmpty()) {
+            return;
+        }
+        resolveLock.lock();
+        try {
+            Map<Long, Metric> reloaded = new HashMap<>(matched.size());
+            for (Map.Entry<Long, Metric> entry : matched.entrySet()) {
+                // series may be reloaded by a writer or another query meanwhile
+                if (evicted.containsKey(entry.getKey())
+                        && !seriesKey2SeriesId.containsKey(entry.getValue().getSeriesKey())) {
+                    reloaded.put(entry.getKey(), entry.getValue());
+                }
+            }
+            forgetEvicted(metricName, unparsable);
+            forgetEvicted(metricName, matched.keySet());
+            cacheAndBuildSearchContainer(reloaded);
+            seriesReloaded.increment(reloaded.size());
+            log.info("Reload evicted series, metricName={}, reloadedCount={}, remainingCount={}", metricName,
+                    reloaded.size(), evicted.size());
+        } finally {
+            resolveLock.unlock();
+        }
+    }
+
+    int evictedCount(String metricName) {
+        Map<Long, String> evicted = evictedSeries.get(metricName.toLowerCase());
+        return evicted == null ? 0 : evicted.size();
+    }
+
+    private void forgetEvicted(String metricName, Collection<Long> seriesIds) {
+        if (seriesIds.isEmpty()) {
+            return;
+        }
+        evictedSeries.computeIfPresent(metricName, (k, series) -> {
+            series.keySet().removeAll(seriesIds);
+            return series.isEmpty() ? null : series;
+        });
+    }
+
+    /**
+     * Series key contains key=value of every equality matcher of the series, so
+     * keys missing one of them are skipped without parsing.
+     */
+    private static boolean mayMatch(String seriesKey, List<OcpPrometheusLabel> labels) {
+        if (labels == null) {
+            return true;
+        }
+        for (OcpPrometheusLabel label : labels) {
+            if (label.getLabelMatch() != VectorSelectorType.MATCH_EQ || label.getLabelValue() == null
+                    || label.getLabelValue().isEmpty()) {
+                continue;
+            }
+            String keyValue = "|" + label.getLabelKey() + "=" + label.getLabelValue();
+            int index = seriesKey.indexOf(keyValue);
+            while (index >= 0) {
+                int end = index + keyValue.length();
+                if (end == seriesKey.length() || seriesKey.charAt(end) == '|') {
+                    break;
+                }
+                index = seriesKey.indexOf(keyValue, index + 1);
+            }
+            if (index < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String metricNameOf(String seriesKey) {
+        int index = seriesKey.indexOf('|');
+        return (index < 0 ? seriesKey : seriesKey.substring(0, index)).toLowerCase();
+    }
+
+    private long nowSecond() {
+        return clock.getAsLong();
+    }
+
+    /**
+     * Search containers of different metrics are built in parallel.
+     */
+    private void cacheAndBuildSearchContainer(Map<Long, Metric> seriesId2Metric) {
+        Map<String, Map<Long, Metric>> metricName2Series = new HashMap<>();
+        for (Map.Entry<Long, Metric> entry : seriesId2Metric.entrySet()) {
+            Metric metric = entry.getValue();
+            seriesId2SeriesKey.put(entry.getKey(), metric.getSeriesKey());
+            metricName2Series.computeIfAbsent(metric.getName().toLowerCase(), k -> new HashMap<>())
+                    .put(entry.getKey(), metric);
+        }
+        if (!evictedSeries.isEmpty()) {
+            for (Map.Entry<String, Map<Long, Metric>> entry : metricName2Series.entrySet()) {
+                forgetEvicted(entry.getKey(), entry.getValue().keySet());
+            }
+        }
+        metricName2Series.entrySet().parallelStream().forEach(entry -> {
+            try {
+                metricName2SearchContainer.computeIfAbsent(entry.getKey(), this::newSearchContainer)
+                        .addAllIfAbsent(entry.getValue());
+            } catch (Throwable throwable) {
+                log.warn("Build search container failed, metricName={}", entry.getKey(), throwable);
+            }
+        });
+        // series key is visible to writers after it can be searched
+        long now = nowSecond();
+        for (Map.Entry<Long, Metric> entry : seriesId2Metric.entrySet()) {
+            seriesKey2SeriesId.put(entry.getValue().getSeriesKey(), new SeriesEntry(entry.getKey(), now));
+        }
+    }
+
+    private MetricSearchContainer newSearchContainer(String metricName) {
+        MetricSearchContainer container = new MetricSearchContainer(metricName);
+        Gauge.builder("ocp_monitor_series_dictionary_series", container, MetricSearchContainer::seriesCount)
+                .description("Cached series count of metric")
+                .tag("metric", metricName)
+                .register(meterRegistry);
+        Gauge.builder("ocp_monitor_series_dictionary_bytes", container, MetricSearchContainer::estimatedBytes)
+                .description("Estimated memory of cached series of metric")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("metric", metricName)
+                .register(meterRegistry);
+        return container;
     }
 
     public List<Long> scanSeriesIds(OcpPrometheusQueryParam param) {
@@ -161,11 +505,18 @@ public class SeriesIdKeyService {
 
     public List<Long> matchSeriesIds(String metricName, List<OcpPrometheusLabel> labels) {
         Validate.notEmpty(metricName, "metricName is null or empty");
+        if (evictedSeries.containsKey(metricName.toLowerCase())) {
+            reloadSeries(metricName.toLowerCase(), labels);
+        }
         MetricSearchContainer searchContainer = metricName2SearchContainer.get(metricName.toLowerCase());
         if (searchContainer == null) {
             return Collections.emptyList();
         }
-        return searchContainer.select(labels);
+        long start = System.nanoTime();
+        List<Long> seriesIds = searchContainer.select(labels);
+        seriesSelectDuration.record((System.nanoTime() - start) / 1000D);
+        seriesSelectMatched.record(seriesIds.size());
+        return seriesIds;
     }
 
     public Map<Long, String> getSeriesId2KeyMap(List<Long> seriesIds) {
@@ -180,4 +531,24 @@ public class SeriesIdKeyService {
         return seriesId2KeyMap;
     }
 
+    private static final class SeriesEntry {
+
+        private final Long seriesId;
+
+        private volatile long lastSeenSecond;
+
+        private SeriesEntry(Long seriesId, long lastSeenSecond) {
+            this.seriesId = seriesId;
+            this.lastSeenSecond = lastSeenSecond;
+        }
+
+        private Long touch(long nowSecond) {
+            // avoid writing shared cache line on every hit
+            if (lastSeenSecond != nowSecond) {
+                lastSeenSecond = nowSecond;
+            }
+            return seriesId;
+        }
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hours rolled up to the hour tier are marked as slots of a reserved series in
+ * the hour table. Marks share partitions with the data they describe, so they
+ * are dropped together with it by retention.
+ */
+public class HourRollupMarks {
+
+    /**
+     * Real series ids are positive, minute-level scans never return it.
+     */
+    static final long MARK_SERIES_ID = -1L;
+
+    private final MetricDataDao hourPersistent;
+
+    public HourRollupMarks(MetricDataDao hourPersistent) {
+        this.hourPersistent = hourPersistent;
+    }
+
+    /**
+     * Mark the hour as rolled up.
+     */
+    public void mark(long hour) {
+        RollupNode node = new RollupNode(MARK_SERIES_ID, hourPersistent.nodeStartFromPos(hour),
+                hourPersistent.getStepSeconds());
+        node.setSlot(hourPersistent.offsetInNode(hour), hour, hour, hour, hour, 1, hour);
+        hourPersistent.writeSlots(Collections.singletonList(node));
+    }
+
+    /**
+     * First hour to roll up after a restart: the hour after the last marked one, or
+     * the start of the hour node in progress if nothing is marked yet.
+     */
+    public long resumeHour(long completedEnd) {
+        Long lastMarked = lastMarkedHour();
+        if (lastMarked == null) {
+            return hourPersistent.nodeStartFromPos(completedEnd - hourPersistent.getStepSeconds());
+        }
+        return lastMarked + hourPersistent.getStepSeconds();
+    }
+
+    /**
+     * Earliest hour which is marked, or null if none.
+     */
+    public Long firstMarkedHour() {
+        RollupNode node = markNode(hourPersistent.minNodeStart(MARK_SERIES_ID));
+        if (node == null) {
+            return null;
+        }
+        for (int i = 0; i < RollupNode.NODE_LENGTH; i++) {
+            if (node.hasSlot(i)) {
+                return slotStart(node, i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Latest hour which is marked, or null if none.
+     */
+    public Long lastMarkedHour() {
+        RollupNode node = markNode(hourPersistent.maxNodeStart(MARK_SERIES_ID));
+        if (node == null) {
+            return null;
+        }
+        for (int i = RollupNode.NODE_LENGTH - 1; i >= 0; i--) {
+            if (node.hasSlot(i)) {
+                return slotStart(node, i);
+            }
+        }
+        return null;
+    }
+
+    private RollupNode markNode(Long nodeStart) {
+        if (nodeStart == null) {
+            return null;
+        }
+        List<RollupNode> nodes =
+                hourPersistent.getRollupNodes(Collections.singletonList(MARK_SERIES_ID), nodeStart);
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    private long slotStart(RollupNode node, int offset) {
+        return node.getEpochSecondStart() + (long) offset * hourPersistent.getStepSeconds();
+    }
+}
@@ -14,12 +14,15 @@ package com.oceanbase.ocp.monitor.storage;
 
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -37,64 +40,162 @@ import com.oceanbase.ocp.monitor.util.TimestampUtils;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Dao of rollup tiers, a node holds 60 buckets of stepSeconds, and each row
+ * keeps sampled values in data and bucket aggregates in agg_data.
+ */
 @Slf4j
 public class MetricDataDao implements IRollupMetricDataDao {
 
+    private static final int READ_BATCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
 
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     private Converter<double[], byte[]> double2ByteConverter = new DoubleArrayToByteArrayConverter();
 
+    private final Converter<double[][], byte[]> aggregatesConverter = new RollupAggregatesConverter();
+
     private final String tableName;
 
-    private static final int NODE_INTERVAL_SECOND = 3600;
-    private static final int NODE_STEP_SECOND = 60;
+    private final int stepSeconds;
 
+    private final long nodeIntervalSeconds;
 
     public MetricDataDao(String tableName, JdbcTemplate jdbcTemplate,
             NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this(tableName, 60, jdbcTemplate, namedJdbcTemplate);
+    }
+
+    public MetricDataDao(String tableName, int stepSeconds, JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate) {
+        Validate.isTrue(stepSeconds > 0, "stepSeconds must be positive");
         this.tableName = tableName;
+        this.stepSeconds = stepSeconds;
+        this.nodeIntervalSeconds = (long) stepSeconds * RollupNode.NODE_LENGTH;
         this.jdbcTemplate = jdbcTemplate;
         this.namedJdbcTemplate = namedJdbcTemplate;
     }
 
+    public int getStepSeconds() {
+        return stepSeconds;
+    }
+
+    public long nodeStartFromPos(long pos) {
+        return TimestampUtils.calcStartByInterval(pos, nodeIntervalSeconds);
+    }
+
+    public int offsetInNode(long pos) {
+        return (int) ((pos - nodeStartFromPos(pos)) / stepSeconds);
+    }
+
     @Override
     public int write(LinkedList<MetricData> dataList) {
         MetricData e;
-        List<ValueNode> nodeList = new ArrayList<>();
+        Map<ValueNodeKey, RollupNode> nodes = new LinkedHashMap<>();
         while ((e = dataList.poll()) != null) {
             try {
                 long seriesId = e.getSeriesId();
                 long timestamp = e.getTimestamp();
                 long nodeStart = nodeStartFromPos(timestamp);
-                ValueNodeKey key = new ValueNodeKey(seriesId, nodeStart);
-                ValueNode valueNode = get(key);
-                int offset = (int) ((timestamp - nodeStart) / NODE_STEP_SECOND);
-                if (valueNode == null || valueNode.isEmptyNode()) {
-                    valueNode = new ValueNode(seriesId, nodeStart, 60, NODE_STEP_SECOND);
-                }
-                valueNode.setValue(offset, e.getValue());
-                nodeList.add(valueNode);
+                RollupNode node = nodes.computeIfAbsent(new ValueNodeKey(seriesId, nodeStart),
+                        k -> new RollupNode(seriesId, nodeStart, stepSeconds));
+                double value = e.getValue();
+                node.setSlot(offsetInNode(timestamp), value, value, value, value, 1, value);
             } catch (Throwable throwable) {
                 log.warn("Extract minute data failed.", throwable);
             }
         }
-        return write(nodeList);
+        return writeSlots(nodes.values());
     }
 
-    public ValueNode get(ValueNodeKey key) {
-        String sql = String.format(
-                "select `series_id`, `timestamp`, `data` from `%s`" + " where series_id = ? AND timestamp = ? ",
-                tableName);
-        List<ValueNodePersistentRow> rows =
-                jdbcTemplate.query(sql, new Object[] {key.getSeriesId(), key.getEpochSecondStart()},
-                        new BeanPropertyRowMapper<>(ValueNodePersistentRow.class));
-        if (rows.isEmpty()) {
-            return null;
+    /**
+     * Merge valid slots of partial nodes into persisted nodes, existing nodes are
+     * read in batches instead of one query per slot.
+     */
+    public int writeSlots(Collection<RollupNode> partialNodes) {
+        if (partialNodes.isEmpty()) {
+            return 0;
+        }
+        Map<Long, List<Long>> nodeStart2SeriesIds = new HashMap<>();
+        for (RollupNode node : partialNodes) {
+            nodeStart2SeriesIds.computeIfAbsent(node.getEpochSecondStart(), k -> new ArrayList<>())
+                    .add(node.getSeriesId());
         }
-        ValueNodePersistentRow row = rows.get(0);
-        return convert(row);
+        Map<ValueNodeKey, RollupNode> existing = new HashMap<>(partialNodes.size());
+        nodeStart2SeriesIds.forEach((nodeStart, seriesIds) -> getRollupNodes(seriesIds, nodeStart)
+                .forEach(node -> existing.put(node.getKey(), node)));
+
+        List<RollupNode> merged = new ArrayList<>(partialNodes.size());
+        for (RollupNode partial : partialNodes) {
+            RollupNode node = existing.get(partial.getKey());
+            if (node == null) {
+                node = partial;
+            } else {
+                node.merge(partial);
+            }
+            merged.add(node);
+        }
+        return writeRollupNodes(merged);
+    }
+
+    /**
+     * Nodes of the series which start at nodeStart.
+     */
+    public List<RollupNode> getRollupNodes(List<Long> seriesIds, long nodeStart) {
+        String sql = String.format("SELECT `series_id`, `timestamp`, `data`, `agg_data` FROM `%s`"
+                + " WHERE timestamp = :timestamp AND series_id IN (:seriesIds)", tableName);
+        List<RollupNode> nodes = new ArrayList<>(seriesIds.size());
+        for (List<Long> batch : ListUtils.partition(seriesIds, READ_BATCH_SIZE)) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource();
+            parameters.addValue("timestamp", nodeStart);
+            parameters.addValue("seriesIds", batch);
+            List<ValueNodePersistentRow> rows = namedJdbcTemplate.query(sql, parameters,
+                    new BeanPropertyRowMapper<>(ValueNodePersistentRow.class));
+            rows.forEach(row -> nodes.add(convertToRollupNode(row)));
+        }
+        return nodes;
+    }
+
+    /**
+     * Series ids having node which starts at nodeStart, ordered by series id.
+     */
+    public List<Long> scanSeriesIds(long nodeStart, long afterSeriesId, int limit) {
+        String sql = String.format("SELECT `series_id` FROM `%s` WHERE timestamp = ? AND series_id > ?"
+                + " ORDER BY series_id LIMIT ?", tableName);
+        return jdbcTemplate.queryForList(sql, Long.class, nodeStart, afterSeriesId, limit);
+    }
+
+    /**
+     * Start of the earliest node of the series, or null if it has none.
+     */
+    public Long minNodeStart(long seriesId) {
+        String sql = String.format("SELECT MIN(`timestamp`) FROM `%s` WHERE series_id = ?", tableName);
+        return jdbcTemplate.queryForObject(sql, Long.class, seriesId);
+    }
+
+    /**
+     * Start of the latest node of the series, or null if it has none.
+     */
+    public Long maxNodeStart(long seriesId) {
+        String sql = String.format("SELECT MAX(`timestamp`) FROM `%s` WHERE series_id = ?", tableName);
+        return jdbcTemplate.queryForObject(sql, Long.class, seriesId);
+    }
+
+    private int writeRollupNodes(List<RollupNode> nodeList) {
+        String sql = String.format(
+                "REPLACE INTO `%s` (`series_id`, `timestamp`, `data`, `agg_data`) VALUES (?, ?, ?, ?)", tableName);
+        List<Object[]> batchArgs = new ArrayList<>(nodeList.size());
+        nodeList.forEach(node -> {
+            byte[] bytes = double2ByteConverter.convertToRight(node.getValues());
+            byte[] aggBytes = aggregatesConverter.convertToRight(node.getAggregates());
+            batchArgs.add(new Object[] {node.getSeriesId(), node.getEpochSecondStart(), bytes, aggBytes});
+        });
+
+        int[] argTypes = {Types.BIGINT, Types.BIGINT, Types.BINARY, Types.BINARY};
+        int[] affectRows = jdbcTemplate.batchUpdate(sql, batchArgs, argTypes);
+        return JdbcTemplateUtils.batchInsertAffectRows(affectRows);
     }
 
     @Override
@@ -115,11 +216,19 @@ public class MetricDataDao implements IRollupMetricDataDao {
 
     private ValueNode convert(ValueNodePersistentRow row) {
         double[] values = double2ByteConverter.convertToLeft(row.getData());
-        return new ValueNode(row.getSeriesId(), row.getTimestamp(), values, row.getInterval());
+        return new ValueNode(row.getSeriesId(), row.getTimestamp(), values, stepSeconds);
     }
 
-    private long nodeStartFromPos(long pos) {
-        return TimestampUtils.calcStartByInterval(pos, NODE_INTERVAL_SECOND);
+    /**
+     * Rows written before aggregates were kept take each value as one sample.
+     */
+    private RollupNode convertToRollupNode(ValueNodePersistentRow row) {
+        double[] values = double2ByteConverter.convertToLeft(row.getData());
+        if (row.getAggData() == null || values.length != RollupNode.NODE_LENGTH) {
+            return RollupNode.fromValues(row.getSeriesId(), row.getTimestamp(), stepSeconds, values);
+        }
+        double[][] aggregates = aggregatesConverter.convertToLeft(row.getAggData());
+        return new RollupNode(row.getSeriesId(), row.getTimestamp(), stepSeconds, values, aggregates);
     }
 
     @Override
@@ -129,13 +238,14 @@ public class MetricDataDao implements IRollupMetricDataDao {
         Validate.notNull(endTime, "endTime is null");
 
         String sql = String
-                .format("SELECT /*+ READ_CONSISTENCY(WEAK) */ `series_id`, `timestamp`, `data`, `interval` FROM `%s`"
+                .format("SELECT /*+ READ_CONSISTENCY(WEAK) */ `series_id`, `timestamp`, `data` FROM `%s`"
                         + " WHERE series_id IN (:seriesIds) and timestamp >= :startTime and timestamp <= :endTime "
                         + " ORDER BY series_id", tableName);
 
         MapSqlParameterSource parameters = new MapSqlParameterSource();
         parameters.addValue("seriesIds", seriesIds);
-        parameters.addValue("startTime", startTime);
+        // node containing startTime starts before it
+        parameters.addValue("startTime", nodeStartFromPos(startTime));
         parameters.addValue("endTime", endTime);
         return mapToValueNodes(sql, seriesIds.size(), parameters);
     }
@@ -12,24 +12,58 @@
 
 package com.oceanbase.ocp.monitor.storage;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.Validate;
 
-import com.oceanbase.ocp.monitor.helper.BufferedQueue;
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
 import com.oceanbase.ocp.monitor.meter.CounterGroup;
 import com.oceanbase.ocp.monitor.model.storage.ValueNode;
 
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Queue of value nodes to archive, sharded by hash subpartition of series id,
+ * so that each archive worker writes to a subset of subpartitions. Shards share
+ * one capacity, so a busy shard may use the room left by idle ones. Nodes are
+ * dropped and counted once the queue is full.
+ */
+@Slf4j
 public class MetricDataWriteQueue implements IMetricDataWriteQueue {
 
-    private final BufferedQueue<ValueNode> queue;
+    private static final long DROP_LOG_INTERVAL_MILLIS = 60_000L;
+
+    private final List<Queue<ValueNode>> shards;
+
+    private final int capacity;
+
+    private final AtomicInteger nodeCount = new AtomicInteger();
+
+    private final AtomicInteger nextPollShard = new AtomicInteger();
+
+    private final AtomicLong lastDropLogMillis = new AtomicLong();
 
     private CounterGroup valueNodeCounter;
 
     public MetricDataWriteQueue(int queueSize) {
-        this.queue = new BufferedQueue<>(queueSize);
+        this(queueSize, 1);
+    }
+
+    public MetricDataWriteQueue(int queueSize, int shardCount) {
+        Validate.isTrue(shardCount > 0, "shardCount must > 0");
+        this.capacity = queueSize;
+        this.shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ConcurrentLinkedQueue<>());
+        }
     }
 
     public void startMeter(MeterRegistry meterRegistry) {
@@ -37,27 +71,53 @@ public class MetricDataWriteQueue implements IMetricDataWriteQueue {
                 .description("OCP metric value node count")
                 .labelNames("source", "type")
                 .build(meterRegistry);
+        Gauge.builder("ocp_monitor_write_queue_size", this, MetricDataWriteQueue::size)
+                .description("Value node count waiting for archiving")
+                .register(meterRegistry);
     }
 
     @Override
     public boolean offer(ValueNode node) {
         Validate.notNull(node, "node is null");
 
-        queue.offer(node);
+        int shard = shardOf(node.getSeriesId());
+        if (nodeCount.get() > capacity) {
+            countingValueNode("drop");
+            logDrop(shard);
+            return false;
+        }
+        shards.get(shard).offer(node);
+        nodeCount.incrementAndGet();
         countingValueNode("offer");
         return true;
     }
 
+    /**
+     * Poll nodes from shards in turn.
+     */
     @Override
     public LinkedList<ValueNode> poll(int size) {
         Validate.isTrue(size > 0, "size must > 0");
 
         LinkedList<ValueNode> nodes = new LinkedList<>();
+        int start = nextPollShard.getAndIncrement();
+        for (int i = 0; i < shards.size() && nodes.size() < size; i++) {
+            nodes.addAll(poll(Math.floorMod(start + i, shards.size()), size - nodes.size()));
+        }
+        return nodes;
+    }
+
+    public LinkedList<ValueNode> poll(int shard, int size) {
+        Validate.isTrue(size > 0, "size must > 0");
+
+        LinkedList<ValueNode> nodes = new LinkedList<>();
+        Queue<ValueNode> queue = shards.get(shard);
         while (nodes.size() < size) {
             ValueNode node = queue.poll();
             if (node == null) {
                 break;
             }
+            nodeCount.decrementAndGet();
             countingValueNode("poll");
             nodes.add(node);
         }
@@ -66,7 +126,28 @@ public class MetricDataWriteQueue implements IMetricDataWriteQueue {
 
     @Override
     public int size() {
-        return queue.getBufSize();
+        return nodeCount.get();
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Hash subpartition of metric_data_second is series_id mod subpartition count,
+     * nodes of the same subpartition always go to the same shard.
+     */
+    int shardOf(long seriesId) {
+        long subpartition = Math.abs(seriesId % MonitorConstants.SECOND_DATA_SUBPARTITION_COUNT);
+        return (int) (subpartition % shards.size());
+    }
+
+    private void logDrop(int shard) {
+        long now = System.currentTimeMillis();
+        long last = lastDropLogMillis.get();
+        if (now - last >= DROP_LOG_INTERVAL_MILLIS && lastDropLogMillis.compareAndSet(last, now)) {
+            log.warn("Write queue is full, drop value nodes, shard={}, queueSize={}", shard, size());
+        }
     }
 
     private void countingValueNode(String type) {
@@ -78,4 +78,12 @@ public class MonitorPartitionRolloverConfiguration {
                 properties.getMinuteDataRetentionDays());
     }
 
+    @Bean(MonitorConstants.TABLE_NAME_HOUR_DATA)
+    public NaturalTimePartitionRolloverPolicy pdForHourData() {
+        Function<OffsetDateTime, String> formatter = o -> "p" + LocalDateTime
+                .ofInstant(o.toInstant(), ZoneId.systemDefault()).format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        return buildDailyDaemon(MonitorConstants.TABLE_NAME_HOUR_DATA, formatter, Instant::getEpochSecond,
+                properties.getHourDataRetentionDays());
+    }
+
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import java.nio.ByteBuffer;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.common.util.encode.Converter;
+
+/**
+ * Converter of rollup aggregate arrays.
+ * <p>
+ * Layout (version 1):
+ *
+ * <pre>
+ * | version(1) | count(1) | { length(4) | value node data } * count |
+ * </pre>
+ *
+ * Each array is written by {@link ValueNodeDataConverter}.
+ */
+public class RollupAggregatesConverter implements Converter<double[][], byte[]> {
+
+    static final byte VERSION_1 = 1;
+
+    private final ValueNodeDataConverter arrayConverter = new ValueNodeDataConverter();
+
+    @Override
+    public double[][] convertToLeft(byte[] bytes) {
+        Validate.notNull(bytes);
+        Validate.isTrue(bytes.length >= 2, "rollup aggregates is truncated");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported rollup aggregates version: " + version);
+        }
+        double[][] arrays = new double[buffer.get()][];
+        for (int i = 0; i < arrays.length; i++) {
+            byte[] data = new byte[buffer.getInt()];
+            buffer.get(data);
+            arrays[i] = arrayConverter.convertToLeft(data);
+        }
+        return arrays;
+    }
+
+    @Override
+    public byte[] convertToRight(double[][] arrays) {
+        Validate.notNull(arrays);
+        Validate.isTrue(arrays.length > 0 && arrays.length <= Byte.MAX_VALUE);
+
+        byte[][] encoded = new byte[arrays.length][];
+        int size = 2;
+        for (int i = 0; i < arrays.length; i++) {
+            encoded[i] = arrayConverter.convertToRight(arrays[i]);
+            size += Integer.BYTES + encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION_1);
+        buffer.put((byte) arrays.length);
+        for (byte[] data : encoded) {
+            buffer.putInt(data.length);
+            buffer.put(data);
+        }
+        return buffer.array();
+    }
+}
@@ -18,65 +18,163 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 
 import com.oceanbase.ocp.common.util.encode.Converter;
-import com.oceanbase.ocp.common.util.encode.DoubleArrayToByteArrayConverter;
-import com.oceanbase.ocp.core.util.JdbcTemplateUtils;
 import com.oceanbase.ocp.monitor.entity.ValueNodePersistentRow;
+import com.oceanbase.ocp.monitor.meter.CounterGroup;
+import com.oceanbase.ocp.monitor.meter.DistributionSummaryGroup;
 import com.oceanbase.ocp.monitor.model.metric.MetricData;
 import com.oceanbase.ocp.monitor.model.storage.ValueNode;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class RollupMetricDataDao implements IRollupMetricDataDao {
 
+    /**
+     * Rows of one multi-row statement, an encoded second node is hundreds of bytes
+     * at most.
+     */
+    private static final int ROWS_PER_STATEMENT = 200;
+    private static final int COLUMN_COUNT = 4;
+    private static final int[] ARG_TYPES = {Types.BIGINT, Types.BIGINT, Types.BINARY, Types.INTEGER};
+
     private final String tableName;
     private final JdbcTemplate jdbcTemplate;
     private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
-    private Converter<double[], byte[]> double2ByteConverter = new DoubleArrayToByteArrayConverter();
+    private final Converter<double[], byte[]> double2ByteConverter;
+
+    private CounterGroup nodeBytesCounter;
+    private CounterGroup rowErrorCounter;
+    private DistributionSummaryGroup encodeDuration;
 
     public RollupMetricDataDao(String tableName, JdbcTemplate jdbcTemplate,
             NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this(tableName, jdbcTemplate, namedJdbcTemplate, true);
+    }
+
+    public RollupMetricDataDao(String tableName, JdbcTemplate jdbcTemplate,
+            NamedParameterJdbcTemplate namedJdbcTemplate, boolean nodeEncodingEnabled) {
         this.tableName = tableName;
         this.jdbcTemplate = jdbcTemplate;
         this.namedJdbcTemplate = namedJdbcTemplate;
+        this.double2ByteConverter = new ValueNodeDataConverter(nodeEncodingEnabled);
+    }
+
+    public void startMeter(MeterRegistry meterRegistry) {
+        nodeBytesCounter = CounterGroup.builder("ocp_monitor_archive_node_bytes")
+                .description("Counting value node bytes archived to monitor db, raw means before encoding")
+                .baseUnits(BaseUnits.BYTES)
+                .labelNames("table", "type")
+                .build(meterRegistry);
+        encodeDuration = DistributionSummaryGroup.builder("ocp_monitor_archive_node_encode_duration")
+                .description("ocp monitor value node batch encode time")
+                .baseUnits("microseconds")
+                .labelNames("table")
+                .build(meterRegistry);
+        rowErrorCounter = CounterGroup.builder("ocp_monitor_archive_row_errors")
+                .description("Counting rows failed to archive to monitor db, retried or finally failed")
+                .labelNames("table", "type")
+                .build(meterRegistry);
     }
 
     @Override
     public int write(List<ValueNode> nodeList) {
         Validate.notEmpty(nodeList, "nodeList is null or empty");
 
-        String sql = String.format(
-                "INSERT INTO `%s` (`series_id`, `timestamp`, `data`, `interval`) VALUES (?, ?, ?, ?)",
-                tableName);
-        String replaceSql = String.format(
-                "REPLACE INTO `%s` (`series_id`, `timestamp`, `data`, `interval`) VALUES (?, ?, ?, ?)",
-                tableName);
-        List<Object[]> batchArgs = new ArrayList<>(nodeList.size());
-        nodeList.forEach(node -> {
+        List<Object[]> rows = new ArrayList<>(nodeList.size());
+        long rawBytes = 0;
+        long encodedBytes = 0;
+        long encodeStart = System.nanoTime();
+        for (ValueNode node : nodeList) {
             byte[] bytes = double2ByteConverter.convertToRight(node.getValues());
-            batchArgs.add(new Object[] {node.getSeriesId(), node.getEpochSecondStart(), bytes, node.getInterval()});
-        });
+            rawBytes += (long) node.getLength() * Double.BYTES;
+            encodedBytes += bytes.length;
+            rows.add(new Object[] {node.getSeriesId(), node.getEpochSecondStart(), bytes, node.getInterval()});
+        }
+        countingEncode(rawBytes, encodedBytes, System.nanoTime() - encodeStart);
+
+        int affectRows = 0;
+        for (List<Object[]> statementRows : ListUtils.partition(rows, ROWS_PER_STATEMENT)) {
+            affectRows += writeRows(statementRows);
+        }
+        return affectRows;
+    }
 
-        int[] argTypes = {Types.BIGINT, Types.BIGINT, Types.BINARY, Types.INTEGER};
-        int[] affectRows;
+    /**
+     * Write rows by one multi-row statement, existing rows are overwritten. Rows of
+     * a failed statement are retried in two halves, so that a bad row only fails
+     * itself, a single failed row is not retried. Rows are not split if the monitor
+     * db is unreachable, as every statement would fail the same way.
+     */
+    private int writeRows(List<Object[]> rows) {
+        String sql = multiRowUpsertSql(rows.size());
+        Object[] args = new Object[rows.size() * COLUMN_COUNT];
+        int[] argTypes = new int[args.length];
+        for (int i = 0; i < rows.size(); i++) {
+            System.arraycopy(rows.get(i), 0, args, i * COLUMN_COUNT, COLUMN_COUNT);
+            System.arraycopy(ARG_TYPES, 0, argTypes, i * COLUMN_COUNT, COLUMN_COUNT);
+        }
         try {
-            affectRows = jdbcTemplate.batchUpdate(sql, batchArgs, argTypes);
+            return jdbcTemplate.update(sql, args, argTypes);
+        } catch (DataAccessResourceFailureException e) {
+            log.error("Archive rows to table {} error, rowCount={}, e = {}", tableName, rows.size(), e.getMessage());
+            countingRows("failed", rows.size());
+            return 0;
         } catch (DataAccessException e) {
-            log.error("Archive node list to table {} error, e = {}", tableName, e.getMessage());
-            affectRows = jdbcTemplate.batchUpdate(replaceSql, batchArgs, argTypes);
+            if (rows.size() == 1) {
+                log.error("Archive row to table {} error, seriesId={}, timestamp={}, e = {}", tableName,
+                        rows.get(0)[0], rows.get(0)[1], e.getMessage());
+                countingRows("failed", 1);
+                return 0;
+            }
+            log.warn("Archive rows to table {} failed, retry in halves, rowCount={}, e = {}", tableName,
+                    rows.size(), e.getMessage());
+            countingRows("retried", rows.size());
+        }
+        int half = rows.size() / 2;
+        return writeRows(rows.subList(0, half)) + writeRows(rows.subList(half, rows.size()));
+    }
+
+    private String multiRowUpsertSql(int rowCount) {
+        StringBuilder sql = new StringBuilder(128 + rowCount * 16);
+        sql.append("INSERT INTO `").append(tableName)
+                .append("` (`series_id`, `timestamp`, `data`, `interval`) VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE `data` = VALUES(`data`), `interval` = VALUES(`interval`)");
+        return sql.toString();
+    }
+
+    private void countingRows(String type, int count) {
+        if (rowErrorCounter == null) {
+            return;
+        }
+        rowErrorCounter.increment(tableName, type, count);
+    }
+
+    private void countingEncode(long rawBytes, long encodedBytes, long elapsedNanos) {
+        if (nodeBytesCounter == null) {
+            return;
         }
-        return JdbcTemplateUtils.batchInsertAffectRows(affectRows);
+        nodeBytesCounter.increment(tableName, "raw", rawBytes);
+        nodeBytesCounter.increment(tableName, "encoded", encodedBytes);
+        encodeDuration.duration(tableName, TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
     }
 
     @Override
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import static com.oceanbase.ocp.monitor.constants.MonitorConstants.VALUE_NOT_EXIST;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+import com.oceanbase.ocp.monitor.model.storage.ValueNodeKey;
+
+/**
+ * Value node of rollup tiers, each slot keeps the sampled value together with
+ * min, max, sum, count and last value of the source data in the bucket.
+ * <p>
+ * Sampled value is the first valid source value in the bucket, which is what
+ * queries read, aggregates are kept for combining into coarser tiers.
+ */
+public class RollupNode {
+
+    public static final int NODE_LENGTH = 60;
+
+    static final int AGGREGATE_COUNT = 5;
+
+    private final long seriesId;
+    private final long epochSecondStart;
+    private final int stepSeconds;
+    private final double[] values;
+    private final double[] min;
+    private final double[] max;
+    private final double[] sum;
+    private final double[] count;
+    private final double[] last;
+
+    public RollupNode(long seriesId, long epochSecondStart, int stepSeconds) {
+        this(seriesId, epochSecondStart, stepSeconds, emptyValues(), emptyAggregates());
+    }
+
+    RollupNode(long seriesId, long epochSecondStart, int stepSeconds, double[] values, double[][] aggregates) {
+        Validate.isTrue(values.length == NODE_LENGTH, "invalid rollup node length");
+        Validate.isTrue(aggregates.length == AGGREGATE_COUNT, "invalid rollup aggregates");
+        this.seriesId = seriesId;
+        this.epochSecondStart = epochSecondStart;
+        this.stepSeconds = stepSeconds;
+        this.values = values;
+        this.min = aggregates[0];
+        this.max = aggregates[1];
+        this.sum = aggregates[2];
+        this.count = aggregates[3];
+        this.last = aggregates[4];
+    }
+
+    /**
+     * Node read from rows without aggregates, each valid value is taken as one
+     * sample.
+     */
+    static RollupNode fromValues(long seriesId, long epochSecondStart, int stepSeconds, double[] values) {
+        RollupNode node = new RollupNode(seriesId, epochSecondStart, stepSeconds);
+        for (int i = 0; i < NODE_LENGTH && i < values.length; i++) {
+            if (values[i] != VALUE_NOT_EXIST) {
+                node.setSlot(i, values[i], values[i], values[i], values[i], 1, values[i]);
+            }
+        }
+        return node;
+    }
+
+    public void setSlot(int offset, double value, double minValue, double maxValue, double sumValue,
+            double countValue, double lastValue) {
+        Validate.isTrue(offset >= 0 && offset < NODE_LENGTH, "offset out of node");
+        values[offset] = value;
+        min[offset] = minValue;
+        max[offset] = maxValue;
+        sum[offset] = sumValue;
+        count[offset] = countValue;
+        last[offset] = lastValue;
+    }
+
+    /**
+     * Aggregate raw values into the slot.
+     *
+     * @return false if there is no valid value
+     */
+    public boolean aggregate(int offset, double[] source) {
+        double first = VALUE_NOT_EXIST;
+        double minValue = Double.MAX_VALUE;
+        double maxValue = -Double.MAX_VALUE;
+        double sumValue = 0D;
+        int countValue = 0;
+        double lastValue = VALUE_NOT_EXIST;
+        for (double value : source) {
+            if (value == VALUE_NOT_EXIST) {
+                continue;
+            }
+            if (countValue == 0) {
+                first = value;
+            }
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+            sumValue += value;
+            countValue++;
+            lastValue = value;
+        }
+        if (countValue == 0) {
+            return false;
+        }
+        setSlot(offset, first, minValue, maxValue, sumValue, countValue, lastValue);
+        return true;
+    }
+
+    /**
+     * Combine all slots of a finer node into the slot.
+     *
+     * @return false if there is no valid slot
+     */
+    public boolean aggregate(int offset, RollupNode source) {
+        double first = VALUE_NOT_EXIST;
+        double minValue = Double.MAX_VALUE;
+        double maxValue = -Double.MAX_VALUE;
+        double sumValue = 0D;
+        double countValue = 0D;
+        double lastValue = VALUE_NOT_EXIST;
+        for (int i = 0; i < NODE_LENGTH; i++) {
+            if (!source.hasSlot(i)) {
+                continue;
+            }
+            if (first == VALUE_NOT_EXIST) {
+                first = source.values[i];
+            }
+            minValue = Math.min(minValue, source.min[i]);
+            maxValue = Math.max(maxValue, source.max[i]);
+            sumValue += source.sum[i];
+            countValue += source.count[i];
+            lastValue = source.last[i];
+        }
+        if (countValue == 0D) {
+            return false;
+        }
+        setSlot(offset, first, minValue, maxValue, sumValue, countValue, lastValue);
+        return true;
+    }
+
+    /**
+     * Overwrite slots of this node with valid slots of other.
+     */
+    public void merge(RollupNode other) {
+        Validate.isTrue(seriesId == other.seriesId && epochSecondStart == other.epochSecondStart,
+                "merge different node");
+        for (int i = 0; i < NODE_LENGTH; i++) {
+            if (other.hasSlot(i)) {
+                setSlot(i, other.values[i], other.min[i], other.max[i], other.sum[i], other.count[i],
+                        other.last[i]);
+            }
+        }
+    }
+
+    public boolean hasSlot(int offset) {
+        return count[offset] > 0D;
+    }
+
+    public double getAvg(int offset) {
+        return hasSlot(offset) ? sum[offset] / count[offset] : VALUE_NOT_EXIST;
+    }
+
+    public double getMin(int offset) {
+        return min[offset];
+    }
+
+    public double getMax(int offset) {
+        return max[offset];
+    }
+
+    public double getCount(int offset) {
+        return count[offset];
+    }
+
+    public double getLast(int offset) {
+        return last[offset];
+    }
+
+    public long getSeriesId() {
+        return seriesId;
+    }
+
+    public long getEpochSecondStart() {
+        return epochSecondStart;
+    }
+
+    public ValueNodeKey getKey() {
+        return new ValueNodeKey(seriesId, epochSecondStart);
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    double[][] getAggregates() {
+        return new double[][] {min, max, sum, count, last};
+    }
+
+    public ValueNode toValueNode() {
+        return new ValueNode(seriesId, epochSecondStart, values, stepSeconds);
+    }
+
+    private static double[] emptyValues() {
+        double[] values = new double[NODE_LENGTH];
+        Arrays.fill(values, VALUE_NOT_EXIST);
+        return values;
+    }
+
+    private static double[][] emptyAggregates() {
+        double[][] aggregates = new double[AGGREGATE_COUNT][];
+        for (int i = 0; i < AGGREGATE_COUNT; i++) {
+            aggregates[i] = emptyValues();
+        }
+        aggregates[3] = new double[NODE_LENGTH];
+        return aggregates;
+    }
+}
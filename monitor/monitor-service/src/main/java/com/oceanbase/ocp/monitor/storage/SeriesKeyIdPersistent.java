@@ -12,13 +12,21 @@
 
 package com.oceanbase.ocp.monitor.storage;
 
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.Validate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.CollectionUtils;
@@ -32,6 +40,8 @@ import lombok.extern.slf4j.Slf4j;
 @Repository
 public class SeriesKeyIdPersistent {
 
+    private static final int BATCH_SIZE = 500;
+
     @Autowired
     @Qualifier("jdbcTemplate")
     private JdbcTemplate monitorJdbcTemplate;
@@ -40,13 +50,21 @@ public class SeriesKeyIdPersistent {
     @Qualifier("namedJdbcTemplate")
     private NamedParameterJdbcTemplate monitorNamedJdbcTemplate;
 
-    public Long querySeriesId(String seriesKey) {
-        Validate.notEmpty(seriesKey, "seriesKey is null or empty");
-
-        String sql = "select series_id from `metric_series_key_id` where series_key = ?";
-        List<Long> seriesIds = monitorJdbcTemplate.queryForList(sql, new Object[] {seriesKey}, Long.class);
-
-        return CollectionUtils.isEmpty(seriesIds) ? null : seriesIds.get(0);
+    /**
+     * Series ids of existing series keys, queried in batches.
+     */
+    public Map<String, Long> querySeriesIds(Collection<String> seriesKeys) {
+        Map<String, Long> seriesKey2Id = new HashMap<>(seriesKeys.size());
+        if (CollectionUtils.isEmpty(seriesKeys)) {
+            return seriesKey2Id;
+        }
+        String sql = "select series_id, series_key from `metric_series_key_id` where series_key in (:seriesKeys)";
+        for (List<String> batch : ListUtils.partition(new ArrayList<>(seriesKeys), BATCH_SIZE)) {
+            MapSqlParameterSource parameters = new MapSqlParameterSource("seriesKeys", batch);
+            monitorNamedJdbcTemplate.query(sql, parameters,
+                    (RowCallbackHandler) rs -> seriesKey2Id.put(rs.getString("series_key"), rs.getLong("series_id")));
+        }
+        return seriesKey2Id;
     }
 
     /**
@@ -57,13 +75,21 @@ public class SeriesKeyIdPersistent {
      * )
      * </pre>
      */
-    public int replaceSeriesKeyId(String seriesKey, Long seriesId) {
-        Validate.notNull(seriesId, "seriesId is null");
-        Validate.notEmpty(seriesKey, "seriesKey is null or empty");
-
+    public void replaceSeriesKeyIds(Map<String, Long> seriesKey2Id) {
+        if (CollectionUtils.isEmpty(seriesKey2Id)) {
+            return;
+        }
         String sql = "replace into `metric_series_key_id` (`series_id`, `series_key`) values (?, ?)";
-
-        return monitorJdbcTemplate.update(sql, seriesId, seriesKey);
+        List<Object[]> batchArgs = new ArrayList<>(seriesKey2Id.size());
+        for (Map.Entry<String, Long> entry : seriesKey2Id.entrySet()) {
+            Validate.notNull(entry.getValue(), "seriesId is null");
+            Validate.notEmpty(entry.getKey(), "seriesKey is null or empty");
+            batchArgs.add(new Object[] {entry.getValue(), entry.getKey()});
+        }
+        int[] argTypes = {Types.BIGINT, Types.VARCHAR};
+        for (List<Object[]> batch : ListUtils.partition(batchArgs, BATCH_SIZE)) {
+            monitorJdbcTemplate.batchUpdate(sql, batch, argTypes);
+        }
     }
 
     /**
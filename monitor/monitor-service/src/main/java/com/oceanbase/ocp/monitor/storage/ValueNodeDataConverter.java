@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.common.util.encode.Converter;
+import com.oceanbase.ocp.common.util.encode.DoubleArrayToByteArrayConverter;
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+
+/**
+ * Value node data converter with versioned encoding.
+ * <p>
+ * Encoded layout (version 1):
+ *
+ * <pre>
+ * | magic(1) | version(1) | length(varint) | slot bitmap(ceil(length/8)) | XOR float bit stream |
+ * </pre>
+ *
+ * Slot timestamps are implied by their offset in the node, so the bitmap marks
+ * which slots hold a value other than {@link MonitorConstants#VALUE_NOT_EXIST},
+ * and only those values are written to the bit stream using Gorilla-style XOR
+ * compression. When the encoded form is not smaller than the raw form, raw
+ * bytes are written.
+ * <p>
+ * Raw data (a plain big-endian double array) never starts with the magic byte,
+ * because the magic byte would be the sign and exponent of a negative number
+ * below -1e300, while metric values are non-negative or -1.0.
+ */
+public class ValueNodeDataConverter implements Converter<double[], byte[]> {
+
+    static final byte MAGIC = (byte) 0xFE;
+
+    static final byte VERSION_1 = 1;
+
+    private static final long NOT_EXIST_BITS = Double.doubleToRawLongBits(MonitorConstants.VALUE_NOT_EXIST);
+
+    private final Converter<double[], byte[]> rawConverter = new DoubleArrayToByteArrayConverter();
+
+    private final boolean encodingEnabled;
+
+    public ValueNodeDataConverter() {
+        this(true);
+    }
+
+    public ValueNodeDataConverter(boolean encodingEnabled) {
+        this.encodingEnabled = encodingEnabled;
+    }
+
+    @Override
+    public double[] convertToLeft(byte[] bytes) {
+        Validate.notNull(bytes);
+        if (!isEncoded(bytes)) {
+            return rawConverter.convertToLeft(bytes);
+        }
+        byte version = bytes[1];
+        if (version == VERSION_1) {
+            return decodeV1(bytes);
+        }
+        throw new IllegalArgumentException("Unsupported value node encoding version: " + version);
+    }
+
+    @Override
+    public byte[] convertToRight(double[] doubles) {
+        Validate.notNull(doubles);
+        Validate.isTrue(doubles.length > 0);
+
+        if (!encodingEnabled) {
+            return rawConverter.convertToRight(doubles);
+        }
+        byte[] encoded = encodeV1(doubles);
+        if (encoded.length >= doubles.length * Double.BYTES) {
+            return rawConverter.convertToRight(doubles);
+        }
+        return encoded;
+    }
+
+    public static boolean isEncoded(byte[] bytes) {
+        return bytes != null && bytes.length >= 2 && bytes[0] == MAGIC;
+    }
+
+    private byte[] encodeV1(double[] values) {
+        int length = values.length;
+        BitWriter writer = new BitWriter(16 + length * 9);
+        writer.writeByte(MAGIC);
+        writer.writeByte(VERSION_1);
+        writer.writeVarInt(length);
+
+        byte[] bitmap = new byte[(length + 7) >>> 3];
+        for (int i = 0; i < length; i++) {
+            if (Double.doubleToRawLongBits(values[i]) != NOT_EXIST_BITS) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        for (byte b : bitmap) {
+            writer.writeByte(b);
+        }
+
+        boolean first = true;
+        long previous = 0L;
+        int previousLeading = Integer.MAX_VALUE;
+        int previousTrailing = 0;
+        for (int i = 0; i < length; i++) {
+            long current = Double.doubleToRawLongBits(values[i]);
+            if (current == NOT_EXIST_BITS) {
+                continue;
+            }
+            if (first) {
+                writer.writeBits(current, 64);
+                previous = current;
+                first = false;
+                continue;
+            }
+            long xor = current ^ previous;
+            previous = current;
+            if (xor == 0) {
+                writer.writeBit(false);
+                continue;
+            }
+            writer.writeBit(true);
+            int leading = Long.numberOfLeadingZeros(xor);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (leading >= previousLeading && trailing >= previousTrailing) {
+                // reuse previous meaningful bits window
+                writer.writeBit(false);
+                writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int meaningful = 64 - leading - trailing;
+                writer.writeBit(true);
+                writer.writeBits(leading, 6);
+                writer.writeBits(meaningful - 1, 6);
+                writer.writeBits(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    private double[] decodeV1(byte[] bytes) {
+        BitReader reader = new BitReader(bytes, 2);
+        int length = reader.readVarInt();
+        Validate.isTrue(length > 0, "invalid encoded value node length");
+
+        byte[] bitmap = new byte[(length + 7) >>> 3];
+        for (int i = 0; i < bitmap.length; i++) {
+            bitmap[i] = reader.readByte();
+        }
+
+        double[] values = new double[length];
+        Arrays.fill(values, MonitorConstants.VALUE_NOT_EXIST);
+        boolean first = true;
+        long previous = 0L;
+        int previousLeading = 0;
+        int previousTrailing = 0;
+        for (int i = 0; i < length; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) == 0) {
+                continue;
+            }
+            if (first) {
+                previous = reader.readBits(64);
+                first = false;
+            } else if (reader.readBit()) {
+                if (reader.readBit()) {
+                    previousLeading = (int) reader.readBits(6);
+                    int meaningful = (int) reader.readBits(6) + 1;
+                    previousTrailing = 64 - previousLeading - meaningful;
+                }
+                long xor = reader.readBits(64 - previousLeading - previousTrailing) << previousTrailing;
+                previous ^= xor;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return values;
+    }
+
+    private static final class BitWriter {
+
+        private byte[] buffer;
+        private int bytePos = 0;
+        private int bitPos = 0;
+
+        BitWriter(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(byte b) {
+            writeBits(b & 0xFF, 8);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((byte) value);
+        }
+
+        void writeBit(boolean bit) {
+            ensureCapacity();
+            if (bit) {
+                buffer[bytePos] |= (byte) (1 << (7 - bitPos));
+            }
+            if (++bitPos == 8) {
+                bitPos = 0;
+                bytePos++;
+            }
+        }
+
+        void writeBits(long value, int count) {
+            for (int i = count - 1; i >= 0; i--) {
+                writeBit(((value >>> i) & 1L) == 1L);
+            }
+        }
+
+        private void ensureCapacity() {
+            if (bytePos >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, bitPos == 0 ? bytePos : bytePos + 1);
+        }
+    }
+
+    private static final class BitReader {
+
+        private final byte[] buffer;
+        private int bytePos;
+        private int bitPos = 0;
+
+        BitReader(byte[] buffer, int offset) {
+            this.buffer = buffer;
+            this.bytePos = offset;
+        }
+
+        byte readByte() {
+            return (byte) readBits(8);
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                Validate.isTrue(shift < 32, "malformed varint in encoded value node");
+                b = readByte();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        boolean readBit() {
+            Validate.isTrue(bytePos < buffer.length, "encoded value node is truncated");
+            boolean bit = ((buffer[bytePos] >>> (7 - bitPos)) & 1) == 1;
+            if (++bitPos == 8) {
+                bitPos = 0;
+                bytePos++;
+            }
+            return bit;
+        }
+
+        long readBits(int count) {
+            long value = 0L;
+            for (int i = 0; i < count; i++) {
+                value = (value << 1) | (readBit() ? 1L : 0L);
+            }
+            return value;
+        }
+    }
+}
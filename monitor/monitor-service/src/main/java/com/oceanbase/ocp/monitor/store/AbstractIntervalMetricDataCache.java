@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package com.oceanbase.ocp.monitor.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.monitor.IIntervalMetricDataCache;
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+import com.oceanbase.ocp.monitor.meter.CounterGroup;
+import com.oceanbase.ocp.monitor.model.metric.MetricData;
+import com.oceanbase.ocp.monitor.model.metric.MetricDataRange;
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+import com.oceanbase.ocp.monitor.util.MonitorPropertyUtils;
+import com.oceanbase.ocp.monitor.util.TimestampUtils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Common node position calculation and range reading of interval metric data
+ * caches.
+ */
+@Slf4j
+public abstract class AbstractIntervalMetricDataCache implements IIntervalMetricDataCache {
+
+    protected final long nodeIntervalSeconds;
+    protected long nodeStepSeconds;
+
+    private CounterGroup valueNodeCounter;
+
+    private volatile WriteCacheCheckpoint checkpoint;
+
+    protected AbstractIntervalMetricDataCache(long nodeIntervalSeconds) {
+        Validate.isTrue(nodeIntervalSeconds > 0, "intervalSeconds must be positive");
+        Validate.isTrue(nodeIntervalSeconds % 60 == 0, "intervalSeconds must be times of 60");
+        this.nodeIntervalSeconds = nodeIntervalSeconds;
+        this.nodeStepSeconds = nodeIntervalSeconds / 60;
+    }
+
+    public void startMeter(MeterRegistry meterRegistry) {
+        valueNodeCounter = CounterGroup.builder("ocp_monitor_value_node_count")
+                .description("OCP metric value node count")
+                .labelNames("source", "type")
+                .build(meterRegistry);
+    }
+
+    /**
+     * Count of value nodes already dumped but still kept for reading.
+     */
+    public abstract long rCacheSize();
+
+    /**
+     * Count of value nodes still being written.
+     */
+    public abstract long wCacheSize();
+
+    /**
+     * The earliest second which could be read from this cache.
+     */
+    public abstract long getCacheStartSecond();
+
+    public abstract void destroy();
+
+    /**
+     * Collect copies of value nodes in cache for checkpointing.
+     */
+    protected abstract void collectNodes(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes);
+
+    /**
+     * Put back value nodes of last checkpoint, writing nodes are dumped later as
+     * usual.
+     */
+    protected abstract void restoreNodes(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes);
+
+    /**
+     * Restore value nodes from the checkpoint and checkpoint later on, should be
+     * called before writing.
+     */
+    public void enableCheckpoint(WriteCacheCheckpoint checkpoint) {
+        Validate.notNull(checkpoint, "checkpoint is null");
+        long start = System.currentTimeMillis();
+        WriteCacheCheckpoint.Snapshot snapshot = checkpoint.read();
+        if (snapshot != null) {
+            restoreNodes(snapshot.getWritingNodes(), snapshot.getDumpedNodes());
+            log.info("Restore write cache from checkpoint, file={}, createdSecond={}, writingCount={}, "
+                    + "dumpedCount={}, elapsed={}ms", checkpoint.getFile(), snapshot.getCreatedSecond(),
+                    snapshot.getWritingNodes().size(), snapshot.getDumpedNodes().size(),
+                    System.currentTimeMillis() - start);
+        }
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Write value nodes in cache to the checkpoint file if enabled.
+     */
+    protected void checkpoint() {
+        WriteCacheCheckpoint current = this.checkpoint;
+        if (current == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            List<ValueNode> writingNodes = new ArrayList<>();
+            List<ValueNode> dumpedNodes = new ArrayList<>();
+            collectNodes(writingNodes, dumpedNodes);
+            current.write(writingNodes, dumpedNodes, Instant.now().getEpochSecond());
+            log.debug("Checkpoint write cache, writingCount={}, dumpedCount={}, elapsed={}ms",
+                    writingNodes.size(), dumpedNodes.size(), System.currentTimeMillis() - start);
+        } catch (Throwable throwable) {
+            log.warn("Checkpoint write cache failed, file={}", current.getFile(), throwable);
+        }
+    }
+
+    /**
+     * Get value node of the series which starts at nodeStart, or null if absent.
+     */
+    protected abstract ValueNode getFromCache(long seriesId, long nodeStart);
+
+    @Override
+    public long getNodeIntervalSeconds() {
+        return nodeIntervalSeconds;
+    }
+
+    @Override
+    public MetricDataRange range(Long seriesId, Long start, Long end, Long step) {
+        List<MetricData> dataList = series(seriesId, start, end, step);
+        return new MetricDataRange(seriesId, dataList);
+    }
+
+    @Override
+    public Map<Long, MetricDataRange> ranges(List<Long> seriesIds, Long start, Long end, Long step) {
+        return seriesIds.stream()
+                .collect(Collectors.toMap(seriesId -> seriesId, seriesId -> range(seriesId, start, end, step)));
+    }
+
+    public List<MetricData> series(Long seriesId, Long start, Long end, Long step) {
+        Validate.notNull(seriesId, "seriesId is null");
+        Validate.isTrue(start <= end, "start should not after end");
+        Validate.isTrue(step % nodeStepSeconds == 0, "step should times of nodeStepSeconds");
+
+        List<MetricData> dataList = new ArrayList<>();
+        long currentPos = calcFirstPos(start);
+        while (currentPos <= end) {
+            long nodeStart = nodeStartFromPos(currentPos);
+            ValueNode node = getFromCache(seriesId, nodeStart);
+            if (node == null || node.isEmptyNode()) {
+                currentPos = calcFirstPosInNextNode(currentPos, step);
+                continue;
+            }
+            countingValueNode("read");
+            long nodeEnd = nodeStart + nodeIntervalSeconds - 1;
+            long currentEnd = nodeEnd > end ? end : nodeEnd;
+            while (currentPos <= currentEnd) {
+                int offset = (int) ((currentPos - nodeStart) / node.getInterval());
+                if (offset < node.getLength()) {
+                    double value = node.getValue(offset);
+                    if (value != MonitorConstants.VALUE_NOT_EXIST) {
+                        long timestamp = nodeStart + (long) offset * node.getInterval();
+                        MetricData data = new MetricData(seriesId, timestamp, value);
+                        dataList.add(data);
+                    }
+                }
+                currentPos += step;
+            }
+        }
+        return dataList;
+    }
+
+    @Override
+    public int writes(LinkedList<MetricData> dataList) {
+        Validate.notNull(dataList, "data is null");
+        int successCount = 0;
+        MetricData e;
+        while ((e = dataList.poll()) != null) {
+            if (write(e)) {
+                successCount++;
+            }
+        }
+        return successCount;
+    }
+
+    /**
+     * Second-level cache follows collect interval property, the new interval takes
+     * effect from next node.
+     */
+    protected void refreshNodeStepSeconds() {
+        if (nodeIntervalSeconds == 60) {
+            int interval = MonitorPropertyUtils.getStandardSecondCollectInterval();
+            if (interval != nodeStepSeconds) {
+                nodeStepSeconds = interval;
+            }
+        }
+    }
+
+    /**
+     * Timestamp of the last valid value of the node, or 0 if none.
+     */
+    protected static long lastValueTimestamp(ValueNode node) {
+        for (int offset = node.getLength() - 1; offset >= 0; offset--) {
+            if (node.getValue(offset) != MonitorConstants.VALUE_NOT_EXIST) {
+                return node.getEpochSecondStart() + (long) offset * node.getInterval();
+            }
+        }
+        return 0L;
+    }
+
+    protected void countingValueNode(String type) {
+        if (valueNodeCounter == null) {
+            return;
+        }
+        valueNodeCounter.incrementOne("cache", type);
+    }
+
+    /**
+     * Resolve value node counter of the type once, or null if meter not started.
+     */
+    protected Counter valueNodeCounter(String type) {
+        if (valueNodeCounter == null) {
+            return null;
+        }
+        return valueNodeCounter.of("cache", type);
+    }
+
+    long calcPreviousPos(long start) {
+        long firstStart = calcFirstPos(start);
+        return firstStart - nodeStepSeconds;
+    }
+
+    long calcFirstPos(long start) {
+        if (nodeStepSeconds == 1) {
+            return start;
+        }
+        long firstStart = TimestampUtils.calcStartByInterval(start, nodeStepSeconds);
+        return start == firstStart ? start : firstStart + nodeStepSeconds;
+    }
+
+    private long calcFirstPosInNextNode(long currentPos, long step) {
+        long nextPos = currentPos + step;
+        long nodeStart = nodeStartFromPos(currentPos);
+        long nextNodeStart = nodeStart + nodeIntervalSeconds;
+        if (nextPos >= nextNodeStart) {
+            return nextPos;
+        }
+        long stepCount = (nextNodeStart - nextPos) / step;
+        return nextPos + stepCount * step;
+    }
+
+    long nodeStartFromPos(long pos) {
+        return TimestampUtils.calcStartByInterval(pos, nodeIntervalSeconds);
+    }
+
+}
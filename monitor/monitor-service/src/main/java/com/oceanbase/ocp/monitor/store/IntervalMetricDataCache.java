@@ -13,51 +13,41 @@ package com.oceanbase.ocp.monitor.store;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import javax.annotation.PreDestroy;
 
 import org.apache.commons.collections4.queue.CircularFifoQueue;
-import org.apache.commons.lang3.Validate;
 
 import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
 import com.oceanbase.ocp.common.util.ExecutorUtils;
-import com.oceanbase.ocp.monitor.IIntervalMetricDataCache;
-import com.oceanbase.ocp.monitor.constants.MonitorConstants;
-import com.oceanbase.ocp.monitor.meter.CounterGroup;
 import com.oceanbase.ocp.monitor.model.metric.MetricData;
-import com.oceanbase.ocp.monitor.model.metric.MetricDataRange;
 import com.oceanbase.ocp.monitor.model.storage.ValueNode;
 import com.oceanbase.ocp.monitor.model.storage.ValueNodeKey;
 import com.oceanbase.ocp.monitor.storage.MetricDataWriteQueue;
-import com.oceanbase.ocp.monitor.util.MonitorPropertyUtils;
-import com.oceanbase.ocp.monitor.util.TimestampUtils;
 
-import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public class IntervalMetricDataCache implements IIntervalMetricDataCache {
+public class IntervalMetricDataCache extends AbstractIntervalMetricDataCache {
 
     private final CircularFifoQueue<Long> readCacheSecondQueue;
     private final CircularFifoQueue<Map<ValueNodeKey, ValueNode>> readCache;
 
-    private final long nodeIntervalSeconds;
     private final int dumpDelaySecs;
-    private long nodeStepSeconds;
 
     private final Map<Long, Long> seriesIdTsMap;
 
@@ -69,16 +59,11 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
 
     private final ScheduledThreadPoolExecutor dumpExecutor;
 
-    private CounterGroup valueNodeCounter;
-
     public IntervalMetricDataCache(int readCacheCount, long nodeIntervalSeconds, MetricDataWriteQueue writeQueue,
             int dumpDelaySecs) {
-        Validate.isTrue(nodeIntervalSeconds > 0, "intervalSeconds must be positive");
-        Validate.isTrue(nodeIntervalSeconds % 60 == 0, "intervalSeconds must be times of 60");
+        super(nodeIntervalSeconds);
         this.readCacheSecondQueue = new CircularFifoQueue<>(readCacheCount);
         this.readCache = new CircularFifoQueue<>(readCacheCount);
-        this.nodeIntervalSeconds = nodeIntervalSeconds;
-        this.nodeStepSeconds = nodeIntervalSeconds / 60;
         this.writeQueue = writeQueue;
         this.seriesIdTsMap = new ConcurrentHashMap<>(10240);
 
@@ -94,13 +79,7 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
         }
     }
 
-    public void startMeter(MeterRegistry meterRegistry) {
-        valueNodeCounter = CounterGroup.builder("ocp_monitor_value_node_count")
-                .description("OCP metric value node count")
-                .labelNames("source", "type")
-                .build(meterRegistry);
-    }
-
+    @Override
     public long rCacheSize() {
         long rCacheSize = 0;
         for (Map<ValueNodeKey, ValueNode> rCache : readCache) {
@@ -109,10 +88,12 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
         return rCacheSize;
     }
 
+    @Override
     public long wCacheSize() {
         return writeCacheMap.size();
     }
 
+    @Override
     public long getCacheStartSecond() {
         if (!readCacheSecondQueue.isEmpty()) {
             return readCacheSecondQueue.get(0);
@@ -122,56 +103,6 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
                 .orElse(Instant.now().getEpochSecond());
     }
 
-    @Override
-    public long getNodeIntervalSeconds() {
-        return nodeIntervalSeconds;
-    }
-
-    @Override
-    public MetricDataRange range(Long seriesId, Long start, Long end, Long step) {
-        List<MetricData> dataList = series(seriesId, start, end, step);
-        return new MetricDataRange(seriesId, dataList);
-    }
-
-    @Override
-    public Map<Long, MetricDataRange> ranges(List<Long> seriesIds, Long start, Long end, Long step) {
-        return seriesIds.stream()
-                .collect(Collectors.toMap(seriesId -> seriesId, seriesId -> range(seriesId, start, end, step)));
-    }
-
-    public List<MetricData> series(Long seriesId, Long start, Long end, Long step) {
-        Validate.notNull(seriesId, "seriesId is null");
-        Validate.isTrue(start <= end, "start should not after end");
-        Validate.isTrue(step % nodeStepSeconds == 0, "step should times of nodeStepSeconds");
-
-        List<MetricData> dataList = new ArrayList<>();
-        long currentPos = calcFirstPos(start);
-        while (currentPos <= end) {
-            long nodeStart = nodeStartFromPos(currentPos);
-            ValueNode node = getFromCache(new ValueNodeKey(seriesId, nodeStart));
-            if (node == null || node.isEmptyNode()) {
-                currentPos = calcFirstPosInNextNode(currentPos, step);
-                continue;
-            }
-            countingValueNode("read");
-            long nodeEnd = nodeStart + nodeIntervalSeconds - 1;
-            long currentEnd = nodeEnd > end ? end : nodeEnd;
-            while (currentPos <= currentEnd) {
-                int offset = (int) ((currentPos - nodeStart) / node.getInterval());
-                if (offset < node.getLength()) {
-                    double value = node.getValue(offset);
-                    if (value != MonitorConstants.VALUE_NOT_EXIST) {
-                        long timestamp = nodeStart + (long) offset * node.getInterval();
-                        MetricData data = new MetricData(seriesId, timestamp, value);
-                        dataList.add(data);
-                    }
-                }
-                currentPos += step;
-            }
-        }
-        return dataList;
-    }
-
     @Override
     public boolean write(MetricData data) {
         Long seriesId = data.getSeriesId();
@@ -183,12 +114,7 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
             return false;
         }
         long nodeStart = nodeStartFromPos(timestamp);
-        if (nodeIntervalSeconds == 60) {
-            int interval = MonitorPropertyUtils.getStandardSecondCollectInterval();
-            if (interval != nodeStepSeconds) {
-                nodeStepSeconds = interval;
-            }
-        }
+        refreshNodeStepSeconds();
         int offset = (int) ((timestamp - nodeStart) / nodeStepSeconds);
         ValueNodeKey valueNodeKey = new ValueNodeKey(seriesId, nodeStart);
         if (!writeCacheMap.containsKey(valueNodeKey)) {
@@ -208,48 +134,9 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
         return true;
     }
 
-    private void countingValueNode(String type) {
-        if (valueNodeCounter == null) {
-            return;
-        }
-        valueNodeCounter.incrementOne("cache", type);
-    }
-
     @Override
-    public int writes(LinkedList<MetricData> dataList) {
-        Validate.notNull(dataList, "data is null");
-        int successCount = 0;
-        MetricData e;
-        while ((e = dataList.poll()) != null) {
-            if (write(e)) {
-                successCount++;
-            }
-        }
-        return successCount;
-    }
-
-    long calcPreviousPos(long start) {
-        long firstStart = calcFirstPos(start);
-        return firstStart - nodeStepSeconds;
-    }
-
-    long calcFirstPos(long start) {
-        if (nodeStepSeconds == 1) {
-            return start;
-        }
-        long firstStart = TimestampUtils.calcStartByInterval(start, nodeStepSeconds);
-        return start == firstStart ? start : firstStart + nodeStepSeconds;
-    }
-
-    private long calcFirstPosInNextNode(long currentPos, long step) {
-        long nextPos = currentPos + step;
-        long nodeStart = nodeStartFromPos(currentPos);
-        long nextNodeStart = nodeStart + nodeIntervalSeconds;
-        if (nextPos >= nextNodeStart) {
-            return nextPos;
-        }
-        long stepCount = (nextNodeStart - nextPos) / step;
-        return nextPos + stepCount * step;
+    protected ValueNode getFromCache(long seriesId, long nodeStart) {
+        return getFromCache(new ValueNodeKey(seriesId, nodeStart));
     }
 
     private ValueNode getFromCache(ValueNodeKey nodeKey) {
@@ -303,18 +190,66 @@ public class IntervalMetricDataCache implements IIntervalMetricDataCache {
         if (!readCacheSegment.isEmpty()) {
             readCache.add(readCacheSegment);
             readCacheSecondQueue.add(headerKey.getEpochSecondStart());
+            checkpoint();
         }
     }
 
-    long nodeStartFromPos(long pos) {
-        return TimestampUtils.calcStartByInterval(pos, nodeIntervalSeconds);
+    @Override
+    protected void collectNodes(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+        for (ValueNodeKey key : keyCacheQueue) {
+            ValueNode node = writeCacheMap.get(key);
+            if (node != null) {
+                writingNodes.add(new ValueNode(node.getSeriesId(), node.getEpochSecondStart(),
+                        node.getValues().clone(), node.getInterval()));
+            }
+        }
+        for (Map<ValueNodeKey, ValueNode> rCache : readCache) {
+            dumpedNodes.addAll(rCache.values());
+        }
     }
 
+    @Override
+    protected void restoreNodes(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+        TreeMap<Long, Map<ValueNodeKey, ValueNode>> segments = new TreeMap<>();
+        for (ValueNode node : dumpedNodes) {
+            segments.computeIfAbsent(node.getEpochSecondStart(), k -> new HashMap<>()).put(keyOf(node), node);
+            restoreMaxTimestamp(node);
+            // the write queue is not persistent, writing dumped nodes again is idempotent
+            if (writeQueue != null) {
+                writeQueue.offer(node);
+            }
+        }
+        for (Map.Entry<Long, Map<ValueNodeKey, ValueNode>> entry : segments.entrySet()) {
+            readCache.add(entry.getValue());
+            readCacheSecondQueue.add(entry.getKey());
+        }
+        List<ValueNode> sorted = new ArrayList<>(writingNodes);
+        sorted.sort(Comparator.comparingLong(ValueNode::getEpochSecondStart));
+        for (ValueNode node : sorted) {
+            ValueNodeKey key = keyOf(node);
+            if (writeCacheMap.putIfAbsent(key, node) == null) {
+                keyCacheQueue.add(key);
+            }
+            restoreMaxTimestamp(node);
+        }
+    }
+
+    private static ValueNodeKey keyOf(ValueNode node) {
+        return new ValueNodeKey(node.getSeriesId(), node.getEpochSecondStart());
+    }
+
+    private void restoreMaxTimestamp(ValueNode node) {
+        long timestamp = lastValueTimestamp(node);
+        seriesIdTsMap.merge(node.getSeriesId(), timestamp, Math::max);
+    }
+
+    @Override
     @PreDestroy
     public void destroy() {
         if (dumpExecutor != null) {
             ExecutorUtils.shutdown(dumpExecutor, 1);
         }
+        checkpoint();
     }
 
 }
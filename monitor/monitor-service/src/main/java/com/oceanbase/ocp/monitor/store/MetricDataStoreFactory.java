@@ -12,6 +12,8 @@
 
 package com.oceanbase.ocp.monitor.store;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,8 +24,16 @@ import org.springframework.stereotype.Component;
 
 import com.oceanbase.ocp.monitor.IIntervalMetricDataStore;
 import com.oceanbase.ocp.monitor.IMetricDataStore;
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+import com.oceanbase.ocp.monitor.model.metric.MetricData;
 import com.oceanbase.ocp.monitor.model.metric.MetricDataRange;
+import com.oceanbase.ocp.monitor.service.OcpMetricArchiveService;
 
+/**
+ * Pick the coarsest tier satisfying the query step. Queries with whole hour
+ * steps read hour-level data where it is complete, and minute-level data for
+ * the rest of the range.
+ */
 @Component
 public class MetricDataStoreFactory implements IMetricDataStore {
 
@@ -37,9 +47,23 @@ public class MetricDataStoreFactory implements IMetricDataStore {
     @Qualifier("minuteStore")
     private IIntervalMetricDataStore minuteStore;
 
+    @Autowired
+    @Qualifier("hourStore")
+    private IIntervalMetricDataStore hourStore;
+
+    @Autowired
+    private OcpMetricArchiveService metricArchiveService;
+
     @Override
     public Map<Long, MetricDataRange> ranges(List<Long> seriesIds, Long start, Long end, Long step) {
         Validate.notNull(step);
+        if (step % MonitorConstants.HOUR_SECONDS == 0) {
+            long hourStart = Math.max(start, metricArchiveService.getHourRollupStart());
+            long hourEnd = Math.min(end, metricArchiveService.getHourRollupEnd() - 1);
+            if (metricArchiveService.getHourRollupEnd() > 0 && hourStart <= hourEnd) {
+                return rangesByTiers(seriesIds, start, end, step, hourStart, hourEnd);
+            }
+        }
         return getDataStore(step).ranges(seriesIds, start, end, step);
     }
 
@@ -48,6 +72,27 @@ public class MetricDataStoreFactory implements IMetricDataStore {
         return getDataStore(step).rangesFromCache(seriesIds, start, end, step);
     }
 
+    private Map<Long, MetricDataRange> rangesByTiers(List<Long> seriesIds, long start, long end, long step,
+            long hourStart, long hourEnd) {
+        Map<Long, List<MetricData>> seriesId2DataList = new HashMap<>(seriesIds.size());
+        if (start < hourStart) {
+            appendRanges(seriesId2DataList, minuteStore.ranges(seriesIds, start, hourStart - 1, step));
+        }
+        appendRanges(seriesId2DataList, hourStore.ranges(seriesIds, hourStart, hourEnd, step));
+        if (end > hourEnd) {
+            appendRanges(seriesId2DataList, minuteStore.ranges(seriesIds, hourEnd + 1, end, step));
+        }
+        Map<Long, MetricDataRange> result = new HashMap<>(seriesId2DataList.size());
+        seriesId2DataList
+                .forEach((seriesId, dataList) -> result.put(seriesId, new MetricDataRange(seriesId, dataList)));
+        return result;
+    }
+
+    private void appendRanges(Map<Long, List<MetricData>> seriesId2DataList, Map<Long, MetricDataRange> ranges) {
+        ranges.forEach((seriesId, range) -> seriesId2DataList.computeIfAbsent(seriesId, k -> new ArrayList<>())
+                .addAll(range.getDataList()));
+    }
+
     private IIntervalMetricDataStore getDataStore(long step) {
         IIntervalMetricDataStore dataStore;
         if (step < SECONDS_IN_MINUTE) {
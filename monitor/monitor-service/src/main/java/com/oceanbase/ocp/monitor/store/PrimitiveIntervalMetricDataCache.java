@@ -0,0 +1,646 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package com.oceanbase.ocp.monitor.store;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
+import com.oceanbase.ocp.common.util.ExecutorUtils;
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+import com.oceanbase.ocp.monitor.helper.LongIntHashMap;
+import com.oceanbase.ocp.monitor.model.metric.MetricData;
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+import com.oceanbase.ocp.monitor.storage.MetricDataWriteQueue;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Interval metric data cache backed by primitive array slabs.
+ * <p>
+ * Each series gets a dense ordinal, and each node interval (minute for
+ * second-level data) gets a window whose slots live in reusable double[]
+ * segments indexed by ordinal. Writing a value only touches primitive arrays,
+ * value node objects are built when dumping to the write queue or reading.
+ * Windows are recycled after being dumped, so dumped windows also serve as the
+ * read cache.
+ * <p>
+ * Writers register on a window before touching its slots, dumping seals the
+ * window and waits for registered writers, so a window is never recycled under
+ * a writer. Once windows are recycled, series held by no window are expired,
+ * their ordinals are reused and idle segments of recycled windows are released.
+ */
+@Slf4j
+public class PrimitiveIntervalMetricDataCache extends AbstractIntervalMetricDataCache {
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int INDEX_STRIPES = 64;
+    private static final int SLOTS_PER_NODE = 60;
+    private static final long FREE_WINDOW = -1L;
+
+    private final LongIntHashMap[] seriesIndex;
+    private final AtomicInteger seriesCount = new AtomicInteger();
+    private volatile long[][] seriesIdSegments = new long[0][];
+    private volatile long[][] maxTimestampSegments = new long[0][];
+    private final BitSet freeOrdinals = new BitSet();
+    private final StampedLock seriesLock = new StampedLock();
+
+    private final Window[] windows;
+    private volatile int recycledWindows = 0;
+    private int expiredWindows = 0;
+
+    private final int dumpDelaySecs;
+
+    private final MetricDataWriteQueue writeQueue;
+
+    private final ScheduledThreadPoolExecutor dumpExecutor;
+
+    private Counter writeCounter;
+
+    public PrimitiveIntervalMetricDataCache(int readCacheCount, long nodeIntervalSeconds,
+            MetricDataWriteQueue writeQueue, int dumpDelaySecs) {
+        super(nodeIntervalSeconds);
+        Validate.isTrue(readCacheCount > 0, "readCacheCount must be positive");
+        this.seriesIndex = new LongIntHashMap[INDEX_STRIPES];
+        for (int i = 0; i < INDEX_STRIPES; i++) {
+            seriesIndex[i] = new LongIntHashMap(10240 / INDEX_STRIPES);
+        }
+        // writing and waiting-for-dump windows besides read cache windows
+        this.windows = new Window[readCacheCount + 2];
+        for (int i = 0; i < windows.length; i++) {
+            windows[i] = new Window();
+        }
+        this.writeQueue = writeQueue;
+        this.dumpDelaySecs = dumpDelaySecs;
+        if (writeQueue != null) {
+            this.dumpExecutor = new ScheduledThreadPoolExecutor(1,
+                    new OcpThreadFactory("dump-executor-interval" + nodeIntervalSeconds));
+            dumpExecutor.scheduleWithFixedDelay(this::dumpValueNode, 10, 3, TimeUnit.SECONDS);
+        } else {
+            this.dumpExecutor = null;
+        }
+    }
+
+    @Override
+    public void startMeter(MeterRegistry meterRegistry) {
+        super.startMeter(meterRegistry);
+        this.writeCounter = valueNodeCounter("write");
+    }
+
+    @Override
+    public long rCacheSize() {
+        long size = 0;
+        for (Window window : windows) {
+            if (window.nodeStart != FREE_WINDOW && window.dumped) {
+                size += window.nodeCount.get();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long wCacheSize() {
+        long size = 0;
+        for (Window window : windows) {
+            if (window.nodeStart != FREE_WINDOW && !window.dumped) {
+                size += window.nodeCount.get();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long getCacheStartSecond() {
+        long start = Long.MAX_VALUE;
+        for (Window window : windows) {
+            long nodeStart = window.nodeStart;
+            if (nodeStart != FREE_WINDOW && nodeStart < start) {
+                start = nodeStart;
+            }
+        }
+        return start == Long.MAX_VALUE ? Instant.now().getEpochSecond() : start;
+    }
+
+    @Override
+    public boolean write(MetricData data) {
+        long stamp = seriesLock.readLock();
+        try {
+            return writeSeries(data);
+        } finally {
+            seriesLock.unlockRead(stamp);
+        }
+    }
+
+    private boolean writeSeries(MetricData data) {
+        long seriesId = data.getSeriesId();
+        long timestamp = data.getTimestamp();
+        int ordinal = ordinalOf(seriesId, true);
+        int segment = ordinal >>> SEGMENT_SHIFT;
+        int index = ordinal & SEGMENT_MASK;
+        long[] maxTimestamps = maxTimestampSegments[segment];
+        if (maxTimestamps[index] >= timestamp) {
+            log.debug("Abandon metric data, seriesId={}, timestamp={}, maxTimestamp={}",
+                    seriesId, timestamp, maxTimestamps[index]);
+            return false;
+        }
+        long nodeStart = nodeStartFromPos(timestamp);
+        refreshNodeStepSeconds();
+        int step = (int) nodeStepSeconds;
+        Window window = acquireWindow(nodeStart);
+        if (window == null || !window.enter(nodeStart)) {
+            log.debug("Abandon metric data, no writable window, seriesId={}, timestamp={}", seriesId, timestamp);
+            return false;
+        }
+        try {
+            int[] intervals = window.intervalSegment(segment);
+            double[] values = window.valueSegment(segment);
+            int base = index * SLOTS_PER_NODE;
+            if (intervals[index] == 0) {
+                Arrays.fill(values, base, base + SLOTS_PER_NODE, MonitorConstants.VALUE_NOT_EXIST);
+                intervals[index] = step;
+                window.nodeCount.incrementAndGet();
+            }
+            // 修改间隔后的下一分钟才开始存入采集的数据
+            if (intervals[index] == step) {
+                values[base + (int) ((timestamp - nodeStart) / step)] = data.getValue();
+            }
+        } finally {
+            window.exit();
+        }
+        if (writeCounter != null) {
+            writeCounter.increment();
+        }
+        maxTimestamps[index] = timestamp;
+        return true;
+    }
+
+    @Override
+    protected ValueNode getFromCache(long seriesId, long nodeStart) {
+        long stamp = seriesLock.tryOptimisticRead();
+        int ordinal = ordinalOf(seriesId, false);
+        if (ordinal == LongIntHashMap.NO_VALUE) {
+            return null;
+        }
+        for (Window window : windows) {
+            if (window.nodeStart == nodeStart) {
+                ValueNode node = window.toValueNode(ordinal, seriesId, nodeStart);
+                // window may be recycled or the ordinal reused during copying
+                return window.nodeStart == nodeStart && seriesLock.validate(stamp) ? node : null;
+            }
+        }
+        return null;
+    }
+
+    private int ordinalOf(long seriesId, boolean createIfAbsent) {
+        LongIntHashMap stripe = seriesIndex[(int) (seriesId ^ (seriesId >>> 32)) & (INDEX_STRIPES - 1)];
+        synchronized (stripe) {
+            int ordinal = stripe.get(seriesId);
+            if (ordinal != LongIntHashMap.NO_VALUE || !createIfAbsent) {
+                return ordinal;
+            }
+            ordinal = allocateOrdinal();
+            ensureSeriesCapacity(ordinal);
+            seriesIdSegments[ordinal >>> SEGMENT_SHIFT][ordinal & SEGMENT_MASK] = seriesId;
+            stripe.put(seriesId, ordinal);
+            return ordinal;
+        }
+    }
+
+    private int allocateOrdinal() {
+        synchronized (freeOrdinals) {
+            int ordinal = freeOrdinals.nextSetBit(0);
+            if (ordinal >= 0) {
+                freeOrdinals.clear(ordinal);
+                return ordinal;
+            }
+        }
+        return seriesCount.getAndIncrement();
+    }
+
+    private void ensureSeriesCapacity(int ordinal) {
+        int segment = ordinal >>> SEGMENT_SHIFT;
+        if (segment < seriesIdSegments.length) {
+            return;
+        }
+        synchronized (this) {
+            if (segment < seriesIdSegments.length) {
+                return;
+            }
+            long[][] seriesIds = Arrays.copyOf(seriesIdSegments, segment + 1);
+            long[][] maxTimestamps = Arrays.copyOf(maxTimestampSegments, segment + 1);
+            for (int i = seriesIdSegments.length; i <= segment; i++) {
+                seriesIds[i] = new long[SEGMENT_SIZE];
+                maxTimestamps[i] = new long[SEGMENT_SIZE];
+            }
+            this.maxTimestampSegments = maxTimestamps;
+            this.seriesIdSegments = seriesIds;
+        }
+    }
+
+    private Window acquireWindow(long nodeStart) {
+        Window window = findWindow(nodeStart);
+        if (window != null) {
+            return window.dumped ? null : window;
+        }
+        synchronized (windows) {
+            window = findWindow(nodeStart);
+            if (window != null) {
+                return window.dumped ? null : window;
+            }
+            Window candidate = null;
+            for (Window w : windows) {
+                if (w.nodeStart == FREE_WINDOW) {
+                    candidate = w;
+                    break;
+                }
+                if (w.dumped && (candidate == null || w.nodeStart < candidate.nodeStart)) {
+                    candidate = w;
+                }
+            }
+            // never evict newer data for a late node
+            if (candidate == null || candidate.nodeStart > nodeStart) {
+                return null;
+            }
+            if (candidate.nodeStart != FREE_WINDOW) {
+                recycledWindows++;
+            }
+            candidate.reset(nodeStart, false);
+            return candidate;
+        }
+    }
+
+    private Window findWindow(long nodeStart) {
+        for (Window window : windows) {
+            if (window.nodeStart == nodeStart) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    private void dumpValueNode() {
+        dumpValueNode(Instant.now().getEpochSecond());
+    }
+
+    void dumpValueNode(long now) {
+        Window[] sorted = Arrays.copyOf(windows, windows.length);
+        Arrays.sort(sorted, Comparator.comparingLong(w -> w.nodeStart));
+        boolean dumped = false;
+        for (Window window : sorted) {
+            long nodeStart = window.nodeStart;
+            if (nodeStart == FREE_WINDOW || window.dumped) {
+                continue;
+            }
+            long nodeEnd = nodeStart + nodeIntervalSeconds - 1;
+            if (now - nodeEnd <= dumpDelaySecs) {
+                break;
+            }
+            window.seal();
+            try {
+                dumpWindow(window, nodeStart);
+            } catch (Throwable throwable) {
+                log.warn("Dump value node failed.", throwable);
+            } finally {
+                window.dumped = true;
+            }
+            dumped = true;
+        }
+        int recycled = recycledWindows;
+        if (recycled != expiredWindows) {
+            expiredWindows = recycled;
+            expireSeries();
+        }
+        if (dumped) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Release ordinals of series held by no window, so that they are reused by new
+     * series instead of growing series segments and window segments.
+     */
+    private void expireSeries() {
+        int expired = 0;
+        long stamp = seriesLock.writeLock();
+        try {
+            long oldestNodeStart = Long.MAX_VALUE;
+            for (Window window : windows) {
+                long nodeStart = window.nodeStart;
+                if (nodeStart != FREE_WINDOW && nodeStart < oldestNodeStart) {
+                    oldestNodeStart = nodeStart;
+                }
+            }
+            int count = seriesCount.get();
+            long[][] seriesIds = seriesIdSegments;
+            long[][] maxTimestamps = maxTimestampSegments;
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                int segment = ordinal >>> SEGMENT_SHIFT;
+                int index = ordinal & SEGMENT_MASK;
+                if (maxTimestamps[segment][index] >= oldestNodeStart || freeOrdinals.get(ordinal)
+                        || isHeldByWindow(ordinal)) {
+                    continue;
+                }
+                long seriesId = seriesIds[segment][index];
+                LongIntHashMap stripe = seriesIndex[(int) (seriesId ^ (seriesId >>> 32)) & (INDEX_STRIPES - 1)];
+                synchronized (stripe) {
+                    stripe.remove(seriesId);
+                }
+                maxTimestamps[segment][index] = 0L;
+                freeOrdinals.set(ordinal);
+                expired++;
+            }
+        } finally {
+            seriesLock.unlockWrite(stamp);
+        }
+        if (expired > 0) {
+            log.info("Expire series of interval cache, nodeIntervalSeconds={}, expiredCount={}", nodeIntervalSeconds,
+                    expired);
+        }
+    }
+
+    private boolean isHeldByWindow(int ordinal) {
+        for (Window window : windows) {
+            if (window.nodeStart != FREE_WINDOW && window.hasNode(ordinal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int seriesSlots() {
+        return seriesCount.get();
+    }
+
+    @Override
+    protected void collectNodes(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+        long stamp = seriesLock.readLock();
+        try {
+            collectWindows(writingNodes, dumpedNodes);
+        } finally {
+            seriesLock.unlockRead(stamp);
+        }
+    }
+
+    private void collectWindows(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+        int count = seriesCount.get();
+        long[][] seriesIds = seriesIdSegments;
+        for (Window window : windows) {
+            long nodeStart = window.nodeStart;
+            if (nodeStart == FREE_WINDOW) {
+                continue;
+            }
+            boolean dumped = window.dumped;
+            List<ValueNode> nodes = new ArrayList<>(window.nodeCount.get());
+            for (int ordinal = 0; ordinal < count; ordinal++) {
+                ValueNode node = window.toValueNode(ordinal,
+                        seriesIds[ordinal >>> SEGMENT_SHIFT][ordinal & SEGMENT_MASK], nodeStart);
+                if (node != null) {
+                    nodes.add(node);
+                }
+            }
+            // window may be recycled during copying
+            if (window.nodeStart == nodeStart) {
+                (dumped ? dumpedNodes : writingNodes).addAll(nodes);
+            }
+        }
+    }
+
+    @Override
+    protected void restoreNodes(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+        long stamp = seriesLock.readLock();
+        try {
+            restoreWindows(writingNodes, dumpedNodes);
+        } finally {
+            seriesLock.unlockRead(stamp);
+        }
+    }
+
+    private void restoreWindows(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+        int restored = 0;
+        for (List<ValueNode> nodes : Arrays.asList(dumpedNodes, writingNodes)) {
+            boolean dumped = nodes == dumpedNodes;
+            for (ValueNode node : nodes) {
+                Window window = restoreWindow(node.getEpochSecondStart(), dumped);
+                if (window == null || node.getLength() > SLOTS_PER_NODE) {
+                    continue;
+                }
+                int ordinal = ordinalOf(node.getSeriesId(), true);
+                int segment = ordinal >>> SEGMENT_SHIFT;
+                int index = ordinal & SEGMENT_MASK;
+                int[] intervals = window.intervalSegment(segment);
+                double[] values = window.valueSegment(segment);
+                int base = index * SLOTS_PER_NODE;
+                Arrays.fill(values, base, base + SLOTS_PER_NODE, MonitorConstants.VALUE_NOT_EXIST);
+                System.arraycopy(node.getValues(), 0, values, base, node.getLength());
+                if (intervals[index] == 0) {
+                    window.nodeCount.incrementAndGet();
+                }
+                intervals[index] = node.getInterval();
+                long[] maxTimestamps = maxTimestampSegments[segment];
+                maxTimestamps[index] = Math.max(maxTimestamps[index], lastValueTimestamp(node));
+                // the write queue is not persistent, writing dumped nodes again is idempotent
+                if (dumped && writeQueue != null) {
+                    writeQueue.offer(node);
+                }
+                restored++;
+            }
+        }
+        if (restored < writingNodes.size() + dumpedNodes.size()) {
+            log.info("Restore write cache partially, restoredCount={}, totalCount={}", restored,
+                    writingNodes.size() + dumpedNodes.size());
+        }
+    }
+
+    private Window restoreWindow(long nodeStart, boolean dumped) {
+        synchronized (windows) {
+            Window window = findWindow(nodeStart);
+            if (window != null) {
+                return window.dumped == dumped ? window : null;
+            }
+            for (Window w : windows) {
+                if (w.nodeStart == FREE_WINDOW) {
+                    w.reset(nodeStart, dumped);
+                    return w;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void dumpWindow(Window window, long nodeStart) {
+        if (writeQueue == null) {
+            return;
+        }
+        int count = seriesCount.get();
+        long[][] seriesIds = seriesIdSegments;
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            ValueNode node = window.toValueNode(ordinal, seriesIds[ordinal >>> SEGMENT_SHIFT][ordinal & SEGMENT_MASK],
+                    nodeStart);
+            if (node != null) {
+                writeQueue.offer(node);
+            }
+        }
+    }
+
+    @Override
+    @PreDestroy
+    public void destroy() {
+        if (dumpExecutor != null) {
+            ExecutorUtils.shutdown(dumpExecutor, 1);
+        }
+        checkpoint();
+    }
+
+    private final class Window {
+
+        private volatile long nodeStart = FREE_WINDOW;
+        private volatile boolean sealed = false;
+        private volatile boolean dumped = false;
+        private final AtomicInteger writers = new AtomicInteger();
+        private volatile int[][] intervalSegments = new int[0][];
+        private volatile double[][] valueSegments = new double[0][];
+        private final AtomicInteger nodeCount = new AtomicInteger();
+
+        int[] intervalSegment(int segment) {
+            int[][] segments = intervalSegments;
+            if (segment >= segments.length || segments[segment] == null) {
+                ensureSegment(segment);
+                segments = intervalSegments;
+            }
+            return segments[segment];
+        }
+
+        double[] valueSegment(int segment) {
+            double[][] segments = valueSegments;
+            if (segment >= segments.length || segments[segment] == null) {
+                ensureSegment(segment);
+                segments = valueSegments;
+            }
+            return segments[segment];
+        }
+
+        boolean enter(long expectedNodeStart) {
+            writers.incrementAndGet();
+            // reset reopens the window before moving node start, check them in reverse
+            // order
+            if (!sealed && nodeStart == expectedNodeStart) {
+                return true;
+            }
+            writers.decrementAndGet();
+            return false;
+        }
+
+        void exit() {
+            writers.decrementAndGet();
+        }
+
+        void seal() {
+            this.sealed = true;
+            while (writers.get() > 0) {
+                Thread.yield();
+            }
+        }
+
+        boolean hasNode(int ordinal) {
+            int[][] segments = intervalSegments;
+            int segment = ordinal >>> SEGMENT_SHIFT;
+            if (segment >= segments.length) {
+                return false;
+            }
+            int[] intervals = segments[segment];
+            return intervals != null && intervals[ordinal & SEGMENT_MASK] != 0;
+        }
+
+        private synchronized void ensureSegment(int segment) {
+            if (segment < intervalSegments.length && intervalSegments[segment] != null) {
+                return;
+            }
+            int length = Math.max(segment + 1, intervalSegments.length);
+            int[][] intervals = Arrays.copyOf(intervalSegments, length);
+            double[][] values = Arrays.copyOf(valueSegments, length);
+            intervals[segment] = new int[SEGMENT_SIZE];
+            values[segment] = new double[SEGMENT_SIZE * SLOTS_PER_NODE];
+            this.valueSegments = values;
+            this.intervalSegments = intervals;
+        }
+
+        ValueNode toValueNode(int ordinal, long seriesId, long nodeStart) {
+            int segment = ordinal >>> SEGMENT_SHIFT;
+            int index = ordinal & SEGMENT_MASK;
+            int[][] intervalSegments = this.intervalSegments;
+            double[][] valueSegments = this.valueSegments;
+            if (segment >= intervalSegments.length || segment >= valueSegments.length) {
+                return null;
+            }
+            int[] intervals = intervalSegments[segment];
+            double[] values = valueSegments[segment];
+            if (intervals == null || values == null || intervals[index] == 0) {
+                return null;
+            }
+            int interval = intervals[index];
+            int base = index * SLOTS_PER_NODE;
+            int length = (int) (nodeIntervalSeconds / interval);
+            return new ValueNode(seriesId, nodeStart, Arrays.copyOfRange(values, base, base + length), interval);
+        }
+
+        synchronized void reset(long newNodeStart, boolean dumped) {
+            this.nodeStart = FREE_WINDOW;
+            int[][] intervalSegments = this.intervalSegments.clone();
+            double[][] valueSegments = this.valueSegments.clone();
+            for (int segment = 0; segment < intervalSegments.length; segment++) {
+                int[] intervals = intervalSegments[segment];
+                if (intervals == null) {
+                    continue;
+                }
+                if (isIdle(intervals)) {
+                    // no series wrote this segment during the last node, release it
+                    intervalSegments[segment] = null;
+                    valueSegments[segment] = null;
+                } else {
+                    Arrays.fill(intervals, 0);
+                }
+            }
+            this.valueSegments = valueSegments;
+            this.intervalSegments = intervalSegments;
+            nodeCount.set(0);
+            this.dumped = dumped;
+            this.sealed = dumped;
+            this.nodeStart = newNodeStart;
+        }
+
+        private boolean isIdle(int[] intervals) {
+            for (int interval : intervals) {
+                if (interval != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -31,6 +31,7 @@ import com.google.common.base.MoreObjects;
 import com.oceanbase.ocp.monitor.IIntervalMetricDataStore;
 import com.oceanbase.ocp.monitor.constants.MonitorConstants;
 import com.oceanbase.ocp.monitor.meter.CounterGroup;
+import com.oceanbase.ocp.monitor.model.metric.Metric;
 import com.oceanbase.ocp.monitor.model.metric.MetricData;
 import com.oceanbase.ocp.monitor.model.metric.MetricDataRange;
 import com.oceanbase.ocp.monitor.model.metric.MetricLine;
@@ -39,6 +40,7 @@ import com.oceanbase.ocp.monitor.service.SeriesIdKeyService;
 import com.oceanbase.ocp.monitor.storage.IRollupMetricDataDao;
 import com.oceanbase.ocp.monitor.util.TimestampUtils;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
@@ -46,13 +48,14 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class RollupMetricDataStore implements IIntervalMetricDataStore {
 
-    private final IntervalMetricDataCache writeCache;
+    private final AbstractIntervalMetricDataCache writeCache;
     private final IRollupMetricDataDao persistent;
     private final SeriesIdKeyService seriesIdKeyService;
 
     private final CounterGroup metricDataCounter;
+    private final Counter secondDataCounter;
 
-    public RollupMetricDataStore(IntervalMetricDataCache writeCache,
+    public RollupMetricDataStore(AbstractIntervalMetricDataCache writeCache,
             IRollupMetricDataDao persistent, SeriesIdKeyService seriesIdKeyService, MeterRegistry meterRegistry) {
         this.writeCache = writeCache;
         this.persistent = persistent;
@@ -61,6 +64,7 @@ public class RollupMetricDataStore implements IIntervalMetricDataStore {
                 .description("OCP metric lines wrote to cache")
                 .labelNames("type")
                 .build(meterRegistry);
+        this.secondDataCounter = metricDataCounter.of("second");
     }
 
     @Override
@@ -68,17 +72,34 @@ public class RollupMetricDataStore implements IIntervalMetricDataStore {
         if (CollectionUtils.isEmpty(lines)) {
             return 0;
         }
+        // new series of the lines are resolved in one batch
+        List<Metric> metrics = new ArrayList<>(lines.size());
+        for (MetricLine line : lines) {
+            metrics.add(line.getMetric());
+        }
+        Map<String, Long> seriesKey2Id = seriesIdKeyService.getSeriesIds(metrics);
         // use queue, remove object from gc-root asap
         LinkedList<MetricData> dataList = new LinkedList<>();
         MetricLine e;
         while ((e = lines.poll()) != null) {
-            dataList.add(new MetricData(seriesIdKeyService.getSeriesId(e.getMetric()),
+            dataList.add(new MetricData(seriesKey2Id.get(e.getMetric().getSeriesKey()),
                     e.getTimestamp(), e.getValue()));
         }
         metricDataCounter.increment("second", dataList.size());
         return writeCache.writes(dataList);
     }
 
+    @Override
+    public boolean store(Metric metric, double value, long timestamp) {
+        secondDataCounter.increment();
+        return writeCache.write(new MetricData(seriesIdKeyService.getSeriesId(metric), timestamp, value));
+    }
+
+    @Override
+    public SampleBatch newSampleBatch() {
+        return new PendingSeriesBatch();
+    }
+
     @Override
     public MetricDataRange range(Long seriesId, Long start, Long end, Long step) {
         Map<Long, MetricDataRange> seriesId2DataList = ranges(Collections.singletonList(seriesId), start, end, step);
@@ -254,6 +275,33 @@ public class RollupMetricDataStore implements IIntervalMetricDataStore {
         return context;
     }
 
+    /**
+     * Samples of cached series are written at once, samples of unknown series are
+     * buffered until flush and their series are resolved in one batch.
+     */
+    private class PendingSeriesBatch implements SampleBatch {
+
+        private final LinkedList<MetricLine> pending = new LinkedList<>();
+
+        @Override
+        public void add(Metric metric, double value, long timestamp) {
+            Long seriesId = seriesIdKeyService.getCachedSeriesId(metric);
+            if (seriesId == null) {
+                pending.add(new MetricLine(metric, value, timestamp));
+                return;
+            }
+            secondDataCounter.increment();
+            writeCache.write(new MetricData(seriesId, timestamp, value));
+        }
+
+        @Override
+        public void flush() {
+            if (!pending.isEmpty()) {
+                store(pending);
+            }
+        }
+    }
+
     @Data
     private class QueryContext {
 
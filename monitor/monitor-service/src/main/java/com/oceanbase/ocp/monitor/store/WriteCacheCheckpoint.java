@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+
+package com.oceanbase.ocp.monitor.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local checkpoint file of value nodes in a write cache, so that nodes not yet
+ * flushed and recently flushed nodes survive restarting.
+ * <p>
+ * The file is written to a temporary file through memory-mapped regions and
+ * then renamed, so a crash during checkpointing keeps the previous file.
+ * Records are of fixed size so that regions are mapped at record boundaries.
+ * Layout (version 1):
+ *
+ * <pre>
+ * | magic(4) | version(1) | node interval(8) | created second(8) | count(4) | crc32(8) |
+ * { dumped(1) | series id(8) | node start(8) | interval(4) | length(4) | values(8 * 60) } * count
+ * </pre>
+ */
+@Slf4j
+public class WriteCacheCheckpoint {
+
+    static final int MAGIC = 0x4f43504d;
+    static final byte VERSION_1 = 1;
+
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 4 + 8;
+    private static final int CRC_POSITION = HEADER_SIZE - 8;
+    private static final int MAX_NODE_LENGTH = 60;
+    private static final int RECORD_SIZE = 1 + 8 + 8 + 4 + 4 + MAX_NODE_LENGTH * Double.BYTES;
+    private static final int RECORDS_PER_REGION = (64 << 20) / RECORD_SIZE;
+
+    private final Path file;
+    private final long nodeIntervalSeconds;
+
+    public WriteCacheCheckpoint(Path file, long nodeIntervalSeconds) {
+        Validate.notNull(file, "checkpoint file is null");
+        this.file = file;
+        this.nodeIntervalSeconds = nodeIntervalSeconds;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Replace checkpoint file with the nodes.
+     */
+    public void write(List<ValueNode> writingNodes, List<ValueNode> dumpedNodes, long createdSecond)
+            throws IOException {
+        int count = writingNodes.size() + dumpedNodes.size();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            MappedByteBuffer region = null;
+            int index = 0;
+            for (List<ValueNode> nodes : Arrays.asList(writingNodes, dumpedNodes)) {
+                boolean dumped = nodes == dumpedNodes;
+                for (ValueNode node : nodes) {
+                    if (index % RECORDS_PER_REGION == 0) {
+                        region = flushAndMapNext(channel, region, crc, index, count);
+                    }
+                    writeRecord(region, node, dumped);
+                    index++;
+                }
+            }
+            flushAndMapNext(channel, region, crc, index, index);
+            MappedByteBuffer header = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.put(VERSION_1);
+            header.putLong(nodeIntervalSeconds);
+            header.putLong(createdSecond);
+            header.putInt(count);
+            header.putLong(crc.getValue());
+            header.force();
+        }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read nodes of checkpoint file.
+     *
+     * @return null if the file is absent or invalid
+     */
+    public Snapshot read() {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                log.warn("Write cache checkpoint is truncated, file={}", file);
+                return null;
+            }
+            MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.get() != VERSION_1) {
+                log.warn("Unsupported write cache checkpoint, file={}", file);
+                return null;
+            }
+            long interval = header.getLong();
+            if (interval != nodeIntervalSeconds) {
+                log.warn("Node interval of write cache checkpoint mismatch, file={}, interval={}", file, interval);
+                return null;
+            }
+            long createdSecond = header.getLong();
+            int count = header.getInt();
+            long expectedCrc = header.getLong();
+            if (count < 0 || channel.size() != HEADER_SIZE + (long) count * RECORD_SIZE) {
+                log.warn("Write cache checkpoint is truncated, file={}", file);
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            List<ValueNode> writingNodes = new ArrayList<>();
+            List<ValueNode> dumpedNodes = new ArrayList<>();
+            MappedByteBuffer region = null;
+            for (int index = 0; index < count; index++) {
+                if (index % RECORDS_PER_REGION == 0) {
+                    int records = Math.min(RECORDS_PER_REGION, count - index);
+                    region = channel.map(MapMode.READ_ONLY, regionPosition(index), (long) records * RECORD_SIZE);
+                    crc.update(region.duplicate());
+                }
+                boolean dumped = region.get() != 0;
+                ValueNode node = readRecord(region);
+                (dumped ? dumpedNodes : writingNodes).add(node);
+            }
+            if (crc.getValue() != expectedCrc) {
+                log.warn("Checksum of write cache checkpoint mismatch, file={}", file);
+                return null;
+            }
+            return new Snapshot(createdSecond, writingNodes, dumpedNodes);
+        } catch (Exception e) {
+            log.warn("Read write cache checkpoint failed, file={}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Checksum and force the filled region, then map the region of the index.
+     */
+    private static MappedByteBuffer flushAndMapNext(FileChannel channel, MappedByteBuffer region, CRC32 crc,
+            int index, int count) throws IOException {
+        if (region != null) {
+            ByteBuffer written = region.duplicate();
+            written.flip();
+            crc.update(written);
+            region.force();
+        }
+        if (index >= count) {
+            return null;
+        }
+        int records = Math.min(RECORDS_PER_REGION, count - index);
+        return channel.map(MapMode.READ_WRITE, regionPosition(index), (long) records * RECORD_SIZE);
+    }
+
+    private static long regionPosition(int index) {
+        return HEADER_SIZE + (long) index * RECORD_SIZE;
+    }
+
+    private static void writeRecord(ByteBuffer buffer, ValueNode node, boolean dumped) {
+        Validate.isTrue(node.getLength() <= MAX_NODE_LENGTH, "node length exceeds " + MAX_NODE_LENGTH);
+        buffer.put(dumped ? (byte) 1 : (byte) 0);
+        buffer.putLong(node.getSeriesId());
+        buffer.putLong(node.getEpochSecondStart());
+        buffer.putInt(node.getInterval());
+        buffer.putInt(node.getLength());
+        for (int i = 0; i < MAX_NODE_LENGTH; i++) {
+            buffer.putDouble(i < node.getLength() ? node.getValue(i) : 0D);
+        }
+    }
+
+    private static ValueNode readRecord(ByteBuffer buffer) {
+        long seriesId = buffer.getLong();
+        long nodeStart = buffer.getLong();
+        int interval = buffer.getInt();
+        int length = buffer.getInt();
+        Validate.isTrue(length >= 0 && length <= MAX_NODE_LENGTH, "invalid node length");
+        double[] values = new double[length];
+        for (int i = 0; i < MAX_NODE_LENGTH; i++) {
+            double value = buffer.getDouble();
+            if (i < length) {
+                values[i] = value;
+            }
+        }
+        return new ValueNode(seriesId, nodeStart, values, interval);
+    }
+
+    public static class Snapshot {
+
+        private final long createdSecond;
+        private final List<ValueNode> writingNodes;
+        private final List<ValueNode> dumpedNodes;
+
+        Snapshot(long createdSecond, List<ValueNode> writingNodes, List<ValueNode> dumpedNodes) {
+            this.createdSecond = createdSecond;
+            this.writingNodes = Collections.unmodifiableList(writingNodes);
+            this.dumpedNodes = Collections.unmodifiableList(dumpedNodes);
+        }
+
+        public long getCreatedSecond() {
+            return createdSecond;
+        }
+
+        /**
+         * Nodes still being written, which were not flushed yet.
+         */
+        public List<ValueNode> getWritingNodes() {
+            return writingNodes;
+        }
+
+        /**
+         * Nodes already dumped to write queue and kept for reading.
+         */
+        public List<ValueNode> getDumpedNodes() {
+            return dumpedNodes;
+        }
+    }
+
+}
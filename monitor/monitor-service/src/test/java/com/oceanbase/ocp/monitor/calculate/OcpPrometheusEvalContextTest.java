@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.calculate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.model.OcpPrometheusData;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusDataContainer;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusScanResp;
+
+public class OcpPrometheusEvalContextTest {
+
+    private final List<CompletableFuture<List<OcpPrometheusScanResp>>> submitted = new ArrayList<>();
+
+    private final OcpPrometheusEvalContext context = new OcpPrometheusEvalContext(param -> {
+        CompletableFuture<List<OcpPrometheusScanResp>> future = new CompletableFuture<>();
+        submitted.add(future);
+        return future;
+    });
+
+    @Test
+    public void scan_unsharedNotCopied() throws Exception {
+        Future<List<OcpPrometheusScanResp>> future = context.scan(param("ob_sysstat"));
+        List<OcpPrometheusScanResp> data = data();
+        submitted.get(0).complete(data);
+
+        assertSame(data, future.get());
+    }
+
+    @Test
+    public void scan_sharedCopiedExceptLastConsumer() throws Exception {
+        Future<List<OcpPrometheusScanResp>> first = context.scan(param("ob_sysstat"));
+        Future<List<OcpPrometheusScanResp>> second = context.scan(param("ob_sysstat"));
+        assertEquals(1, submitted.size());
+        assertEquals(1, context.getSavedScanCount());
+        List<OcpPrometheusScanResp> data = data();
+        submitted.get(0).complete(data);
+
+        List<OcpPrometheusScanResp> copied = first.get();
+        assertNotSame(data, copied);
+        assertEquals(data, copied);
+        assertSame(data, second.get());
+
+        // data is taken, a later identical scan is submitted again
+        context.scan(param("ob_sysstat"));
+        assertEquals(2, submitted.size());
+    }
+
+    @Test
+    public void cancel_sharedScanKeptForOtherConsumer() throws Exception {
+        Future<List<OcpPrometheusScanResp>> first = context.scan(param("ob_sysstat"));
+        Future<List<OcpPrometheusScanResp>> second = context.scan(param("ob_sysstat"));
+
+        first.cancel(true);
+        assertFalse(submitted.get(0).isCancelled());
+        List<OcpPrometheusScanResp> data = data();
+        submitted.get(0).complete(data);
+        assertSame(data, second.get());
+    }
+
+    @Test
+    public void cancel_lastConsumerCancelsScan() {
+        Future<List<OcpPrometheusScanResp>> first = context.scan(param("ob_sysstat"));
+        Future<List<OcpPrometheusScanResp>> second = context.scan(param("ob_sysstat"));
+
+        first.cancel(true);
+        first.cancel(true);
+        assertFalse(submitted.get(0).isCancelled());
+        second.cancel(true);
+        assertTrue(submitted.get(0).isCancelled());
+
+        // a cancelled scan is not shared
+        assertFalse(context.scan(param("ob_sysstat")).isCancelled());
+        assertEquals(2, submitted.size());
+    }
+
+    private static OcpPrometheusQueryParam param(String metric) {
+        OcpPrometheusQueryParam param = new OcpPrometheusQueryParam();
+        param.setMetric(metric);
+        param.setLabels(Collections.emptyList());
+        param.setStartTime(0L);
+        param.setEndTime(60L);
+        param.setStep(60L);
+        return param;
+    }
+
+    private static List<OcpPrometheusScanResp> data() {
+        OcpPrometheusDataContainer container = new OcpPrometheusDataContainer();
+        container.add(new OcpPrometheusData(60L, 1D));
+        return new ArrayList<>(Collections.singletonList(
+                new OcpPrometheusScanResp("ob_sysstat,stat_id=1", container)));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+
+package com.oceanbase.ocp.monitor.calculate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.calculate.parser.OcpPrometheusQlParser;
+import com.oceanbase.ocp.monitor.constants.VectorSelectorType;
+import com.oceanbase.ocp.monitor.param.OcpPrometheusLabel;
+
+public class OcpPrometheusQueryPlanTest {
+
+    private static final String TEMPLATE = "sum(rate(ob_sysstat{stat_id=\"40000\",@LABELS}[@INTERVAL])) by "
+            + "(svr_ip,@GBLABELS) / (sum(ob_active_session_num{@LABELS}) by (@GBLABELS) + @INTERVAL)";
+
+    @Test
+    public void bind_sameAsParsedExpression() throws Exception {
+        List<OcpPrometheusLabel> labels = Arrays.asList(new OcpPrometheusLabel("tenant_name", "sys"),
+                new OcpPrometheusLabel("ob_cluster_name", "c1"));
+        assertBindEquals("tenant_name=\"sys\",ob_cluster_name=\"c1\"", labels, "tenant_name,obzone");
+    }
+
+    @Test
+    public void bind_regexLabel() throws Exception {
+        List<OcpPrometheusLabel> labels = Collections.singletonList(OcpPrometheusLabel.builder()
+                .labelKey("svr_ip").labelMatch(VectorSelectorType.MATCH_REGEX).labelValue("1.1.1.*").build());
+        assertBindEquals("svr_ip=~\"1.1.1.*\"", labels, "svr_ip");
+    }
+
+    @Test
+    public void bind_withoutLabels() throws Exception {
+        String template = "sum(ob_active_session_num{@LABELS}) by (@GBLABELS)";
+        OcpPrometheusAstNode expected = parse("sum(ob_active_session_num) by (tenant_name)");
+        OcpPrometheusAstNode actual = OcpPrometheusQueryPlan.compile(template)
+                .bind(Collections.emptyList(), Collections.singletonList("tenant_name"), 60L);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void bind_emptyGroupByNotAccepted() throws Exception {
+        OcpPrometheusQueryPlan plan = OcpPrometheusQueryPlan.compile(TEMPLATE);
+        assertNull(plan.bind(Collections.emptyList(), Collections.emptyList(), 60L));
+    }
+
+    private void assertBindEquals(String labelStr, List<OcpPrometheusLabel> labels, String gbLabelStr)
+            throws Exception {
+        OcpPrometheusAstNode expected = parse(TEMPLATE.replace("@LABELS", labelStr)
+                .replace("@GBLABELS", gbLabelStr).replace("@INTERVAL", "60"));
+
+        OcpPrometheusQueryPlan plan = OcpPrometheusQueryPlan.compile(TEMPLATE);
+        List<String> gbLabels = Arrays.asList(gbLabelStr.split(","));
+        OcpPrometheusAstNode first = plan.bind(labels, gbLabels, 60L);
+        OcpPrometheusAstNode second = plan.bind(labels, gbLabels, 60L);
+
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertNotSame(first, second);
+    }
+
+    private static OcpPrometheusAstNode parse(String expression) throws Exception {
+        return new OcpPrometheusQlParser(new StringReader(expression)).parse();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+
+package com.oceanbase.ocp.monitor.calculate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.oceanbase.ocp.core.util.BeanUtils;
+import com.oceanbase.ocp.monitor.calculate.parser.OcpPrometheusQlParser;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusData;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusDataContainer;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryParam;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusQueryResult;
+import com.oceanbase.ocp.monitor.model.OcpPrometheusScanResp;
+import com.oceanbase.ocp.monitor.query.util.MetricQueryScanner;
+
+public class OcpPrometheusVectorEvaluatorTest {
+
+    private static final String EXPR_CONFIG =
+            "../../bootstrap/bootstrap-service/src/main/resources/ocp_bootstrap_definitions/monitor/"
+                    + "ocp_metric_expr_config.yaml";
+    private static final Pattern EXPR_PATTERN = Pattern.compile("^\\s*expr:\\s*'(.*)'\\s*$");
+
+    private static final long START_TIME = 1_700_000_007L;
+    private static final long END_TIME = START_TIME + 3600L;
+    private static final long STEP = 60L;
+
+    @BeforeClass
+    public static void setupScanner() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("metricQueryScanner", new FakeScanner());
+        context.refresh();
+        new BeanUtils().setApplicationContext(context);
+    }
+
+    @Test
+    public void eval_sameAsLegacy_metricExprConfig() throws Exception {
+        List<String> templates = loadTemplates();
+
+        int supported = 0;
+        for (String template : templates) {
+            String expr = template.replace("@LABELS", "ob_cluster_name=\"c1\"")
+                    .replace("@GBLABELS", "svr_ip,tenant_name").replace("@INTERVAL", "120");
+            supported += assertSameAsLegacy(expr) ? 1 : 0;
+            expr = template.replace("@LABELS", "tenant_name!=\"sys\"")
+                    .replace("@GBLABELS", "obzone").replace("@INTERVAL", "60");
+            assertSameAsLegacy(expr);
+        }
+        assertTrue(supported * 2 > templates.size());
+    }
+
+    @Test
+    public void eval_sharedContext_sameAsLegacy() throws Exception {
+        List<String> exprs = new ArrayList<>();
+        for (String template : loadTemplates()) {
+            exprs.add(template.replace("@LABELS", "ob_cluster_name=\"c1\"")
+                    .replace("@GBLABELS", "svr_ip,tenant_name").replace("@INTERVAL", "120"));
+        }
+        exprs.add("ob_sysstat{stat_id=\"1\"}[60]");
+        exprs.add("ob_sysstat{stat_id=\"1\"}[60]");
+
+        OcpPrometheusEvalContext context = new OcpPrometheusEvalContext();
+        for (String expr : exprs) {
+            List<OcpPrometheusQueryResult> expected = parse(expr).eval(START_TIME, END_TIME, STEP);
+            List<OcpPrometheusQueryResult> actual;
+            if (OcpPrometheusVectorEvaluator.supports(parse(expr))) {
+                actual = new OcpPrometheusVectorEvaluator(START_TIME, END_TIME, STEP, context).eval(parse(expr));
+            } else {
+                actual = parse(expr).eval(START_TIME, END_TIME, STEP, context);
+            }
+            assertEquals(expr, expected, actual);
+        }
+        // expressions are evaluated one by one, each takes its scanned data so a later
+        // identical scan is submitted again, scans waited concurrently are shared as
+        // tested by OcpPrometheusEvalContextTest
+        assertTrue(context.getSavedSubtreeCount() > 0);
+        assertTrue(context.getScanCount() > context.getSavedScanCount());
+    }
+
+    @Test
+    public void eval_sameAsLegacy_operators() throws Exception {
+        List<String> exprs = Arrays.asList(
+                "ob_sysstat{stat_id=\"1\"} > 500",
+                "500 <= ob_sysstat{stat_id=\"1\"}",
+                "ob_sysstat{stat_id=\"1\"} <> ob_sysstat{stat_id=\"2\"}",
+                "ob_sysstat{stat_id=\"1\"} == 1",
+                "1 > 2",
+                "2 >= 1",
+                "ob_sysstat{stat_id=\"1\"} / ob_sysstat{stat_id=\"2\"} - 3 * ob_sysstat{stat_id=\"3\"}",
+                "abs(ob_sysstat{stat_id=\"1\"} - ob_sysstat{stat_id=\"2\"})",
+                "round(ob_sysstat{stat_id=\"1\"} / 7)",
+                "ob_sysstat{stat_id=\"1\"} L_FILL_0_ADD ob_sysstat{stat_id=\"2\"}",
+                "ob_sysstat{stat_id=\"1\"} R_FILL_0_ADD ob_sysstat{stat_id=\"2\"}",
+                "ob_sysstat{stat_id=\"1\"} FILL_0_ADD ob_sysstat{stat_id=\"2\"} > 1000",
+                "count(ob_sysstat{stat_id=\"1\"}) by (svr_ip) + max(ob_sysstat{stat_id=\"2\"}) by (svr_ip)",
+                "min(ob_sysstat{stat_id=\"1\"}) by (absent_label)",
+                "avg(delta(ob_sysstat{stat_id=\"1\"}[300])) by (tenant_name)",
+                "count(ob_sysstat{stat_id=\"1\"}[180])",
+                "5 / 0");
+        for (String expr : exprs) {
+            assertTrue(expr, assertSameAsLegacy(expr));
+        }
+    }
+
+    @Test
+    public void supports_rangeSelectorOnlyInIntervalFunction() throws Exception {
+        assertFalse(OcpPrometheusVectorEvaluator.supports(parse("ob_sysstat[60]")));
+        assertFalse(OcpPrometheusVectorEvaluator.supports(parse("abs(ob_sysstat[60])")));
+        assertFalse(OcpPrometheusVectorEvaluator.supports(parse("sum(ob_sysstat[60]) by (svr_ip)")));
+        assertFalse(OcpPrometheusVectorEvaluator.supports(parse("rate(ob_sysstat)")));
+        assertTrue(OcpPrometheusVectorEvaluator.supports(parse("sum(rate(ob_sysstat[60])) by (svr_ip)")));
+    }
+
+    private static List<String> loadTemplates() throws Exception {
+        File file = new File(EXPR_CONFIG);
+        Assume.assumeTrue(file.exists());
+        List<String> templates = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            Matcher matcher = EXPR_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                templates.add(matcher.group(1));
+            }
+        }
+        assertFalse(templates.isEmpty());
+        return templates;
+    }
+
+    /**
+     * @return false if the expression is not supported by vector evaluator
+     */
+    private static boolean assertSameAsLegacy(String expr) throws Exception {
+        if (!OcpPrometheusVectorEvaluator.supports(parse(expr))) {
+            return false;
+        }
+        List<OcpPrometheusQueryResult> expected = parse(expr).eval(START_TIME, END_TIME, STEP);
+        List<OcpPrometheusQueryResult> actual =
+                new OcpPrometheusVectorEvaluator(START_TIME, END_TIME, STEP).eval(parse(expr));
+        assertEquals(expr, expected, actual);
+        return true;
+    }
+
+    private static OcpPrometheusAstNode parse(String expr) throws Exception {
+        return new OcpPrometheusQlParser(new StringReader(expr)).parse();
+    }
+
+    /**
+     * Generates the same random series for the same metric and labels.
+     */
+    private static class FakeScanner extends MetricQueryScanner {
+
+        @Override
+        public Future<List<OcpPrometheusScanResp>> scan(OcpPrometheusQueryParam param) {
+            Random random = new Random(Objects.hash(param.getMetric(), String.valueOf(param.getLabels())));
+            List<OcpPrometheusScanResp> result = new ArrayList<>();
+            for (String svrIp : Arrays.asList("1.1.1.1", "1.1.1.2", "1.1.1.3")) {
+                for (String tenantName : Arrays.asList("sys", "t1")) {
+                    if (random.nextInt(8) == 0) {
+                        continue;
+                    }
+                    String measurement = param.getMetric() + "|svr_ip=" + svrIp + "|tenant_name=" + tenantName
+                            + (random.nextBoolean() ? "|obzone=z1" : "");
+                    OcpPrometheusDataContainer data = new OcpPrometheusDataContainer();
+                    double counter = 0D;
+                    for (long ts = param.getStartTime() / 15 * 15; ts <= param.getEndTime(); ts += 15) {
+                        counter += random.nextInt(1000);
+                        if (random.nextInt(5) == 0) {
+                            continue;
+                        }
+                        double value = random.nextInt(50) == 0 ? Double.NaN
+                                : random.nextBoolean() ? counter : random.nextDouble() * 1000;
+                        data.add(new OcpPrometheusData(ts, value));
+                    }
+                    result.add(new OcpPrometheusScanResp(measurement, data));
+                }
+            }
+            return CompletableFuture.completedFuture(result);
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class MonitorDataRolloverPropertiesTest {
         Map<String, Integer> confMap = new HashMap<>();
         confMap.put(MonitorConstants.TABLE_NAME_SECOND_DATA, 2);
         confMap.put(MonitorConstants.TABLE_NAME_MINUTE_DATA, 3);
+        confMap.put(MonitorConstants.TABLE_NAME_HOUR_DATA, 4);
         customProperties = new MonitorDataRolloverProperties(confMap);
     }
 
@@ -44,4 +45,11 @@ public class MonitorDataRolloverPropertiesTest {
         assertEquals(3, customProperties.getMinuteDataRetentionDays());
     }
 
+    @Test
+    public void getHourDataRetentionDays() {
+        assertEquals(93, defaultProperties.getHourDataRetentionDays());
+
+        assertEquals(4, customProperties.getHourDataRetentionDays());
+    }
+
 }
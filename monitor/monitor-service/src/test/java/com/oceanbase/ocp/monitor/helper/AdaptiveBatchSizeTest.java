@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+    @Test
+    public void record_growWhenFastAndFull() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1000, 100, 1200, 1000L);
+        batchSize.record(1000, 100L);
+        assertEquals(1100, batchSize.get());
+        batchSize.record(500, 100L);
+        assertEquals(1100, batchSize.get());
+        batchSize.record(1100, 100L);
+        batchSize.record(1200, 100L);
+        assertEquals(1200, batchSize.get());
+    }
+
+    @Test
+    public void record_halveWhenSlow() {
+        AdaptiveBatchSize batchSize = new AdaptiveBatchSize(1000, 100, 5000, 1000L);
+        batchSize.record(1000, 2000L);
+        assertEquals(500, batchSize.get());
+        batchSize.record(500, 700L);
+        assertEquals(500, batchSize.get());
+        for (int i = 0; i < 10; i++) {
+            batchSize.record(batchSize.get(), 3000L);
+        }
+        assertEquals(100, batchSize.get());
+    }
+
+}
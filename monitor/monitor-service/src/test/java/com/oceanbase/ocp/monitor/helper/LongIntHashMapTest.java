@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.helper;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void putAndGet_resize() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31L, i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 31L));
+        }
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(1L));
+    }
+
+    @Test
+    public void remove_keepProbeChains() {
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(i, map.remove(i));
+        }
+        assertEquals(LongIntHashMap.NO_VALUE, map.remove(0L));
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? LongIntHashMap.NO_VALUE : i, map.get(i));
+        }
+        map.put(0L, 7);
+        assertEquals(7, map.get(0L));
+        assertEquals(501, map.size());
+    }
+}
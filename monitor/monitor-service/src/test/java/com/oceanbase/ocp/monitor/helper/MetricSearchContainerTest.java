@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.constants.VectorSelectorType;
+import com.oceanbase.ocp.monitor.model.metric.Metric;
+import com.oceanbase.ocp.monitor.param.OcpPrometheusLabel;
+
+public class MetricSearchContainerTest {
+
+    private MetricSearchContainer container;
+
+    @Before
+    public void setup() {
+        container = new MetricSearchContainer("ob_sysstat");
+        container.addIfAbsent(1L, Metric.parse("ob_sysstat|tenant_name=sys|svr_ip=1.1.1.1"));
+        container.addIfAbsent(2L, Metric.parse("ob_sysstat|tenant_name=sys|svr_ip=1.1.1.2"));
+        container.addIfAbsent(3L, Metric.parse("ob_sysstat|tenant_name=Tenant1|svr_ip=1.1.1.1"));
+        container.addIfAbsent(4L, Metric.parse("ob_sysstat|tenant_name=tenant2"));
+        container.addIfAbsent(4L, Metric.parse("ob_sysstat|tenant_name=tenant2"));
+    }
+
+    @Test
+    public void select_eq() {
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_EQ, "sys")), 1L, 2L);
+        assertSeriesIds(select(label("TENANT_NAME", VectorSelectorType.MATCH_EQ, "TENANT1")), 3L);
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_EQ, "sys"),
+                label("svr_ip", VectorSelectorType.MATCH_EQ, "1.1.1.2")), 2L);
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_EQ, "absent")));
+        assertSeriesIds(select(label("absent", VectorSelectorType.MATCH_EQ, "sys")));
+    }
+
+    @Test
+    public void select_neqAndRegex() {
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_NEQ, "sys")), 3L, 4L);
+        assertSeriesIds(select(label("svr_ip", VectorSelectorType.MATCH_NEQ, "1.1.1.2")), 1L, 3L);
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_REGEX, "tenant.*")), 3L, 4L);
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_NOT_REGEX, "tenant.*"),
+                label("svr_ip", VectorSelectorType.MATCH_REGEX, "1.1.1.1|1.1.1.2")), 1L, 2L);
+    }
+
+    @Test
+    public void select_matcherCacheRefreshedOnAdd() {
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_REGEX, "tenant.*")), 3L, 4L);
+        container.addIfAbsent(5L, Metric.parse("ob_sysstat|tenant_name=tenant3"));
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_REGEX, "tenant.*")), 3L, 4L, 5L);
+    }
+
+    @Test
+    public void select_allWithoutLabels() {
+        assertSeriesIds(container.select(Collections.emptyList()), 1L, 2L, 3L, 4L);
+        assertEquals(5, container.keyValueCount());
+    }
+
+    @Test
+    public void addAllIfAbsent_sameAsAddOneByOne() {
+        Map<Long, Metric> seriesId2Metric = new HashMap<>();
+        seriesId2Metric.put(4L, Metric.parse("ob_sysstat|tenant_name=tenant2"));
+        seriesId2Metric.put(5L, Metric.parse("ob_sysstat|tenant_name=tenant3|svr_ip=1.1.1.2"));
+        seriesId2Metric.put(6L, Metric.parse("ob_sysstat|tenant_name=sys|svr_ip=1.1.1.3"));
+        container.addAllIfAbsent(seriesId2Metric);
+
+        assertSeriesIds(container.select(Collections.emptyList()), 1L, 2L, 3L, 4L, 5L, 6L);
+        assertSeriesIds(select(label("svr_ip", VectorSelectorType.MATCH_EQ, "1.1.1.2")), 2L, 5L);
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_REGEX, "tenant.*")), 3L, 4L, 5L);
+        assertEquals(7, container.keyValueCount());
+    }
+
+    @Test
+    public void removeAll_rebuildsIndex() {
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_REGEX, "tenant.*")), 3L, 4L);
+        assertEquals(2, container.removeAll(Arrays.asList(1L, 3L, 100L)));
+
+        assertEquals(2, container.seriesCount());
+        assertSeriesIds(container.select(Collections.emptyList()), 2L, 4L);
+        assertSeriesIds(select(label("tenant_name", VectorSelectorType.MATCH_REGEX, "tenant.*")), 4L);
+        assertSeriesIds(select(label("svr_ip", VectorSelectorType.MATCH_EQ, "1.1.1.1")));
+        assertEquals(3, container.keyValueCount());
+
+        container.addIfAbsent(3L, Metric.parse("ob_sysstat|tenant_name=Tenant1|svr_ip=1.1.1.1"));
+        assertSeriesIds(select(label("svr_ip", VectorSelectorType.MATCH_NEQ, "1.1.1.2")), 3L);
+        assertEquals(0, container.removeAll(Collections.singletonList(1L)));
+        assertTrue(container.estimatedBytes() > 0);
+    }
+
+    private List<Long> select(OcpPrometheusLabel... labels) {
+        return container.select(Arrays.asList(labels));
+    }
+
+    private static OcpPrometheusLabel label(String key, VectorSelectorType match, String value) {
+        return OcpPrometheusLabel.builder().labelKey(key).labelMatch(match).labelValue(value).build();
+    }
+
+    private static void assertSeriesIds(List<Long> actual, Long... expected) {
+        assertEquals(expected.length, actual.size());
+        assertTrue(new HashSet<>(actual).containsAll(Arrays.asList(expected)));
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.query.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.MonitorProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class MetricQueryExecutorTest {
+
+    private SimpleMeterRegistry registry;
+
+    private MetricQueryExecutor executor;
+
+    @Before
+    public void setUp() {
+        MonitorProperties properties = new MonitorProperties();
+        properties.setQueryExecutorSize(1);
+        properties.setScanExecutorSize(2);
+        properties.setQueryExecutorQueueCapacity(1);
+        properties.setQueryTimeoutSeconds(10L);
+        registry = new SimpleMeterRegistry();
+        executor = new MetricQueryExecutor(properties, registry);
+        executor.init();
+    }
+
+    @After
+    public void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    public void submitScan_inheritsDeadlineOfQuery() throws Exception {
+        Future<Long> remaining = executor.submitQuery(
+                () -> executor.submitScan(MetricQueryExecutor::remainingMillis).get(), executor.newDeadline());
+
+        long remainingMillis = remaining.get(5, TimeUnit.SECONDS);
+        assertTrue("remaining=" + remainingMillis, remainingMillis > 0L && remainingMillis <= 10_000L);
+        assertEquals(Long.MAX_VALUE, executor.submitScan(MetricQueryExecutor::remainingMillis).get().longValue());
+        assertEquals(Long.MAX_VALUE, MetricQueryExecutor.remainingMillis());
+    }
+
+    @Test
+    public void submitQuery_deadlineExceededBeforeRun() throws Exception {
+        Future<Boolean> future = executor.submitQuery(() -> true, System.currentTimeMillis() - 1L);
+
+        assertCancelled(future);
+        assertEquals(0.0, timeouts("query"), 0.0);
+    }
+
+    @Test
+    public void checkDeadline_scanDeadlineExceeded() throws Exception {
+        Future<Boolean> future = executor.submitQuery(() -> executor.submitScan(() -> {
+            Thread.sleep(50L);
+            executor.checkDeadline("scan");
+            return true;
+        }).get(), System.currentTimeMillis() + 20L);
+
+        assertCancelled(future);
+        assertEquals(1.0, timeouts("scan"), 0.0);
+    }
+
+    @Test
+    public void checkDeadline_withinDeadline() throws Exception {
+        Future<Boolean> future = executor.submitQuery(() -> {
+            executor.checkDeadline("scan");
+            return true;
+        }, executor.newDeadline());
+
+        assertTrue(future.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, timeouts("scan"), 0.0);
+    }
+
+    @Test
+    public void submitQuery_saturatedRunsInCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        futures.add(executor.submitQuery(() -> {
+            started.countDown();
+            release.await();
+            return Thread.currentThread().getName();
+        }, executor.newDeadline()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        futures.add(executor.submitQuery(() -> Thread.currentThread().getName(), executor.newDeadline()));
+
+        Future<String> callerRun =
+                executor.submitQuery(() -> Thread.currentThread().getName(), executor.newDeadline());
+        assertTrue(callerRun.isDone());
+        assertEquals(Thread.currentThread().getName(), callerRun.get());
+        assertEquals(1.0, registry.get("ocp_monitor_query_caller_runs").tag("pool", "query").counter().count(),
+                0.0);
+        assertEquals(Long.MAX_VALUE, MetricQueryExecutor.remainingMillis());
+
+        release.countDown();
+        for (Future<String> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("pool-metric-query-"));
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submitQuery_afterDestroy() {
+        executor.destroy();
+        executor.submitQuery(() -> true, executor.newDeadline());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void submitScan_afterDestroy() {
+        executor.destroy();
+        executor.submitScan(() -> true);
+    }
+
+    @Test
+    public void destroy_queuedTasksCancelled() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<Boolean> running = executor.submitQuery(() -> {
+            started.countDown();
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                    // keep running until released, so the queued task is not run
+                }
+            }
+            return true;
+        }, executor.newDeadline());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Boolean> queued = executor.submitQuery(() -> true, executor.newDeadline());
+
+        executor.destroy();
+        assertTrue(queued.isCancelled());
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+    }
+
+    private double timeouts(String pool) {
+        return registry.find("ocp_monitor_query_timeouts").tag("pool", pool).counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+    }
+
+    private static void assertCancelled(Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("deadline exceeded expected");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof ExecutionException) {
+                cause = cause.getCause();
+            }
+            assertTrue(String.valueOf(cause), cause instanceof CancellationException);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import com.oceanbase.ocp.monitor.MonitorProperties;
+import com.oceanbase.ocp.monitor.model.metric.Metric;
+import com.oceanbase.ocp.monitor.param.OcpPrometheusLabel;
+import com.oceanbase.ocp.monitor.storage.SeriesKeyIdPersistent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SeriesIdKeyServiceTest {
+
+    private static final String METRIC = "ob_sql_count";
+
+    private final InMemorySeriesKeyIdPersistent persistent = new InMemorySeriesKeyIdPersistent();
+    private final AtomicLong now = new AtomicLong(1_000L);
+    private SeriesIdKeyService service;
+
+    @Before
+    public void setup() {
+        MonitorProperties properties = new MonitorProperties();
+        properties.setSeriesIdleSeconds(60L);
+        service = new SeriesIdKeyService(persistent, Caffeine.newBuilder().build(), new SimpleMeterRegistry(),
+                properties, now::get);
+        service.initialLoad();
+    }
+
+    @Test
+    public void evict_queryReloadsMatchedSeriesOnly() {
+        Map<String, Long> seriesIds = service.getSeriesIds(Arrays.asList(metric("t1"), metric("t2")));
+        now.addAndGet(120L);
+        service.evictIdleSeries();
+        assertEquals(0, service.cacheSize());
+        assertEquals(2, service.evictedCount(METRIC));
+
+        List<Long> matched = service.matchSeriesIds(METRIC, tenant("t1"));
+        assertEquals(Collections.singletonList(seriesIds.get(metric("t1").getSeriesKey())), matched);
+        assertEquals(1, service.cacheSize());
+        assertEquals(1, service.evictedCount(METRIC));
+
+        assertTrue(service.matchSeriesIds(METRIC, tenant("t3")).isEmpty());
+        assertEquals(1, service.evictedCount(METRIC));
+
+        matched = service.matchSeriesIds(METRIC, tenant("t2"));
+        assertEquals(Collections.singletonList(seriesIds.get(metric("t2").getSeriesKey())), matched);
+        assertEquals(0, service.evictedCount(METRIC));
+        assertEquals(2, service.matchSeriesIds(METRIC, Collections.emptyList()).size());
+        // reloading never scans metadb
+        assertEquals(1, persistent.queries.get());
+    }
+
+    @Test
+    public void evict_writtenSeriesNoLongerEvicted() {
+        Map<String, Long> seriesIds = service.getSeriesIds(Arrays.asList(metric("t1"), metric("t2")));
+        now.addAndGet(120L);
+        service.evictIdleSeries();
+
+        Long seriesId = service.getSeriesId(metric("t2"));
+        assertEquals(seriesIds.get(metric("t2").getSeriesKey()), seriesId);
+        assertEquals(2, persistent.queries.get());
+        assertEquals(1, service.evictedCount(METRIC));
+
+        assertEquals(2, service.matchSeriesIds(METRIC, Collections.emptyList()).size());
+        assertEquals(0, service.evictedCount(METRIC));
+    }
+
+    private static Metric metric(String tenantName) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("app", "OB");
+        labels.put("tenant_name", tenantName);
+        return new Metric(METRIC, labels);
+    }
+
+    private static List<OcpPrometheusLabel> tenant(String tenantName) {
+        return Collections.singletonList(new OcpPrometheusLabel("tenant_name", tenantName));
+    }
+
+    private static class InMemorySeriesKeyIdPersistent extends SeriesKeyIdPersistent {
+
+        private final Map<String, Long> seriesKey2Id = new HashMap<>();
+        private final AtomicInteger queries = new AtomicInteger();
+
+        @Override
+        public Map<String, Long> querySeriesIds(Collection<String> seriesKeys) {
+            queries.incrementAndGet();
+            Map<String, Long> found = new HashMap<>();
+            for (String seriesKey : seriesKeys) {
+                if (seriesKey2Id.containsKey(seriesKey)) {
+                    found.put(seriesKey, seriesKey2Id.get(seriesKey));
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void replaceSeriesKeyIds(Map<String, Long> seriesKey2Id) {
+            this.seriesKey2Id.putAll(seriesKey2Id);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+import com.oceanbase.ocp.monitor.model.storage.ValueNodeKey;
+
+public class HourRollupMarksTest {
+
+    private static final long HOUR = MonitorConstants.HOUR_SECONDS;
+
+    private final InMemoryHourDao hourDao = new InMemoryHourDao();
+
+    @Test
+    public void resumeHour_noMarks() {
+        HourRollupMarks marks = new HourRollupMarks(hourDao);
+        long completedEnd = hourDao.nodeStartFromPos(1_700_000_000L) + 10 * HOUR;
+
+        assertNull(marks.firstMarkedHour());
+        assertNull(marks.lastMarkedHour());
+        assertEquals(hourDao.nodeStartFromPos(completedEnd - HOUR), marks.resumeHour(completedEnd));
+    }
+
+    @Test
+    public void resumeHour_afterRestart_noGap() {
+        long nodeStart = hourDao.nodeStartFromPos(1_700_000_000L);
+        long first = nodeStart + 50 * HOUR;
+        long lastRolled = nodeStart + 55 * HOUR;
+        HourRollupMarks before = new HourRollupMarks(hourDao);
+        for (long hour = first; hour <= lastRolled; hour += HOUR) {
+            before.mark(hour);
+        }
+
+        // down for more than one hour node, completed end lies in a later node
+        long completedEnd = nodeStart + 130 * HOUR;
+        HourRollupMarks after = new HourRollupMarks(hourDao);
+        long resume = after.resumeHour(completedEnd);
+        assertEquals(lastRolled + HOUR, resume);
+        assertEquals(Long.valueOf(first), after.firstMarkedHour());
+
+        for (long hour = resume; hour < completedEnd; hour += HOUR) {
+            after.mark(hour);
+        }
+        for (long hour = first; hour < completedEnd; hour += HOUR) {
+            assertTrue("hour not rolled up: " + hour, hourDao.isMarked(hour));
+        }
+        assertEquals(Long.valueOf(completedEnd - HOUR), after.lastMarkedHour());
+        assertEquals(completedEnd, after.resumeHour(completedEnd));
+    }
+
+    private static class InMemoryHourDao extends MetricDataDao {
+
+        private final Map<ValueNodeKey, RollupNode> nodes = new HashMap<>();
+
+        InMemoryHourDao() {
+            super(MonitorConstants.TABLE_NAME_HOUR_DATA, (int) MonitorConstants.HOUR_SECONDS, null, null);
+        }
+
+        @Override
+        public int writeSlots(Collection<RollupNode> partialNodes) {
+            for (RollupNode partial : partialNodes) {
+                RollupNode node = nodes.get(partial.getKey());
+                if (node == null) {
+                    nodes.put(partial.getKey(), partial);
+                } else {
+                    node.merge(partial);
+                }
+            }
+            return partialNodes.size();
+        }
+
+        @Override
+        public List<RollupNode> getRollupNodes(List<Long> seriesIds, long nodeStart) {
+            List<RollupNode> result = new ArrayList<>();
+            for (Long seriesId : seriesIds) {
+                RollupNode node = nodes.get(new ValueNodeKey(seriesId, nodeStart));
+                if (node != null) {
+                    result.add(node);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Long minNodeStart(long seriesId) {
+            return nodes.keySet().stream().filter(k -> k.getSeriesId() == seriesId)
+                    .map(ValueNodeKey::getEpochSecondStart).min(Long::compare).orElse(null);
+        }
+
+        @Override
+        public Long maxNodeStart(long seriesId) {
+            return nodes.keySet().stream().filter(k -> k.getSeriesId() == seriesId)
+                    .map(ValueNodeKey::getEpochSecondStart).max(Long::compare).orElse(null);
+        }
+
+        boolean isMarked(long hour) {
+            RollupNode node = nodes.get(new ValueNodeKey(HourRollupMarks.MARK_SERIES_ID, nodeStartFromPos(hour)));
+            return node != null && node.hasSlot(offsetInNode(hour));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+
+public class MetricDataWriteQueueTest {
+
+    @Test
+    public void offer_sameSubpartitionSameShard() {
+        MetricDataWriteQueue queue = new MetricDataWriteQueue(1000, 4);
+        assertEquals(queue.shardOf(7L), queue.shardOf(37L));
+        assertEquals(queue.shardOf(7L), queue.shardOf(-7L));
+        for (long seriesId = 0; seriesId < 100; seriesId++) {
+            assertTrue(queue.offer(new ValueNode(seriesId, 0L)));
+        }
+        assertEquals(100, queue.size());
+
+        LinkedList<ValueNode> nodes = queue.poll(queue.shardOf(7L), 100);
+        assertFalse(nodes.isEmpty());
+        for (ValueNode node : nodes) {
+            assertEquals(queue.shardOf(7L), queue.shardOf(node.getSeriesId()));
+        }
+        assertEquals(100 - nodes.size(), queue.poll(1000).size());
+    }
+
+    @Test
+    public void offer_dropWhenShardFull() {
+        MetricDataWriteQueue queue = new MetricDataWriteQueue(2, 1);
+        int offered = 0;
+        for (long seriesId = 0; seriesId < 5; seriesId++) {
+            offered += queue.offer(new ValueNode(seriesId, 0L)) ? 1 : 0;
+        }
+        assertEquals(3, offered);
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    public void offer_busyShardUsesSharedCapacity() {
+        MetricDataWriteQueue queue = new MetricDataWriteQueue(8, 4);
+        int offered = 0;
+        for (long k = 0; k < 12; k++) {
+            offered += queue.offer(new ValueNode(7L + k * 30, 0L)) ? 1 : 0;
+        }
+        assertEquals(9, offered);
+        assertFalse(queue.offer(new ValueNode(8L, 0L)));
+
+        assertEquals(2, queue.poll(queue.shardOf(7L), 2).size());
+        assertTrue(queue.offer(new ValueNode(8L, 0L)));
+        assertEquals(8, queue.size());
+    }
+
+}
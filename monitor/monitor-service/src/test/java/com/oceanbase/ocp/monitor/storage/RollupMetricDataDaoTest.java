@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+
+public class RollupMetricDataDaoTest {
+
+    @Test
+    public void write_onlyBadRowFails() {
+        FakeJdbcTemplate jdbcTemplate = new FakeJdbcTemplate();
+        jdbcTemplate.badSeriesIds.add(42L);
+        RollupMetricDataDao dao = new RollupMetricDataDao("metric_data_minute", jdbcTemplate, null);
+
+        assertEquals(299, dao.write(nodes(300)));
+        assertEquals(299, jdbcTemplate.writtenSeriesIds.size());
+        // 200 + 100 rows, then halves of the 200 rows down to the bad row
+        assertEquals(2 + 2 * 8, jdbcTemplate.statements);
+    }
+
+    @Test
+    public void write_noSplitWhenUnreachable() {
+        FakeJdbcTemplate jdbcTemplate = new FakeJdbcTemplate();
+        jdbcTemplate.unreachable = true;
+        RollupMetricDataDao dao = new RollupMetricDataDao("metric_data_minute", jdbcTemplate, null);
+
+        assertEquals(0, dao.write(nodes(300)));
+        assertEquals(2, jdbcTemplate.statements);
+    }
+
+    private static List<ValueNode> nodes(int count) {
+        List<ValueNode> nodes = new ArrayList<>(count);
+        for (long seriesId = 0; seriesId < count; seriesId++) {
+            nodes.add(new ValueNode(seriesId, 60L, new double[] {1D, 2D}, 60));
+        }
+        return nodes;
+    }
+
+    /**
+     * Multi-row upsert failing as a whole if any of its rows is bad.
+     */
+    private static class FakeJdbcTemplate extends JdbcTemplate {
+
+        final Set<Long> badSeriesIds = new HashSet<>();
+        final Set<Long> writtenSeriesIds = new HashSet<>();
+        boolean unreachable = false;
+        int statements = 0;
+
+        @Override
+        public int update(String sql, Object[] args, int[] argTypes) throws DataAccessException {
+            statements++;
+            if (unreachable) {
+                throw new DataAccessResourceFailureException("unreachable");
+            }
+            List<Long> seriesIds = new ArrayList<>();
+            for (int i = 0; i < args.length; i += 4) {
+                seriesIds.add((Long) args[i]);
+            }
+            for (Long seriesId : seriesIds) {
+                if (badSeriesIds.contains(seriesId)) {
+                    throw new DataIntegrityViolationException("bad row " + seriesId);
+                }
+            }
+            writtenSeriesIds.addAll(seriesIds);
+            return seriesIds.size();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import static com.oceanbase.ocp.monitor.constants.MonitorConstants.VALUE_NOT_EXIST;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class RollupNodeTest {
+
+    private static final long HOUR_START = 1_700_000_000L / 3600 * 3600;
+
+    @Test
+    public void aggregate_rawValues() {
+        double[] seconds = new double[60];
+        Arrays.fill(seconds, VALUE_NOT_EXIST);
+        seconds[0] = 4D;
+        seconds[15] = 2D;
+        seconds[30] = 9D;
+        seconds[45] = 5D;
+
+        RollupNode node = new RollupNode(1L, HOUR_START, 60);
+        assertTrue(node.aggregate(3, seconds));
+
+        assertEquals(4D, node.getValues()[3], 0D);
+        assertEquals(2D, node.getMin(3), 0D);
+        assertEquals(9D, node.getMax(3), 0D);
+        assertEquals(5D, node.getAvg(3), 0D);
+        assertEquals(4D, node.getCount(3), 0D);
+        assertEquals(5D, node.getLast(3), 0D);
+        assertFalse(node.hasSlot(2));
+        assertEquals(VALUE_NOT_EXIST, node.getAvg(2), 0D);
+    }
+
+    @Test
+    public void aggregate_allInvalid() {
+        double[] seconds = new double[60];
+        Arrays.fill(seconds, VALUE_NOT_EXIST);
+        RollupNode node = new RollupNode(1L, HOUR_START, 60);
+        assertFalse(node.aggregate(0, seconds));
+        assertFalse(node.hasSlot(0));
+    }
+
+    @Test
+    public void aggregate_finerNode() {
+        RollupNode minuteNode = new RollupNode(1L, HOUR_START, 60);
+        minuteNode.setSlot(1, 3D, 1D, 6D, 12D, 4D, 2D);
+        minuteNode.setSlot(7, 8D, 0D, 10D, 8D, 2D, 7D);
+
+        RollupNode hourNode = new RollupNode(1L, 0L, 3600);
+        assertTrue(hourNode.aggregate(5, minuteNode));
+
+        assertEquals(3D, hourNode.getValues()[5], 0D);
+        assertEquals(0D, hourNode.getMin(5), 0D);
+        assertEquals(10D, hourNode.getMax(5), 0D);
+        assertEquals(20D / 6D, hourNode.getAvg(5), 1e-9);
+        assertEquals(6D, hourNode.getCount(5), 0D);
+        assertEquals(7D, hourNode.getLast(5), 0D);
+        assertEquals(3600, hourNode.toValueNode().getInterval());
+    }
+
+    @Test
+    public void merge_keepsExistingSlots() {
+        RollupNode existing = RollupNode.fromValues(1L, HOUR_START, 60, new double[60]);
+        RollupNode partial = new RollupNode(1L, HOUR_START, 60);
+        partial.setSlot(2, 5D, 5D, 5D, 5D, 1D, 5D);
+
+        existing.merge(partial);
+
+        assertEquals(0D, existing.getValues()[1], 0D);
+        assertEquals(5D, existing.getValues()[2], 0D);
+        assertEquals(60D, Arrays.stream(existing.getAggregates()[3]).sum(), 0D);
+    }
+
+    @Test
+    public void aggregatesConverter_roundTrip() {
+        RollupNode node = new RollupNode(1L, HOUR_START, 60);
+        node.setSlot(0, 1.5D, 1D, 2D, 3D, 2D, 2D);
+        node.setSlot(59, 100D, 100D, 100D, 100D, 1D, 100D);
+
+        RollupAggregatesConverter converter = new RollupAggregatesConverter();
+        double[][] aggregates = node.getAggregates();
+        double[][] decoded = converter.convertToLeft(converter.convertToRight(aggregates));
+
+        assertEquals(aggregates.length, decoded.length);
+        for (int i = 0; i < aggregates.length; i++) {
+            assertArrayEquals(aggregates[i], decoded[i], 0D);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.common.util.encode.DoubleArrayToByteArrayConverter;
+import com.oceanbase.ocp.monitor.constants.MonitorConstants;
+
+public class ValueNodeDataConverterTest {
+
+    private final ValueNodeDataConverter converter = new ValueNodeDataConverter();
+
+    @Test
+    public void convert_sparseNode() {
+        double[] values = emptyValues(60);
+        values[0] = 12.5D;
+        values[15] = 12.5D;
+        values[30] = 13.0D;
+        values[45] = 0D;
+
+        byte[] bytes = converter.convertToRight(values);
+
+        assertTrue(ValueNodeDataConverter.isEncoded(bytes));
+        assertTrue(bytes.length < 60 * Double.BYTES / 10);
+        assertArrayEquals(values, converter.convertToLeft(bytes), 0D);
+    }
+
+    @Test
+    public void convert_constantNode() {
+        double[] values = new double[60];
+        Arrays.fill(values, 1024D);
+
+        byte[] bytes = converter.convertToRight(values);
+
+        assertTrue(ValueNodeDataConverter.isEncoded(bytes));
+        assertArrayEquals(values, converter.convertToLeft(bytes), 0D);
+    }
+
+    @Test
+    public void convert_randomNode_fallbackToRaw() {
+        Random random = new Random(42);
+        double[] values = new double[60];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 1e9;
+        }
+
+        byte[] bytes = converter.convertToRight(values);
+
+        assertTrue(bytes.length <= 60 * Double.BYTES);
+        assertArrayEquals(values, converter.convertToLeft(bytes), 0D);
+    }
+
+    @Test
+    public void convert_counterNode() {
+        double[] values = new double[60];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000_000D + i * 37;
+        }
+
+        byte[] bytes = converter.convertToRight(values);
+
+        assertArrayEquals(values, converter.convertToLeft(bytes), 0D);
+    }
+
+    @Test
+    public void convertToLeft_rawData() {
+        double[] values = emptyValues(60);
+        values[3] = 7D;
+        byte[] raw = new DoubleArrayToByteArrayConverter().convertToRight(values);
+
+        assertFalse(ValueNodeDataConverter.isEncoded(raw));
+        assertArrayEquals(values, converter.convertToLeft(raw), 0D);
+    }
+
+    @Test
+    public void convertToRight_encodingDisabled() {
+        double[] values = emptyValues(60);
+
+        byte[] bytes = new ValueNodeDataConverter(false).convertToRight(values);
+
+        assertEquals(60 * Double.BYTES, bytes.length);
+        assertArrayEquals(values, converter.convertToLeft(bytes), 0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convertToLeft_unknownVersion() {
+        converter.convertToLeft(new byte[] {ValueNodeDataConverter.MAGIC, 99, 1});
+    }
+
+    private static double[] emptyValues(int length) {
+        double[] values = new double[length];
+        Arrays.fill(values, MonitorConstants.VALUE_NOT_EXIST);
+        return values;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.store;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oceanbase.ocp.monitor.model.metric.MetricData;
+import com.oceanbase.ocp.monitor.model.storage.ValueNode;
+
+public class IntervalMetricDataCacheTest {
+
+    private static final long HOUR_SECONDS = 3600L;
+    private static final long NODE_START = 1_700_000_000L / HOUR_SECONDS * HOUR_SECONDS;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path file;
+
+    private IntervalMetricDataCache cache;
+
+    @Before
+    public void setup() {
+        file = temporaryFolder.getRoot().toPath().resolve("cache.checkpoint");
+        cache = new IntervalMetricDataCache(2, HOUR_SECONDS, null, 10);
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    public void checkpoint_restoreWritingNodes() {
+        cache.enableCheckpoint(new WriteCacheCheckpoint(file, HOUR_SECONDS));
+        assertTrue(cache.write(new MetricData(1L, NODE_START, 1D)));
+        assertTrue(cache.write(new MetricData(1L, NODE_START + 120, 3D)));
+        assertTrue(cache.write(new MetricData(2L, NODE_START + HOUR_SECONDS, 2D)));
+        cache.checkpoint();
+
+        IntervalMetricDataCache restored = new IntervalMetricDataCache(2, HOUR_SECONDS, null, 10);
+        try {
+            restored.enableCheckpoint(new WriteCacheCheckpoint(file, HOUR_SECONDS));
+            List<MetricData> series1 = restored.series(1L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L);
+            assertEquals(Arrays.asList(new MetricData(1L, NODE_START, 1D), new MetricData(1L, NODE_START + 120, 3D)),
+                    series1);
+            assertEquals(1, restored.series(2L, NODE_START, NODE_START + 2 * HOUR_SECONDS - 1, 60L).size());
+            assertEquals(2, restored.wCacheSize());
+            assertEquals(NODE_START, restored.getCacheStartSecond());
+            assertFalse(restored.write(new MetricData(1L, NODE_START + 60, 2D)));
+            assertTrue(restored.write(new MetricData(1L, NODE_START + 180, 4D)));
+        } finally {
+            restored.destroy();
+        }
+    }
+
+    @Test
+    public void checkpoint_roundTripDumpedNodes() throws IOException {
+        ValueNode writing = node(1L, NODE_START + HOUR_SECONDS, 0, 5D);
+        ValueNode dumped1 = node(1L, NODE_START, 2, 1D);
+        ValueNode dumped2 = node(2L, NODE_START, 3, 2D);
+        new WriteCacheCheckpoint(file, HOUR_SECONDS).write(Collections.singletonList(writing),
+                Arrays.asList(dumped1, dumped2), NODE_START + HOUR_SECONDS);
+
+        cache.enableCheckpoint(new WriteCacheCheckpoint(file, HOUR_SECONDS));
+        assertEquals(2, cache.rCacheSize());
+        assertEquals(1, cache.wCacheSize());
+        assertEquals(NODE_START, cache.getCacheStartSecond());
+        assertEquals(Collections.singletonList(new MetricData(2L, NODE_START + 180, 2D)),
+                cache.series(2L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L));
+        assertEquals(Arrays.asList(new MetricData(1L, NODE_START + 120, 1D),
+                new MetricData(1L, NODE_START + HOUR_SECONDS, 5D)),
+                cache.series(1L, NODE_START, NODE_START + 2 * HOUR_SECONDS - 1, 60L));
+        assertFalse(cache.write(new MetricData(1L, NODE_START + HOUR_SECONDS, 6D)));
+
+        cache.checkpoint();
+        WriteCacheCheckpoint.Snapshot snapshot = new WriteCacheCheckpoint(file, HOUR_SECONDS).read();
+        assertNodesEqual(Collections.singletonList(writing), snapshot.getWritingNodes());
+        assertNodesEqual(Arrays.asList(dumped1, dumped2), snapshot.getDumpedNodes());
+    }
+
+    private static ValueNode node(long seriesId, long nodeStart, int offset, double value) {
+        ValueNode node = new ValueNode(seriesId, nodeStart, (int) (HOUR_SECONDS / 60), 60);
+        node.setValue(offset, value);
+        return node;
+    }
+
+    private static void assertNodesEqual(List<ValueNode> expected, List<ValueNode> nodes) {
+        assertEquals(expected.size(), nodes.size());
+        List<ValueNode> actual = new ArrayList<>(nodes);
+        actual.sort(Comparator.comparingLong(ValueNode::getSeriesId).thenComparingLong(ValueNode::getEpochSecondStart));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSeriesId(), actual.get(i).getSeriesId());
+            assertEquals(expected.get(i).getEpochSecondStart(), actual.get(i).getEpochSecondStart());
+            assertEquals(expected.get(i).getInterval(), actual.get(i).getInterval());
+            assertArrayEquals(expected.get(i).getValues(), actual.get(i).getValues(), 0D);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.oceanbase.ocp.monitor.model.metric.MetricData;
+
+public class PrimitiveIntervalMetricDataCacheTest {
+
+    private static final long HOUR_SECONDS = 3600L;
+    private static final long NODE_START = 1_700_000_000L / HOUR_SECONDS * HOUR_SECONDS;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PrimitiveIntervalMetricDataCache cache;
+
+    @Before
+    public void setup() {
+        cache = new PrimitiveIntervalMetricDataCache(2, HOUR_SECONDS, null, 10);
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    public void writeAndRead() {
+        assertTrue(cache.write(new MetricData(1L, NODE_START, 1D)));
+        assertTrue(cache.write(new MetricData(1L, NODE_START + 120, 3D)));
+        assertTrue(cache.write(new MetricData(2L, NODE_START + 60, 2D)));
+
+        List<MetricData> series1 = cache.series(1L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L);
+        assertEquals(2, series1.size());
+        assertEquals(new MetricData(1L, NODE_START, 1D), series1.get(0));
+        assertEquals(new MetricData(1L, NODE_START + 120, 3D), series1.get(1));
+
+        List<MetricData> series2 = cache.series(2L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L);
+        assertEquals(1, series2.size());
+        assertEquals(2, cache.wCacheSize());
+        assertEquals(NODE_START, cache.getCacheStartSecond());
+    }
+
+    @Test
+    public void write_outOfOrder() {
+        assertTrue(cache.write(new MetricData(1L, NODE_START + 120, 1D)));
+        assertFalse(cache.write(new MetricData(1L, NODE_START + 60, 2D)));
+    }
+
+    @Test
+    public void write_manySeriesAcrossNodes() {
+        for (long seriesId = 0; seriesId < 3000; seriesId++) {
+            assertTrue(cache.write(new MetricData(seriesId, NODE_START, (double) seriesId)));
+            assertTrue(cache.write(new MetricData(seriesId, NODE_START + HOUR_SECONDS, seriesId + 1D)));
+        }
+
+        List<MetricData> series = cache.series(2999L, NODE_START, NODE_START + 2 * HOUR_SECONDS - 1, 60L);
+        assertEquals(2, series.size());
+        assertEquals(2999D, series.get(0).getValue(), 0D);
+        assertEquals(3000D, series.get(1).getValue(), 0D);
+        assertEquals(6000, cache.wCacheSize());
+    }
+
+    @Test
+    public void read_absentSeries() {
+        assertTrue(cache.series(42L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L).isEmpty());
+    }
+
+    @Test
+    public void dump_rejectLateWrites() {
+        assertTrue(cache.write(new MetricData(1L, NODE_START, 1D)));
+        cache.dumpValueNode(NODE_START + 2 * HOUR_SECONDS);
+
+        assertFalse(cache.write(new MetricData(1L, NODE_START + 60, 2D)));
+        assertEquals(1, cache.rCacheSize());
+        assertEquals(0, cache.wCacheSize());
+        assertEquals(1, cache.series(1L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L).size());
+    }
+
+    @Test
+    public void expire_reuseOrdinals() {
+        for (long seriesId = 0; seriesId < 2000; seriesId++) {
+            assertTrue(cache.write(new MetricData(seriesId, NODE_START, (double) seriesId)));
+        }
+        for (int node = 1; node < 4; node++) {
+            assertTrue(cache.write(new MetricData(0L, NODE_START + node * HOUR_SECONDS, (double) node)));
+        }
+        cache.dumpValueNode(NODE_START + 10 * HOUR_SECONDS);
+        assertEquals(2003, cache.rCacheSize());
+
+        // recycles the window of the first node
+        assertTrue(cache.write(new MetricData(0L, NODE_START + 4 * HOUR_SECONDS, 4D)));
+        cache.dumpValueNode(NODE_START + 10 * HOUR_SECONDS);
+        for (long seriesId = 5000; seriesId < 6999; seriesId++) {
+            assertTrue(cache.write(new MetricData(seriesId, NODE_START + 5 * HOUR_SECONDS, (double) seriesId)));
+        }
+
+        assertEquals(2000, cache.seriesSlots());
+        long end = NODE_START + 6 * HOUR_SECONDS - 1;
+        assertTrue(cache.series(1L, NODE_START, end, 60L).isEmpty());
+        assertTrue(cache.series(5000L, NODE_START, NODE_START + 5 * HOUR_SECONDS - 1, 60L).isEmpty());
+        List<MetricData> reused = cache.series(6998L, NODE_START, end, 60L);
+        assertEquals(1, reused.size());
+        assertEquals(new MetricData(6998L, NODE_START + 5 * HOUR_SECONDS, 6998D), reused.get(0));
+        assertEquals(3, cache.series(0L, NODE_START, end, 60L).size());
+        assertEquals(1999, cache.wCacheSize());
+    }
+
+    @Test
+    public void checkpoint_restore() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.checkpoint");
+        cache.enableCheckpoint(new WriteCacheCheckpoint(file, HOUR_SECONDS));
+        assertTrue(cache.write(new MetricData(1L, NODE_START, 1D)));
+        assertTrue(cache.write(new MetricData(1L, NODE_START + 120, 3D)));
+        assertTrue(cache.write(new MetricData(2L, NODE_START + HOUR_SECONDS, 2D)));
+        cache.checkpoint();
+
+        PrimitiveIntervalMetricDataCache restored = new PrimitiveIntervalMetricDataCache(2, HOUR_SECONDS, null, 10);
+        try {
+            restored.enableCheckpoint(new WriteCacheCheckpoint(file, HOUR_SECONDS));
+            List<MetricData> series1 = restored.series(1L, NODE_START, NODE_START + HOUR_SECONDS - 1, 60L);
+            assertEquals(2, series1.size());
+            assertEquals(new MetricData(1L, NODE_START + 120, 3D), series1.get(1));
+            assertEquals(1, restored.series(2L, NODE_START, NODE_START + 2 * HOUR_SECONDS - 1, 60L).size());
+            assertEquals(2, restored.wCacheSize());
+            assertFalse(restored.write(new MetricData(1L, NODE_START + 60, 2D)));
+        } finally {
+            restored.destroy();
+        }
+    }
+
+    @Test
+    public void checkpoint_corruptedFileIgnored() throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve("cache.checkpoint");
+        cache.enableCheckpoint(new WriteCacheCheckpoint(file, HOUR_SECONDS));
+        assertTrue(cache.write(new MetricData(1L, NODE_START, 1D)));
+        cache.checkpoint();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertNull(new WriteCacheCheckpoint(file, HOUR_SECONDS).read());
+        assertNull(new WriteCacheCheckpoint(file, 60L).read());
+    }
+}
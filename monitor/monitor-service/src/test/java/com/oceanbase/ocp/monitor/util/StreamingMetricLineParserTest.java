@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.monitor.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oceanbase.ocp.monitor.model.metric.MetricLine;
+
+public class StreamingMetricLineParserTest {
+
+    private static final long COLLECT_AT = 1_700_000_000L;
+
+    private static final String PAYLOAD = "# HELP ob_sysstat sysstat\n"
+            + "# TYPE ob_sysstat untyped\n"
+            + "ob_sysstat{app=\"OB\",ob_cluster_name=\"obcluster\",stat_id=\"10000\",svr_ip=\"127.0.0.1\"} 4627\n"
+            + "ob_sysstat{app=\"OB\",ob_cluster_name=\"obcluster\",stat_id=\"10001\",svr_ip=\"127.0.0.1\"} 0.125\n"
+            + "  ob_active_session_num{tenant_name=\"sys\"} 3 1700000001\n"
+            + "node_load1 1.5e-3\r\n"
+            + "node_cpu_seconds_total\t-12.5\n"
+            + "\n"
+            + "ob_label_escaped{sql=\"select \\\"a\\\",b\",tenant=\"租户\"} 9007199254740993\n"
+            + "broken{a=\"b\" 1\n"
+            + "no_value{a=\"b\"}\n"
+            + "ob_sysstat{app=\"OB\",ob_cluster_name=\"obcluster\",stat_id=\"10000\",svr_ip=\"127.0.0.1\"} 4628";
+
+    @Test
+    public void parse_sameAsMetricLineParser() {
+        LinkedList<MetricLine> expected = MetricLineParser.parseResultToLines(PAYLOAD, COLLECT_AT);
+
+        List<MetricLine> actual = new ArrayList<>();
+        StreamingMetricLineParser parser = new StreamingMetricLineParser(1024);
+        int count = parser.parse(ByteBuffer.wrap(PAYLOAD.getBytes(StandardCharsets.UTF_8)), COLLECT_AT,
+                (metric, value, timestamp) -> actual.add(new MetricLine(metric, value, timestamp)));
+
+        assertEquals(expected.size(), count);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            MetricLine e = expected.get(i);
+            MetricLine a = actual.get(i);
+            assertEquals(e.getMetric(), a.getMetric());
+            assertEquals(e.getMetric().getSeriesKey(), a.getMetric().getSeriesKey());
+            assertEquals(Double.doubleToLongBits(e.getValue()), Double.doubleToLongBits(a.getValue()));
+            assertEquals(e.getTimestamp(), a.getTimestamp());
+        }
+    }
+
+    @Test
+    public void parse_metricInterned() {
+        List<MetricLine> actual = new ArrayList<>();
+        StreamingMetricLineParser parser = new StreamingMetricLineParser(1024);
+        parser.parse(ByteBuffer.wrap(PAYLOAD.getBytes(StandardCharsets.UTF_8)), COLLECT_AT,
+                (metric, value, timestamp) -> actual.add(new MetricLine(metric, value, timestamp)));
+
+        assertSame(actual.get(0).getMetric(), actual.get(actual.size() - 1).getMetric());
+    }
+
+    @Test
+    public void parse_cacheBounded() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("ob_sysstat{stat_id=\"").append(i).append("\"} ").append(i).append('\n');
+        }
+        StreamingMetricLineParser parser = new StreamingMetricLineParser(64);
+        int count = parser.parse(ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8)), COLLECT_AT,
+                (metric, value, timestamp) -> assertEquals(metric.getLabels().get("stat_id"),
+                        String.valueOf((long) value)));
+
+        assertEquals(1000, count);
+        assertTrue(parser.cacheSize() <= 64);
+    }
+
+    @Test
+    public void parseDouble_exactFastPath() {
+        String[] values = {"0", "-0", "1", "0.1", "123.456", "-7.000001", "9007199254740992",
+                "9007199254740993", "0.30000000000000004", "1e3", "NaN", ".5", "1."};
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+                    Double.doubleToLongBits(StreamingMetricLineParser.parseDouble(bytes, 0, bytes.length)));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.obops.internal.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
+import com.oceanbase.ocp.common.util.ExecutorUtils;
+import com.oceanbase.ocp.common.util.trace.TraceDecorator;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Calls agents of observers concurrently on a bounded executor.
+ * <p>
+ * Calls beyond parallelism wait in queue, so calls are given one deadline per
+ * wave of parallelism. Calls failed or not done before the deadline are logged
+ * and left out of results, results of other calls are kept.
+ */
+@Slf4j
+class AgentFanOut {
+
+    private final int parallelism;
+    private final long callTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+
+    AgentFanOut(int parallelism, long callTimeoutMillis) {
+        Validate.isTrue(parallelism > 0, "parallelism must be positive");
+        Validate.isTrue(callTimeoutMillis > 0, "call timeout must be positive");
+        this.parallelism = parallelism;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new OcpThreadFactory("agent-fan-out-"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Apply call to each target concurrently.
+     *
+     * @param targets targets by server id
+     * @param call call of agent, null result is taken as absent
+     * @return results of succeeded calls by server id
+     */
+    <S, T> Map<String, T> callAll(Map<String, S> targets, Function<S, T> call) {
+        if (targets.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> serverIds = new ArrayList<>(targets.keySet());
+        List<Callable<T>> tasks = new ArrayList<>(serverIds.size());
+        for (String serverId : serverIds) {
+            S target = targets.get(serverId);
+            tasks.add(new TraceDecorator().decorate(() -> call.apply(target)));
+        }
+        long waves = (serverIds.size() + parallelism - 1) / parallelism;
+        List<Future<T>> futures;
+        try {
+            futures = executor.invokeAll(tasks, callTimeoutMillis * waves, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while calling agents, servers={}", serverIds);
+            return Collections.emptyMap();
+        }
+
+        Map<String, T> results = new HashMap<>();
+        for (int i = 0; i < futures.size(); i++) {
+            String serverId = serverIds.get(i);
+            try {
+                T result = futures.get(i).get();
+                if (result != null) {
+                    results.put(serverId, result);
+                }
+            } catch (CancellationException e) {
+                log.warn("Call agent timeout, server={}, timeoutMillis={}", serverId, callTimeoutMillis);
+            } catch (ExecutionException e) {
+                log.warn("Failed to call agent, server={}", serverId, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return results;
+    }
+
+    void shutdown() {
+        ExecutorUtils.shutdown(executor, 1);
+    }
+
+}
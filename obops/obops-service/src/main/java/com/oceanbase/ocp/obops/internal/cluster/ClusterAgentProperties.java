@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.obops.internal.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ocp.cluster.agent")
+public class ClusterAgentProperties {
+
+    /**
+     * Max agents called concurrently when collecting info of observers.
+     */
+    @Value("${callParallelism:16}")
+    private int callParallelism;
+
+    /**
+     * Deadline of each agent call, results of calls exceeding it are dropped.
+     */
+    @Value("${callTimeoutMillis:10000}")
+    private long callTimeoutMillis;
+
+}
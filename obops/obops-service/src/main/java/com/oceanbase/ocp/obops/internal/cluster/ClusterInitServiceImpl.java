@@ -15,9 +15,13 @@ package com.oceanbase.ocp.obops.internal.cluster;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -69,6 +73,30 @@ public class ClusterInitServiceImpl implements ClusterInitService {
     @Autowired
     private TenantSyncService tenantSyncService;
 
+    @Autowired
+    private ClusterAgentProperties clusterAgentProperties;
+
+    private AgentFanOut agentFanOut;
+
+    /**
+     * Server info collected from agents by server id, kept until the server leaves
+     * the cluster. Servers failed to collect are retried on next sync.
+     */
+    private final Map<String, String> serverArchs = new ConcurrentHashMap<>();
+    private final Map<String, String> serverDataPaths = new ConcurrentHashMap<>();
+    private final Map<String, String> serverLogPaths = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        agentFanOut = new AgentFanOut(clusterAgentProperties.getCallParallelism(),
+                clusterAgentProperties.getCallTimeoutMillis());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        agentFanOut.shutdown();
+    }
+
     @Scheduled(fixedDelay = 60 * 1000L, initialDelay = 60 * 1000L)
     public void syncClusterInfo() {
 
@@ -93,6 +121,7 @@ public class ClusterInitServiceImpl implements ClusterInitService {
         try {
             syncClusterInfo(obOperator);
             syncTenantInfo();
+            attachServerInfo();
         } catch (Exception ex) {
             log.warn("Failed to sync cluster info", ex);
         }
@@ -124,10 +153,8 @@ public class ClusterInitServiceImpl implements ClusterInitService {
         syncClusterInfo(operator);
         // 3. Sync tenant info.
         syncTenantInfo();
-        // 4. Attach server architectures
-        attachServerArchs();
-        // 5. Attach server data and log dirs
-        attachServerDataLogPath();
+        // 4. Attach server architectures, data and log dirs
+        attachServerInfo();
 
         BasicCluster basicCluster = managedClusterImpl.getClusterInfo();
         log.info("init cluster done, clusterInfo={}", basicCluster);
@@ -146,24 +173,25 @@ public class ClusterInitServiceImpl implements ClusterInitService {
         }).collect(Collectors.toList());
     }
 
-    private void attachServerArchs() {
+    private synchronized void attachServerInfo() {
         List<ObServer> obServers = managedClusterImpl.getClusterInfo().getObServers();
-        Map<String, String> server2Arch = new HashMap<>();
-        obServers.forEach(server -> {
-            try {
-                ObAgentEntity agent =
-                        obAgentDaoManager.nullSafeGetByIpAndObSvrPort(server.getSvrIp(), server.getSvrPort());
-                AgentExecutor agentExecutor = agentExecutorFactory.create(agent.getIp(), agent.getMgrPort());
-                server2Arch.put(buildServerId(server.getSvrIp(), server.getSvrPort()),
-                        agentExecutor.getRemoteHostInfo().getArchitecture());
-            } catch (Exception ex) {
-                log.warn("Failed to get server arch info from:{}:{}", server.getSvrIp(), server.getSvrPort(), ex);
-            }
-        });
-        managedClusterImpl.setServerArchs(server2Arch);
+        attachServerArchs(obServers);
+        attachServerDataLogPath(obServers);
     }
 
-    private void attachServerDataLogPath() {
+    private void attachServerArchs(List<ObServer> obServers) {
+        Map<String, ObServer> servers = serversToCollect(obServers, serverArchs);
+        serverArchs.putAll(agentFanOut.callAll(servers,
+                server -> createAgentExecutor(server).getRemoteHostInfo().getArchitecture()));
+        managedClusterImpl.setServerArchs(new HashMap<>(serverArchs));
+    }
+
+    private void attachServerDataLogPath(List<ObServer> obServers) {
+        Map<String, ObServer> servers = serversToCollect(obServers, serverDataPaths);
+        serverLogPaths.keySet().retainAll(serverDataPaths.keySet());
+        if (servers.isEmpty()) {
+            return;
+        }
         List<ObParameter> dataDirs;
         try {
             ObOperator operator = obOperatorFactory.createObOperator();
@@ -173,32 +201,44 @@ public class ClusterInitServiceImpl implements ClusterInitService {
             return;
         }
 
-        List<ObServer> obServers = managedClusterImpl.getClusterInfo().getObServers();
         Map<String, String> server2Path = dataDirs.stream().collect(Collectors
                 .toMap(server -> buildServerId(server.getSvrIp(), server.getSvrPort()), ObParameter::getValue));
-
-        Map<String, String> server2DataPath = new HashMap<>();
-        Map<String, String> server2LogPath = new HashMap<>();
-        obServers.forEach(server -> {
-            try {
-                ObAgentEntity agent =
-                        obAgentDaoManager.nullSafeGetByIpAndObSvrPort(server.getSvrIp(), server.getSvrPort());
-                AgentExecutor agentExecutor = agentExecutorFactory.create(agent.getIp(), agent.getMgrPort());
-                String serverId = buildServerId(server.getSvrIp(), server.getSvrPort());
-                String obPath = server2Path.get(serverId);
-                String dataPath = agentExecutor
-                        .getRealPath(GetRealPathRequest.builder().symbolicLink(obPath + "/sstable").build()).getPath();
-                String logPath = agentExecutor
-                        .getRealPath(GetRealPathRequest.builder().symbolicLink(obPath + "/clog").build()).getPath();
-                Function<String, String> pathSplitter = str -> str.substring(0, str.lastIndexOf("/"));
-                server2DataPath.put(serverId, pathSplitter.apply(dataPath));
-                server2LogPath.put(serverId, pathSplitter.apply(logPath));
-            } catch (Exception ex) {
-                log.warn("Failed to get server arch info from:{}:{}", server.getSvrIp(), server.getSvrPort(), ex);
-            }
+        Map<String, String[]> server2DataLogPath = agentFanOut.callAll(servers, server -> {
+            AgentExecutor agentExecutor = createAgentExecutor(server);
+            String obPath = server2Path.get(buildServerId(server.getSvrIp(), server.getSvrPort()));
+            String dataPath = agentExecutor
+                    .getRealPath(GetRealPathRequest.builder().symbolicLink(obPath + "/sstable").build()).getPath();
+            String logPath = agentExecutor
+                    .getRealPath(GetRealPathRequest.builder().symbolicLink(obPath + "/clog").build()).getPath();
+            Function<String, String> pathSplitter = str -> str.substring(0, str.lastIndexOf("/"));
+            return new String[] {pathSplitter.apply(dataPath), pathSplitter.apply(logPath)};
         });
-        managedClusterImpl.setServerDataPaths(server2DataPath);
-        managedClusterImpl.setServerLogPaths(server2LogPath);
+        server2DataLogPath.forEach((serverId, paths) -> {
+            serverDataPaths.put(serverId, paths[0]);
+            serverLogPaths.put(serverId, paths[1]);
+        });
+        managedClusterImpl.setServerDataPaths(new HashMap<>(serverDataPaths));
+        managedClusterImpl.setServerLogPaths(new HashMap<>(serverLogPaths));
+    }
+
+    /**
+     * Drop collected info of servers left the cluster.
+     *
+     * @return servers without collected info by server id
+     */
+    private Map<String, ObServer> serversToCollect(List<ObServer> obServers, Map<String, String> collected) {
+        Map<String, ObServer> servers = new HashMap<>();
+        for (ObServer server : obServers) {
+            servers.put(buildServerId(server.getSvrIp(), server.getSvrPort()), server);
+        }
+        collected.keySet().retainAll(servers.keySet());
+        servers.keySet().removeAll(collected.keySet());
+        return servers;
+    }
+
+    private AgentExecutor createAgentExecutor(ObServer server) {
+        ObAgentEntity agent = obAgentDaoManager.nullSafeGetByIpAndObSvrPort(server.getSvrIp(), server.getSvrPort());
+        return agentExecutorFactory.create(agent.getIp(), agent.getMgrPort());
     }
 
     private void syncClusterInfo(ObOperator operator) {
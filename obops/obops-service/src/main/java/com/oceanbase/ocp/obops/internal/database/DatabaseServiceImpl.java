@@ -23,9 +23,11 @@ import java.util.stream.Collectors;
 import javax.annotation.Resource;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.oceanbase.ocp.common.time.DefaultOffsetDateTimeConverter;
+import com.oceanbase.ocp.core.event.DatabaseChangedEvent;
 import com.oceanbase.ocp.core.i18n.ErrorCodes;
 import com.oceanbase.ocp.core.ob.tenant.ObTenantEntity;
 import com.oceanbase.ocp.core.ob.tenant.TenantDaoManager;
@@ -70,6 +72,9 @@ public class DatabaseServiceImpl implements DatabaseService {
     @Resource
     private ClusterCharsetService clusterCharsetService;
 
+    @Resource
+    private ApplicationEventPublisher applicationEventPublisher;
+
     @Override
     public List<Database> listDatabases(Long obTenantId) {
         ObTenantEntity tenantEntity = tenantDaoManager.nullSafeGetObTenant(obTenantId);
@@ -106,6 +111,7 @@ public class DatabaseServiceImpl implements DatabaseService {
                 .readonly(param.getReadonly())
                 .build();
         ObDatabase obDatabase = obAccessor.database().createDatabase(input);
+        applicationEventPublisher.publishEvent(new DatabaseChangedEvent(this, obTenantId));
         Map<Long, ObCollation> collationMap = collations.stream().collect(Collectors.toMap(ObCollation::getId, t -> t));
         return mapToModel(obDatabase, collationMap);
     }
@@ -143,6 +149,7 @@ public class DatabaseServiceImpl implements DatabaseService {
         ObAccessor obAccessor = obAccessorFactory.createObAccessor(obTenantId);
         ExceptionUtils.illegalArgs(isDbExist(obAccessor, dbName), ErrorCodes.OB_DATABASE_NAME_NOT_FOUND, dbName);
         obAccessor.database().dropDatabase(dbName);
+        applicationEventPublisher.publishEvent(new DatabaseChangedEvent(this, obTenantId));
     }
 
     private void checkDatabaseManagementSupported(ObTenantEntity tenantEntity) {
@@ -14,8 +14,12 @@ package com.oceanbase.ocp.obops.internal.tenant;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.persistence.criteria.Predicate;
 
@@ -25,6 +29,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.oceanbase.ocp.common.util.sql.SqlUtils;
 import com.oceanbase.ocp.core.i18n.ErrorCodes;
@@ -78,6 +83,34 @@ public class TenantDaoManagerImpl implements TenantDaoManager {
         return obTenantRepository.saveAndFlush(entity);
     }
 
+    @Override
+    @Transactional
+    public int updateTenants(Collection<ObTenantEntity> entities) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        // Copy onto managed entities, dirty checking writes changed columns only.
+        List<Long> obTenantIds = entities.stream().map(ObTenantEntity::getObTenantId).collect(Collectors.toList());
+        Map<Long, ObTenantEntity> managed = obTenantRepository.findAllByObTenantIdIn(obTenantIds).stream()
+                .collect(Collectors.toMap(ObTenantEntity::getObTenantId, Function.identity()));
+        int updated = 0;
+        for (ObTenantEntity entity : entities) {
+            ObTenantEntity target = managed.get(entity.getObTenantId());
+            if (target == null) {
+                continue;
+            }
+            target.setName(entity.getName());
+            target.setLocked(entity.getLocked());
+            target.setReadonly(entity.getReadonly());
+            target.setPrimaryZone(entity.getPrimaryZone());
+            target.setZoneListStr(entity.getZoneListStr());
+            target.setLocality(entity.getLocality());
+            target.setStatus(entity.getStatus());
+            updated++;
+        }
+        return updated;
+    }
+
     @Override
     public void deleteTenant(ObTenantEntity entity) {
         obTenantRepository.delete(entity);
@@ -12,17 +12,29 @@
 
 package com.oceanbase.ocp.obops.internal.tenant;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.oceanbase.ocp.core.credential.operator.ObCredentialOperator;
+import com.oceanbase.ocp.core.event.TenantChangedEvent;
 import com.oceanbase.ocp.core.exception.ConnectFailedException;
 import com.oceanbase.ocp.core.ob.cluster.ManagedCluster;
 import com.oceanbase.ocp.core.ob.tenant.ObTenantEntity;
@@ -39,12 +51,18 @@ import com.oceanbase.ocp.obsdk.operator.ObOperator;
 import com.oceanbase.ocp.obsdk.operator.tenant.model.ObTenant;
 import com.oceanbase.ocp.obsdk.operator.tenant.model.TenantJobProgress;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
 public class TenantSyncServiceImpl implements TenantSyncService {
 
+    private static final List<RootServiceJobType> STATUS_JOB_TYPES = Arrays.asList(
+            RootServiceJobType.ALTER_TENANT_LOCALITY, RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM);
+
     @Autowired
     private TenantDaoManager tenantDaoManager;
 
@@ -60,20 +78,59 @@ public class TenantSyncServiceImpl implements TenantSyncService {
     @Autowired
     private ObCredentialOperator credentialOperator;
 
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private DistributionSummary rowsScanned;
+    private DistributionSummary rowsChanged;
+    private Timer syncDuration;
+
+    public TenantSyncServiceImpl() {}
+
+    TenantSyncServiceImpl(TenantDaoManager tenantDaoManager, ObOperatorFactory obOperatorFactory,
+            ApplicationEventPublisher applicationEventPublisher, MeterRegistry meterRegistry) {
+        this.tenantDaoManager = tenantDaoManager;
+        this.obOperatorFactory = obOperatorFactory;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        rowsScanned = DistributionSummary.builder("ocp_tenant_sync_rows_scanned")
+                .description("Tenants read from OB per tenant sync cycle")
+                .register(meterRegistry);
+        rowsChanged = DistributionSummary.builder("ocp_tenant_sync_rows_changed")
+                .description("Tenants inserted, updated or deleted in metadb per tenant sync cycle")
+                .register(meterRegistry);
+        syncDuration = Timer.builder("ocp_tenant_sync_duration")
+                .description("Elapsed time of tenant sync cycle")
+                .register(meterRegistry);
+    }
+
     @Override
     public void syncTenant(Long tenantId) {
         ObTenantEntity entity = tenantDaoManager.nullSafeGetTenant(tenantId);
         ObOperator operator = obOperatorFactory.createObOperator();
         List<ObTenant> obTenants = operator.tenant().listTenant();
-        obTenants.stream()
+        Map<Long, Map<RootServiceJobType, TenantJobProgress>> jobs = listStatusJobs(operator);
+        Optional<ObTenant> obTenant = obTenants.stream()
                 .filter(tenant -> Objects.equals(tenant.getTenantId(), tenantId))
-                .findFirst()
-                .ifPresent(obTenant -> updateTenant(entity, obTenant));
-        log.info("Sync tenant info done, tenantId={}", tenantId);
+                .findFirst();
+        boolean changed = obTenant.isPresent() && diffTenant(entity, obTenant.get(), jobs.get(tenantId));
+        if (changed) {
+            tenantDaoManager.updateTenants(Collections.singletonList(entity));
+            applicationEventPublisher.publishEvent(new TenantChangedEvent(this, tenantId));
+        }
+        log.info("Sync tenant info done, tenantId={}, changed={}", tenantId, changed);
     }
 
     @Override
     public void syncAllTenant() {
+        long start = System.nanoTime();
         List<ObTenantEntity> tenantList = tenantDaoManager.queryAllTenant();
         ObOperator operator = obOperatorFactory.createObOperator();
         List<ObTenant> obTenantList = operator.tenant().listTenant();
@@ -82,9 +139,9 @@ public class TenantSyncServiceImpl implements TenantSyncService {
             return;
         }
 
-        List<Long> obTenantIds = obTenantList.stream()
+        Set<Long> obTenantIds = obTenantList.stream()
                 .map(ObTenant::getTenantId)
-                .collect(Collectors.toList());
+                .collect(Collectors.toSet());
         List<ObTenantEntity> tenantsToDelete = tenantList.stream()
                 .filter(entity -> entity.getStatus() != TenantStatus.CREATING)
                 .filter(entity -> !obTenantIds.contains(entity.getObTenantId()))
@@ -94,24 +151,48 @@ public class TenantSyncServiceImpl implements TenantSyncService {
         }
         tenantsToDelete.forEach(tenantDaoManager::deleteTenant);
 
+        Map<Long, ObTenantEntity> tenantById = new HashMap<>();
+        Map<String, ObTenantEntity> tenantByName = new HashMap<>();
+        for (ObTenantEntity entity : tenantList) {
+            tenantById.putIfAbsent(entity.getObTenantId(), entity);
+            tenantByName.putIfAbsent(entity.getName(), entity);
+        }
+        Map<Long, Map<RootServiceJobType, TenantJobProgress>> jobs = listStatusJobs(operator);
+        List<ObTenantEntity> tenantsToUpdate = new ArrayList<>();
+        int created = 0;
         for (ObTenant obTenant : obTenantList) {
-            Optional<ObTenantEntity> optional;
+            ObTenantEntity entity;
             if (ObTenantStatus.CREATING == ObTenantStatus.fromValue(obTenant.getStatus())) {
-                optional = tenantDaoManager.getTenant(obTenant.getTenantName());
+                entity = tenantByName.get(obTenant.getTenantName());
             } else {
-                optional = tenantDaoManager.getTenant(obTenant.getTenantId());
+                entity = tenantById.get(obTenant.getTenantId());
             }
-            if (optional.isPresent()) {
-                updateTenant(optional.get(), obTenant);
+            if (entity != null) {
+                if (diffTenant(entity, obTenant, jobs.get(obTenant.getTenantId()))) {
+                    tenantsToUpdate.add(entity);
+                }
             } else {
                 log.info("New tenant detected in ob, obTenant={}", obTenant);
-                ObTenantEntity entity = buildEntity(obTenant);
+                entity = buildEntity(obTenant);
                 entity = tenantDaoManager.saveTenant(entity);
                 tryAndSetEmptyPassword(entity);
                 log.info("New tenant saved, entity={}", entity);
+                created++;
             }
         }
-        log.info("Sync all tenant info done");
+        int updated = tenantDaoManager.updateTenants(tenantsToUpdate);
+        // listeners drop cached tenants on the event, so keep them when nothing changed
+        if (tenantsToDelete.size() + created + tenantsToUpdate.size() > 0) {
+            applicationEventPublisher.publishEvent(new TenantChangedEvent(this, null));
+        }
+
+        long elapsed = System.nanoTime() - start;
+        rowsScanned.record(obTenantList.size());
+        rowsChanged.record(tenantsToDelete.size() + created + updated);
+        syncDuration.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Sync all tenant info done, scanned={}, deleted={}, created={}, updated={}, elapsedMillis={}",
+                obTenantList.size(), tenantsToDelete.size(), created, updated,
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
     }
 
     private void tryAndSetEmptyPassword(ObTenantEntity entity) {
@@ -126,52 +207,77 @@ public class TenantSyncServiceImpl implements TenantSyncService {
                 entity.getMode().getSuperUser(), "");
     }
 
-    private void updateTenant(ObTenantEntity entity, ObTenant obTenant) {
-        updateTenantProperties(entity, obTenant);
-        updateStatusByRootServiceJob(entity, RootServiceJobType.ALTER_TENANT_LOCALITY);
-        updateStatusByRootServiceJob(entity, RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM);
+    /**
+     * Latest job of each tenant which decides tenant status, grouped by tenant id.
+     */
+    private Map<Long, Map<RootServiceJobType, TenantJobProgress>> listStatusJobs(ObOperator operator) {
+        return operator.tenant().listLatestJobProgress(STATUS_JOB_TYPES).stream()
+                .filter(job -> job.getType() != null)
+                .collect(Collectors.groupingBy(TenantJobProgress::getTenantId,
+                        Collectors.toMap(TenantJobProgress::getType, Function.identity(),
+                                (job1, job2) -> job1.getJobId() >= job2.getJobId() ? job1 : job2)));
     }
 
-    private void updateStatusByRootServiceJob(ObTenantEntity entity, RootServiceJobType type) {
-        ObOperator operator = obOperatorFactory.createObOperator();
-        TenantJobProgress job = operator.tenant().getJobProgress(entity.getObTenantId(), type);
-        if (job == null) {
-            return;
-        }
-        TenantStatus targetStatus = job.finished() ? TenantStatus.NORMAL : TenantStatus.MODIFYING;
-        if (entity.getStatus() != targetStatus) {
-            log.info("update tenant status by job, tenantId={}, job={}, oldStatus={}, newStatus={}",
-                    entity.getObTenantId(), job, entity.getStatus(), targetStatus);
-        }
-        tenantDaoManager.updateStatus(entity.getObTenantId(), targetStatus);
-    }
-
-    private void updateTenantProperties(ObTenantEntity entity, ObTenant obTenant) {
+    /**
+     * Apply state of OB tenant to the entity.
+     *
+     * @return true if any field of the entity changed
+     */
+    static boolean diffTenant(ObTenantEntity entity, ObTenant obTenant,
+            Map<RootServiceJobType, TenantJobProgress> jobs) {
+        boolean changed = false;
         if (!StringUtils.equals(entity.getName(), obTenant.getTenantName())) {
-            tenantDaoManager.updateName(entity.getObTenantId(), obTenant.getTenantName());
+            entity.setName(obTenant.getTenantName());
+            changed = true;
         }
         if (obTenant.isLocked() != null && !Objects.equals(entity.getLocked(), obTenant.isLocked())) {
-            tenantDaoManager.updateLockStatus(entity.getObTenantId(), obTenant.isLocked());
+            entity.setLocked(obTenant.isLocked());
+            changed = true;
         }
         if (obTenant.isReadonly() != null && !Objects.equals(entity.getReadonly(), obTenant.isReadonly())) {
-            tenantDaoManager.updateReadonlyStatus(entity.getObTenantId(), obTenant.isReadonly());
+            entity.setReadonly(obTenant.isReadonly());
+            changed = true;
         }
         if (!StringUtils.equals(entity.getPrimaryZone(), obTenant.getPrimaryZone())) {
-            tenantDaoManager.updatePrimaryZone(entity.getObTenantId(), obTenant.getPrimaryZone());
+            entity.setPrimaryZone(obTenant.getPrimaryZone());
+            changed = true;
         }
         List<String> zoneList = LocalityUtils.getZoneList(obTenant.getLocality());
         String zoneListStr = String.join(";", zoneList);
         if (!StringUtils.equals(entity.getZoneListStr(), zoneListStr)) {
-            tenantDaoManager.updateZoneList(entity.getObTenantId(), zoneListStr);
+            entity.setZoneListStr(zoneListStr);
+            changed = true;
         }
         if (!StringUtils.equals(entity.getLocality(), obTenant.getLocality())) {
-            tenantDaoManager.updateLocality(entity.getObTenantId(), obTenant.getLocality());
+            entity.setLocality(obTenant.getLocality());
+            changed = true;
+        }
+        TenantStatus targetStatus = getTargetStatus(entity, jobs);
+        if (entity.getStatus() != targetStatus) {
+            log.info("Update tenant status, tenantId={}, jobs={}, oldStatus={}, newStatus={}",
+                    entity.getObTenantId(), jobs, entity.getStatus(), targetStatus);
+            entity.setStatus(targetStatus);
+            changed = true;
         }
-        if (entity.getStatus() == TenantStatus.UNAVAILABLE) {
-            log.info("Update tenant status, tenantId={}, oldStatus={}, newStatus={}",
-                    entity.getObTenantId(), entity.getStatus(), TenantStatus.NORMAL);
-            tenantDaoManager.updateStatus(entity.getObTenantId(), TenantStatus.NORMAL);
+        return changed;
+    }
+
+    /**
+     * Unavailable tenant which is found in OB is normal, then status follows the
+     * latest job, later job type in {@link #STATUS_JOB_TYPES} takes precedence.
+     */
+    static TenantStatus getTargetStatus(ObTenantEntity entity, Map<RootServiceJobType, TenantJobProgress> jobs) {
+        TenantStatus status = entity.getStatus() == TenantStatus.UNAVAILABLE ? TenantStatus.NORMAL : entity.getStatus();
+        if (jobs == null) {
+            return status;
+        }
+        for (RootServiceJobType type : STATUS_JOB_TYPES) {
+            TenantJobProgress job = jobs.get(type);
+            if (job != null) {
+                status = job.finished() ? TenantStatus.NORMAL : TenantStatus.MODIFYING;
+            }
         }
+        return status;
     }
 
     private ObTenantEntity buildEntity(ObTenant obTenant) {
@@ -12,6 +12,8 @@
 
 package com.oceanbase.ocp.obops.internal.tenant.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -30,6 +32,8 @@ public interface ObTenantRepository
 
     Optional<ObTenantEntity> findByObTenantId(Long obTenantId);
 
+    List<ObTenantEntity> findAllByObTenantIdIn(Collection<Long> obTenantIds);
+
     @Transactional
     @Modifying(flushAutomatically = true)
     @Query("update ObTenantEntity e set e.name = ?2 where e.obTenantId = ?1")
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.obops.internal.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AgentFanOutTest {
+
+    private AgentFanOut fanOut;
+
+    @After
+    public void tearDown() {
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+    }
+
+    @Test
+    public void callAll_wallTimeBoundedBySlowestAgent() {
+        fanOut = new AgentFanOut(16, 5_000L);
+        Map<String, StubAgent> agents = new HashMap<>();
+        long sumMillis = 0;
+        for (int i = 1; i <= 10; i++) {
+            agents.put("1.1.1." + i + ":2882", new StubAgent("x86_64", 50L * i));
+            sumMillis += 50L * i;
+        }
+
+        long start = System.nanoTime();
+        Map<String, String> results = fanOut.callAll(agents, StubAgent::call);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(10, results.size());
+        assertTrue("elapsed=" + elapsedMillis, elapsedMillis >= 500L);
+        assertTrue("elapsed=" + elapsedMillis + ", sum=" + sumMillis, elapsedMillis < 500L + 1_000L);
+        assertTrue(elapsedMillis < sumMillis / 2);
+    }
+
+    @Test
+    public void callAll_keepPartialResults() {
+        fanOut = new AgentFanOut(4, 300L);
+        Map<String, StubAgent> agents = new HashMap<>();
+        agents.put("ok1", new StubAgent("x86_64", 10L));
+        agents.put("ok2", new StubAgent("aarch64", 50L));
+        agents.put("failed", new StubAgent(null, 10L));
+        agents.put("dead", new StubAgent("x86_64", 10_000L));
+
+        long start = System.nanoTime();
+        Map<String, String> results = fanOut.callAll(agents, StubAgent::call);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(2, results.size());
+        assertEquals("x86_64", results.get("ok1"));
+        assertEquals("aarch64", results.get("ok2"));
+        assertTrue("elapsed=" + elapsedMillis, elapsedMillis < 2_000L);
+    }
+
+    @Test
+    public void callAll_boundedParallelism() {
+        fanOut = new AgentFanOut(2, 1_000L);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Map<String, StubAgent> agents = new HashMap<>();
+        for (int i = 0; i < 6; i++) {
+            agents.put("server" + i, new StubAgent("x86_64", 100L));
+        }
+
+        Map<String, String> results = fanOut.callAll(agents, agent -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return agent.call();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        assertEquals(6, results.size());
+        assertEquals(2, maxRunning.get());
+    }
+
+    /**
+     * Agent answering after the delay, or failing if arch is null.
+     */
+    private static class StubAgent {
+
+        private final String arch;
+        private final long delayMillis;
+
+        StubAgent(String arch, long delayMillis) {
+            this.arch = arch;
+            this.delayMillis = delayMillis;
+        }
+
+        String call() {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted");
+            }
+            if (arch == null) {
+                throw new IllegalStateException("agent unavailable");
+            }
+            return arch;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.obops.internal.tenant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.core.event.TenantChangedEvent;
+import com.oceanbase.ocp.core.ob.tenant.ObTenantEntity;
+import com.oceanbase.ocp.core.ob.tenant.TenantDaoManager;
+import com.oceanbase.ocp.core.ob.tenant.TenantStatus;
+import com.oceanbase.ocp.core.obsdk.ObOperatorFactory;
+import com.oceanbase.ocp.obsdk.enums.RootServiceJobType;
+import com.oceanbase.ocp.obsdk.operator.ObOperator;
+import com.oceanbase.ocp.obsdk.operator.TenantOperator;
+import com.oceanbase.ocp.obsdk.operator.tenant.model.ObTenant;
+import com.oceanbase.ocp.obsdk.operator.tenant.model.TenantJobProgress;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TenantSyncServiceImplTest {
+
+    private final List<ObTenantEntity> tenants = new ArrayList<>();
+
+    private final List<ObTenant> obTenants = new ArrayList<>();
+
+    private final List<ObTenantEntity> updatedTenants = new ArrayList<>();
+
+    private final List<TenantChangedEvent> events = new ArrayList<>();
+
+    private TenantSyncServiceImpl service;
+
+    @Before
+    public void setUp() {
+        TenantDaoManager tenantDaoManager = (TenantDaoManager) Proxy.newProxyInstance(
+                TenantDaoManager.class.getClassLoader(), new Class<?>[] {TenantDaoManager.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "queryAllTenant":
+                            return new ArrayList<>(tenants);
+                        case "nullSafeGetTenant":
+                            return tenants.stream()
+                                    .filter(t -> t.getObTenantId().equals(args[0]))
+                                    .findFirst()
+                                    .orElseThrow(IllegalStateException::new);
+                        case "updateTenants":
+                            @SuppressWarnings("unchecked")
+                            List<ObTenantEntity> entities = (List<ObTenantEntity>) args[0];
+                            updatedTenants.addAll(entities);
+                            return entities.size();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        TenantOperator tenantOperator = (TenantOperator) Proxy.newProxyInstance(
+                TenantOperator.class.getClassLoader(), new Class<?>[] {TenantOperator.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "listTenant":
+                            return new ArrayList<>(obTenants);
+                        case "listLatestJobProgress":
+                            return Collections.emptyList();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        ObOperatorFactory obOperatorFactory = new ObOperatorFactory() {
+
+            @Override
+            public ObOperator createObOperator() {
+                return ObOperator.builder().tenantOperator(tenantOperator).build();
+            }
+        };
+        service = new TenantSyncServiceImpl(tenantDaoManager, obOperatorFactory,
+                event -> events.add((TenantChangedEvent) event), new SimpleMeterRegistry());
+        service.init();
+        tenants.add(buildEntity(TenantStatus.NORMAL));
+        obTenants.add(buildObTenant());
+    }
+
+    /**
+     * Tenant changed events drop cached tenants and databases of listeners, such as
+     * the sql stat context, an unchanged sync must keep them.
+     */
+    @Test
+    public void syncAllTenant_unchangedPublishesNothing() {
+        service.syncAllTenant();
+        service.syncAllTenant();
+
+        assertTrue(updatedTenants.isEmpty());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void syncAllTenant_changedPublishesOnce() {
+        obTenants.get(0).setPrimaryZone("zone2");
+
+        service.syncAllTenant();
+        assertEquals(1, updatedTenants.size());
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).isAllTenants());
+
+        service.syncAllTenant();
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void syncTenant_publishOnlyWhenChanged() {
+        service.syncTenant(1001L);
+        assertTrue(events.isEmpty());
+
+        obTenants.get(0).setLocked(true);
+        service.syncTenant(1001L);
+        assertEquals(1, events.size());
+        assertEquals(1001L, events.get(0).getObTenantId().longValue());
+
+        obTenants.clear();
+        service.syncTenant(1001L);
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    public void getTargetStatus_unavailableToNormal() {
+        ObTenantEntity entity = buildEntity(TenantStatus.UNAVAILABLE);
+
+        assertEquals(TenantStatus.NORMAL, TenantSyncServiceImpl.getTargetStatus(entity, null));
+    }
+
+    @Test
+    public void getTargetStatus_noJob() {
+        ObTenantEntity entity = buildEntity(TenantStatus.MODIFYING);
+
+        assertEquals(TenantStatus.MODIFYING,
+                TenantSyncServiceImpl.getTargetStatus(entity, new EnumMap<>(RootServiceJobType.class)));
+    }
+
+    @Test
+    public void getTargetStatus_shrinkJobTakesPrecedence() {
+        Map<RootServiceJobType, TenantJobProgress> jobs = new EnumMap<>(RootServiceJobType.class);
+        jobs.put(RootServiceJobType.ALTER_TENANT_LOCALITY,
+                buildJob(1L, RootServiceJobType.ALTER_TENANT_LOCALITY, "INPROGRESS"));
+        jobs.put(RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM,
+                buildJob(2L, RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM, "SUCCESS"));
+        assertEquals(TenantStatus.NORMAL,
+                TenantSyncServiceImpl.getTargetStatus(buildEntity(TenantStatus.MODIFYING), jobs));
+
+        jobs.put(RootServiceJobType.ALTER_TENANT_LOCALITY,
+                buildJob(1L, RootServiceJobType.ALTER_TENANT_LOCALITY, "SUCCESS"));
+        jobs.put(RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM,
+                buildJob(2L, RootServiceJobType.SHRINK_RESOURCE_POOL_UNIT_NUM, "INPROGRESS"));
+        assertEquals(TenantStatus.MODIFYING,
+                TenantSyncServiceImpl.getTargetStatus(buildEntity(TenantStatus.NORMAL), jobs));
+    }
+
+    @Test
+    public void diffTenant_unavailableToNormal() {
+        ObTenantEntity entity = buildEntity(TenantStatus.UNAVAILABLE);
+
+        assertTrue(TenantSyncServiceImpl.diffTenant(entity, buildObTenant(), null));
+        assertEquals(TenantStatus.NORMAL, entity.getStatus());
+    }
+
+    @Test
+    public void diffTenant_unchanged() {
+        ObTenantEntity entity = buildEntity(TenantStatus.NORMAL);
+
+        assertFalse(TenantSyncServiceImpl.diffTenant(entity, buildObTenant(), null));
+    }
+
+    @Test
+    public void diffTenant_readOnlyUnknown_keepStored() {
+        ObTenantEntity entity = buildEntity(TenantStatus.NORMAL);
+        entity.setReadonly(true);
+        ObTenant obTenant = buildObTenant();
+        obTenant.setReadOnly(null);
+
+        assertFalse(TenantSyncServiceImpl.diffTenant(entity, obTenant, null));
+        assertTrue(entity.getReadonly());
+    }
+
+    private ObTenantEntity buildEntity(TenantStatus status) {
+        return ObTenantEntity.builder()
+                .name("tenant1")
+                .obTenantId(1001L)
+                .status(status)
+                .locked(false)
+                .readonly(false)
+                .primaryZone("zone1")
+                .zoneListStr("zone1")
+                .locality("FULL{1}@zone1")
+                .build();
+    }
+
+    private ObTenant buildObTenant() {
+        ObTenant obTenant = new ObTenant();
+        obTenant.setTenantId(1001L);
+        obTenant.setTenantName("tenant1");
+        obTenant.setLocked(false);
+        obTenant.setReadOnly(false);
+        obTenant.setPrimaryZone("zone1");
+        obTenant.setLocality("FULL{1}@zone1");
+        return obTenant;
+    }
+
+    private TenantJobProgress buildJob(Long jobId, RootServiceJobType type, String status) {
+        TenantJobProgress job = new TenantJobProgress();
+        job.setTenantId(1001L);
+        job.setJobId(jobId);
+        job.setJobType(type.toString());
+        job.setJobStatus(status);
+        return job;
+    }
+}
@@ -12,9 +12,12 @@
 
 package com.oceanbase.ocp.perf.sql;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.model.PlanUid;
 import com.oceanbase.ocp.perf.sql.model.PlanExplain;
 import com.oceanbase.ocp.perf.sql.model.PlanStatDetail;
 import com.oceanbase.ocp.perf.sql.param.QueryPlanExplainParam;
@@ -26,4 +29,9 @@ public interface PlanExplainService {
     List<PlanExplainEntity> getExplainEntity(QueryPlanExplainParam param);
 
     PlanExplain getPlanExplain(SqlStatDataContext context, PlanStatDetail plan);
+
+    /**
+     * Explains of plans, plans without explain are absent from the result.
+     */
+    Map<PlanUid, PlanExplain> getPlanExplains(SqlStatDataContext context, Collection<PlanStatDetail> plans);
 }
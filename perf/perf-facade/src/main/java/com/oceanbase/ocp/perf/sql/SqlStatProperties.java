@@ -59,6 +59,53 @@ public class SqlStatProperties {
     @Value("#{T(org.springframework.boot.convert.DurationStyle).SIMPLE.parse(\"${ocp.perf.sql.top-plan-max-query-range:7d}\")}")
     private Duration topPlanMaxQueryRange = Duration.ofDays(7);
 
+    /**
+     * Whether to collect sql audit into in-memory time buckets periodically and
+     * serve top sql from them.
+     */
+    @Value("${ocp.perf.sql.audit-snapshot-enabled:true}")
+    private boolean auditSnapshotEnabled = true;
+
+    @Value("#{T(org.springframework.boot.convert.DurationStyle).SIMPLE.parse(\"${ocp.perf.sql.audit-snapshot-bucket:1m}\")}")
+    private Duration auditSnapshotBucket = Duration.ofMinutes(1);
+
+    @Value("#{T(org.springframework.boot.convert.DurationStyle).SIMPLE.parse(\"${ocp.perf.sql.audit-snapshot-retention:1h}\")}")
+    private Duration auditSnapshotRetention = Duration.ofHours(1);
+
+    /**
+     * Sql audit is recorded after execution, only rows ended before now minus lag
+     * are collected.
+     */
+    @Value("#{T(org.springframework.boot.convert.DurationStyle).SIMPLE.parse(\"${ocp.perf.sql.audit-snapshot-lag:10s}\")}")
+    private Duration auditSnapshotLag = Duration.ofSeconds(10);
+
+    /**
+     * Max estimated bytes of sql audit snapshot, oldest buckets are dropped when
+     * exceeded.
+     */
+    @Value("${ocp.perf.sql.audit-snapshot-max-bytes:67108864}")
+    private long auditSnapshotMaxBytes = 64L * 1024 * 1024;
+
+    /**
+     * Max estimated bytes of plan explains cached in memory, explain of a plan
+     * never changes once the plan is loaded.
+     */
+    @Value("${ocp.perf.sql.plan-explain-cache-max-bytes:67108864}")
+    private long planExplainCacheMaxBytes = 64L * 1024 * 1024;
+
+    /**
+     * Max concurrent queries when fetching explains of many plans.
+     */
+    @Value("${ocp.perf.sql.plan-explain-fetch-parallelism:4}")
+    private int planExplainFetchParallelism = 4;
+
+    /**
+     * How long tenants and databases resolved for sql stat queries are reused
+     * before reading them again.
+     */
+    @Value("#{T(org.springframework.boot.convert.DurationStyle).SIMPLE.parse(\"${ocp.perf.sql.context-cache-ttl:1m}\")}")
+    private Duration contextCacheTtl = Duration.ofMinutes(1);
+
     public void checkTopPlanMaxQueryRange(Interval interval) {
         if (interval.duration().compareTo(topPlanMaxQueryRange) > 0) {
             throw PERF_SQL_EXCEED_MAX_TIME_RANGE.exception(topPlanMaxQueryRange);
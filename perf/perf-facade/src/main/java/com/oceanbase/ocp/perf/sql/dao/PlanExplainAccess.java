@@ -16,8 +16,11 @@ import java.util.List;
 
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlan;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlans;
 
 public interface PlanExplainAccess {
 
     List<PlanExplainEntity> queryByPlan(QueryExplainByPlan query);
+
+    List<PlanExplainEntity> queryByPlans(QueryExplainByPlans query);
 }
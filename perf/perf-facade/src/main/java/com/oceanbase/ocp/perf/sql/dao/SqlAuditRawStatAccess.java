@@ -14,9 +14,11 @@ package com.oceanbase.ocp.perf.sql.dao;
 
 import java.util.List;
 
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditBucketStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditRawStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.TenantSlowSqlCounter;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySlowSqlRankParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlAuditBucketParam;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryTopSqlRawStatParam;
 
 public interface SqlAuditRawStatAccess {
@@ -26,4 +28,6 @@ public interface SqlAuditRawStatAccess {
     List<SqlAuditRawStatEntity> slowSql(QueryTopSqlRawStatParam param);
 
     List<TenantSlowSqlCounter> getTopSlowSql(QuerySlowSqlRankParam param);
+
+    List<SqlAuditBucketStatEntity> sqlAuditByBucket(QuerySqlAuditBucketParam param);
 }
@@ -19,27 +19,51 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.collections4.ListUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
+import com.oceanbase.ocp.common.util.ExecutorUtils;
+import com.oceanbase.ocp.common.util.trace.TraceDecorator;
 import com.oceanbase.ocp.core.exception.IllegalArgumentException;
+import com.oceanbase.ocp.core.exception.OcpException;
 import com.oceanbase.ocp.core.i18n.ErrorCodes;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.model.PlanUid;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlan;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlans;
 import com.oceanbase.ocp.perf.sql.dao.PlanExplainAccess;
 import com.oceanbase.ocp.perf.sql.model.PlanExplain;
 import com.oceanbase.ocp.perf.sql.model.PlanOperation;
 import com.oceanbase.ocp.perf.sql.model.PlanStatDetail;
 import com.oceanbase.ocp.perf.sql.param.QueryPlanExplainParam;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -47,15 +71,61 @@ import lombok.extern.slf4j.Slf4j;
 @Service
 public class PlanExplainServiceImpl implements PlanExplainService {
 
+    /**
+     * Max plan ids in one explain query.
+     */
+    private static final int EXPLAIN_BATCH_SIZE = 50;
+
     @Autowired
     private SqlStatProperties propertyManager;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private SqlStatContextServiceImpl sqlStatContextService;
 
     @Autowired
     private PlanExplainAccess planExplainDao;
 
+    /**
+     * Explains keyed by tenant and plan uid. A plan uid identifies one load of the
+     * plan, so its explain never changes and entries are only evicted by size.
+     * Cached explains are shared, callers must not modify them.
+     */
+    private Cache<String, PlanExplain> explainCache;
+
+    private ThreadPoolExecutor fetchExecutor;
+
+    public PlanExplainServiceImpl() {}
+
+    PlanExplainServiceImpl(SqlStatProperties propertyManager, MeterRegistry meterRegistry,
+            PlanExplainAccess planExplainDao) {
+        this.propertyManager = propertyManager;
+        this.meterRegistry = meterRegistry;
+        this.planExplainDao = planExplainDao;
+    }
+
+    @PostConstruct
+    public void init() {
+        explainCache = Caffeine.newBuilder()
+                .maximumWeight(propertyManager.getPlanExplainCacheMaxBytes())
+                .weigher((String key, PlanExplain explain) -> estimateBytes(key, explain))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, explainCache, "ocp_perf_plan_explain");
+        int parallelism = Math.max(1, propertyManager.getPlanExplainFetchParallelism());
+        fetchExecutor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * 4), new OcpThreadFactory("plan-explain-fetch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        fetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ExecutorUtils.shutdown(fetchExecutor, 1);
+    }
+
     private String env(QueryPlanExplainParam param, SqlStatDataContext context) {
         return String.format("clusterId=%d(%s:%d), tenantId=%d(%d)", param.clusterId,
                 context.clusterName, context.obClusterId, param.tenantId, context.obTenantId);
@@ -82,24 +152,126 @@ public class PlanExplainServiceImpl implements PlanExplainService {
         if (log.isDebugEnabled()) {
             log.debug("Plan explain query ret: {}", data.size());
         }
+        // plan ids are local to each server
         return data.stream()
-                .collect(Collectors.groupingBy(p -> p.planId))
-                .values()
-                .stream()
-                .limit(1)
-                .findAny()
-                .orElse(Collections.emptyList());
+                .filter(p -> param.uid.obServerId.equals(p.obServerId))
+                .collect(Collectors.toList());
     }
 
     @Override
     public PlanExplain getPlanExplain(SqlStatDataContext context, PlanStatDetail plan) {
-        QueryPlanExplainParam param = QueryPlanExplainParam.builder()
-                .startTime(plan.getFirstLoadTime())
-                .endTime(plan.getFirstLoadTime().plusMinutes(10L))
-                .planUid(plan.uid)
-                .tenantId(context.obTenantId)
+        return getPlanExplains(context, Collections.singletonList(plan)).get(PlanUid.from(plan.uid));
+    }
+
+    /**
+     * Explains of plans keyed by uid, plans whose explain is not found get an empty
+     * explain.
+     * <p>
+     * Cached explains are served directly, the rest are queried by server and plan
+     * id in batches, which run in parallel when there are more than one batch. Plan
+     * ids are local to each server, only rows of the server of the plan build its
+     * explain.
+     */
+    @Override
+    public Map<PlanUid, PlanExplain> getPlanExplains(SqlStatDataContext context, Collection<PlanStatDetail> plans) {
+        Map<PlanUid, PlanExplain> ret = new HashMap<>();
+        Map<String, List<PlanUid>> missed = new LinkedHashMap<>();
+        for (PlanStatDetail plan : plans) {
+            PlanUid uid = PlanUid.from(plan.uid);
+            PlanExplain cached = explainCache.getIfPresent(cacheKey(context, uid));
+            if (cached != null) {
+                ret.put(uid, cached);
+            } else {
+                missed.computeIfAbsent(serverPlanKey(uid.obServerId, uid.planId), k -> new ArrayList<>()).add(uid);
+            }
+        }
+        if (missed.isEmpty()) {
+            return ret;
+        }
+        List<PlanUid> toFetch = missed.values().stream().map(uids -> uids.get(0)).collect(Collectors.toList());
+        Map<String, List<PlanExplainEntity>> serverPlan2Entities = fetchExplains(context, toFetch);
+        missed.forEach((serverPlan, uids) -> {
+            PlanExplain explain = createBuilder().compute(serverPlan2Entities.get(serverPlan)).build();
+            for (PlanUid uid : uids) {
+                ret.put(uid, explain);
+                if (!explain.getRootOperations().isEmpty()) {
+                    explainCache.put(cacheKey(context, uid), explain);
+                }
+            }
+        });
+        log.debug("Plan explain batch: plans={}, missed={}", plans.size(), missed.size());
+        return ret;
+    }
+
+    private Map<String, List<PlanExplainEntity>> fetchExplains(SqlStatDataContext context, List<PlanUid> uids) {
+        List<List<PlanUid>> batches = ListUtils.partition(uids, EXPLAIN_BATCH_SIZE);
+        List<PlanExplainEntity> data = new ArrayList<>();
+        if (batches.size() == 1) {
+            data.addAll(queryExplains(context, batches.get(0)));
+        } else {
+            List<Future<List<PlanExplainEntity>>> futures = new ArrayList<>(batches.size());
+            for (List<PlanUid> batch : batches) {
+                futures.add(fetchExecutor.submit(new TraceDecorator().decorate(() -> queryExplains(context, batch))));
+            }
+            try {
+                for (Future<List<PlanExplainEntity>> future : futures) {
+                    data.addAll(future.get());
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new OcpException(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.COMMON_UNEXPECTED, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OcpException(HttpStatus.INTERNAL_SERVER_ERROR, ErrorCodes.COMMON_UNEXPECTED, e);
+            } finally {
+                futures.forEach(f -> f.cancel(true));
+            }
+        }
+        return data.stream().collect(Collectors.groupingBy(p -> serverPlanKey(p.obServerId, p.planId)));
+    }
+
+    private List<PlanExplainEntity> queryExplains(SqlStatDataContext context, List<PlanUid> uids) {
+        QueryExplainByPlans query = QueryExplainByPlans.builder()
+                .timeout(propertyManager.getQueryTimeout())
+                .obTenantId(context.obTenantId)
+                .plans(uids)
                 .build();
-        return getExplain(param);
+        try {
+            return planExplainDao.queryByPlans(query);
+        } catch (Exception e) {
+            if (isTimeoutException(e)) {
+                throw new IllegalArgumentException(ErrorCodes.COMMON_TIME_RANGE_TOO_LARGE);
+            }
+            throw e;
+        }
+    }
+
+    private static String serverPlanKey(Long obServerId, Long planId) {
+        return obServerId + ":" + planId;
+    }
+
+    private static String cacheKey(SqlStatDataContext context, PlanUid uid) {
+        return context.obTenantId + ":" + uid.obServerId + ":" + uid.planId + ":" + uid.firstLoadTimeUs;
+    }
+
+    private static int estimateBytes(String key, PlanExplain explain) {
+        long bytes = 64L + key.length() * 2L;
+        Deque<PlanOperation> operations = new LinkedList<>(explain.getRootOperations());
+        while (!operations.isEmpty()) {
+            PlanOperation operation = operations.pollFirst();
+            bytes += 96L + charBytes(operation.operator) + charBytes(operation.objectName)
+                    + charBytes(operation.property);
+            if (operation.children != null) {
+                operations.addAll(operation.children);
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long charBytes(String value) {
+        return value == null ? 0L : 40L + value.length() * 2L;
     }
 
     private QueryExplainByPlan buildQuery(QueryPlanExplainParam param, SqlStatDataContext context, PlanUid uid) {
@@ -33,8 +33,10 @@ import com.oceanbase.ocp.core.i18n.ErrorCodes;
 import com.oceanbase.ocp.core.ob.cluster.ManagedCluster;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanRawStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.model.PlanType;
+import com.oceanbase.ocp.obsdk.operator.sql.model.PlanUid;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryPlanRawStatBySql;
 import com.oceanbase.ocp.perf.sql.dao.PlanRawStatAccess;
+import com.oceanbase.ocp.perf.sql.model.PlanExplain;
 import com.oceanbase.ocp.perf.sql.model.PlanStatDetail;
 import com.oceanbase.ocp.perf.sql.model.PlanStatGroup;
 import com.oceanbase.ocp.perf.sql.param.QueryTopPlanParam;
@@ -88,17 +90,17 @@ public class PlanRawStatServiceImpl implements PlanRawStatService {
             }
             throw e;
         }
-        return data.stream()
-                .map(it -> {
-                    PlanStatDetail planStatDetail = mapToModel(it);
-                    if (param.isAttachPlanExplain()) {
-                        planStatDetail.setPlanExplain(planExplainService.getPlanExplain(context, planStatDetail));
-                    }
-                    return planStatDetail;
-                }).filter(Objects::nonNull)
+        List<PlanStatDetail> plans = data.stream()
+                .map(this::mapToModel)
+                .filter(Objects::nonNull)
                 .filter(p -> p.getTimeoutCount() + p.getExecutions() > 0)
                 .sorted(Comparator.comparingLong(PlanStatDetail::getFirstLoadTimeUs).reversed())
                 .collect(Collectors.toList());
+        if (param.isAttachPlanExplain() && !plans.isEmpty()) {
+            Map<PlanUid, PlanExplain> explains = planExplainService.getPlanExplains(context, plans);
+            plans.forEach(plan -> plan.setPlanExplain(explains.get(PlanUid.from(plan.uid))));
+        }
+        return plans;
     }
 
     private QueryPlanRawStatBySql buildQueryTopPlan(QueryTopPlanParam param, SqlStatDataContext context) {
@@ -136,9 +138,13 @@ public class PlanRawStatServiceImpl implements PlanRawStatService {
                                         p -> StringUtils.isNotEmpty(p.planUnionHash) ? p.planUnionHash : p.planHash));
         List<PlanStatGroup> planStatGroups =
                 planMap.values().stream().map(PlanStatGroup::of).collect(Collectors.toList());
-        planStatGroups.forEach(planStatGroup -> {
-            planStatGroup.setPlanExplain(planExplainService.getPlanExplain(context, planStatGroup.getPlans().get(0)));
-        });
+        if (!planStatGroups.isEmpty()) {
+            List<PlanStatDetail> firstPlans =
+                    planStatGroups.stream().map(group -> group.getPlans().get(0)).collect(Collectors.toList());
+            Map<PlanUid, PlanExplain> explains = planExplainService.getPlanExplains(context, firstPlans);
+            planStatGroups.forEach(planStatGroup -> planStatGroup
+                    .setPlanExplain(explains.get(PlanUid.from(planStatGroup.getPlans().get(0).uid))));
+        }
         log.debug("Got {} plan groups", planStatGroups);
         return planStatGroups;
     }
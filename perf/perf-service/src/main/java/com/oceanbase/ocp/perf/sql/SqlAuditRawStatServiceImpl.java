@@ -65,6 +65,9 @@ public class SqlAuditRawStatServiceImpl implements SqlAuditRawStatService {
     @Autowired
     private SqlAuditRawStatAccess sqlAuditRawStatDao;
 
+    @Autowired
+    private SqlAuditSnapshot sqlAuditSnapshot;
+
     @Getter
     @Autowired
     private SqlStatAttributeService sqlStatAttributeService;
@@ -93,7 +96,10 @@ public class SqlAuditRawStatServiceImpl implements SqlAuditRawStatService {
         try {
             QueryTopSqlRawStatParam query = buildQueryTopSql(param, context);
             log.info("Query sql audit with param:{}", query);
-            data = sqlAuditRawStatDao.topSql(query);
+            data = sqlAuditSnapshot.topSql(query);
+            if (data == null) {
+                data = sqlAuditRawStatDao.topSql(query);
+            }
             log.info("Query out {} by {}", data, param);
         } catch (Exception e) {
             if (isTimeoutException(e)) {
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.perf.sql;
+
+import static com.oceanbase.ocp.common.util.time.TimeUtils.toUs;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditBucketStatEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditRawStatEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlAuditBucketParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryTopSqlRawStatParam;
+import com.oceanbase.ocp.perf.sql.dao.SqlAuditRawStatAccess;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory snapshot of sql audit statistics.
+ * <p>
+ * Sql audit rows ended since last collection are pulled periodically, grouped
+ * by sql, server and time bucket on the server side, then folded into buckets
+ * kept for the retention. Top sql of a range is served from buckets fully
+ * inside the range, and the uncovered head and tail of the range are queried
+ * from sql audit directly.
+ * <p>
+ * Buckets kept are bounded by count and estimated bytes, oldest buckets are
+ * dropped first. Queries whose head or tail hits the rows limit of the live
+ * query are not served from the snapshot, as the merged result may be partial.
+ */
+@Slf4j
+@Component
+public class SqlAuditSnapshot {
+
+    /**
+     * Same as rows limit of the live query.
+     */
+    private static final int MAX_ROWS = 1000;
+
+    private static final int MAX_BUCKETS = 1440;
+
+    /**
+     * Estimated bytes of an entry besides its texts.
+     */
+    private static final long ENTRY_BYTES = 1024L;
+
+    @Autowired
+    private SqlStatProperties properties;
+
+    @Autowired
+    private SqlAuditRawStatAccess sqlAuditRawStatDao;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<Long, Bucket> buckets = new TreeMap<>();
+
+    private long totalBytes = 0L;
+
+    private long bucketUs = 0L;
+
+    /**
+     * Rows ended in [coveredStartUs, coveredEndUs] are collected.
+     */
+    private long coveredStartUs = 0L;
+
+    private long coveredEndUs = -1L;
+
+    public SqlAuditSnapshot() {}
+
+    SqlAuditSnapshot(SqlStatProperties properties, SqlAuditRawStatAccess sqlAuditRawStatDao) {
+        this.properties = properties;
+        this.sqlAuditRawStatDao = sqlAuditRawStatDao;
+    }
+
+    @Scheduled(fixedDelay = 30, timeUnit = TimeUnit.SECONDS)
+    public void collect() {
+        collect(toUs(Instant.now()));
+    }
+
+    void collect(long nowUs) {
+        if (!properties.isAuditSnapshotEnabled()) {
+            clear();
+            return;
+        }
+        long bucket = toUs(properties.getAuditSnapshotBucket());
+        long cutoffUs = nowUs - toUs(properties.getAuditSnapshotLag());
+        long retentionUs = Math.min(toUs(properties.getAuditSnapshotRetention()), bucket * MAX_BUCKETS);
+        long minBucketUs = alignDown(nowUs - retentionUs, bucket);
+        if (bucket != bucketUs || coveredEndUs < minBucketUs) {
+            clear();
+        }
+        long startUs = coveredEndUs < 0 ? minBucketUs : coveredEndUs + 1;
+        if (startUs > cutoffUs) {
+            return;
+        }
+        List<SqlAuditBucketStatEntity> rows;
+        try {
+            rows = sqlAuditRawStatDao.sqlAuditByBucket(QuerySqlAuditBucketParam.builder()
+                    .startTimeUs(startUs - 1)
+                    .endTimeUs(cutoffUs)
+                    .bucketUs(bucket)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Collect sql audit snapshot failed, range=({}, {}], reason:{}", startUs - 1, cutoffUs,
+                    e.getMessage());
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (SqlAuditBucketStatEntity row : rows) {
+                Bucket target = buckets.computeIfAbsent(row.getBucketStartUs(), k -> new Bucket());
+                SqlAuditRawStatEntity entry = target.rows.get(SqlKey.of(row, true));
+                if (entry == null) {
+                    entry = identity(row);
+                    target.rows.put(SqlKey.of(row, true), entry);
+                    target.bytes += bytesOf(entry);
+                    totalBytes += bytesOf(entry);
+                }
+                entry.merge(row);
+            }
+            bucketUs = bucket;
+            coveredStartUs = coveredEndUs < 0 ? startUs : Math.max(coveredStartUs, minBucketUs);
+            coveredEndUs = cutoffUs;
+            while (!buckets.isEmpty()
+                    && (buckets.firstKey() < minBucketUs || totalBytes > properties.getAuditSnapshotMaxBytes())) {
+                Map.Entry<Long, Bucket> oldest = buckets.pollFirstEntry();
+                totalBytes -= oldest.getValue().bytes;
+                coveredStartUs = Math.max(coveredStartUs, oldest.getKey() + bucket);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("Collected {} sql audit rows into snapshot, range=[{}, {}]", rows.size(), startUs, cutoffUs);
+    }
+
+    /**
+     * Top sql of the query served from the snapshot.
+     *
+     * @return null if no whole bucket of the snapshot is inside the query range, or
+     *         the head or tail queried from sql audit may be partial
+     */
+    public List<SqlAuditRawStatEntity> topSql(QueryTopSqlRawStatParam query) {
+        if (!properties.isAuditSnapshotEnabled()) {
+            return null;
+        }
+        Pattern sqlTextPattern = StringUtils.isEmpty(query.getSqlText()) ? null
+                : compileLike("%" + query.getSqlText() + "%");
+        long firstUs;
+        long lastUs;
+        Map<SqlKey, SqlAuditRawStatEntity> merged = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            if (bucketUs <= 0 || coveredEndUs < 0) {
+                return null;
+            }
+            firstUs = Math.max(alignUp(query.getStartTimeUs(), bucketUs), coveredStartUs);
+            lastUs = Math.min(alignDown(query.getEndTimeUs() + 1, bucketUs), alignDown(coveredEndUs + 1, bucketUs));
+            if (firstUs >= lastUs) {
+                return null;
+            }
+            for (Bucket bucket : buckets.subMap(firstUs, true, lastUs, false).values()) {
+                for (SqlAuditRawStatEntity row : bucket.rows.values()) {
+                    if (matches(query, sqlTextPattern, row)) {
+                        merged.computeIfAbsent(SqlKey.of(row, false), k -> identity(row)).merge(row);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (query.getStartTimeUs() < firstUs && !mergeLive(merged, query, query.getStartTimeUs(), firstUs - 1)) {
+            return null;
+        }
+        if (lastUs <= query.getEndTimeUs() && !mergeLive(merged, query, lastUs, query.getEndTimeUs())) {
+            return null;
+        }
+        return merged.values().stream()
+                .filter(row -> query.isIncludeInner() || valueOf(row.getInnerSqlCount()) == 0L)
+                .sorted(Comparator.comparingLong(row -> -valueOf(row.getElapsedTimeUs())))
+                .limit(MAX_ROWS)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Inner sql is filtered on the merged statistics, so rows of the part are
+     * queried including inner sql.
+     *
+     * @return false if rows of the part hit the rows limit
+     */
+    private boolean mergeLive(Map<SqlKey, SqlAuditRawStatEntity> merged, QueryTopSqlRawStatParam query,
+            long startUs, long endUs) {
+        QueryTopSqlRawStatParam live = QueryTopSqlRawStatParam.builder()
+                .timeout(query.getTimeout())
+                .startTimeUs(startUs)
+                .endTimeUs(endUs)
+                .obTenantId(query.getObTenantId())
+                .serverIp(query.getServerIp())
+                .serverPort(query.getServerPort())
+                .sqlId(query.getSqlId())
+                .includeInner(true)
+                .limit(query.getLimit())
+                .sqlText(query.getSqlText())
+                .build();
+        List<SqlAuditRawStatEntity> rows = sqlAuditRawStatDao.topSql(live);
+        if (rows.size() >= MAX_ROWS) {
+            log.info("Sql audit rows of ({}, {}) hit limit, skip snapshot", startUs, endUs);
+            return false;
+        }
+        for (SqlAuditRawStatEntity row : rows) {
+            merged.computeIfAbsent(SqlKey.of(row, false), k -> identity(row)).merge(row);
+        }
+        return true;
+    }
+
+    private static boolean matches(QueryTopSqlRawStatParam query, Pattern sqlTextPattern,
+            SqlAuditRawStatEntity row) {
+        if (!Objects.equals(query.getObTenantId(), row.getObTenantId())) {
+            return false;
+        }
+        if (StringUtils.isNotEmpty(query.getServerIp()) && query.getServerPort() >= 0
+                && !(query.getServerIp().equals(row.getServerIp())
+                        && query.getServerPort().equals(row.getServerPort()))) {
+            return false;
+        }
+        if (StringUtils.isNotEmpty(query.getSqlId()) && !query.getSqlId().equals(row.getSqlId())) {
+            return false;
+        }
+        return sqlTextPattern == null
+                || row.getStatement() != null && sqlTextPattern.matcher(row.getStatement()).matches();
+    }
+
+    /**
+     * Pattern matching the same as {@code like} of a case-insensitive collation,
+     * with backslash as the escape character.
+     */
+    static Pattern compileLike(String like) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '\\' && i + 1 < like.length()) {
+                regex.append(Pattern.quote(String.valueOf(like.charAt(++i))));
+            } else if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            buckets.clear();
+            totalBytes = 0L;
+            bucketUs = 0L;
+            coveredStartUs = 0L;
+            coveredEndUs = -1L;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Entity with identity fields of the row and empty statistics.
+     */
+    private static SqlAuditRawStatEntity identity(SqlAuditRawStatEntity row) {
+        SqlAuditRawStatEntity entity = new SqlAuditRawStatEntity();
+        entity.setObTenantId(row.getObTenantId());
+        entity.setObDbId(row.getObDbId());
+        entity.setDbName(row.getDbName());
+        entity.setSqlText(row.getSqlText());
+        entity.setStatement(row.getStatement());
+        entity.setServerIp(row.getServerIp());
+        entity.setServerPort(row.getServerPort());
+        entity.setObUserId(row.getObUserId());
+        entity.setUserName(row.getUserName());
+        entity.setSqlId(row.getSqlId());
+        return entity;
+    }
+
+    private static long bytesOf(SqlAuditRawStatEntity entry) {
+        return ENTRY_BYTES + 2L * (StringUtils.length(entry.getStatement()) + StringUtils.length(entry.getSqlText())
+                + StringUtils.length(entry.getDbName()) + StringUtils.length(entry.getUserName()));
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static long alignDown(long timeUs, long bucketUs) {
+        return Math.floorDiv(timeUs, bucketUs) * bucketUs;
+    }
+
+    private static long alignUp(long timeUs, long bucketUs) {
+        return alignDown(timeUs + bucketUs - 1, bucketUs);
+    }
+
+    private static class Bucket {
+
+        final Map<SqlKey, SqlAuditRawStatEntity> rows = new HashMap<>();
+
+        long bytes = 0L;
+    }
+
+    @Value
+    private static class SqlKey {
+
+        Long obTenantId;
+        BigInteger obDbId;
+        String sqlId;
+        String serverIp;
+        Integer serverPort;
+
+        static SqlKey of(SqlAuditRawStatEntity row, boolean withServer) {
+            return withServer
+                    ? new SqlKey(row.getObTenantId(), row.getObDbId(), row.getSqlId(), row.getServerIp(),
+                            row.getServerPort())
+                    : new SqlKey(row.getObTenantId(), row.getObDbId(), row.getSqlId(), null, null);
+        }
+    }
+}
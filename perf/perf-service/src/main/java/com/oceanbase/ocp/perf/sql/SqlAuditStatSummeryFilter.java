@@ -16,16 +16,27 @@ import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.oceanbase.ocp.core.el.CompiledExpression;
 import com.oceanbase.ocp.core.el.SimpleExpressionCalculator;
 import com.oceanbase.ocp.perf.sql.model.SqlAuditStatSummary;
 
-import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
+@Slf4j
 public class SqlAuditStatSummeryFilter implements Predicate<SqlAuditStatSummary> {
 
     private final String expr;
 
+    /**
+     * Compiled once for all rows, null if expr is blank or illegal.
+     */
+    private final CompiledExpression compiled;
+
+    public SqlAuditStatSummeryFilter(String expr) {
+        this.expr = expr;
+        this.compiled = compile(expr);
+    }
+
     @Override
     public boolean test(SqlAuditStatSummary sqlAuditStatSummary) {
         if (sqlAuditStatSummary == null) {
@@ -34,6 +45,21 @@ public class SqlAuditStatSummeryFilter implements Predicate<SqlAuditStatSummary>
         if (StringUtils.isBlank(expr)) {
             return true;
         }
-        return SimpleExpressionCalculator.evalToBoolean(sqlAuditStatSummary, expr, false);
+        if (compiled == null) {
+            return false;
+        }
+        return compiled.evalToBoolean(sqlAuditStatSummary, false);
+    }
+
+    private static CompiledExpression compile(String expr) {
+        if (StringUtils.isBlank(expr)) {
+            return null;
+        }
+        try {
+            return SimpleExpressionCalculator.compile(expr);
+        } catch (Exception e) {
+            log.info("Error in compiling expr:{}", expr, e);
+            return null;
+        }
     }
 }
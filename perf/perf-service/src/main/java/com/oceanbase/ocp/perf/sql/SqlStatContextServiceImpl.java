@@ -10,14 +10,26 @@
  * See the Mulan PSL v2 for more details.
  */
 
+
 package com.oceanbase.ocp.perf.sql;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import com.oceanbase.ocp.core.event.DatabaseChangedEvent;
+import com.oceanbase.ocp.core.event.TenantChangedEvent;
 import com.oceanbase.ocp.core.exception.NotFoundException;
 import com.oceanbase.ocp.core.i18n.ErrorCodes;
 import com.oceanbase.ocp.core.ob.cluster.BasicCluster;
@@ -30,12 +42,27 @@ import com.oceanbase.ocp.obsdk.operator.ObjectOperator;
 import com.oceanbase.ocp.obsdk.operator.cluster.model.ObServer;
 import com.oceanbase.ocp.obsdk.operator.resource.model.ObGvDatabase;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Tenants and databases are cached as snapshots, a snapshot is reused until it
+ * expires or a {@link TenantChangedEvent} is received, and databases of a
+ * tenant are also dropped on a {@link DatabaseChangedEvent}. Each invalidation
+ * bumps the version, so a snapshot loaded concurrently with an invalidation is
+ * used once but never installed.
+ * <p>
+ * A lookup that misses in a snapshot older than {@link #MISS_RELOAD_MILLIS}
+ * reloads it once, so newly created tenants and databases are visible without
+ * waiting for expiration.
+ */
 @Slf4j
 @Service
 public class SqlStatContextServiceImpl implements SqlStatContextService {
 
+    private static final long MISS_RELOAD_MILLIS = 5_000L;
+
     @Autowired
     private ManagedCluster managedCluster;
 
@@ -45,14 +72,77 @@ public class SqlStatContextServiceImpl implements SqlStatContextService {
     @Autowired
     private ObOperatorFactory obOperatorFactory;
 
+    @Autowired
+    private SqlStatProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile TenantSnapshot tenantSnapshot;
+
+    private final Map<Long, DatabaseSnapshot> databaseSnapshots = new ConcurrentHashMap<>();
+
+    private Counter tenantHits;
+    private Counter tenantLoads;
+    private Counter databaseHits;
+    private Counter databaseLoads;
+
+    private final LongSupplier clock;
+
+    public SqlStatContextServiceImpl() {
+        this.clock = System::currentTimeMillis;
+    }
+
+    SqlStatContextServiceImpl(TenantDaoManager tenantDaoManager, ObOperatorFactory obOperatorFactory,
+            SqlStatProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.tenantDaoManager = tenantDaoManager;
+        this.obOperatorFactory = obOperatorFactory;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    public void init() {
+        tenantHits = newCounter("tenant", "hit");
+        tenantLoads = newCounter("tenant", "load");
+        databaseHits = newCounter("database", "hit");
+        databaseLoads = newCounter("database", "load");
+    }
+
+    private Counter newCounter(String type, String result) {
+        return Counter.builder("ocp_perf_sql_context_cache")
+                .description("Lookups of sql stat context, hits are metadb or OB round trips saved")
+                .tag("type", type)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onTenantChanged(TenantChangedEvent event) {
+        version.incrementAndGet();
+        tenantSnapshot = null;
+        if (event.isAllTenants()) {
+            databaseSnapshots.clear();
+        } else {
+            databaseSnapshots.remove(event.getObTenantId());
+        }
+        log.debug("Sql stat context invalidated, obTenantId={}", event.getObTenantId());
+    }
+
+    @EventListener
+    public void onDatabaseChanged(DatabaseChangedEvent event) {
+        version.incrementAndGet();
+        databaseSnapshots.remove(event.getObTenantId());
+        log.debug("Sql stat context databases invalidated, obTenantId={}", event.getObTenantId());
+    }
+
     @Override
     public SqlStatDataContext getContext(Long obTenantId) {
         BasicCluster cluster = managedCluster.getClusterInfo();
-        List<ObTenantEntity> tenants = tenantDaoManager.queryAllTenant();
-        ObTenantEntity tenant = tenants.stream()
-                .filter(it -> it.getObTenantId().equals(obTenantId)).findFirst()
-                .orElseThrow(() -> ExceptionUtils.newException(NotFoundException.class,
-                        ErrorCodes.OB_TENANT_ID_NOT_FOUND, obTenantId));
+        ObTenantEntity tenant = getTenant(obTenantId);
         List<ObServer> servers = cluster.getObServers();
         return new SqlStatDataContext(cluster, tenant, servers);
 
@@ -60,22 +150,120 @@ public class SqlStatContextServiceImpl implements SqlStatContextService {
 
     @Override
     public Long getObDatabaseId(Long obTenantId, String dbName) {
-        ObTenantEntity tenantEntity = tenantDaoManager.nullSafeGetObTenant(obTenantId);
-        ObjectOperator objectOperator = obOperatorFactory.createObOperator().object();
-        Optional<ObGvDatabase> obDb = objectOperator.listTenantDatabase(tenantEntity.getObTenantId()).stream()
-                .filter(db -> db.getDatabaseName().equalsIgnoreCase(dbName))
-                .findFirst();
-        return obDb.map(ObGvDatabase::getDatabaseId).orElse(null);
+        ObTenantEntity tenantEntity = getTenant(obTenantId);
+        if (dbName == null) {
+            return null;
+        }
+        String key = dbName.toLowerCase(Locale.ROOT);
+        DatabaseSnapshot snapshot = databaseSnapshot(tenantEntity.getObTenantId());
+        Long dbId = snapshot.name2Id.get(key);
+        if (dbId == null && snapshot.canReloadOnMiss()) {
+            dbId = loadDatabases(tenantEntity.getObTenantId()).name2Id.get(key);
+        }
+        return dbId;
     }
 
 
     @Override
     public String getDatabaseName(Long obTenantId, Long obDbId) {
+        DatabaseSnapshot snapshot = databaseSnapshot(obTenantId);
+        String dbName = snapshot.id2Name.get(obDbId);
+        if (dbName == null && snapshot.canReloadOnMiss()) {
+            dbName = loadDatabases(obTenantId).id2Name.get(obDbId);
+        }
+        return dbName;
+    }
+
+    private ObTenantEntity getTenant(Long obTenantId) {
+        TenantSnapshot snapshot = tenantSnapshot;
+        if (snapshot != null && !snapshot.isExpired()) {
+            tenantHits.increment();
+        } else {
+            snapshot = loadTenants();
+        }
+        ObTenantEntity tenant = snapshot.tenants.get(obTenantId);
+        if (tenant == null && snapshot.canReloadOnMiss()) {
+            tenant = loadTenants().tenants.get(obTenantId);
+        }
+        if (tenant == null) {
+            throw ExceptionUtils.newException(NotFoundException.class, ErrorCodes.OB_TENANT_ID_NOT_FOUND, obTenantId);
+        }
+        return tenant;
+    }
+
+    private TenantSnapshot loadTenants() {
+        long loadVersion = version.get();
+        tenantLoads.increment();
+        Map<Long, ObTenantEntity> tenants = new HashMap<>();
+        for (ObTenantEntity tenant : tenantDaoManager.queryAllTenant()) {
+            if (tenant.getObTenantId() != null) {
+                tenants.putIfAbsent(tenant.getObTenantId(), tenant);
+            }
+        }
+        TenantSnapshot snapshot = new TenantSnapshot(tenants);
+        if (version.get() == loadVersion) {
+            tenantSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private DatabaseSnapshot databaseSnapshot(Long obTenantId) {
+        DatabaseSnapshot snapshot = databaseSnapshots.get(obTenantId);
+        if (snapshot != null && !snapshot.isExpired()) {
+            databaseHits.increment();
+            return snapshot;
+        }
+        return loadDatabases(obTenantId);
+    }
+
+    private DatabaseSnapshot loadDatabases(Long obTenantId) {
+        long loadVersion = version.get();
+        databaseLoads.increment();
         ObjectOperator objectOperator = obOperatorFactory.createObOperator().object();
-        Optional<ObGvDatabase> obDb = objectOperator.listTenantDatabase(obTenantId).stream()
-                .filter(db -> obDbId.equals(db.getDatabaseId()))
-                .findFirst();
-        return obDb.map(ObGvDatabase::getDatabaseName).orElse(null);
+        Map<String, Long> name2Id = new HashMap<>();
+        Map<Long, String> id2Name = new HashMap<>();
+        for (ObGvDatabase db : objectOperator.listTenantDatabase(obTenantId)) {
+            name2Id.putIfAbsent(db.getDatabaseName().toLowerCase(Locale.ROOT), db.getDatabaseId());
+            id2Name.putIfAbsent(db.getDatabaseId(), db.getDatabaseName());
+        }
+        DatabaseSnapshot snapshot = new DatabaseSnapshot(name2Id, id2Name);
+        if (version.get() == loadVersion) {
+            databaseSnapshots.put(obTenantId, snapshot);
+        }
+        return snapshot;
+    }
+
+    private abstract class Snapshot {
+
+        private final long loadedAt = clock.getAsLong();
+
+        boolean isExpired() {
+            return clock.getAsLong() - loadedAt >= properties.getContextCacheTtl().toMillis();
+        }
+
+        boolean canReloadOnMiss() {
+            return clock.getAsLong() - loadedAt >= MISS_RELOAD_MILLIS;
+        }
+    }
+
+    private final class TenantSnapshot extends Snapshot {
+
+        private final Map<Long, ObTenantEntity> tenants;
+
+        private TenantSnapshot(Map<Long, ObTenantEntity> tenants) {
+            this.tenants = Collections.unmodifiableMap(tenants);
+        }
+    }
+
+    private final class DatabaseSnapshot extends Snapshot {
+
+        private final Map<String, Long> name2Id;
+        private final Map<Long, String> id2Name;
+
+        private DatabaseSnapshot(Map<String, Long> name2Id, Map<Long, String> id2Name) {
+            this.name2Id = Collections.unmodifiableMap(name2Id);
+            this.id2Name = Collections.unmodifiableMap(id2Name);
+        }
     }
 
 }
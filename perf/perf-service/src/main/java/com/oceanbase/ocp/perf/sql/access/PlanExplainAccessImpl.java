@@ -22,6 +22,7 @@ import com.oceanbase.ocp.core.obsdk.ObOperatorFactory;
 import com.oceanbase.ocp.obsdk.operator.SqlPlanExplainOperator;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlan;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlans;
 import com.oceanbase.ocp.perf.sql.dao.PlanExplainAccess;
 
 @Component
@@ -35,4 +36,10 @@ public class PlanExplainAccessImpl implements PlanExplainAccess {
         SqlPlanExplainOperator sqlPlanOperator = obOperatorFactory.createObOperator().sqlPlanExplain();
         return sqlPlanOperator.queryByPlan(query);
     }
+
+    @Override
+    public List<PlanExplainEntity> queryByPlans(QueryExplainByPlans query) {
+        SqlPlanExplainOperator sqlPlanOperator = obOperatorFactory.createObOperator().sqlPlanExplain();
+        return sqlPlanOperator.queryByPlans(query);
+    }
 }
@@ -20,9 +20,11 @@ import org.springframework.stereotype.Component;
 
 import com.oceanbase.ocp.core.obsdk.ObOperatorFactory;
 import com.oceanbase.ocp.obsdk.operator.SqlAuditOperator;
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditBucketStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditRawStatEntity;
 import com.oceanbase.ocp.obsdk.operator.sql.entity.TenantSlowSqlCounter;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySlowSqlRankParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlAuditBucketParam;
 import com.oceanbase.ocp.obsdk.operator.sql.param.QueryTopSqlRawStatParam;
 import com.oceanbase.ocp.perf.sql.dao.SqlAuditRawStatAccess;
 
@@ -50,4 +52,10 @@ public class SqlAuditRawStatAccessImpl implements SqlAuditRawStatAccess {
         return sqlAuditOperator.querySlowSqlRawStat(param);
     }
 
+    @Override
+    public List<SqlAuditBucketStatEntity> sqlAuditByBucket(QuerySqlAuditBucketParam param) {
+        SqlAuditOperator sqlAuditOperator = obOperatorFactory.createObOperator().sqlAudit();
+        return sqlAuditOperator.querySqlAuditByBucket(param);
+    }
+
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.perf.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.obsdk.operator.sql.entity.PlanExplainEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.model.PlanUid;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlan;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryExplainByPlans;
+import com.oceanbase.ocp.perf.sql.dao.PlanExplainAccess;
+import com.oceanbase.ocp.perf.sql.model.PlanExplain;
+import com.oceanbase.ocp.perf.sql.model.PlanStatDetail;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PlanExplainServiceImplTest {
+
+    private static final long SERVER_ID = 1L;
+
+    private RecordingPlanExplainAccess planExplainDao;
+
+    private PlanExplainServiceImpl service;
+
+    @Before
+    public void setUp() {
+        planExplainDao = new RecordingPlanExplainAccess();
+        service = new PlanExplainServiceImpl(new SqlStatProperties(), new SimpleMeterRegistry(), planExplainDao);
+        service.init();
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void getPlanExplains_queriedInBatches() {
+        List<PlanStatDetail> plans = new ArrayList<>();
+        for (long planId = 1; planId <= 120; planId++) {
+            plans.add(plan(planId, 100L));
+        }
+
+        Map<PlanUid, PlanExplain> explains = service.getPlanExplains(context(1001L), plans);
+        assertEquals(120, explains.size());
+        for (PlanStatDetail plan : plans) {
+            assertEquals("plan" + plan.planId, operatorOf(explains.get(PlanUid.from(plan.uid))));
+        }
+        List<Integer> batchSizes = planExplainDao.queries.stream()
+                .map(q -> q.getPlans().size())
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList(20, 50, 50), batchSizes);
+        assertEquals(120, planExplainDao.queries.stream()
+                .flatMap(q -> q.getPlans().stream())
+                .collect(Collectors.toSet())
+                .size());
+    }
+
+    @Test
+    public void getPlanExplains_cacheHitByTenantAndPlan() {
+        PlanStatDetail plan = plan(1L, 100L);
+        PlanExplain explain = service.getPlanExplains(context(1001L), Collections.singletonList(plan))
+                .get(PlanUid.from(plan.uid));
+        assertEquals(1, planExplainDao.queries.size());
+
+        assertSame(explain, service.getPlanExplain(context(1001L), plan));
+        assertEquals(1, planExplainDao.queries.size());
+
+        service.getPlanExplain(context(1002L), plan);
+        assertEquals(2, planExplainDao.queries.size());
+        assertEquals(1002L, planExplainDao.queries.get(1).getObTenantId().longValue());
+
+        service.getPlanExplain(context(1001L), plan(1L, 200L));
+        service.getPlanExplain(context(1001L), plan(2L, 100L));
+        assertEquals(4, planExplainDao.queries.size());
+    }
+
+    @Test
+    public void getPlanExplains_onlyMissedQueried() {
+        service.getPlanExplains(context(1001L), Arrays.asList(plan(1L, 100L), plan(2L, 100L)));
+        planExplainDao.queries.clear();
+
+        Map<PlanUid, PlanExplain> explains = service.getPlanExplains(context(1001L),
+                Arrays.asList(plan(1L, 100L), plan(2L, 100L), plan(3L, 100L)));
+        assertEquals(3, explains.size());
+        assertEquals(1, planExplainDao.queries.size());
+        assertEquals(Collections.singletonList(PlanUid.of(SERVER_ID, 3L, 100L)),
+                planExplainDao.queries.get(0).getPlans());
+    }
+
+    @Test
+    public void getPlanExplains_samePlanIdOfServersNotMixed() {
+        PlanStatDetail plan1 = plan(1L, 100L);
+        PlanStatDetail plan2 = plan(2L, 1L, 100L);
+        PlanStatDetail plan3 = plan(2L, 1L, 200L);
+
+        Map<PlanUid, PlanExplain> explains = service.getPlanExplains(context(1001L),
+                Arrays.asList(plan1, plan2, plan3));
+        assertEquals(1, planExplainDao.queries.size());
+        assertEquals(2, planExplainDao.queries.get(0).getPlans().size());
+        assertEquals("server1", objectNameOf(explains.get(PlanUid.from(plan1.uid))));
+        assertEquals("server2", objectNameOf(explains.get(PlanUid.from(plan2.uid))));
+        assertSame(explains.get(PlanUid.from(plan2.uid)), explains.get(PlanUid.from(plan3.uid)));
+
+        assertEquals("server1", objectNameOf(service.getPlanExplain(context(1001L), plan1)));
+        assertEquals("server2", objectNameOf(service.getPlanExplain(context(1001L), plan2)));
+        assertEquals(1, planExplainDao.queries.size());
+    }
+
+    @Test
+    public void getPlanExplains_emptyExplainNotCached() {
+        planExplainDao.missingPlanIds.add(1L);
+        PlanStatDetail plan = plan(1L, 100L);
+
+        assertTrue(service.getPlanExplain(context(1001L), plan).getRootOperations().isEmpty());
+        planExplainDao.missingPlanIds.clear();
+        assertEquals("plan1", operatorOf(service.getPlanExplain(context(1001L), plan)));
+        assertEquals(2, planExplainDao.queries.size());
+    }
+
+    private static String operatorOf(PlanExplain explain) {
+        return explain.getRootOperations().get(0).operator;
+    }
+
+    private static String objectNameOf(PlanExplain explain) {
+        return explain.getRootOperations().get(0).objectName;
+    }
+
+    private static SqlStatDataContext context(long obTenantId) {
+        return SqlStatDataContext.builder().obTenantId(obTenantId).build();
+    }
+
+    private static PlanStatDetail plan(long planId, long firstLoadTimeUs) {
+        return plan(SERVER_ID, planId, firstLoadTimeUs);
+    }
+
+    private static PlanStatDetail plan(long obServerId, long planId, long firstLoadTimeUs) {
+        PlanStatDetail plan = new PlanStatDetail();
+        plan.planId = planId;
+        plan.uid = PlanUid.of(obServerId, planId, firstLoadTimeUs).toString();
+        return plan;
+    }
+
+    /**
+     * Explains of plans of all tenants and servers, each plan has one operation
+     * named after the plan id, whose object is named after the server.
+     */
+    private static class RecordingPlanExplainAccess implements PlanExplainAccess {
+
+        private final List<QueryExplainByPlans> queries = Collections.synchronizedList(new ArrayList<>());
+
+        private final HashSet<Long> missingPlanIds = new HashSet<>();
+
+        @Override
+        public List<PlanExplainEntity> queryByPlan(QueryExplainByPlan query) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<PlanExplainEntity> queryByPlans(QueryExplainByPlans query) {
+            queries.add(query);
+            List<PlanExplainEntity> entities = new ArrayList<>();
+            for (PlanUid plan : query.getPlans()) {
+                if (missingPlanIds.contains(plan.planId)) {
+                    continue;
+                }
+                PlanExplainEntity entity = new PlanExplainEntity();
+                entity.setObTenantId(query.getObTenantId());
+                entity.setObServerId(plan.obServerId);
+                entity.setPlanId(plan.planId);
+                entity.setOperator("plan" + plan.planId);
+                entity.setObjectName("server" + plan.obServerId);
+                entities.add(entity);
+            }
+            return entities;
+        }
+    }
+}
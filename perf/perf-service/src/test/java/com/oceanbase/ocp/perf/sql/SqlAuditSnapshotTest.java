@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.perf.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditBucketStatEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.entity.SqlAuditRawStatEntity;
+import com.oceanbase.ocp.obsdk.operator.sql.entity.TenantSlowSqlCounter;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySlowSqlRankParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QuerySqlAuditBucketParam;
+import com.oceanbase.ocp.obsdk.operator.sql.param.QueryTopSqlRawStatParam;
+import com.oceanbase.ocp.perf.sql.dao.SqlAuditRawStatAccess;
+
+public class SqlAuditSnapshotTest {
+
+    private static final long MINUTE_US = 60_000_000L;
+
+    private static final long T0 = 28_333_333L * MINUTE_US;
+
+    private static final long TENANT_ID = 1002L;
+
+    private SqlStatProperties properties;
+
+    private InMemorySqlAudit sqlAudit;
+
+    private SqlAuditSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        properties = new SqlStatProperties();
+        properties.setAuditSnapshotEnabled(true);
+        properties.setAuditSnapshotBucket(Duration.ofMinutes(1));
+        properties.setAuditSnapshotRetention(Duration.ofHours(1));
+        properties.setAuditSnapshotLag(Duration.ofSeconds(10));
+        properties.setAuditSnapshotMaxBytes(64L * 1024 * 1024);
+        sqlAudit = new InMemorySqlAudit();
+        snapshot = new SqlAuditSnapshot(properties, sqlAudit);
+
+        for (int minute = 0; minute < 10; minute++) {
+            long startUs = T0 + minute * MINUTE_US;
+            sqlAudit.add("A", "select * from t1 where id = ?", startUs + 5_000_000L, 100L, false);
+            sqlAudit.add("B", "SELECT a FROM t2", startUs + 40_000_000L, 200L, false);
+            sqlAudit.add("C", "update t1 set a = ?", startUs + 20_000_000L, 300L, false);
+            sqlAudit.add("D", "select 100% from t_x", startUs + 50_000_000L, 50L, false);
+            sqlAudit.add("E", "select x\nfrom tx", startUs + 10_000_000L, 10L, minute == 8);
+        }
+        sqlAudit.add("F", "select inner_only from t3", T0 + 45_000_000L, 1L, true);
+    }
+
+    @Test
+    public void topSql_sameAsLive() {
+        snapshot.collect(T0 + 10 * MINUTE_US);
+
+        assertSameAsLive(query().build());
+        assertSameAsLive(query().includeInner(true).build());
+    }
+
+    @Test
+    public void topSql_filterSqlId() {
+        snapshot.collect(T0 + 10 * MINUTE_US);
+
+        List<SqlAuditRawStatEntity> rows = assertSameAsLive(query().sqlId("B").build());
+        assertEquals(1, rows.size());
+        assertEquals("B", rows.get(0).getSqlId());
+    }
+
+    @Test
+    public void topSql_sqlTextLikeWildcardsAndCase() {
+        snapshot.collect(T0 + 10 * MINUTE_US);
+
+        assertEquals(3, assertSameAsLive(query().sqlText("select").build()).size());
+        assertEquals(3, assertSameAsLive(query().sqlText("SELECT%FROM t_").build()).size());
+        assertEquals(1, assertSameAsLive(query().sqlText("t_x").build()).size());
+        assertEquals(1, assertSameAsLive(query().sqlText("100\\%").build()).size());
+        assertEquals(1, assertSameAsLive(query().includeInner(true).sqlText("x_from").build()).size());
+        assertEquals(0, assertSameAsLive(query().sqlText("t1 where id = 1").build()).size());
+    }
+
+    @Test
+    public void topSql_queryHeadAndTailLive() {
+        snapshot.collect(T0 + 10 * MINUTE_US);
+        sqlAudit.queries.clear();
+
+        assertNotNull(snapshot.topSql(query().build()));
+        assertEquals(2, sqlAudit.queries.size());
+        assertEquals(T0 + MINUTE_US - 1, sqlAudit.queries.get(0).getEndTimeUs().longValue());
+        assertEquals(T0 + 8 * MINUTE_US, sqlAudit.queries.get(1).getStartTimeUs().longValue());
+    }
+
+    @Test
+    public void topSql_headHitsRowsLimit() {
+        for (int i = 0; i < 1000; i++) {
+            sqlAudit.add("X" + i, "select " + i, T0 + 50_000_000L, 1L, false);
+        }
+        snapshot.collect(T0 + 10 * MINUTE_US);
+
+        assertNull(snapshot.topSql(query().build()));
+        assertNotNull(snapshot.topSql(query().startTimeUs(T0 + MINUTE_US).build()));
+    }
+
+    @Test
+    public void collect_dropOldestBucketsOverMaxBytes() {
+        properties.setAuditSnapshotMaxBytes(23 * 1024L);
+        snapshot.collect(T0 + 10 * MINUTE_US);
+        sqlAudit.queries.clear();
+
+        assertSameAsLive(query().build());
+        long headEndUs = sqlAudit.queries.get(0).getEndTimeUs();
+        assertTrue(headEndUs > T0 + 5 * MINUTE_US);
+        assertTrue(headEndUs < T0 + 8 * MINUTE_US);
+    }
+
+    @Test
+    public void collect_allBucketsDropped() {
+        properties.setAuditSnapshotMaxBytes(1L);
+        snapshot.collect(T0 + 10 * MINUTE_US);
+
+        assertNull(snapshot.topSql(query().build()));
+    }
+
+    @Test
+    public void topSql_disabled() {
+        snapshot.collect(T0 + 10 * MINUTE_US);
+        properties.setAuditSnapshotEnabled(false);
+
+        assertNull(snapshot.topSql(query().build()));
+        assertTrue(sqlAudit.queries.isEmpty());
+    }
+
+    private QueryTopSqlRawStatParam.Builder query() {
+        return QueryTopSqlRawStatParam.builder()
+                .obTenantId(TENANT_ID)
+                .startTimeUs(T0 + 30_000_000L)
+                .endTimeUs(T0 + 8 * MINUTE_US + 20_000_000L);
+    }
+
+    private List<SqlAuditRawStatEntity> assertSameAsLive(QueryTopSqlRawStatParam query) {
+        List<SqlAuditRawStatEntity> rows = snapshot.topSql(query);
+        assertNotNull(rows);
+        assertEquals(summary(sqlAudit.topSql(query)), summary(rows));
+        return rows;
+    }
+
+    private static Map<String, String> summary(List<SqlAuditRawStatEntity> rows) {
+        return rows.stream().collect(Collectors.toMap(SqlAuditRawStatEntity::getSqlId,
+                row -> row.getExec() + "/" + row.getElapsedTimeUs() + "/" + row.getInnerSqlCount(),
+                (a, b) -> a, TreeMap::new));
+    }
+
+    /**
+     * Sql audit of one tenant on one server, queried the same as the live queries.
+     */
+    private static class InMemorySqlAudit implements SqlAuditRawStatAccess {
+
+        private final List<SqlAuditBucketStatEntity> executions = new ArrayList<>();
+
+        private final List<QueryTopSqlRawStatParam> queries = new ArrayList<>();
+
+        void add(String sqlId, String statement, long endUs, long elapsedUs, boolean inner) {
+            SqlAuditBucketStatEntity execution = new SqlAuditBucketStatEntity();
+            execution.setObTenantId(TENANT_ID);
+            execution.setObDbId(BigInteger.ONE);
+            execution.setDbName("test");
+            execution.setSqlId(sqlId);
+            execution.setStatement(statement);
+            execution.setSqlText(statement);
+            execution.setServerIp("127.0.0.1");
+            execution.setServerPort(2882);
+            execution.setExec(1L);
+            execution.setElapsedTimeUs(elapsedUs);
+            execution.setInnerSqlCount(inner ? 1L : 0L);
+            execution.setBucketStartUs(endUs);
+            executions.add(execution);
+        }
+
+        @Override
+        public List<SqlAuditRawStatEntity> topSql(QueryTopSqlRawStatParam param) {
+            queries.add(param);
+            Map<String, SqlAuditRawStatEntity> groups = new LinkedHashMap<>();
+            for (SqlAuditBucketStatEntity execution : executions) {
+                long endUs = execution.getBucketStartUs();
+                if (!param.getObTenantId().equals(execution.getObTenantId()) || endUs < param.getStartTimeUs()
+                        || endUs > param.getEndTimeUs()) {
+                    continue;
+                }
+                if (param.getSqlId() != null && !param.getSqlId().equals(execution.getSqlId())) {
+                    continue;
+                }
+                groups.computeIfAbsent(execution.getSqlId(), k -> copyIdentity(execution, new SqlAuditRawStatEntity()))
+                        .merge(execution);
+            }
+            return groups.values().stream()
+                    .filter(row -> param.isIncludeInner() || row.getInnerSqlCount() == 0L)
+                    .filter(row -> param.getSqlText() == null
+                            || like(row.getStatement().toLowerCase(), "%" + param.getSqlText().toLowerCase() + "%"))
+                    .limit(1000)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public List<SqlAuditBucketStatEntity> sqlAuditByBucket(QuerySqlAuditBucketParam param) {
+            Map<String, SqlAuditBucketStatEntity> groups = new LinkedHashMap<>();
+            for (SqlAuditBucketStatEntity execution : executions) {
+                long endUs = execution.getBucketStartUs();
+                if (endUs <= param.getStartTimeUs() || endUs > param.getEndTimeUs()) {
+                    continue;
+                }
+                long bucketStartUs = Math.floorDiv(endUs, param.getBucketUs()) * param.getBucketUs();
+                SqlAuditBucketStatEntity group = groups.computeIfAbsent(execution.getSqlId() + "@" + bucketStartUs,
+                        k -> copyIdentity(execution, new SqlAuditBucketStatEntity()));
+                group.setBucketStartUs(bucketStartUs);
+                group.merge(execution);
+            }
+            return new ArrayList<>(groups.values());
+        }
+
+        @Override
+        public List<SqlAuditRawStatEntity> slowSql(QueryTopSqlRawStatParam param) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<TenantSlowSqlCounter> getTopSlowSql(QuerySlowSqlRankParam param) {
+            throw new UnsupportedOperationException();
+        }
+
+        private static <T extends SqlAuditRawStatEntity> T copyIdentity(SqlAuditRawStatEntity from, T to) {
+            to.setObTenantId(from.getObTenantId());
+            to.setObDbId(from.getObDbId());
+            to.setDbName(from.getDbName());
+            to.setSqlId(from.getSqlId());
+            to.setStatement(from.getStatement());
+            to.setSqlText(from.getSqlText());
+            to.setServerIp(from.getServerIp());
+            to.setServerPort(from.getServerPort());
+            return to;
+        }
+
+        private static boolean like(String text, String pattern) {
+            if (pattern.isEmpty()) {
+                return text.isEmpty();
+            }
+            char c = pattern.charAt(0);
+            if (c == '%') {
+                for (int i = 0; i <= text.length(); i++) {
+                    if (like(text.substring(i), pattern.substring(1))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (text.isEmpty()) {
+                return false;
+            }
+            if (c == '\\' && pattern.length() > 1) {
+                return text.charAt(0) == pattern.charAt(1) && like(text.substring(1), pattern.substring(2));
+            }
+            return (c == '_' || text.charAt(0) == c) && like(text.substring(1), pattern.substring(1));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.perf.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.core.event.DatabaseChangedEvent;
+import com.oceanbase.ocp.core.event.TenantChangedEvent;
+import com.oceanbase.ocp.core.exception.NotFoundException;
+import com.oceanbase.ocp.core.ob.tenant.ObTenantEntity;
+import com.oceanbase.ocp.core.ob.tenant.TenantDaoManager;
+import com.oceanbase.ocp.core.obsdk.ObOperatorFactory;
+import com.oceanbase.ocp.obsdk.operator.ObOperator;
+import com.oceanbase.ocp.obsdk.operator.ObjectOperator;
+import com.oceanbase.ocp.obsdk.operator.resource.model.ObGvDatabase;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SqlStatContextServiceImplTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private final List<ObTenantEntity> tenants = new ArrayList<>();
+
+    private final Map<Long, List<ObGvDatabase>> databases = new ConcurrentHashMap<>();
+
+    private final AtomicInteger tenantLoads = new AtomicInteger();
+
+    private final Map<Long, AtomicInteger> databaseLoads = new ConcurrentHashMap<>();
+
+    private SqlStatContextServiceImpl service;
+
+    @Before
+    public void setUp() {
+        addTenant(1001L);
+        addTenant(1002L);
+        addDatabase(1001L, 500001L, "db1");
+        addDatabase(1002L, 500001L, "db1");
+        TenantDaoManager tenantDaoManager = (TenantDaoManager) Proxy.newProxyInstance(
+                TenantDaoManager.class.getClassLoader(), new Class<?>[] {TenantDaoManager.class},
+                (proxy, method, args) -> {
+                    if (!"queryAllTenant".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    tenantLoads.incrementAndGet();
+                    return new ArrayList<>(tenants);
+                });
+        ObjectOperator objectOperator = obTenantId -> {
+            databaseLoads.computeIfAbsent(obTenantId, k -> new AtomicInteger()).incrementAndGet();
+            return new ArrayList<>(databases.getOrDefault(obTenantId, new ArrayList<>()));
+        };
+        ObOperatorFactory obOperatorFactory = new ObOperatorFactory() {
+
+            @Override
+            public ObOperator createObOperator() {
+                return ObOperator.builder().objectOperator(objectOperator).build();
+            }
+        };
+        service = new SqlStatContextServiceImpl(tenantDaoManager, obOperatorFactory, new SqlStatProperties(),
+                new SimpleMeterRegistry(), now::get);
+        service.init();
+    }
+
+    @Test
+    public void onTenantChanged_singleTenant() {
+        assertEquals(500001L, service.getObDatabaseId(1001L, "DB1").longValue());
+        assertEquals("db1", service.getDatabaseName(1002L, 500001L));
+        assertEquals("db1", service.getDatabaseName(1001L, 500001L));
+        assertEquals(1, tenantLoads.get());
+        assertEquals(1, databaseLoads(1001L));
+        assertEquals(1, databaseLoads(1002L));
+
+        service.onTenantChanged(new TenantChangedEvent(this, 1001L));
+        assertEquals(500001L, service.getObDatabaseId(1001L, "db1").longValue());
+        assertEquals("db1", service.getDatabaseName(1002L, 500001L));
+        assertEquals(2, tenantLoads.get());
+        assertEquals(2, databaseLoads(1001L));
+        assertEquals(1, databaseLoads(1002L));
+    }
+
+    @Test
+    public void onDatabaseChanged_keepTenants() {
+        service.getObDatabaseId(1001L, "db1");
+        service.getObDatabaseId(1002L, "db1");
+        addDatabase(1001L, 500002L, "db2");
+
+        service.onDatabaseChanged(new DatabaseChangedEvent(this, 1001L));
+        assertEquals(500002L, service.getObDatabaseId(1001L, "db2").longValue());
+        service.getObDatabaseId(1002L, "db1");
+        assertEquals(1, tenantLoads.get());
+        assertEquals(2, databaseLoads(1001L));
+        assertEquals(1, databaseLoads(1002L));
+    }
+
+    @Test
+    public void onTenantChanged_allTenants() {
+        service.getObDatabaseId(1001L, "db1");
+        service.getObDatabaseId(1002L, "db1");
+
+        service.onTenantChanged(new TenantChangedEvent(this, null));
+        service.getObDatabaseId(1001L, "db1");
+        service.getObDatabaseId(1002L, "db1");
+        assertEquals(2, tenantLoads.get());
+        assertEquals(2, databaseLoads(1001L));
+        assertEquals(2, databaseLoads(1002L));
+    }
+
+    @Test
+    public void getObDatabaseId_missWithinReloadWindow() {
+        assertEquals(500001L, service.getObDatabaseId(1001L, "db1").longValue());
+        addDatabase(1001L, 500002L, "db2");
+
+        now.addAndGet(4_999L);
+        assertNull(service.getObDatabaseId(1001L, "db2"));
+        assertNull(service.getDatabaseName(1001L, 500002L));
+        assertEquals(1, databaseLoads(1001L));
+
+        now.addAndGet(1L);
+        assertEquals(500002L, service.getObDatabaseId(1001L, "db2").longValue());
+        assertEquals("db2", service.getDatabaseName(1001L, 500002L));
+        assertEquals(2, databaseLoads(1001L));
+    }
+
+    @Test
+    public void getObDatabaseId_tenantMissWithinReloadWindow() {
+        service.getObDatabaseId(1001L, "db1");
+        addTenant(1003L);
+
+        now.addAndGet(4_999L);
+        try {
+            service.getObDatabaseId(1003L, "db1");
+            fail("tenant not found expected");
+        } catch (NotFoundException expected) {
+            assertEquals(1, tenantLoads.get());
+        }
+
+        now.addAndGet(1L);
+        assertNull(service.getObDatabaseId(1003L, "db1"));
+        assertEquals(2, tenantLoads.get());
+    }
+
+    private int databaseLoads(long obTenantId) {
+        return databaseLoads.getOrDefault(obTenantId, new AtomicInteger()).get();
+    }
+
+    private void addTenant(long obTenantId) {
+        ObTenantEntity tenant = new ObTenantEntity();
+        tenant.setObTenantId(obTenantId);
+        tenants.add(tenant);
+    }
+
+    private void addDatabase(long obTenantId, long dbId, String dbName) {
+        ObGvDatabase database = new ObGvDatabase();
+        database.setDatabaseId(dbId);
+        database.setDatabaseName(dbName);
+        databases.computeIfAbsent(obTenantId, k -> new ArrayList<>()).add(database);
+    }
+}
@@ -29,7 +29,10 @@ import org.springframework.stereotype.Component;
 
 import com.oceanbase.ocp.core.property.PropertyService;
 import com.oceanbase.ocp.obsdk.config.Configurations;
+import com.oceanbase.ocp.obsdk.connector.ObConnectors;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -41,6 +44,7 @@ public class ObSdkConfig {
     public static final String HOLDER_CAPACITY_KEY = "obsdk.connector.holder.capacity";
     public static final String CONNECTOR_MAX_IDLE_SECONDS_KEY = "obsdk.connector.max-idle.seconds";
     public static final String CONNECTOR_CLEAN_PERIOD_KEY = "obsdk.connector.cleanup.period.seconds";
+    public static final String CONNECTOR_VALIDATION_PERIOD_KEY = "obsdk.connector.validation.period.seconds";
     public static final String PRINT_SQL_KEY = "obsdk.print.sql";
     public static final String SLOW_QUERY_THRESHOLD_KEY = "obsdk.slow.query.threshold.millis";
     public static final String CONNECTOR_INIT_TIMEOUT_KEY = "obsdk.connector.init.timeout.millis";
@@ -52,6 +56,9 @@ public class ObSdkConfig {
     @Resource
     private PropertyService propertyService;
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
     private final Map<String, Consumer<String>> configMap;
 
     public ObSdkConfig() {
@@ -62,6 +69,8 @@ public class ObSdkConfig {
                 t -> Configurations.setMaxIdleSeconds(parseLong(t, 3600L)));
         configMap.put(CONNECTOR_CLEAN_PERIOD_KEY,
                 t -> Configurations.setCleanPeriod(parseLong(t, 300L)));
+        configMap.put(CONNECTOR_VALIDATION_PERIOD_KEY,
+                t -> Configurations.setValidationPeriod(parseLong(t, 30L)));
         configMap.put(PRINT_SQL_KEY,
                 t -> Configurations.setSqlLogEnabled(parseBoolean(t)));
         configMap.put(SLOW_QUERY_THRESHOLD_KEY,
@@ -108,5 +117,19 @@ public class ObSdkConfig {
             log.info("[ObSdkConfig] init, {} = {}", entry.getKey(), property);
             entry.getValue().accept(property);
         }
+        registerConnectorMeters();
+    }
+
+    private void registerConnectorMeters() {
+        FunctionCounter.builder("obsdk_connector_holder_lookup", ObConnectors.class,
+                c -> ObConnectors.getHolderHitCount()).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("obsdk_connector_holder_lookup", ObConnectors.class,
+                c -> ObConnectors.getHolderMissCount()).tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("obsdk_connector_validation", ObConnectors.class,
+                c -> ObConnectors.getValidationCount()).tag("result", "all").register(meterRegistry);
+        FunctionCounter.builder("obsdk_connector_validation", ObConnectors.class,
+                c -> ObConnectors.getValidationFailedCount()).tag("result", "failed").register(meterRegistry);
+        FunctionCounter.builder("obsdk_connector_validation_time", ObConnectors.class,
+                c -> ObConnectors.getValidationNanos() / 1000D).baseUnit("microseconds").register(meterRegistry);
     }
 }
@@ -13,8 +13,15 @@ package com.oceanbase.ocp.task.dao;
 
 import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,11 +41,21 @@ public class SubtaskAccessor {
     private final SubtaskInstanceOverviewRepository subtaskRepo;
     private final SubtaskLogRepo subtaskLogRepo;
 
+    /**
+     * Notified after state of a subtask is saved.
+     */
+    private Consumer<SubtaskInstanceOverview> stateListener = overview -> {
+    };
+
     public SubtaskAccessor(SubtaskInstanceOverviewRepository subtaskRepo, SubtaskLogRepo subtaskLogRepo) {
         this.subtaskRepo = subtaskRepo;
         this.subtaskLogRepo = subtaskLogRepo;
     }
 
+    public void setStateListener(Consumer<SubtaskInstanceOverview> stateListener) {
+        this.stateListener = stateListener;
+    }
+
     public Set<Long> findAllIdByState(SubtaskState state) {
         return subtaskRepo.findAllIdByState(state);
     }
@@ -51,6 +68,49 @@ public class SubtaskAccessor {
         return subtaskRepo.findById(subtaskId);
     }
 
+    public List<SubtaskInstanceOverview> findAllById(Collection<Long> subtaskIds) {
+        return subtaskRepo.findAllById(subtaskIds);
+    }
+
+    /**
+     * Ids of subtasks in the state, grouped by type of their tasks.
+     */
+    public Map<TaskType, List<Long>> findAllIdByStateGroupByTaskType(SubtaskState state) {
+        Map<TaskType, List<Long>> result = new EnumMap<>(TaskType.class);
+        for (Object[] row : subtaskRepo.findAllIdAndTaskTypeByState(state.name())) {
+            TaskType type = Optional.ofNullable(TaskType.fromValue((String) row[1])).orElse(TaskType.SCHEDULED);
+            result.computeIfAbsent(type, t -> new ArrayList<>()).add(((Number) row[0]).longValue());
+        }
+        return result;
+    }
+
+    /**
+     * Claim READY subtasks for the executor with one conditional update.
+     *
+     * @return ids of subtasks claimed, subtasks picked by other instances are
+     *         excluded
+     */
+    public Set<Long> claimReady(Collection<Long> subtaskIds, String executor) {
+        int updated = subtaskRepo.claimByIdIn(subtaskIds, SubtaskState.READY, SubtaskState.RUNNING, executor,
+                OffsetDateTime.now());
+        if (updated == 0) {
+            return Collections.emptySet();
+        }
+        Set<Long> claimed =
+                subtaskRepo.findAllIdByIdInAndStateAndExecutor(subtaskIds, SubtaskState.RUNNING, executor);
+        log.info("Claim ready subtasks, candidates={}, claimed={}", subtaskIds.size(), claimed);
+        return claimed;
+    }
+
+    /**
+     * Set subtasks claimed by the executor but not started back to READY.
+     */
+    public int unclaim(Collection<Long> subtaskIds, String executor) {
+        int updated = subtaskRepo.unclaimByIdIn(subtaskIds, SubtaskState.RUNNING, SubtaskState.READY, executor);
+        log.info("Unclaim subtasks, ids={}, updated={}", subtaskIds, updated);
+        return updated;
+    }
+
     public SubtaskInstanceOverview setRunning(SubtaskInstanceOverview overview) {
         // Set start time if subtask first time scheduled.
         if (overview.getStartTime() == null) {
@@ -103,6 +163,7 @@ public class SubtaskAccessor {
                 subtaskLogRepo.save(logEntity);
             }
             log.info(message);
+            stateListener.accept(newOverview);
             return newOverview;
         } catch (Throwable throwable) {
             log.info("Modify subtask state failed, error message={}", throwable.getMessage());
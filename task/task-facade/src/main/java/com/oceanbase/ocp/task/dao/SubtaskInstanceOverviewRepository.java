@@ -44,4 +44,31 @@ public interface SubtaskInstanceOverviewRepository extends JpaRepository<Subtask
             nativeQuery = true)
     String getTaskTypeBySubtaskId(long subtaskId);
 
+    @Query(value = "SELECT s.id, t.type FROM subtask_instance s INNER JOIN task_instance t ON s.task_id = t.id "
+            + "WHERE s.state = ?1", nativeQuery = true)
+    List<Object[]> findAllIdAndTaskTypeByState(String state);
+
+    /**
+     * Mark subtasks still in expected state as RUNNING by the executor, subtasks
+     * already moved by others are left as is.
+     */
+    @Modifying
+    @Query("UPDATE SubtaskInstanceOverview u SET u.state = ?3, u.executor = ?4, "
+            + "u.startTime = COALESCE(u.startTime, ?5), u.endTime = NULL, u.version = u.version + 1 "
+            + "WHERE u.id IN (?1) AND u.state = ?2")
+    int claimByIdIn(Collection<Long> ids, SubtaskState expectedState, SubtaskState state, String executor,
+            OffsetDateTime startTime);
+
+    /**
+     * Move subtasks claimed by the executor back to the state, subtasks already
+     * moved by others are left as is.
+     */
+    @Modifying
+    @Query("UPDATE SubtaskInstanceOverview u SET u.state = ?3, u.version = u.version + 1 "
+            + "WHERE u.id IN (?1) AND u.state = ?2 AND u.executor = ?4")
+    int unclaimByIdIn(Collection<Long> ids, SubtaskState expectedState, SubtaskState state, String executor);
+
+    @Query(value = "SELECT u.id FROM SubtaskInstanceOverview u WHERE u.id IN (?1) AND u.state = ?2 AND u.executor = ?3")
+    Set<Long> findAllIdByIdInAndStateAndExecutor(Collection<Long> ids, SubtaskState state, String executor);
+
 }
@@ -11,6 +11,9 @@
  */
 package com.oceanbase.ocp.task.dao;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.lang3.Validate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -23,6 +26,10 @@ import com.oceanbase.ocp.task.entity.SubtaskLogEntity;
 @Component
 public class SubtaskLogRepo {
 
+    private static final String INSERT_STATEMENT =
+            "INSERT INTO `subtask_log`(`subtask_id`, `log_content`, `run_time`) VALUES ";
+    private static final String VALUES_PLACEHOLDER = "(?, ?, ?)";
+
     @Autowired
     private JdbcTemplate metaJdbcTemplate;
 
@@ -32,8 +39,27 @@ public class SubtaskLogRepo {
     @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
     public int save(SubtaskLogEntity entity) {
         Validate.notNull(entity);
-        String sql = "INSERT INTO `subtask_log`(`subtask_id`, `log_content`, `run_time`) VALUES (?, ?, ?)";
+        String sql = INSERT_STATEMENT + VALUES_PLACEHOLDER;
         return metaJdbcTemplate.update(sql, entity.getSubtaskInstanceId(), entity.getLogContent(), entity.getRunTime());
     }
 
+    /**
+     * Save subtask logs to db with one multi-row insert, rows keep the order of the
+     * list.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public int saveAll(List<SubtaskLogEntity> entities) {
+        Validate.notEmpty(entities);
+        StringBuilder sql = new StringBuilder(INSERT_STATEMENT);
+        List<Object> args = new ArrayList<>(entities.size() * 3);
+        for (int i = 0; i < entities.size(); i++) {
+            SubtaskLogEntity entity = entities.get(i);
+            sql.append(i == 0 ? "" : ", ").append(VALUES_PLACEHOLDER);
+            args.add(entity.getSubtaskInstanceId());
+            args.add(entity.getLogContent());
+            args.add(entity.getRunTime());
+        }
+        return metaJdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
 }
@@ -13,6 +13,7 @@ package com.oceanbase.ocp.task;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import javax.annotation.Resource;
@@ -43,6 +44,7 @@ import com.oceanbase.ocp.task.engine.config.SubtaskCoordinatorConfig;
 import com.oceanbase.ocp.task.engine.config.TaskCoordinatorConfig;
 import com.oceanbase.ocp.task.engine.coordinator.SubtaskCoordinator;
 import com.oceanbase.ocp.task.engine.coordinator.TaskCoordinator;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.engine.manager.SubtaskInstanceManager;
 import com.oceanbase.ocp.task.engine.manager.SubtaskInstanceManagerImpl;
 import com.oceanbase.ocp.task.engine.manager.TaskInstanceManagerImpl;
@@ -83,6 +85,12 @@ public class TaskAutoConfiguration {
     @Autowired
     private TaskProperties taskProperties;
 
+    @Bean
+    public TaskDispatcher taskDispatcher() {
+        long reconcileIntervalMillis = TimeUnit.SECONDS.toMillis(taskProperties.getDispatchReconcileIntervalSeconds());
+        return new TaskDispatcher(reconcileIntervalMillis).addMeterRegistry(meterRegistry);
+    }
+
     @Bean
     public TaskCoordinator taskCoordinator() {
         TaskCoordinatorConfig config = TaskCoordinatorConfig.builder()
@@ -93,13 +101,16 @@ public class TaskAutoConfiguration {
                 .taskOverviewRepo(taskOverviewRepo)
                 .defaultSubtaskConcurrency(taskProperties.getDefaultSubTaskConcurrency())
                 .transactionTemplate(new TransactionTemplate(platformTransactionManager))
+                .taskDispatcher(taskDispatcher())
                 .build();
         return new TaskCoordinator(config).addMeterRegistry(meterRegistry);
     }
 
     @Bean
     public SubtaskAccessor subtaskAccessor() {
-        return new SubtaskAccessor(subtaskOverviewRepo, subtaskLogRepo);
+        SubtaskAccessor subtaskAccessor = new SubtaskAccessor(subtaskOverviewRepo, subtaskLogRepo);
+        subtaskAccessor.setStateListener(taskDispatcher()::subtaskStateChanged);
+        return subtaskAccessor;
     }
 
     @Bean
@@ -110,11 +121,15 @@ public class TaskAutoConfiguration {
                 .subtaskAccessor(subtaskAccessor())
                 .subtaskLogRepo(subtaskLogRepo)
                 .transactionTemplate(new TransactionTemplate(platformTransactionManager))
+                .taskDispatcher(taskDispatcher())
                 .subtaskLogPath(taskProperties.getSubtaskLogPath())
                 .subtaskExecutorCorePoolSize(taskProperties.getSubtaskExecutorCorePoolSize())
                 .subtaskExecutorMaxPoolSize(taskProperties.getSubtaskExecutorMaxPoolSize())
                 .manualSubtaskExecutorCorePoolSize(taskProperties.getManualSubtaskExecutorCorePoolSize())
                 .manualSubtaskExecutorMaxPoolSize(taskProperties.getManualSubtaskExecutorMaxPoolSize())
+                .subtaskLogQueueCapacity(taskProperties.getSubtaskLogQueueCapacity())
+                .subtaskLogBatchSize(taskProperties.getSubtaskLogBatchSize())
+                .subtaskLogFlushIntervalMillis(taskProperties.getSubtaskLogFlushIntervalMillis())
                 .postSubtaskHooks(makePostSubtaskHooks())
                 .build();
         ThreadPrintStream.replaceSystemOut();
@@ -124,12 +139,12 @@ public class TaskAutoConfiguration {
     @Bean
     public TaskInstanceManager taskInstanceManager(TaskCoordinator taskCoordinator) {
         Supplier<String> supplier = () -> authenticationFacade.currentUserName();
-        return new TaskInstanceManagerImpl(taskInstanceRepository, taskCoordinator, supplier);
+        return new TaskInstanceManagerImpl(taskInstanceRepository, taskCoordinator, supplier, taskDispatcher());
     }
 
     @Bean
     public SubtaskInstanceManager subtaskInstanceManager() {
-        return new SubtaskInstanceManagerImpl(subtaskInstanceRepository);
+        return new SubtaskInstanceManagerImpl(subtaskInstanceRepository, taskDispatcher());
     }
 
     private List<SubtaskHook<Long>> makePostSubtaskHooks() {
@@ -40,6 +40,20 @@ public class TaskProperties {
     @Value("${subtask.defaultConcurrency:10}")
     private int defaultSubTaskConcurrency;
 
+    @Value("${subtaskLog.queueCapacity:4096}")
+    private int subtaskLogQueueCapacity;
+    @Value("${subtaskLog.batchSize:64}")
+    private int subtaskLogBatchSize;
+    @Value("${subtaskLog.flushIntervalMillis:500}")
+    private long subtaskLogFlushIntervalMillis;
+
+    /**
+     * Coordinators are woken by task events, this is the interval of the
+     * reconciliation poll when no event arrives.
+     */
+    @Value("${dispatch.reconcileIntervalSeconds:30}")
+    private long dispatchReconcileIntervalSeconds;
+
     public String getSubtaskLogPath() {
         return loggingFileName.substring(0, loggingFileName.lastIndexOf("/")).concat("/task");
     }
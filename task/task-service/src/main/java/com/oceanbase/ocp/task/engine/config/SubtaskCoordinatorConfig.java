@@ -20,6 +20,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 import com.oceanbase.ocp.task.dao.SubtaskAccessor;
 import com.oceanbase.ocp.task.dao.SubtaskInstanceRepository;
 import com.oceanbase.ocp.task.dao.SubtaskLogRepo;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.entity.TaskInstanceOverview;
 import com.oceanbase.ocp.task.hook.SubtaskHook;
 
@@ -40,6 +41,8 @@ public class SubtaskCoordinatorConfig {
 
     private TransactionTemplate transactionTemplate;
 
+    private TaskDispatcher taskDispatcher;
+
     private String subtaskLogPath;
 
     private int subtaskExecutorCorePoolSize;
@@ -48,6 +51,10 @@ public class SubtaskCoordinatorConfig {
     private int manualSubtaskExecutorCorePoolSize;
     private int manualSubtaskExecutorMaxPoolSize;
 
+    private int subtaskLogQueueCapacity;
+    private int subtaskLogBatchSize;
+    private long subtaskLogFlushIntervalMillis;
+
     @Builder.Default
     private List<SubtaskHook<Long>> preSubtaskHooks = new ArrayList<>();
     @Builder.Default
@@ -21,6 +21,7 @@ import com.oceanbase.ocp.task.dao.TaskDefinitionRepository;
 import com.oceanbase.ocp.task.dao.TaskInstanceOverviewRepository;
 import com.oceanbase.ocp.task.dao.TaskInstanceRepository;
 import com.oceanbase.ocp.task.dao.TaskTemplateRepository;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.entity.TaskInstanceOverview;
 import com.oceanbase.ocp.task.hook.TaskHook;
 
@@ -44,6 +45,8 @@ public class TaskCoordinatorConfig {
 
     private TransactionTemplate transactionTemplate;
 
+    private TaskDispatcher taskDispatcher;
+
     @Builder.Default
     private List<TaskHook<TaskInstanceOverview>> postTaskHooks = new ArrayList<>();
 
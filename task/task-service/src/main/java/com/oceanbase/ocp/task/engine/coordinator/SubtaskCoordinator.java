@@ -29,6 +29,7 @@ import com.oceanbase.ocp.task.engine.coordinator.worker.subtask.FailedSubtaskWor
 import com.oceanbase.ocp.task.engine.coordinator.worker.subtask.ReadySubtaskWorker;
 import com.oceanbase.ocp.task.engine.coordinator.worker.subtask.RunningSubtaskWorker;
 import com.oceanbase.ocp.task.engine.runner.RunnerFactory;
+import com.oceanbase.ocp.task.engine.util.SubtaskLogWriter;
 
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -38,12 +39,16 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SubtaskCoordinator implements Closeable {
 
+    private static final long DISPATCH_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
     private final ReadySubtaskWorker readySubtaskWorker;
     private final RunningSubtaskWorker runningSubtaskWorker;
     private final CancelingSubtaskWorker cancelingSubtaskWorker;
     private final FailedSubtaskWorker failedSubtaskWorker;
 
     private final SubtaskCoordinatorConfig config;
+    private final TaskDispatcher taskDispatcher;
+    private final SubtaskLogWriter subtaskLogWriter;
 
     private ScheduledThreadPoolExecutor selectorExecutor;
     private ThreadPoolExecutor runnerExecutor;
@@ -55,7 +60,10 @@ public class SubtaskCoordinator implements Closeable {
 
     public SubtaskCoordinator(SubtaskCoordinatorConfig conf) {
         this.config = conf;
-        RunnerFactory runnerFactory = new RunnerFactory(conf);
+        this.taskDispatcher = conf.getTaskDispatcher();
+        this.subtaskLogWriter = new SubtaskLogWriter(conf.getSubtaskLogRepo(), conf.getSubtaskLogQueueCapacity(),
+                conf.getSubtaskLogBatchSize(), conf.getSubtaskLogFlushIntervalMillis());
+        RunnerFactory runnerFactory = new RunnerFactory(conf, subtaskLogWriter);
 
         this.readySubtaskWorker = new ReadySubtaskWorker(conf, runnerFactory);
         this.cancelingSubtaskWorker = new CancelingSubtaskWorker(conf);
@@ -64,12 +72,17 @@ public class SubtaskCoordinator implements Closeable {
     }
 
     public final SubtaskCoordinator startup() {
+        return startup(DISPATCH_DELAY_MILLIS);
+    }
+
+    final SubtaskCoordinator startup(long dispatchDelayMillis) {
         log.info("Start subtask coordinator");
+        subtaskLogWriter.startup();
         this.selectorExecutor = new ScheduledThreadPoolExecutor(4, new OcpThreadFactory("subtask-coordinator"));
-        selectorExecutor.scheduleWithFixedDelay(() -> this.execute(readySubtaskWorker), 60, 1, TimeUnit.SECONDS);
-        selectorExecutor.scheduleWithFixedDelay(() -> this.execute(runningSubtaskWorker), 60, 1, TimeUnit.SECONDS);
-        selectorExecutor.scheduleWithFixedDelay(() -> this.execute(cancelingSubtaskWorker), 60, 1, TimeUnit.SECONDS);
-        selectorExecutor.scheduleWithFixedDelay(() -> this.execute(failedSubtaskWorker), 60, 1, TimeUnit.SECONDS);
+        dispatch(TaskDispatcher.Channel.READY_SUBTASK, readySubtaskWorker, dispatchDelayMillis);
+        dispatch(TaskDispatcher.Channel.RUNNING_SUBTASK, runningSubtaskWorker, dispatchDelayMillis);
+        dispatch(TaskDispatcher.Channel.CANCELING_SUBTASK, cancelingSubtaskWorker, dispatchDelayMillis);
+        dispatch(TaskDispatcher.Channel.FAILED_SUBTASK, failedSubtaskWorker, dispatchDelayMillis);
 
         this.runnerExecutor =
                 new ThreadPoolExecutor(config.getSubtaskExecutorCorePoolSize(), config.getSubtaskExecutorMaxPoolSize(),
@@ -89,10 +102,17 @@ public class SubtaskCoordinator implements Closeable {
             this.meterRegistry = meterRegistry;
             this.measurable = true;
             this.meterMap = new ConcurrentHashMap<>(8);
+            subtaskLogWriter.addMeterRegistry(meterRegistry);
+            readySubtaskWorker.addMeterRegistry(meterRegistry);
         }
         return this;
     }
 
+    private void dispatch(TaskDispatcher.Channel channel, AbstractSubtaskWorker worker, long delayMillis) {
+        selectorExecutor.schedule(() -> taskDispatcher.loop(channel, () -> this.execute(worker)), delayMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
     private void execute(AbstractSubtaskWorker worker) {
         long start = System.currentTimeMillis();
         try {
@@ -120,9 +140,11 @@ public class SubtaskCoordinator implements Closeable {
 
     @Override
     public void close() throws IOException {
+        taskDispatcher.close();
         ExecutorUtils.shutdown(selectorExecutor, 5);
         ExecutorUtils.shutdown(runnerExecutor, 5);
         ExecutorUtils.shutdown(manualRunnerExecutor, 5);
+        subtaskLogWriter.close();
     }
 
 }
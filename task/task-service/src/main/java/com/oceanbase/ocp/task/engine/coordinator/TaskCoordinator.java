@@ -39,6 +39,7 @@ public class TaskCoordinator implements Closeable {
 
     private final ReadyTaskWorker readyTaskWorker;
     private final RunningTaskWorker runningTaskWorker;
+    private final TaskDispatcher taskDispatcher;
 
     private ScheduledThreadPoolExecutor selectorExecutor;
 
@@ -50,13 +51,17 @@ public class TaskCoordinator implements Closeable {
         AbstractTaskWorker.setDefaultConcurrency(conf.getDefaultSubtaskConcurrency());
         this.readyTaskWorker = new ReadyTaskWorker(conf);
         this.runningTaskWorker = new RunningTaskWorker(conf);
+        this.taskDispatcher = conf.getTaskDispatcher();
     }
 
     public final TaskCoordinator startup() {
         log.info("Start task coordinator");
         this.selectorExecutor = new ScheduledThreadPoolExecutor(2, new OcpThreadFactory("task-coordinator"));
         selectorExecutor.scheduleWithFixedDelay(() -> this.lockAndExecute(readyTaskWorker), 60, 1, TimeUnit.SECONDS);
-        selectorExecutor.scheduleWithFixedDelay(() -> this.lockAndExecute(runningTaskWorker), 60, 1, TimeUnit.SECONDS);
+        // Running tasks only change with their subtasks, so they are handled on subtask
+        // state change signals instead of polling.
+        selectorExecutor.schedule(() -> taskDispatcher.loop(TaskDispatcher.Channel.RUNNING_TASK,
+                () -> this.lockAndExecute(runningTaskWorker)), 60, TimeUnit.SECONDS);
         return this;
     }
 
@@ -101,6 +106,7 @@ public class TaskCoordinator implements Closeable {
 
     @Override
     public void close() throws IOException {
+        taskDispatcher.close();
         ExecutorUtils.shutdown(selectorExecutor, 5);
     }
 
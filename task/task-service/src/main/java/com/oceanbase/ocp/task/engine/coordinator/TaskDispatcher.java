@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+package com.oceanbase.ocp.task.engine.coordinator;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.oceanbase.ocp.task.constants.SubtaskOperation;
+import com.oceanbase.ocp.task.constants.SubtaskState;
+import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process wake-up signals of coordinator workers.
+ * <p>
+ * Task submission and subtask state changes signal the channel of the worker
+ * which handles the new state, signals raised inside a transaction are
+ * delivered after commit. Signals are coalesced, a worker runs at most once
+ * more however many signals arrive while it is running. Each worker still runs
+ * once per reconcile interval without signal, to pick up changes made by other
+ * instances or lost in a crash.
+ */
+@Slf4j
+public class TaskDispatcher implements Closeable {
+
+    public enum Channel {
+        RUNNING_TASK,
+        READY_SUBTASK,
+        RUNNING_SUBTASK,
+        CANCELING_SUBTASK,
+        FAILED_SUBTASK,
+    }
+
+    /**
+     * Bound of ready times kept for dispatch latency, subtasks started by other
+     * instances never remove their entries.
+     */
+    private static final int MAX_READY_SUBTASKS = 10_000;
+
+    private final long reconcileIntervalMillis;
+    private final Map<Channel, BlockingQueue<Boolean>> signals = new EnumMap<>(Channel.class);
+    private final Map<Long, Long> readyNanos = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+    private Timer dispatchLatency;
+
+    public TaskDispatcher(long reconcileIntervalMillis) {
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        for (Channel channel : Channel.values()) {
+            signals.put(channel, new ArrayBlockingQueue<>(1));
+        }
+    }
+
+    public TaskDispatcher addMeterRegistry(MeterRegistry meterRegistry) {
+        if (meterRegistry != null) {
+            this.dispatchLatency = Timer.builder("ocp_task_subtask_dispatch_latency")
+                    .description("Latency from subtask ready to subtask started")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+        return this;
+    }
+
+    public void signal(Channel channel) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    signals.get(channel).offer(Boolean.TRUE);
+                }
+            });
+        } else {
+            signals.get(channel).offer(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Subtasks are marked ready, remember ready time and wake the ready subtask
+     * worker.
+     */
+    public void subtasksReady(Collection<Long> subtaskIds) {
+        if (subtaskIds.isEmpty()) {
+            return;
+        }
+        if (readyNanos.size() + subtaskIds.size() > MAX_READY_SUBTASKS) {
+            readyNanos.clear();
+        }
+        long now = System.nanoTime();
+        subtaskIds.forEach(id -> readyNanos.put(id, now));
+        signal(Channel.READY_SUBTASK);
+    }
+
+    public void subtaskStateChanged(SubtaskInstanceOverview subtask) {
+        SubtaskState state = subtask.getState();
+        if (state == null) {
+            return;
+        }
+        switch (state) {
+            case READY:
+                subtasksReady(Collections.singletonList(subtask.getId()));
+                break;
+            case RUNNING:
+                if (subtask.getOperation() == SubtaskOperation.CANCEL) {
+                    signal(Channel.RUNNING_SUBTASK);
+                }
+                break;
+            case CANCELING:
+                signal(Channel.CANCELING_SUBTASK);
+                break;
+            case FAILED:
+                signal(Channel.FAILED_SUBTASK);
+                signal(Channel.RUNNING_TASK);
+                break;
+            default:
+                signal(Channel.RUNNING_TASK);
+        }
+    }
+
+    /**
+     * Subtask is picked up by this instance, record how long it waited.
+     */
+    public void subtaskStarted(long subtaskId) {
+        Long readyAt = readyNanos.remove(subtaskId);
+        if (readyAt != null && dispatchLatency != null) {
+            dispatchLatency.record(System.nanoTime() - readyAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Run work once, then again on every signal of the channel or after the
+     * reconcile interval, until closed or interrupted.
+     */
+    public void loop(Channel channel, Runnable work) {
+        BlockingQueue<Boolean> signal = signals.get(channel);
+        while (!closed) {
+            work.run();
+            try {
+                signal.poll(reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("Dispatch loop exited, channel={}", channel);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        signals.values().forEach(signal -> signal.offer(Boolean.TRUE));
+    }
+}
@@ -23,12 +23,14 @@ import com.oceanbase.ocp.task.constants.SubtaskState;
 import com.oceanbase.ocp.task.constants.TaskOperation;
 import com.oceanbase.ocp.task.dao.SubtaskInstanceOverviewRepository;
 import com.oceanbase.ocp.task.engine.config.TaskCoordinatorConfig;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.entity.SubtaskInstanceEntity;
 
 public abstract class AbstractTaskWorker implements Worker {
 
     private final TransactionTemplate transactionTemplate;
     private final SubtaskInstanceOverviewRepository subtaskOverviewRepo;
+    private final TaskDispatcher taskDispatcher;
 
     /**
      * Maximum concurrency for one task.
@@ -38,6 +40,7 @@ public abstract class AbstractTaskWorker implements Worker {
     protected AbstractTaskWorker(TaskCoordinatorConfig c) {
         this.transactionTemplate = c.getTransactionTemplate();
         this.subtaskOverviewRepo = c.getSubtaskOverviewRepo();
+        this.taskDispatcher = c.getTaskDispatcher();
     }
 
     public static void setDefaultConcurrency(int defaultConcurrency) {
@@ -56,6 +59,10 @@ public abstract class AbstractTaskWorker implements Worker {
         transactionTemplate.executeWithoutResult(action);
     }
 
+    public TaskDispatcher getTaskDispatcher() {
+        return taskDispatcher;
+    }
+
     private void doMarkRunningSubtasks(Collection<SubtaskInstanceEntity> subtasks, int concurrency) {
         int rdyOrRunningCount = (int) subtasks.stream()
                 .filter(subtask -> subtask.isRunning() || subtask.isReady())
@@ -83,6 +90,7 @@ public abstract class AbstractTaskWorker implements Worker {
         }
         if (!readySubtasks.isEmpty()) {
             transactionWithoutResult(t -> subtaskOverviewRepo.updateStateByIdIn(readySubtasks, SubtaskState.READY));
+            taskDispatcher.subtasksReady(readySubtasks);
         }
     }
 
@@ -112,6 +120,7 @@ public abstract class AbstractTaskWorker implements Worker {
         }
         if (!readySubtasks.isEmpty()) {
             transactionWithoutResult(t -> subtaskOverviewRepo.updateStateByIdIn(readySubtasks, SubtaskState.READY));
+            taskDispatcher.subtasksReady(readySubtasks);
         }
     }
 
@@ -23,6 +23,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -170,7 +171,12 @@ public class ReadyTaskWorker extends AbstractTaskWorker {
         TaskInstanceEntity entity = buildTaskInstance(taskDefinitionId, template, arg, taskType, creator);
         initSubtaskState(entity.getSubtasks(), arg.getConcurrency());
         log.info("Save task instance, entity={}", entity);
-        return taskInstanceRepository.saveAndFlush(entity);
+        TaskInstanceEntity saved = taskInstanceRepository.saveAndFlush(entity);
+        getTaskDispatcher().subtasksReady(saved.getSubtasks().stream()
+                .filter(SubtaskInstanceEntity::isReady)
+                .map(SubtaskInstanceEntity::getId)
+                .collect(Collectors.toList()));
+        return saved;
     }
 
     private void initSubtaskState(Collection<SubtaskInstanceEntity> subtasks, int concurrency) {
@@ -16,6 +16,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -51,6 +52,8 @@ public abstract class AbstractSubtaskWorker implements Worker {
 
     private static ThreadPoolExecutor runnerExecutor;
     private static ThreadPoolExecutor manualRunnerExecutor;
+    private static Semaphore runnerPermits;
+    private static Semaphore manualRunnerPermits;
 
     private final Function<Long, TaskInstanceOverview> taskFunc;
 
@@ -73,10 +76,12 @@ public abstract class AbstractSubtaskWorker implements Worker {
 
     public static void setRunnerExecutor(ThreadPoolExecutor runnerExecutor) {
         AbstractSubtaskWorker.runnerExecutor = runnerExecutor;
+        AbstractSubtaskWorker.runnerPermits = new Semaphore(runnerExecutor.getCorePoolSize());
     }
 
     public static void setManualRunnerExecutor(ThreadPoolExecutor manualRunnerExecutor) {
         AbstractSubtaskWorker.manualRunnerExecutor = manualRunnerExecutor;
+        AbstractSubtaskWorker.manualRunnerPermits = new Semaphore(manualRunnerExecutor.getCorePoolSize());
     }
 
     public String getExecutor() {
@@ -95,20 +100,27 @@ public abstract class AbstractSubtaskWorker implements Worker {
         return transactionTemplate.execute(callback);
     }
 
-    public boolean existIdleWorker(long subtaskId) {
-        // Just approximation.
-        boolean scheduleRunnerFree = runnerExecutor.getCorePoolSize() - runnerExecutor.getActiveCount() > 0;
-        boolean manualRunnerFree = manualRunnerExecutor.getCorePoolSize() - manualRunnerExecutor.getActiveCount() > 0;
-        if (scheduleRunnerFree && manualRunnerFree) {
-            return true;
+    /**
+     * Acquire up to max permits of the runner of the task type, each permit is one
+     * core thread of the runner held by a running subtask until it ends.
+     *
+     * @return count of permits acquired
+     */
+    public int acquireRunners(TaskType type, int max) {
+        Semaphore permits = getRunnerPermits(type);
+        int count = Math.min(max, permits.availablePermits());
+        if (count <= 0 || !permits.tryAcquire(count)) {
+            log.info("No idle runner, type={}, manualActive={}, scheduleActive={}", type,
+                    manualRunnerExecutor.getActiveCount(), runnerExecutor.getActiveCount());
+            return 0;
         }
-        log.info("Thread pool active count, manual={}, schedule={}",
-                manualRunnerExecutor.getActiveCount(), runnerExecutor.getActiveCount());
-        TaskType taskType = subtaskAccessor.getTaskTypeBySubtaskId(subtaskId);
-        if (taskType == TaskType.MANUAL) {
-            return manualRunnerExecutor.getCorePoolSize() - manualRunnerExecutor.getActiveCount() > 0;
+        return count;
+    }
+
+    public void releaseRunners(TaskType type, int count) {
+        if (count > 0) {
+            getRunnerPermits(type).release(count);
         }
-        return runnerExecutor.getCorePoolSize() - runnerExecutor.getActiveCount() > 0;
     }
 
     public Future<SubtaskInstanceOverview> submit(long taskId,
@@ -174,6 +186,14 @@ public abstract class AbstractSubtaskWorker implements Worker {
         return runner;
     }
 
+    private Semaphore getRunnerPermits(TaskType type) {
+        Semaphore permits = type == TaskType.MANUAL ? manualRunnerPermits : runnerPermits;
+        if (permits == null) {
+            throw new RuntimeException("Runner not init, try later, type=" + type);
+        }
+        return permits;
+    }
+
     SubtaskInstanceOverview findById(long subtaskId) {
         return subtaskAccessor.findById(subtaskId).orElse(null);
     }
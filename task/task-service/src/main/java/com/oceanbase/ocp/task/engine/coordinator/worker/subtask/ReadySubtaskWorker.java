@@ -12,9 +12,13 @@
 package com.oceanbase.ocp.task.engine.coordinator.worker.subtask;
 
 import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
@@ -27,10 +31,14 @@ import com.oceanbase.ocp.task.constants.SubtaskState;
 import com.oceanbase.ocp.task.constants.TaskType;
 import com.oceanbase.ocp.task.dao.SubtaskAccessor;
 import com.oceanbase.ocp.task.engine.config.SubtaskCoordinatorConfig;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.engine.runner.RunnerFactory;
 import com.oceanbase.ocp.task.engine.util.AsyncTimeout;
 import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -38,11 +46,22 @@ public class ReadySubtaskWorker extends TimeoutSubtaskWorker {
 
     private final SubtaskAccessor subtaskAccessor;
     private final RunnerFactory runnerFactory;
+    private final TaskDispatcher taskDispatcher;
+
+    /**
+     * Whether ready subtasks are left for lack of runner permits, they are retried
+     * once a running subtask ends.
+     */
+    private final AtomicBoolean saturated = new AtomicBoolean(false);
+
+    private Timer claimLatency;
+    private Counter rejectedCounter;
 
     public ReadySubtaskWorker(SubtaskCoordinatorConfig c, RunnerFactory runnerFactory) {
         super(c, runnerFactory);
         this.subtaskAccessor = c.getSubtaskAccessor();
         this.runnerFactory = runnerFactory;
+        this.taskDispatcher = c.getTaskDispatcher();
     }
 
     @Override
@@ -55,61 +74,108 @@ public class ReadySubtaskWorker extends TimeoutSubtaskWorker {
         return "ocp_task_ready_subtask_worker_duration";
     }
 
+    public ReadySubtaskWorker addMeterRegistry(MeterRegistry meterRegistry) {
+        if (meterRegistry != null) {
+            this.claimLatency = Timer.builder("ocp_task_ready_subtask_claim_latency")
+                    .description("Latency of claiming a batch of ready subtasks")
+                    .register(meterRegistry);
+            this.rejectedCounter = Counter.builder("ocp_task_ready_subtask_rejected")
+                    .description("Count of claimed subtasks rejected by runner")
+                    .register(meterRegistry);
+        }
+        return this;
+    }
+
     @Override
     public void work() {
-        Set<Long> subtaskIds = getSubtaskIds(SubtaskState.READY, null);
-        if (subtaskIds == null || subtaskIds.isEmpty()) {
-            return;
-        }
-        for (Long subtaskId : subtaskIds) {
+        Map<TaskType, List<Long>> subtaskIds = subtaskAccessor.findAllIdByStateGroupByTaskType(SubtaskState.READY);
+        subtaskIds.forEach((type, ids) -> {
             try {
-                handleReadySubtask(subtaskId);
+                handleReadySubtasks(type, ids);
             } catch (Throwable e) {
-                log.warn("Schedule task failed, taskId={}, exception={}", subtaskId, e);
+                log.warn("Schedule ready subtasks failed, type={}, subtaskIds={}", type, ids, e);
             }
-        }
+        });
     }
 
-    private void handleReadySubtask(long subtaskId) {
-        if (!existIdleWorker(subtaskId)) {
+    private void handleReadySubtasks(TaskType type, List<Long> subtaskIds) {
+        int permits = acquireRunners(type, subtaskIds.size());
+        if (permits < subtaskIds.size()) {
+            saturated.set(true);
+        }
+        if (permits == 0) {
             return;
         }
-        SubtaskInstanceOverview entity = lockAndMarkSubtask(subtaskId);
-        if (entity == null) {
+        Set<Long> claimed = Collections.emptySet();
+        try {
+            claimed = claimSubtasks(subtaskIds.subList(0, permits));
+        } finally {
+            releaseRunners(type, permits - claimed.size());
+        }
+        if (claimed.isEmpty()) {
             return;
         }
-        Future<SubtaskInstanceOverview> future = submitTask(entity);
-
-        // Registry timeout callback.
-        registerSubtaskTimeoutCallback(entity, future);
-    }
-
-    private SubtaskInstanceOverview lockAndMarkSubtask(long subtaskId) {
-        return transactionExec(t -> {
+        List<SubtaskInstanceOverview> subtasks;
+        try {
+            subtasks = subtaskAccessor.findAllById(claimed);
+        } catch (RuntimeException e) {
+            releaseRunners(type, claimed.size());
+            unclaimSubtasks(claimed);
+            throw e;
+        }
+        // Claimed subtasks deleted meanwhile are not found.
+        releaseRunners(type, claimed.size() - subtasks.size());
+        for (SubtaskInstanceOverview subtask : subtasks) {
             try {
-                SubtaskInstanceOverview subtask = getAndCheckSubtaskState(subtaskId, SubtaskState.READY);
-                if (subtask == null) {
-                    return null;
+                taskDispatcher.subtaskStarted(subtask.getId());
+                Future<SubtaskInstanceOverview> future = submitTask(type, subtask);
+                if (future != null) {
+                    // Registry timeout callback.
+                    registerSubtaskTimeoutCallback(subtask, future);
                 }
-                prepareContext(subtask);
-                subtask.getContext().put(ContextKey.TASK_INSTANCE_ID,
-                        String.valueOf(subtask.getTaskId()));
-                subtask.getContext().put(ContextKey.LATEST_EXECUTION_START_TIME.getValue(),
-                        OffsetDateTime.now().toString());
-                subtask.setExecutor(getExecutor());
-                return subtaskAccessor.setRunning(subtask);
-            } catch (ConcurrencyFailureException | PessimisticLockException ignore) {
-                log.info("Ready task locked by other instance, id={}", subtaskId);
-                return null;
+            } catch (Throwable e) {
+                log.warn("Schedule task failed, taskId={}, exception={}", subtask.getId(), e);
             }
-        });
+        }
+    }
+
+    private Set<Long> claimSubtasks(List<Long> subtaskIds) {
+        long start = System.nanoTime();
+        try {
+            return subtaskAccessor.claimReady(subtaskIds, getExecutor());
+        } catch (ConcurrencyFailureException | PessimisticLockException ignore) {
+            log.info("Ready tasks locked by other instance, ids={}", subtaskIds);
+            return Collections.emptySet();
+        } finally {
+            if (claimLatency != null) {
+                claimLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
     }
 
-    private Future<SubtaskInstanceOverview> submitTask(SubtaskInstanceOverview subtask) {
+    private void unclaimSubtasks(Set<Long> subtaskIds) {
+        try {
+            subtaskAccessor.unclaim(subtaskIds, getExecutor());
+        } catch (RuntimeException e) {
+            log.warn("Set claimed subtasks ready again failed, ids={}", subtaskIds, e);
+        }
+    }
+
+    private SubtaskInstanceOverview markRunning(SubtaskInstanceOverview subtask) {
+        prepareContext(subtask);
+        subtask.getContext().put(ContextKey.TASK_INSTANCE_ID, String.valueOf(subtask.getTaskId()));
+        subtask.getContext().put(ContextKey.LATEST_EXECUTION_START_TIME.getValue(), OffsetDateTime.now().toString());
+        subtask.setExecutor(getExecutor());
+        return subtaskAccessor.setRunning(subtask);
+    }
+
+    private Future<SubtaskInstanceOverview> submitTask(TaskType type, SubtaskInstanceOverview subtask) {
         log.info("Submit ready task, entity={}", subtask);
         BiFunction<TaskType, String, Callable<SubtaskInstanceOverview>> runFunc = (taskType, traceId) -> () -> {
+            SubtaskInstanceOverview current = subtask;
             try {
-                SubtaskInstanceOverview run = runnerFactory.run(taskType, traceId, subtask);
+                current = markRunning(subtask);
+                SubtaskInstanceOverview run = runnerFactory.run(taskType, traceId, current);
                 if (!Thread.currentThread().isInterrupted()) {
                     return subtaskAccessor.setExecuteEnd(run);
                 } else {
@@ -119,14 +185,32 @@ public class ReadySubtaskWorker extends TimeoutSubtaskWorker {
                 }
             } catch (Throwable t1) {
                 log.warn("Task execute failed.", t1);
-                subtaskAccessor.setFailed(subtask);
+                subtaskAccessor.setFailed(current);
             } finally {
                 // Remove timeout callback whether SUCCESS or FAILED.
                 AsyncTimeout.cancelScheduledTimeout(subtask.getId());
+                releaseRunners(type, 1);
+                if (saturated.compareAndSet(true, false)) {
+                    taskDispatcher.signal(TaskDispatcher.Channel.READY_SUBTASK);
+                }
             }
             return subtask;
         };
-        return submit(subtask.getTaskId(), runFunc);
+        try {
+            return submit(subtask.getTaskId(), runFunc);
+        } catch (RejectedExecutionException e) {
+            releaseRunners(type, 1);
+            if (rejectedCounter != null) {
+                rejectedCounter.increment();
+            }
+            log.warn("Runner rejected subtask, set it ready again, id={}", subtask.getId());
+            saturated.set(true);
+            subtaskAccessor.setReady(subtask);
+            return null;
+        } catch (RuntimeException e) {
+            releaseRunners(type, 1);
+            throw e;
+        }
     }
 
     private void registerSubtaskTimeoutCallback(SubtaskInstanceOverview overview,
@@ -11,6 +11,8 @@
  */
 package com.oceanbase.ocp.task.engine.manager;
 
+import java.util.Collections;
+
 import org.springframework.transaction.annotation.Transactional;
 
 import com.oceanbase.ocp.core.exception.NotFoundException;
@@ -21,6 +23,7 @@ import com.oceanbase.ocp.task.constants.SubtaskState;
 import com.oceanbase.ocp.task.constants.TaskOperation;
 import com.oceanbase.ocp.task.constants.TaskState;
 import com.oceanbase.ocp.task.dao.SubtaskInstanceRepository;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.entity.SubtaskInstanceEntity;
 import com.oceanbase.ocp.task.model.SubtaskInstance;
 
@@ -30,9 +33,12 @@ import lombok.extern.slf4j.Slf4j;
 public class SubtaskInstanceManagerImpl implements SubtaskInstanceManager {
 
     private final SubtaskInstanceRepository subtaskInstanceRepository;
+    private final TaskDispatcher taskDispatcher;
 
-    public SubtaskInstanceManagerImpl(SubtaskInstanceRepository subtaskInstanceRepository) {
+    public SubtaskInstanceManagerImpl(SubtaskInstanceRepository subtaskInstanceRepository,
+            TaskDispatcher taskDispatcher) {
         this.subtaskInstanceRepository = subtaskInstanceRepository;
+        this.taskDispatcher = taskDispatcher;
     }
 
     @Override
@@ -48,7 +54,9 @@ public class SubtaskInstanceManagerImpl implements SubtaskInstanceManager {
         entity.getTaskInstance().setState(TaskState.RUNNING);
         entity.setState(SubtaskState.READY);
         entity.setOperation(SubtaskOperation.RETRY);
-        return SubtaskInstance.fromEntity(subtaskInstanceRepository.saveAndFlush(entity));
+        SubtaskInstanceEntity saved = subtaskInstanceRepository.saveAndFlush(entity);
+        taskDispatcher.subtasksReady(Collections.singletonList(id));
+        return SubtaskInstance.fromEntity(saved);
     }
 
     @Override
@@ -68,6 +76,7 @@ public class SubtaskInstanceManagerImpl implements SubtaskInstanceManager {
             entity.setOperation(SubtaskOperation.SKIP);
         }
         subtaskInstanceRepository.saveAndFlush(entity);
+        taskDispatcher.subtasksReady(Collections.singletonList(id));
     }
 
     @Override
@@ -79,6 +88,7 @@ public class SubtaskInstanceManagerImpl implements SubtaskInstanceManager {
         log.info("Cancel subtask, taskId={}, name={}", id, entity.getName());
         entity.setState(SubtaskState.CANCELING);
         subtaskInstanceRepository.saveAndFlush(entity);
+        taskDispatcher.signal(TaskDispatcher.Channel.CANCELING_SUBTASK);
     }
 
     private SubtaskInstanceEntity nullSafeGetById(long id) {
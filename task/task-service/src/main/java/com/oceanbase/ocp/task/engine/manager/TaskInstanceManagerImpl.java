@@ -34,6 +34,7 @@ import com.oceanbase.ocp.task.constants.TaskState;
 import com.oceanbase.ocp.task.constants.TaskType;
 import com.oceanbase.ocp.task.dao.TaskInstanceRepository;
 import com.oceanbase.ocp.task.engine.coordinator.TaskCoordinator;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
 import com.oceanbase.ocp.task.entity.SubtaskInstanceEntity;
 import com.oceanbase.ocp.task.entity.TaskInstanceEntity;
 import com.oceanbase.ocp.task.model.Argument;
@@ -46,12 +47,14 @@ public class TaskInstanceManagerImpl implements TaskInstanceManager {
     private final TaskInstanceRepository taskInstanceRepository;
     private final TaskCoordinator taskCoordinator;
     private final Supplier<String> creatorSupplier;
+    private final TaskDispatcher taskDispatcher;
 
     public TaskInstanceManagerImpl(TaskInstanceRepository taskInstanceRepository, TaskCoordinator taskCoordinator,
-            Supplier<String> creatorSupplier) {
+            Supplier<String> creatorSupplier, TaskDispatcher taskDispatcher) {
         this.taskInstanceRepository = taskInstanceRepository;
         this.taskCoordinator = taskCoordinator;
         this.creatorSupplier = creatorSupplier;
+        this.taskDispatcher = taskDispatcher;
     }
 
     @Override
@@ -89,6 +92,7 @@ public class TaskInstanceManagerImpl implements TaskInstanceManager {
             }
         }
         taskInstanceRepository.saveAndFlush(entity);
+        signalReadySubtasks(entity);
     }
 
     @Override
@@ -113,7 +117,16 @@ public class TaskInstanceManagerImpl implements TaskInstanceManager {
                 taskEntity.setRunTime(taskEntity.getRunTime() + 1);
             }
         }
-        return toDto(taskInstanceRepository.saveAndFlush(entity));
+        TaskInstanceEntity saved = taskInstanceRepository.saveAndFlush(entity);
+        signalReadySubtasks(saved);
+        return toDto(saved);
+    }
+
+    private void signalReadySubtasks(TaskInstanceEntity entity) {
+        taskDispatcher.subtasksReady(entity.getSubtasks().stream()
+                .filter(SubtaskInstanceEntity::isReady)
+                .map(SubtaskInstanceEntity::getId)
+                .collect(Collectors.toList()));
     }
 
     @Override
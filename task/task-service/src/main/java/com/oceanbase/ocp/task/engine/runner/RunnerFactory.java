@@ -42,12 +42,11 @@ import com.oceanbase.ocp.task.constants.NodeType;
 import com.oceanbase.ocp.task.constants.SubtaskOperation;
 import com.oceanbase.ocp.task.constants.SubtaskState;
 import com.oceanbase.ocp.task.constants.TaskType;
-import com.oceanbase.ocp.task.dao.SubtaskLogRepo;
 import com.oceanbase.ocp.task.engine.config.SubtaskCoordinatorConfig;
+import com.oceanbase.ocp.task.engine.util.SubtaskLogWriter;
 import com.oceanbase.ocp.task.engine.util.SubtaskOutputStream;
 import com.oceanbase.ocp.task.engine.util.ThreadPrintStream;
 import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
-import com.oceanbase.ocp.task.entity.SubtaskLogEntity;
 import com.oceanbase.ocp.task.hook.SubtaskHook;
 import com.oceanbase.ocp.task.model.Context;
 
@@ -69,13 +68,13 @@ public class RunnerFactory {
     private final Map<NodeType, List<SubtaskHook<Long>>> preHookMap = new ConcurrentHashMap<>();
     private final Map<NodeType, List<SubtaskHook<Long>>> postHookMap = new ConcurrentHashMap<>();
 
-    private final SubtaskLogRepo subtaskLogRepo;
+    private final SubtaskLogWriter subtaskLogWriter;
     private final String taskLogPath;
     private static final String LOG_DATE_FORMAT = "yyyyMMdd";
 
-    public RunnerFactory(SubtaskCoordinatorConfig c) {
+    public RunnerFactory(SubtaskCoordinatorConfig c, SubtaskLogWriter subtaskLogWriter) {
         this.taskLogPath = c.getSubtaskLogPath();
-        this.subtaskLogRepo = c.getSubtaskLogRepo();
+        this.subtaskLogWriter = subtaskLogWriter;
         this.addAllJavaPreHooks(c.getPreSubtaskHooks());
         this.addAllJavaPostHooks(c.getPostSubtaskHooks());
     }
@@ -145,11 +144,7 @@ public class RunnerFactory {
 
     private void addLogSeparator(long subtaskInstanceId, int runTime, SubtaskOperation operation) {
         String splitter = String.format(SEPARATOR_FORMAT, operation.name(), OffsetDateTime.now());
-        SubtaskLogEntity entity = new SubtaskLogEntity();
-        entity.setSubtaskInstanceId(subtaskInstanceId);
-        entity.setRunTime(runTime);
-        entity.setLogContent(splitter.getBytes(StandardCharsets.UTF_8));
-        subtaskLogRepo.save(entity);
+        subtaskLogWriter.append(subtaskInstanceId, runTime, splitter.getBytes(StandardCharsets.UTF_8));
     }
 
     public void executeAndPrintLog(SubtaskInstanceOverview subtask, Consumer<SubtaskInstanceOverview> consumer) {
@@ -158,7 +153,7 @@ public class RunnerFactory {
                 String.format("%s/%s/%s.log", taskLogPath, TimeUtils.getDateString(0, LOG_DATE_FORMAT), taskId);
         try (FileOutputStream fos = FileUtils.openOutputStream(new File(logFileName), true);
                 PrintStream stream = new PrintStream(
-                        new SubtaskOutputStream(subtask.getId(), subtask.getRunTime(), fos, subtaskLogRepo))) {
+                        new SubtaskOutputStream(subtask.getId(), subtask.getRunTime(), fos, subtaskLogWriter))) {
             ((ThreadPrintStream) System.out).setThreadOut(stream);
             consumer.accept(subtask);
         } catch (Exception e) {
@@ -180,7 +175,7 @@ public class RunnerFactory {
         log.debug("Redirect subtask, id={}, fileName={}", taskId, logFileName);
         try (FileOutputStream fos = FileUtils.openOutputStream(new File(logFileName), true);
                 PrintStream stream = new PrintStream(
-                        new SubtaskOutputStream(subtask.getId(), subtask.getRunTime(), fos, subtaskLogRepo))) {
+                        new SubtaskOutputStream(subtask.getId(), subtask.getRunTime(), fos, subtaskLogWriter))) {
             ((ThreadPrintStream) System.out).setThreadOut(stream);
             return function.apply(subtask);
         } catch (Exception e) {
@@ -11,10 +11,17 @@
  */
 package com.oceanbase.ocp.task.engine.util;
 
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Predicate;
 
 import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
@@ -22,11 +29,36 @@ import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Subtask timeout, {@link #callback()} is called by the watchdog thread once
+ * the timeout elapses, unless cancelled before.
+ * <p>
+ * Timeouts are kept in a hashed timing wheel. Entering and cancelling only
+ * append to concurrent queues and flip the state of the node, the watchdog
+ * thread owns the wheel and moves nodes in or out of buckets on each tick, so
+ * callers never contend on a lock. A timeout fires at most one tick late.
+ */
 @Slf4j
 public class AsyncTimeout {
 
-    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(120);
-    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(IDLE_TIMEOUT_MILLIS);
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int WHEEL_SIZE = 512;
+
+    /**
+     * Max nodes moved into the wheel per tick, so a burst of entering cannot delay
+     * expiration too much.
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_PENDING = 1;
+    private static final int STATE_CANCELLED = 2;
+    private static final int STATE_EXPIRED = 3;
+
+    private static final Map<Long, AsyncTimeout> PENDING_TIMEOUTS = new ConcurrentHashMap<>();
+    private static final Queue<AsyncTimeout> ENTERED = new ConcurrentLinkedQueue<>();
+    private static final Queue<AsyncTimeout> CANCELLED = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean WATCHDOG_STARTED = new AtomicBoolean(false);
 
     private final long timeoutNanos;
 
@@ -35,16 +67,18 @@ public class AsyncTimeout {
     @Getter
     private final Future<SubtaskInstanceOverview> future;
 
-    private boolean inQueue;
-
-    static AsyncTimeout head;
-
-    private AsyncTimeout next;
+    private final AtomicInteger state = new AtomicInteger(STATE_INIT);
 
     private long startedAt;
 
     private long timeoutAt;
 
+    // Fields below are only accessed by the watchdog thread.
+    private long remainingRounds;
+    private Bucket bucket;
+    private AsyncTimeout prev;
+    private AsyncTimeout next;
+
     public AsyncTimeout(long subtaskInstanceId, Future<SubtaskInstanceOverview> future, long timeout, TimeUnit unit) {
         validateArg(timeout, t -> t >= 0, "Timeout must be positive.");
         validateArg(unit, Objects::nonNull, "Timeunit must be not null.");
@@ -62,16 +96,22 @@ public class AsyncTimeout {
      * Start the count-down.
      */
     public final void enter() {
-        validateArg(inQueue, t -> !t, "Node already enqueued.");
+        validateArg(state.get(), t -> t == STATE_INIT, "Node already enqueued.");
         if (timeoutNanos == 0) {
             return;
         }
-        inQueue = true;
-        scheduleTimeout(this, timeoutNanos);
+        start(System.nanoTime());
+        PENDING_TIMEOUTS.put(subtaskInstanceId, this);
+        ENTERED.offer(this);
+        if (WATCHDOG_STARTED.compareAndSet(false, true)) {
+            new Watchdog().start();
+        }
     }
 
-    private long remainingNanos(long now) {
-        return timeoutAt - now;
+    void start(long now) {
+        validateArg(state.compareAndSet(STATE_INIT, STATE_PENDING), t -> t, "Node already enqueued.");
+        startedAt = now;
+        timeoutAt = now + timeoutNanos;
     }
 
     private <T> void validateArg(T t, Predicate<T> predicate, String errorMsg) {
@@ -80,44 +120,16 @@ public class AsyncTimeout {
         }
     }
 
-    private static synchronized void scheduleTimeout(AsyncTimeout node, long timeoutNanos) {
-        if (head == null) {
-            head = new AsyncTimeout(-1L, null, 0, TimeUnit.NANOSECONDS);
-            new Watchdog().start();
-        }
-        long now = System.nanoTime();
-        node.timeoutAt = now + timeoutNanos;
-        long remainingNanos = node.remainingNanos(now);
-
-        // Insert and sort.
-        for (AsyncTimeout prev = head; true; prev = prev.next) {
-            if (prev.next == null || remainingNanos < prev.next.remainingNanos(now)) {
-                node.next = prev.next;
-                prev.next = node;
-                if (prev == head) {
-                    // If current timeout is shortest, then wake up queue.
-                    AsyncTimeout.class.notify();
-                }
-                break;
-            }
-        }
-        node.startedAt = System.nanoTime();
-    }
-
     /**
      * Cancel subtask timeout by subtask instance id.
      *
      * @param subtaskInstanceId id
      */
-    public static synchronized void cancelScheduledTimeout(long subtaskInstanceId) {
+    public static void cancelScheduledTimeout(long subtaskInstanceId) {
         log.debug("Cancel schedule timeout, subtaskInstanceId={}", subtaskInstanceId);
-        for (AsyncTimeout prev = head; prev != null; prev = prev.next) {
-            if (prev.next != null && prev.next.getSubtaskInstanceId() == subtaskInstanceId) {
-                AsyncTimeout tmp = prev.next;
-                prev.next = prev.next.next;
-                tmp.next = null;
-                return;
-            }
+        AsyncTimeout timeout = PENDING_TIMEOUTS.remove(subtaskInstanceId);
+        if (timeout != null && timeout.state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+            CANCELLED.offer(timeout);
         }
     }
 
@@ -128,38 +140,133 @@ public class AsyncTimeout {
      * @return Subtask timeout
      */
     public static Optional<AsyncTimeout> getBySubtaskInstanceId(long subtaskInstanceId) {
-        for (AsyncTimeout prev = head; prev != null; prev = prev.next) {
-            if (prev.next != null && prev.next.getSubtaskInstanceId() == subtaskInstanceId) {
-                return Optional.of(prev.next);
+        return Optional.ofNullable(PENDING_TIMEOUTS.get(subtaskInstanceId));
+    }
+
+    static int pendingCount() {
+        return PENDING_TIMEOUTS.size();
+    }
+
+    private void expire() {
+        if (!state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+            return;
+        }
+        PENDING_TIMEOUTS.remove(subtaskInstanceId, this);
+        log.debug("Node timeout, startAtNano={}, timeoutNano={}, deviationMillis={}",
+                startedAt, timeoutNanos, (System.nanoTime() - startedAt - timeoutNanos) / 1000_000);
+        try {
+            callback();
+        } catch (Throwable t) {
+            log.warn("Run callback failed.", t);
+        }
+    }
+
+    /**
+     * Doubly linked list of nodes expiring on the same slot of the wheel.
+     */
+    private static final class Bucket {
+
+        private AsyncTimeout head;
+        private AsyncTimeout tail;
+
+        private void add(AsyncTimeout node) {
+            node.bucket = this;
+            if (head == null) {
+                head = tail = node;
+            } else {
+                tail.next = node;
+                node.prev = tail;
+                tail = node;
+            }
+        }
+
+        private AsyncTimeout remove(AsyncTimeout node) {
+            AsyncTimeout next = node.next;
+            if (node.prev != null) {
+                node.prev.next = next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            }
+            if (node == head) {
+                head = next;
+            }
+            if (node == tail) {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.bucket = null;
+            return next;
+        }
+
+        private void expire() {
+            AsyncTimeout node = head;
+            while (node != null) {
+                if (node.remainingRounds <= 0) {
+                    AsyncTimeout current = node;
+                    node = remove(node);
+                    current.expire();
+                } else {
+                    node.remainingRounds--;
+                    node = node.next;
+                }
             }
         }
-        return Optional.empty();
     }
 
-    static AsyncTimeout awaitTimeout() throws InterruptedException {
-        AsyncTimeout node = head.next;
+    /**
+     * Hashed timing wheel, tick n starts at startTime + n * tickNanos, nodes due
+     * before that are expired on tick n. Nodes due more than one round later stay
+     * in their bucket for the remaining rounds.
+     */
+    static final class TimingWheel {
+
+        private final Bucket[] buckets;
+        private final long tickNanos;
+        private final long startTime;
+        private long tick = 0;
+
+        TimingWheel(int wheelSize, long tickNanos, long startTime) {
+            validateSize(wheelSize);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.tickNanos = tickNanos;
+            this.startTime = startTime;
+        }
+
+        private static void validateSize(int wheelSize) {
+            if (wheelSize <= 0 || (wheelSize & (wheelSize - 1)) != 0) {
+                throw new IllegalArgumentException("Wheel size must be a power of two.");
+            }
+        }
 
-        if (node == null) {
-            long startNanos = System.nanoTime();
-            AsyncTimeout.class.wait(IDLE_TIMEOUT_MILLIS);
-            return head.next == null && (System.nanoTime() - startNanos) >= IDLE_TIMEOUT_NANOS ? head : null;
+        long nextTickAt() {
+            return startTime + (tick + 1) * tickNanos;
         }
 
-        long waitNanos = node.remainingNanos(System.nanoTime());
-        if (waitNanos > 0) {
-            long waitMillis = waitNanos / 1000_000L;
-            waitNanos -= (waitMillis * 1000_000L);
-            AsyncTimeout.class.wait(waitMillis, (int) waitNanos);
-            return null;
+        void advance() {
+            tick++;
         }
 
-        head.next = node.next;
-        node.next = null;
-        return node;
+        void add(AsyncTimeout node) {
+            long expireTick = (node.timeoutAt - startTime + tickNanos - 1) / tickNanos;
+            node.remainingRounds = (expireTick - tick) / buckets.length;
+            long slot = Math.max(expireTick, tick);
+            buckets[(int) (slot & (buckets.length - 1))].add(node);
+        }
+
+        void expire() {
+            buckets[(int) (tick & (buckets.length - 1))].expire();
+        }
     }
 
     private static final class Watchdog extends Thread {
 
+        private final TimingWheel wheel = new TimingWheel(WHEEL_SIZE, TICK_NANOS, System.nanoTime());
+
         Watchdog() {
             super("Subtask timeout Watchdog");
             setDaemon(true);
@@ -168,33 +275,44 @@ public class AsyncTimeout {
         @Override
         public void run() {
             while (true) {
-                AsyncTimeout timeout;
                 try {
-                    synchronized (AsyncTimeout.class) {
-                        timeout = awaitTimeout();
-                        if (timeout == null) {
-                            continue;
-                        }
-                        // If queue is empty, WatchDog exist and wait for next AsyncTimeout event.
-                        if (timeout == head) {
-                            head = null;
-                            return;
-                        }
-                    }
-                    log.debug("Node timeout, startAtNano={}, timeoutNano={}, deviationMillis={}",
-                            timeout.startedAt, timeout.timeoutNanos,
-                            (System.nanoTime() - timeout.startedAt - timeout.timeoutNanos) / 1000_000);
-                    try {
-                        timeout.callback();
-                    } catch (Throwable t) {
-                        log.warn("Run callback failed.", t);
-                    }
-                } catch (InterruptedException e) {
-                    log.warn("Unexpected interrupted.", e);
+                    waitForNextTick();
+                    wheel.advance();
+                    removeCancelled();
+                    transferEntered();
+                    wheel.expire();
+                } catch (Throwable t) {
+                    log.warn("Unexpected error of timeout watchdog.", t);
                 }
             }
         }
 
+        private void waitForNextTick() {
+            long deadline = wheel.nextTickAt();
+            for (long now = System.nanoTime(); now < deadline; now = System.nanoTime()) {
+                LockSupport.parkNanos(this, deadline - now);
+            }
+        }
+
+        private void removeCancelled() {
+            for (AsyncTimeout node = CANCELLED.poll(); node != null; node = CANCELLED.poll()) {
+                if (node.bucket != null) {
+                    node.bucket.remove(node);
+                }
+            }
+        }
+
+        private void transferEntered() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                AsyncTimeout node = ENTERED.poll();
+                if (node == null) {
+                    return;
+                }
+                if (node.state.get() == STATE_PENDING) {
+                    wheel.add(node);
+                }
+            }
+        }
     }
 
 }
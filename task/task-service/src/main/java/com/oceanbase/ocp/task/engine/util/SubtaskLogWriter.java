@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.task.engine.util;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang3.Validate;
+
+import com.oceanbase.ocp.common.concurrent.OcpThreadFactory;
+import com.oceanbase.ocp.common.util.ExecutorUtils;
+import com.oceanbase.ocp.task.dao.SubtaskLogRepo;
+import com.oceanbase.ocp.task.entity.SubtaskLogEntity;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Asynchronous writer of subtask logs.
+ * <p>
+ * Log segments of all subtasks are queued and written by a background flusher
+ * with multi-row inserts, once the queue reaches batch size or the flush
+ * interval elapses. Writes are serialized by the flush lock, so segments of one
+ * subtask keep their order. If the queue is full, the caller flushes the queue
+ * itself, which is counted as overflow. Before startup or after close, segments
+ * are written synchronously. A finished subtask waits for the flusher to write
+ * its own segments, instead of writing segments of all subtasks itself.
+ */
+@Slf4j
+public class SubtaskLogWriter implements Closeable {
+
+    private final SubtaskLogRepo subtaskLogRepo;
+    private final BlockingQueue<SubtaskLogEntity> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Object flushLock = new Object();
+    private final Object signal = new Object();
+    private final Object written = new Object();
+
+    /**
+     * Count of segments appended but not written yet, by subtask id.
+     */
+    private final Map<Long, Integer> pendingSegments = new ConcurrentHashMap<>();
+
+    private final LongAdder writtenRows = new LongAdder();
+    private final LongAdder writtenBatches = new LongAdder();
+    private final LongAdder overflowCount = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+
+    private volatile boolean running = false;
+    private volatile boolean flushRequested = false;
+    private ExecutorService flusherExecutor;
+
+    public SubtaskLogWriter(SubtaskLogRepo subtaskLogRepo, int queueCapacity, int batchSize,
+            long flushIntervalMillis) {
+        Validate.notNull(subtaskLogRepo, "subtaskLogRepo is null");
+        Validate.isTrue(queueCapacity > 0 && batchSize > 0 && flushIntervalMillis > 0);
+        this.subtaskLogRepo = subtaskLogRepo;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public synchronized SubtaskLogWriter startup() {
+        if (running) {
+            return this;
+        }
+        running = true;
+        flusherExecutor = Executors.newSingleThreadExecutor(new OcpThreadFactory("subtask-log-flusher"));
+        flusherExecutor.execute(this::runFlusher);
+        return this;
+    }
+
+    public SubtaskLogWriter addMeterRegistry(MeterRegistry meterRegistry) {
+        if (meterRegistry == null) {
+            return this;
+        }
+        Gauge.builder("ocp_task_subtask_log_queue_size", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("ocp_task_subtask_log_written_rows", writtenRows, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("ocp_task_subtask_log_written_batches", writtenBatches, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("ocp_task_subtask_log_overflow", overflowCount, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("ocp_task_subtask_log_failed_rows", failedRows, LongAdder::sum)
+                .register(meterRegistry);
+        return this;
+    }
+
+    /**
+     * Queue one log segment.
+     */
+    public void append(long subtaskId, int runTime, byte[] content) {
+        SubtaskLogEntity entity = new SubtaskLogEntity();
+        entity.setSubtaskInstanceId(subtaskId);
+        entity.setRunTime(runTime);
+        entity.setLogContent(content);
+        pendingSegments.merge(subtaskId, 1, Integer::sum);
+        if (!running) {
+            synchronized (flushLock) {
+                drainAndWrite(entity);
+            }
+            return;
+        }
+        if (!queue.offer(entity)) {
+            overflowCount.increment();
+            synchronized (flushLock) {
+                drainAndWrite(entity);
+            }
+            return;
+        }
+        if (queue.size() >= batchSize) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait for the flusher to write queued segments of the subtask, returns after
+     * they are persisted. Written synchronously if the flusher is stopped.
+     */
+    public void flush(long subtaskId) throws InterruptedException {
+        synchronized (written) {
+            while (running && pendingSegments.containsKey(subtaskId)) {
+                flushRequested = true;
+                synchronized (signal) {
+                    signal.notifyAll();
+                }
+                written.wait(flushIntervalMillis);
+            }
+        }
+        if (pendingSegments.containsKey(subtaskId)) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all queued segments, returns after they are persisted.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            drainAndWrite(null);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+        if (flusherExecutor != null) {
+            ExecutorUtils.shutdown(flusherExecutor, 5);
+            flusherExecutor = null;
+        }
+        flush();
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                synchronized (signal) {
+                    if (running && queue.size() < batchSize && !flushRequested) {
+                        signal.wait(flushIntervalMillis);
+                    }
+                    flushRequested = false;
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable t) {
+                log.warn("Flush subtask logs failed", t);
+            }
+        }
+    }
+
+    /**
+     * Drain the queue in batches and write them, the extra entity goes last. Must
+     * hold the flush lock.
+     */
+    private void drainAndWrite(SubtaskLogEntity extra) {
+        List<SubtaskLogEntity> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            if (extra != null && batch.size() < batchSize && queue.isEmpty()) {
+                batch.add(extra);
+                extra = null;
+            }
+            write(batch);
+            batch.clear();
+        }
+        if (extra != null) {
+            batch.add(extra);
+            write(batch);
+        }
+    }
+
+    private void write(List<SubtaskLogEntity> batch) {
+        try {
+            saveAll(batch);
+        } finally {
+            for (SubtaskLogEntity entity : batch) {
+                pendingSegments.computeIfPresent(entity.getSubtaskInstanceId(), (k, v) -> v > 1 ? v - 1 : null);
+            }
+            synchronized (written) {
+                written.notifyAll();
+            }
+        }
+    }
+
+    private void saveAll(List<SubtaskLogEntity> batch) {
+        try {
+            subtaskLogRepo.saveAll(batch);
+            writtenRows.add(batch.size());
+            writtenBatches.increment();
+            return;
+        } catch (Exception e) {
+            log.warn("Save subtask logs in batch failed, size={}, fallback to save one by one, message={}",
+                    batch.size(), e.getMessage());
+        }
+        for (SubtaskLogEntity entity : batch) {
+            try {
+                subtaskLogRepo.save(entity);
+                writtenRows.add(1);
+            } catch (Exception e) {
+                failedRows.increment();
+                log.warn("Save subtask log failed, subtaskId={}, message={}", entity.getSubtaskInstanceId(),
+                        e.getMessage());
+            }
+        }
+    }
+
+}
@@ -17,25 +17,24 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Arrays;
 
-import com.oceanbase.ocp.task.dao.SubtaskLogRepo;
-import com.oceanbase.ocp.task.entity.SubtaskLogEntity;
-
-import lombok.extern.slf4j.Slf4j;
-
-@Slf4j
+/**
+ * Output stream of subtask, which writes to the log file and queues every 2KB
+ * segment to {@link SubtaskLogWriter}. Queued segments of the subtask are
+ * flushed to db when the stream is closed.
+ */
 public class SubtaskOutputStream extends BufferedOutputStream {
 
     private static final int BUF_SIZE = 2048;
 
     private final long subtaskId;
     private final int runTime;
-    private final SubtaskLogRepo subtaskLogRepo;
+    private final SubtaskLogWriter subtaskLogWriter;
 
-    public SubtaskOutputStream(long subtaskId, int runtime, OutputStream out, SubtaskLogRepo subtaskLogRepo) {
+    public SubtaskOutputStream(long subtaskId, int runtime, OutputStream out, SubtaskLogWriter subtaskLogWriter) {
         super(out, BUF_SIZE);
         this.subtaskId = subtaskId;
         this.runTime = runtime;
-        this.subtaskLogRepo = subtaskLogRepo;
+        this.subtaskLogWriter = subtaskLogWriter;
     }
 
     @Override
@@ -45,13 +44,9 @@ public class SubtaskOutputStream extends BufferedOutputStream {
         }
         this.out.write(buf, 0, count);
         try {
-            SubtaskLogEntity subtaskLogEntity = new SubtaskLogEntity();
-            subtaskLogEntity.setSubtaskInstanceId(subtaskId);
-            subtaskLogEntity.setRunTime(runTime);
-            subtaskLogEntity.setLogContent(Arrays.copyOfRange(this.buf, 0, this.count));
-            subtaskLogRepo.save(subtaskLogEntity);
+            subtaskLogWriter.append(subtaskId, runTime, Arrays.copyOf(this.buf, this.count));
         } catch (Exception ignore) {
-            this.count = 0;
+            // ignore
         } finally {
             this.count = 0;
         }
@@ -59,22 +54,36 @@ public class SubtaskOutputStream extends BufferedOutputStream {
 
     @Override
     public synchronized void write(int i) throws IOException {
-        this.write((byte) (i & 0xFF));
-    }
-
-    private synchronized void write(byte b) throws IOException {
         if (this.count == this.buf.length) {
             this.flush();
         }
-        this.buf[this.count++] = b;
+        this.buf[this.count++] = (byte) i;
     }
 
     @Override
-    public synchronized void write(byte[] buf, int offset, int len) throws IOException {
-        int count = len;
-        int idx = offset;
-        while (count-- > 0) {
-            this.write(buf[idx++]);
+    public synchronized void write(byte[] b, int offset, int len) throws IOException {
+        while (len > 0) {
+            if (this.count == this.buf.length) {
+                this.flush();
+            }
+            int n = Math.min(len, this.buf.length - this.count);
+            System.arraycopy(b, offset, this.buf, this.count, n);
+            this.count += n;
+            offset += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            try {
+                subtaskLogWriter.flush(subtaskId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
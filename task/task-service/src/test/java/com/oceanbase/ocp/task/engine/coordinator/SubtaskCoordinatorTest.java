@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.task.engine.coordinator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.task.constants.SubtaskState;
+import com.oceanbase.ocp.task.constants.TaskType;
+import com.oceanbase.ocp.task.dao.SubtaskAccessor;
+import com.oceanbase.ocp.task.dao.SubtaskLogRepo;
+import com.oceanbase.ocp.task.engine.config.SubtaskCoordinatorConfig;
+import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
+
+public class SubtaskCoordinatorTest {
+
+    private CountingSubtaskAccessor subtaskAccessor;
+    private TaskDispatcher taskDispatcher;
+    private SubtaskCoordinator coordinator;
+
+    @Before
+    public void setup() {
+        subtaskAccessor = new CountingSubtaskAccessor();
+        taskDispatcher = new TaskDispatcher(TimeUnit.MINUTES.toMillis(1));
+        SubtaskCoordinatorConfig config = SubtaskCoordinatorConfig.builder()
+                .subtaskAccessor(subtaskAccessor)
+                .subtaskLogRepo(new SubtaskLogRepo())
+                .taskDispatcher(taskDispatcher)
+                .subtaskExecutorCorePoolSize(1)
+                .subtaskExecutorMaxPoolSize(2)
+                .manualSubtaskExecutorCorePoolSize(1)
+                .manualSubtaskExecutorMaxPoolSize(2)
+                .subtaskLogQueueCapacity(16)
+                .subtaskLogBatchSize(8)
+                .subtaskLogFlushIntervalMillis(100L)
+                .build();
+        coordinator = new SubtaskCoordinator(config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        coordinator.close();
+    }
+
+    @Test
+    public void startup_idleWorkersQueryOnce() throws InterruptedException {
+        coordinator.startup(0L);
+        awaitCount(subtaskAccessor.queries, 4);
+
+        // Polling every second would have queried twice more per worker by now.
+        Thread.sleep(2500);
+        assertEquals(4, subtaskAccessor.queries.get());
+        for (SubtaskState state : new SubtaskState[] {SubtaskState.READY, SubtaskState.RUNNING,
+                SubtaskState.CANCELING, SubtaskState.FAILED}) {
+            assertEquals(state.name(), 1, subtaskAccessor.queriesByState.get(state).get());
+        }
+    }
+
+    @Test
+    public void startup_signalQueriesOnlyItsChannel() throws InterruptedException {
+        coordinator.startup(0L);
+        awaitCount(subtaskAccessor.queries, 4);
+
+        taskDispatcher.subtasksReady(Collections.singletonList(1L));
+        awaitCount(subtaskAccessor.queriesByState.get(SubtaskState.READY), 2);
+        Thread.sleep(500);
+        assertEquals(5, subtaskAccessor.queries.get());
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    /**
+     * Subtask accessor without any subtask, counting metadb queries.
+     */
+    private static class CountingSubtaskAccessor extends SubtaskAccessor {
+
+        final AtomicInteger queries = new AtomicInteger();
+        final Map<SubtaskState, AtomicInteger> queriesByState = new ConcurrentHashMap<>();
+
+        CountingSubtaskAccessor() {
+            super(null, null);
+            for (SubtaskState state : SubtaskState.values()) {
+                queriesByState.put(state, new AtomicInteger());
+            }
+        }
+
+        private void count(SubtaskState state) {
+            queriesByState.get(state).incrementAndGet();
+            queries.incrementAndGet();
+        }
+
+        @Override
+        public Set<Long> findAllIdByState(SubtaskState state) {
+            count(state);
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Set<Long> findAllByStateAndUpdateTimeGreaterThan(SubtaskState state, OffsetDateTime updateTime) {
+            count(state);
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Map<TaskType, List<Long>> findAllIdByStateGroupByTaskType(SubtaskState state) {
+            count(state);
+            return new EnumMap<>(TaskType.class);
+        }
+
+        @Override
+        public Optional<SubtaskInstanceOverview> findById(long subtaskId) {
+            queries.incrementAndGet();
+            return Optional.empty();
+        }
+
+        @Override
+        public List<SubtaskInstanceOverview> findAllById(Collection<Long> subtaskIds) {
+            queries.incrementAndGet();
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.task.engine.coordinator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.task.constants.SubtaskOperation;
+import com.oceanbase.ocp.task.constants.SubtaskState;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher.Channel;
+import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TaskDispatcherTest {
+
+    private static final long RECONCILE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private SimpleMeterRegistry registry;
+    private TaskDispatcher dispatcher;
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        registry = new SimpleMeterRegistry();
+        dispatcher = new TaskDispatcher(RECONCILE_MILLIS).addMeterRegistry(registry);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        dispatcher.close();
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void loop_idleWorkerOnlyReconcilesOnce() throws InterruptedException {
+        AtomicInteger queries = new AtomicInteger();
+        for (Channel channel : Channel.values()) {
+            executor.execute(() -> dispatcher.loop(channel, queries::incrementAndGet));
+        }
+        Thread.sleep(1500);
+        // Polling every second would have queried once more per worker by now.
+        assertEquals(Channel.values().length, queries.get());
+    }
+
+    @Test
+    public void loop_wokenBySignal() throws InterruptedException {
+        AtomicInteger ready = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        executor.execute(() -> dispatcher.loop(Channel.READY_SUBTASK, ready::incrementAndGet));
+        executor.execute(() -> dispatcher.loop(Channel.RUNNING_TASK, running::incrementAndGet));
+        awaitCount(ready, 1);
+
+        dispatcher.subtasksReady(Arrays.asList(1L, 2L));
+        awaitCount(ready, 2);
+        assertEquals(1, running.get());
+
+        dispatcher.subtaskStateChanged(subtask(1L, SubtaskState.SUCCESSFUL, SubtaskOperation.EXECUTE));
+        awaitCount(running, 2);
+    }
+
+    @Test
+    public void loop_signalsCoalesced() throws InterruptedException {
+        AtomicInteger queries = new AtomicInteger();
+        executor.execute(() -> dispatcher.loop(Channel.FAILED_SUBTASK, () -> {
+            queries.incrementAndGet();
+            sleep(200);
+        }));
+        for (int i = 0; i < 100; i++) {
+            dispatcher.signal(Channel.FAILED_SUBTASK);
+        }
+        Thread.sleep(1000);
+        assertTrue("queries=" + queries.get(), queries.get() <= 3);
+    }
+
+    @Test
+    public void loop_exitsOnClose() throws InterruptedException {
+        executor.execute(() -> dispatcher.loop(Channel.CANCELING_SUBTASK, () -> {
+        }));
+        dispatcher.close();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void subtaskStarted_recordsLatency() {
+        dispatcher.subtaskStateChanged(subtask(1L, SubtaskState.READY, SubtaskOperation.RETRY));
+        dispatcher.subtaskStarted(1L);
+        dispatcher.subtaskStarted(1L);
+        dispatcher.subtaskStarted(3L);
+
+        Timer timer = registry.get("ocp_task_subtask_dispatch_latency").timer();
+        assertEquals(1, timer.count());
+    }
+
+    private static SubtaskInstanceOverview subtask(long id, SubtaskState state, SubtaskOperation operation) {
+        SubtaskInstanceOverview subtask = new SubtaskInstanceOverview();
+        subtask.setId(id);
+        subtask.setState(state);
+        subtask.setOperation(operation);
+        return subtask;
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (counter.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.task.engine.coordinator.worker.subtask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.task.constants.SubtaskState;
+import com.oceanbase.ocp.task.constants.TaskType;
+import com.oceanbase.ocp.task.dao.SubtaskAccessor;
+import com.oceanbase.ocp.task.engine.config.SubtaskCoordinatorConfig;
+import com.oceanbase.ocp.task.engine.coordinator.TaskDispatcher;
+import com.oceanbase.ocp.task.engine.runner.RunnerFactory;
+import com.oceanbase.ocp.task.entity.SubtaskInstanceOverview;
+import com.oceanbase.ocp.task.entity.TaskInstanceOverview;
+import com.oceanbase.ocp.task.model.Context;
+
+public class ReadySubtaskWorkerTest {
+
+    private static final int CORE_SIZE = 2;
+
+    private ThreadPoolExecutor runnerExecutor;
+    private ThreadPoolExecutor manualRunnerExecutor;
+    private FakeSubtaskAccessor subtaskAccessor;
+    private TaskDispatcher taskDispatcher;
+    private ReadySubtaskWorker worker;
+
+    @Before
+    public void setup() {
+        runnerExecutor = newExecutor();
+        manualRunnerExecutor = newExecutor();
+        AbstractSubtaskWorker.setRunnerExecutor(runnerExecutor);
+        AbstractSubtaskWorker.setManualRunnerExecutor(manualRunnerExecutor);
+        subtaskAccessor = new FakeSubtaskAccessor();
+        taskDispatcher = new TaskDispatcher(TimeUnit.MINUTES.toMillis(1));
+        SubtaskCoordinatorConfig config = SubtaskCoordinatorConfig.builder()
+                .subtaskAccessor(subtaskAccessor)
+                .taskDispatcher(taskDispatcher)
+                .taskFunc(taskId -> {
+                    TaskInstanceOverview task = new TaskInstanceOverview();
+                    task.setId(taskId);
+                    task.setType(TaskType.SCHEDULED);
+                    task.setTraceId("trace");
+                    return task;
+                })
+                .build();
+        worker = new ReadySubtaskWorker(config, new FakeRunnerFactory(config));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        taskDispatcher.close();
+        runnerExecutor.shutdownNow();
+        manualRunnerExecutor.shutdownNow();
+        assertTrue(runnerExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void work_permitsReturnedAfterSuccessAndFailure() throws InterruptedException {
+        subtaskAccessor.readyIds = Arrays.asList(1L, 2L);
+        subtaskAccessor.failedRunIds.add(2L);
+
+        worker.work();
+        awaitCompleted(2);
+        assertEquals(Collections.singletonList(1L), subtaskAccessor.succeeded);
+        assertEquals(Collections.singletonList(2L), subtaskAccessor.failed);
+        assertEquals(CORE_SIZE, availableRunners());
+    }
+
+    @Test
+    public void work_permitsReturnedAfterRejection() throws InterruptedException {
+        subtaskAccessor.readyIds = Arrays.asList(1L, 2L);
+        runnerExecutor.shutdown();
+
+        worker.work();
+        assertEquals(Arrays.asList(1L, 2L), subtaskAccessor.setReady);
+        assertEquals(CORE_SIZE, availableRunners());
+    }
+
+    @Test
+    public void work_permitsReturnedWhenLoadClaimedFailed() {
+        subtaskAccessor.readyIds = Arrays.asList(1L, 2L);
+        subtaskAccessor.failFind = true;
+
+        worker.work();
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), subtaskAccessor.unclaimed);
+        assertEquals(CORE_SIZE, availableRunners());
+    }
+
+    @Test
+    public void work_permitsReturnedForClaimedNotFound() throws InterruptedException {
+        subtaskAccessor.readyIds = Arrays.asList(1L, 2L);
+        subtaskAccessor.deletedIds.add(2L);
+
+        worker.work();
+        awaitCompleted(1);
+        assertEquals(Collections.singletonList(1L), subtaskAccessor.succeeded);
+        assertEquals(CORE_SIZE, availableRunners());
+    }
+
+    private int availableRunners() {
+        int permits = worker.acquireRunners(TaskType.SCHEDULED, Integer.MAX_VALUE);
+        worker.releaseRunners(TaskType.SCHEDULED, permits);
+        return permits;
+    }
+
+    private void awaitCompleted(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (runnerExecutor.getCompletedTaskCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(count, runnerExecutor.getCompletedTaskCount());
+    }
+
+    private static ThreadPoolExecutor newExecutor() {
+        return new ThreadPoolExecutor(CORE_SIZE, CORE_SIZE, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    }
+
+    private static class FakeRunnerFactory extends RunnerFactory {
+
+        FakeRunnerFactory(SubtaskCoordinatorConfig c) {
+            super(c, null);
+        }
+
+        @Override
+        public SubtaskInstanceOverview run(TaskType taskType, String traceId, SubtaskInstanceOverview subtask) {
+            return subtask;
+        }
+    }
+
+    private static class FakeSubtaskAccessor extends SubtaskAccessor {
+
+        List<Long> readyIds = Collections.emptyList();
+        boolean failFind = false;
+        final Set<Long> failedRunIds = new HashSet<>();
+        final Set<Long> deletedIds = new HashSet<>();
+        final List<Long> succeeded = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> failed = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> setReady = Collections.synchronizedList(new ArrayList<>());
+        final Set<Long> unclaimed = new HashSet<>();
+
+        FakeSubtaskAccessor() {
+            super(null, null);
+        }
+
+        @Override
+        public Map<TaskType, List<Long>> findAllIdByStateGroupByTaskType(SubtaskState state) {
+            Map<TaskType, List<Long>> result = new EnumMap<>(TaskType.class);
+            result.put(TaskType.SCHEDULED, readyIds);
+            return result;
+        }
+
+        @Override
+        public Set<Long> claimReady(Collection<Long> subtaskIds, String executor) {
+            return new LinkedHashSet<>(subtaskIds);
+        }
+
+        @Override
+        public List<SubtaskInstanceOverview> findAllById(Collection<Long> subtaskIds) {
+            if (failFind) {
+                throw new IllegalStateException("find failed");
+            }
+            List<SubtaskInstanceOverview> subtasks = new ArrayList<>();
+            for (Long id : subtaskIds) {
+                if (deletedIds.contains(id)) {
+                    continue;
+                }
+                SubtaskInstanceOverview subtask = new SubtaskInstanceOverview();
+                subtask.setId(id);
+                subtask.setTaskId(100L);
+                subtask.setTimeout(3600);
+                subtask.setContext(new Context());
+                subtask.setState(SubtaskState.RUNNING);
+                subtasks.add(subtask);
+            }
+            return subtasks;
+        }
+
+        @Override
+        public int unclaim(Collection<Long> subtaskIds, String executor) {
+            unclaimed.addAll(subtaskIds);
+            return subtaskIds.size();
+        }
+
+        @Override
+        public SubtaskInstanceOverview setRunning(SubtaskInstanceOverview overview) {
+            if (failedRunIds.contains(overview.getId())) {
+                throw new IllegalStateException("run failed");
+            }
+            return overview;
+        }
+
+        @Override
+        public SubtaskInstanceOverview setReady(SubtaskInstanceOverview overview) {
+            setReady.add(overview.getId());
+            return overview;
+        }
+
+        @Override
+        public SubtaskInstanceOverview setFailed(SubtaskInstanceOverview overview) {
+            failed.add(overview.getId());
+            return overview;
+        }
+
+        @Override
+        public SubtaskInstanceOverview setExecuteEnd(SubtaskInstanceOverview overview) {
+            succeeded.add(overview.getId());
+            return overview;
+        }
+    }
+}
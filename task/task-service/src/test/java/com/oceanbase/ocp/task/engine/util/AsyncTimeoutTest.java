@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.task.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AsyncTimeoutTest {
+
+    @Test
+    public void enter_callbackAfterTimeout() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        AsyncTimeout timeout = timeout(1L, 300, fired);
+        timeout.enter();
+        assertSame(timeout, AsyncTimeout.getBySubtaskInstanceId(1L).orElse(null));
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("elapsed=" + elapsedMillis, elapsedMillis >= 300);
+        assertFalse(AsyncTimeout.getBySubtaskInstanceId(1L).isPresent());
+    }
+
+    @Test
+    public void cancelScheduledTimeout_noCallback() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        timeout(2L, 200, fired).enter();
+        AsyncTimeout.cancelScheduledTimeout(2L);
+        assertFalse(AsyncTimeout.getBySubtaskInstanceId(2L).isPresent());
+        assertFalse(fired.await(600, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void enter_zeroTimeoutNeverScheduled() {
+        timeout(3L, 0, new CountDownLatch(1)).enter();
+        assertFalse(AsyncTimeout.getBySubtaskInstanceId(3L).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void enter_twice() {
+        AsyncTimeout timeout = timeout(4L, 60_000, new CountDownLatch(1));
+        timeout.enter();
+        try {
+            timeout.enter();
+        } finally {
+            AsyncTimeout.cancelScheduledTimeout(4L);
+        }
+    }
+
+    @Test
+    public void wheel_longerThanOneRound() {
+        AsyncTimeout.TimingWheel wheel = new AsyncTimeout.TimingWheel(4, 100L, 0L);
+        CountDownLatch fired = new CountDownLatch(1);
+        AsyncTimeout timeout = new AsyncTimeout(5L, null, 1001L, TimeUnit.NANOSECONDS) {
+
+            @Override
+            public void callback() {
+                fired.countDown();
+            }
+        };
+        timeout.start(0L);
+        wheel.add(timeout);
+
+        // due on tick 11, which is slot 3 of the third round
+        for (int tick = 1; tick <= 10; tick++) {
+            wheel.advance();
+            wheel.expire();
+            assertEquals("tick=" + tick, 1, fired.getCount());
+        }
+        wheel.advance();
+        wheel.expire();
+        assertEquals(0, fired.getCount());
+    }
+
+    @Test
+    public void wheel_overdueExpireOnCurrentTick() {
+        AsyncTimeout.TimingWheel wheel = new AsyncTimeout.TimingWheel(4, 100L, 0L);
+        for (int tick = 1; tick <= 6; tick++) {
+            wheel.advance();
+            wheel.expire();
+        }
+        CountDownLatch fired = new CountDownLatch(1);
+        AsyncTimeout timeout = new AsyncTimeout(6L, null, 100L, TimeUnit.NANOSECONDS) {
+
+            @Override
+            public void callback() {
+                fired.countDown();
+            }
+        };
+        timeout.start(0L);
+
+        wheel.advance();
+        wheel.add(timeout);
+        wheel.expire();
+        assertEquals(0, fired.getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wheel_sizeNotPowerOfTwo() {
+        new AsyncTimeout.TimingWheel(6, 100L, 0L);
+    }
+
+    /**
+     * 10k timeouts entered concurrently by 8 threads, half of them cancelled and
+     * the other half expire.
+     */
+    @Test
+    public void enterAndCancel_10kConcurrentTimeouts() throws InterruptedException {
+        int threads = 8;
+        int perThread = 1250;
+        long baseId = 1_000_000L;
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch expired = new CountDownLatch(threads * perThread / 2);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            long from = baseId + (long) t * perThread;
+            executor.execute(() -> {
+                for (long id = from; id < from + perThread; id++) {
+                    new AsyncTimeout(id, null, 500, TimeUnit.MILLISECONDS) {
+
+                        @Override
+                        public void callback() {
+                            fired.incrementAndGet();
+                            expired.countDown();
+                        }
+                    }.enter();
+                }
+                for (long id = from; id < from + perThread; id += 2) {
+                    AsyncTimeout.cancelScheduledTimeout(id);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertTrue(expired.await(30, TimeUnit.SECONDS));
+        Thread.sleep(2 * TimeUnit.NANOSECONDS.toMillis(AsyncTimeout.TICK_NANOS));
+        assertEquals(threads * perThread / 2, fired.get());
+        for (long id = baseId; id < baseId + (long) threads * perThread; id++) {
+            assertFalse("id=" + id, AsyncTimeout.getBySubtaskInstanceId(id).isPresent());
+        }
+    }
+
+    private static AsyncTimeout timeout(long id, long millis, CountDownLatch fired) {
+        return new AsyncTimeout(id, null, millis, TimeUnit.MILLISECONDS) {
+
+            @Override
+            public void callback() {
+                fired.countDown();
+            }
+        };
+    }
+}
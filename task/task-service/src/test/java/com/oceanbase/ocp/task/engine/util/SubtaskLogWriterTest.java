@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2023 OceanBase
+ * OCP Express is licensed under Mulan PSL v2.
+ * You can use this software according to the terms and conditions of the Mulan PSL v2.
+ * You may obtain a copy of Mulan PSL v2 at:
+ *          http://license.coscl.org.cn/MulanPSL2
+ * THIS SOFTWARE IS PROVIDED ON AN "AS IS" BASIS, WITHOUT WARRANTIES OF ANY KIND,
+ * EITHER EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO NON-INFRINGEMENT,
+ * MERCHANTABILITY OR FIT FOR A PARTICULAR PURPOSE.
+ * See the Mulan PSL v2 for more details.
+ */
+
+package com.oceanbase.ocp.task.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oceanbase.ocp.task.dao.SubtaskLogRepo;
+import com.oceanbase.ocp.task.entity.SubtaskLogEntity;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SubtaskLogWriterTest {
+
+    private RecordingSubtaskLogRepo repo;
+    private SimpleMeterRegistry registry;
+    private SubtaskLogWriter writer;
+
+    @Before
+    public void setup() {
+        repo = new RecordingSubtaskLogRepo();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void append_writtenInBatchesByFlusher() throws InterruptedException {
+        writer = new SubtaskLogWriter(repo, 100, 3, 60_000L).addMeterRegistry(registry).startup();
+        for (int i = 0; i < 7; i++) {
+            writer.append(1L, 1, content(i));
+        }
+
+        writer.flush(1L);
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5", "6"), repo.contents());
+        for (Batch batch : repo.batches) {
+            assertTrue(batch.rows.size() <= 3);
+            assertTrue(batch.thread, batch.thread.startsWith("pool-subtask-log-flusher"));
+        }
+        assertEquals(7.0, count("ocp_task_subtask_log_written_rows"), 0.0);
+    }
+
+    @Test
+    public void flush_waitsOnlyForSegmentsOfSubtask() throws InterruptedException {
+        writer = new SubtaskLogWriter(repo, 100, 100, 60_000L).startup();
+        writer.append(1L, 1, content(1));
+        writer.append(2L, 1, content(2));
+
+        writer.flush(3L);
+        assertTrue(repo.batches.isEmpty());
+
+        writer.flush(1L);
+        assertEquals(Arrays.asList("1", "2"), repo.contents());
+        assertTrue(repo.batches.get(0).thread.startsWith("pool-subtask-log-flusher"));
+    }
+
+    @Test
+    public void write_fallbackToSaveOneByOneWhenBatchFailed() {
+        repo.failBatch = true;
+        repo.failContent = "1";
+        writer = new SubtaskLogWriter(repo, 100, 100, 60_000L).addMeterRegistry(registry).startup();
+        for (int i = 0; i < 3; i++) {
+            writer.append(1L, 1, content(i));
+        }
+
+        writer.close();
+        assertTrue(repo.batches.isEmpty());
+        assertEquals(Arrays.asList("0", "2"), repo.contents());
+        assertEquals(2.0, count("ocp_task_subtask_log_written_rows"), 0.0);
+        assertEquals(1.0, count("ocp_task_subtask_log_failed_rows"), 0.0);
+    }
+
+    @Test
+    public void append_queueFullWrittenByCaller() {
+        writer = new SubtaskLogWriter(repo, 2, 100, 60_000L).addMeterRegistry(registry).startup();
+        for (int i = 0; i < 3; i++) {
+            writer.append(1L, 1, content(i));
+        }
+
+        assertEquals(1, repo.batches.size());
+        assertEquals(Thread.currentThread().getName(), repo.batches.get(0).thread);
+        assertEquals(Arrays.asList("0", "1", "2"), repo.contents());
+        assertEquals(1.0, count("ocp_task_subtask_log_overflow"), 0.0);
+    }
+
+    private double count(String name) {
+        return registry.get(name).functionCounter().count();
+    }
+
+    private static byte[] content(int i) {
+        return String.valueOf(i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class Batch {
+
+        final String thread = Thread.currentThread().getName();
+        final List<SubtaskLogEntity> rows;
+
+        Batch(List<SubtaskLogEntity> rows) {
+            this.rows = new ArrayList<>(rows);
+        }
+    }
+
+    private static class RecordingSubtaskLogRepo extends SubtaskLogRepo {
+
+        final List<Batch> batches = Collections.synchronizedList(new ArrayList<>());
+        final List<SubtaskLogEntity> saved = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean failBatch = false;
+        volatile String failContent;
+
+        @Override
+        public int save(SubtaskLogEntity entity) {
+            if (contentOf(entity).equals(failContent)) {
+                throw new IllegalStateException("save failed");
+            }
+            saved.add(entity);
+            return 1;
+        }
+
+        @Override
+        public int saveAll(List<SubtaskLogEntity> entities) {
+            if (failBatch) {
+                throw new IllegalStateException("save all failed");
+            }
+            batches.add(new Batch(entities));
+            saved.addAll(entities);
+            return entities.size();
+        }
+
+        List<String> contents() {
+            synchronized (saved) {
+                return saved.stream().map(RecordingSubtaskLogRepo::contentOf).collect(Collectors.toList());
+            }
+        }
+
+        private static String contentOf(SubtaskLogEntity entity) {
+            return new String(entity.getLogContent(), StandardCharsets.UTF_8);
+        }
+    }
+}